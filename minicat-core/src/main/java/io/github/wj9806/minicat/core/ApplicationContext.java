@@ -83,12 +83,8 @@ public class ApplicationContext implements javax.servlet.ServletContext, Applica
     }
 
     public Servlet findMatchingServlet(javax.servlet.http.HttpServletRequest request) throws ServletException {
-        ApplicationRequest servletRequest;
-        if (request instanceof HttpServletRequestWrapper) {
-            servletRequest = (ApplicationRequest)((HttpServletRequestWrapper)request).getRequest();
-        } else {
-            servletRequest = (ApplicationRequest)request;
-        }
+        // 应用拿到的是RequestFacade，也可能再经过multipart或应用自己的包装
+        ApplicationRequest servletRequest = ApplicationRequest.unwrap(request);
 
         String path = servletRequest.getRequestURI();
         
@@ -0,0 +1,192 @@
+package io.github.wj9806.minicat.core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按容量限制的LRU缓存
+ * 1. 每个条目按weigher计算的字节数计入总容量，超出最大容量时淘汰最久未访问的条目
+ * 2. 同一个key并发未命中时只有一个线程执行加载，其他线程等待加载结果
+ * 3. 统计命中、未命中和淘汰次数
+ */
+public class ResourceCache<V> {
+
+    /**
+     * 加载缓存值，返回null表示资源不存在，不会被缓存
+     */
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load(String key) throws IOException;
+    }
+
+    private final long maxWeight;
+    private final ToLongFunction<V> weigher;
+    // 访问顺序的LinkedHashMap，头部为最久未访问的条目
+    private final LinkedHashMap<String, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResourceCache(long maxWeight, ToLongFunction<V> weigher) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+    }
+
+    /**
+     * 获取缓存值，未命中时使用loader加载并放入缓存
+     */
+    public V get(String key, Loader<V> loader) throws IOException {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // 其他线程正在加载，等待加载结果
+            hits.increment();
+            return await(inFlight);
+        }
+
+        try {
+            // 获得加载权之后再检查一次，避免与刚完成的加载重复
+            synchronized (this) {
+                value = entries.get(key);
+            }
+            if (value == null) {
+                misses.increment();
+                value = loader.load(key);
+                if (value != null) {
+                    put(key, value);
+                }
+            } else {
+                hits.increment();
+            }
+            future.complete(value);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    private V getIfPresent(String key) {
+        V value;
+        synchronized (this) {
+            value = entries.get(key);
+        }
+        if (value != null) {
+            hits.increment();
+        }
+        return value;
+    }
+
+    private V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for resource loading", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private synchronized void put(String key, V value) {
+        long w = weigher.applyAsLong(value);
+        if (w > maxWeight) {
+            // 单个条目超过最大容量，不缓存
+            return;
+        }
+        V old = entries.put(key, value);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+        }
+        weight += w;
+
+        Iterator<Map.Entry<String, V>> it = entries.entrySet().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            Map.Entry<String, V> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            weight -= weigher.applyAsLong(eldest.getValue());
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * 当前缓存的值仍是expected时替换为新值，并重新计算容量
+     * @return 是否替换成功
+     */
+    public synchronized boolean replace(String key, V expected, V value) {
+        if (entries.get(key) != expected) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * 使缓存条目失效
+     */
+    public synchronized void invalidate(String key) {
+        V old = entries.remove(key);
+        if (old != null) {
+            weight -= weigher.applyAsLong(old);
+        }
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceCache{size=" + size() +
+                ", weight=" + weight() +
+                ", maxWeight=" + maxWeight +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", evictions=" + getEvictions() +
+                '}';
+    }
+}
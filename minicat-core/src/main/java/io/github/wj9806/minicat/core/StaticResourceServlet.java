@@ -1,7 +1,13 @@
 package io.github.wj9806.minicat.core;
 
+import io.github.wj9806.minicat.http.AcceptEncoding;
+import io.github.wj9806.minicat.http.ApplicationResponse;
+import io.github.wj9806.minicat.http.HttpRange;
+import io.github.wj9806.minicat.io.NioUtil;
 import io.github.wj9806.minicat.server.HttpServlet;
 import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.util.HttpDate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,25 +15,47 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.GZIPOutputStream;
 
 public class StaticResourceServlet extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(StaticResourceServlet.class);
     private static final int BUFFER_SIZE = 16 * 1024; // 16KB buffer
     private static final long CACHE_DURATION = 86400L; // 24 hours in seconds
+    private static final String BOUNDARY = "MINICAT_BYTERANGES_" + Long.toHexString(new SecureRandom().nextLong());
     private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
-    private static final Map<String, CachedResource> resourceCache = new ConcurrentHashMap<>();
-    private static final long MAX_CACHE_SIZE = 10 * 1024 * 1024; // 10MB
-    private static long currentCacheSize = 0;
+    // 检查资源修改时间的最小间隔
+    private static final long CHECK_MODIFIED_INTERVAL = 1000L;
+    // 预压缩文件的编码与扩展名，按服务端偏好排序
+    private static final Map<String, String> PRECOMPRESSED_EXTENSIONS = new LinkedHashMap<>();
     private final Config config;
+    private final ResourceCache<CachedResource> resourceCache;
+    private final boolean checkModified;
+    private final boolean precompressed;
+    private final int compressionLevel;
+    // 后台压缩文本资源，避免首次请求时在请求线程上压缩
+    private final ThreadPoolExecutor compressor;
+    // 文件系统中的静态资源目录，未配置时为null
+    private final Path fileRoot;
     
     static {
+        PRECOMPRESSED_EXTENSIONS.put(AcceptEncoding.BROTLI, ".br");
+        PRECOMPRESSED_EXTENSIONS.put(AcceptEncoding.ZSTD, ".zst");
+        PRECOMPRESSED_EXTENSIONS.put(AcceptEncoding.GZIP, ".gz");
+
         CONTENT_TYPES.put(".html", "text/html");
         CONTENT_TYPES.put(".css", "text/css");
         CONTENT_TYPES.put(".js", "application/javascript");
@@ -56,6 +84,25 @@ public class StaticResourceServlet extends HttpServlet {
 
     public StaticResourceServlet(Config config) {
         this.config = config;
+        ServerConfig.StaticResourceConfig staticResource = config.getServer().getStaticResource();
+        this.fileRoot = staticResource.fileSystemEnabled()
+                ? Paths.get(staticResource.getDirectory()).toAbsolutePath().normalize() : null;
+        this.resourceCache = new ResourceCache<>(staticResource.getCacheMaxSize(), CachedResource::weight);
+        this.checkModified = staticResource.isCheckModified();
+        this.precompressed = staticResource.isPrecompressed();
+        this.compressionLevel = staticResource.getCompressionLevel();
+        this.compressor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(256), r -> {
+                    Thread t = new Thread(r, "StaticCompressor");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @Override
+    public void destroy() {
+        compressor.shutdownNow();
+        logger.info("StaticResourceServlet destroy, {}", resourceCache);
     }
     
     @Override
@@ -71,6 +118,11 @@ public class StaticResourceServlet extends HttpServlet {
         if (uri.equals("/") || uri.isEmpty()) {
             uri = "/index.html";
         }
+
+        // 优先从文件系统目录发送，不经过缓存
+        if (fileRoot != null && serveFile(uri, req, resp)) {
+            return;
+        }
         
         // 获取资源路径
         for (String staticPath : config.getServer().getStaticPath()) {
@@ -78,51 +130,73 @@ public class StaticResourceServlet extends HttpServlet {
             logger.debug("Looking for static resource: {}", resourcePath);
 
             try {
-                // 检查资源是否存在
-                CachedResource cachedResource = resourceCache.get(resourcePath);
+                // 从缓存获取资源，未命中时加载，并发未命中同一资源时只加载一次
+                CachedResource cachedResource = resourceCache.get(resourcePath, this::loadResource);
+                if (cachedResource != null && cachedResource.isModified(checkModified)) {
+                    // 文件已修改，重新加载
+                    resourceCache.invalidate(resourcePath);
+                    cachedResource = resourceCache.get(resourcePath, this::loadResource);
+                }
                 if (cachedResource == null) {
-                    // 资源不在缓存中，尝试加载
-                    try (InputStream resourceStream = getClass().getResourceAsStream(resourcePath)) {
-                        if (resourceStream == null) {
-                            continue;
-                        }
-                        cachedResource = loadAndCacheResource(resourcePath, resourceStream);
-                    }
+                    continue;
+                }
+
+                // 首次命中时在后台压缩，压缩完成前发送原始内容
+                scheduleCompression(resourcePath, cachedResource);
+
+                // Range请求只针对未压缩的原始内容，其他请求按Accept-Encoding协商编码
+                String encoding = null;
+                if (req.getHeader("Range") == null && !cachedResource.encodings.isEmpty()) {
+                    encoding = AcceptEncoding.parse(req.getHeaders("Accept-Encoding"))
+                            .negotiate(cachedResource.encodings.keySet());
+                }
+                String etag = encoding == null ? cachedResource.etag : variantEtag(cachedResource.etag, encoding);
+                if (cachedResource.compressible || !cachedResource.encodings.isEmpty()) {
+                    resp.setHeader("Vary", "Accept-Encoding");
                 }
 
                 // 检查If-None-Match头
+                // 304响应也要带上200响应会有的ETag、Cache-Control等校验头
+                setResourceHeaders(uri, etag, resp);
                 String clientEtag = req.getHeader("If-None-Match");
-                if (clientEtag != null && clientEtag.equals(cachedResource.etag)) {
+                if (clientEtag != null && clientEtag.equals(etag)) {
                     resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                     return;
                 }
 
-                // 设置Content-Type
-                String contentType = getContentType(uri);
-                resp.setContentType(contentType);
-                if (contentType.startsWith("text/") || contentType.equals("application/javascript")) {
-                    resp.setCharacterEncoding("UTF-8");
+                if (encoding != null) {
+                    // 发送压缩的内容
+                    resp.setHeader("Content-Encoding", encoding);
+                    resp.getOutputStream().write(cachedResource.encodings.get(encoding));
+                    return;
                 }
 
-                // 设置缓存控制头
-                resp.setHeader("Cache-Control", "public, max-age=" + CACHE_DURATION);
-                resp.setHeader("ETag", cachedResource.etag);
-
-                // 检查是否支持GZIP
-                String acceptEncoding = req.getHeader("Accept-Encoding");
-                boolean supportsGzip = acceptEncoding != null && acceptEncoding.contains("gzip");
-
-                if (supportsGzip && cachedResource.gzippedContent != null) {
-                    // 发送GZIP压缩的内容
-                    resp.setHeader("Content-Encoding", "gzip");
-                    resp.getOutputStream().write(cachedResource.gzippedContent);
-                    return;
-                } else {
-                    // 发送原始内容
-                    resp.getOutputStream().write(cachedResource.content);
+                byte[] content = cachedResource.content;
+                List<HttpRange> ranges = resolveRanges(req, etag, -1, content.length);
+                if (ranges != null) {
+                    if (ranges.isEmpty()) {
+                        sendRangeNotSatisfiable(resp, content.length);
+                        return;
+                    }
+                    List<byte[]> partHeaders = preparePartialContent(resp, ranges, getContentType(uri), content.length);
+                    OutputStream os = resp.getOutputStream();
+                    for (int i = 0; i < ranges.size(); i++) {
+                        if (partHeaders != null) {
+                            os.write(partHeaders.get(i));
+                        }
+                        HttpRange range = ranges.get(i);
+                        os.write(content, (int) range.getStart(), (int) range.length());
+                    }
+                    if (partHeaders != null) {
+                        os.write(partHeaders.get(ranges.size()));
+                    }
                     return;
                 }
 
+                // 发送原始内容
+                resp.getOutputStream().write(content);
+                return;
+
             } catch (Exception e) {
                 logger.error("Error serving static resource: {}", resourcePath, e);
                 resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
@@ -135,53 +209,271 @@ public class StaticResourceServlet extends HttpServlet {
                 "<h1>404 Not Found</h1><p>No mapping for URL: " + uri + "</p>");
     }
     
-    private CachedResource loadAndCacheResource(String resourcePath, InputStream inputStream) 
-            throws IOException {
+    /**
+     * 从文件系统目录发送文件，NIO模式下通过FileChannel.transferTo零拷贝发送
+     * @return 文件是否存在并已发送
+     */
+    private boolean serveFile(String uri, HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        Path file = fileRoot.resolve(uri.startsWith("/") ? uri.substring(1) : uri).normalize();
+        // 防止路径穿越到静态资源目录之外
+        if (!file.startsWith(fileRoot) || !Files.isRegularFile(file)) {
+            return false;
+        }
+
+        // 查找预压缩的同名文件，Range请求只针对原始文件
+        String encoding = null;
+        Path source = file;
+        if (precompressed) {
+            List<String> available = new ArrayList<>(PRECOMPRESSED_EXTENSIONS.size());
+            for (Map.Entry<String, String> entry : PRECOMPRESSED_EXTENSIONS.entrySet()) {
+                if (Files.isRegularFile(Paths.get(file + entry.getValue()))) {
+                    available.add(entry.getKey());
+                }
+            }
+            if (!available.isEmpty()) {
+                resp.setHeader("Vary", "Accept-Encoding");
+                if (req.getHeader("Range") == null) {
+                    encoding = AcceptEncoding.parse(req.getHeaders("Accept-Encoding")).negotiate(available);
+                }
+                if (encoding != null) {
+                    source = Paths.get(file + PRECOMPRESSED_EXTENSIONS.get(encoding));
+                }
+            }
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(source, StandardOpenOption.READ)) {
+            // 使用文件元数据生成ETag和Content-Length，不需要读取文件内容
+            long length = fileChannel.size();
+            long lastModified = Files.getLastModifiedTime(source).toMillis();
+            String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+            // 304响应也要带上200响应会有的ETag、Cache-Control和Last-Modified
+            setResourceHeaders(uri, etag, resp);
+            resp.setDateHeader("Last-Modified", lastModified);
+            String clientEtag = req.getHeader("If-None-Match");
+            if (clientEtag != null && clientEtag.equals(etag)) {
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+            if (encoding != null) {
+                resp.setHeader("Content-Encoding", encoding);
+            }
+
+            // 只读取并发送请求的区间
+            List<HttpRange> ranges = resolveRanges(req, etag, lastModified, length);
+            List<byte[]> partHeaders = null;
+            if (ranges == null) {
+                ranges = Collections.singletonList(new HttpRange(0, length - 1));
+            } else if (ranges.isEmpty()) {
+                sendRangeNotSatisfiable(resp, length);
+                return true;
+            } else {
+                partHeaders = preparePartialContent(resp, ranges, getContentType(uri), length);
+            }
+
+            ApplicationResponse applicationResponse = ApplicationResponse.unwrap(resp);
+            if (applicationResponse != null) {
+                applicationResponse.sendFile(fileChannel, ranges, partHeaders);
+            } else {
+                // 被包装成其他实现的响应只能通过输出流分块复制
+                OutputStream os = resp.getOutputStream();
+                for (int i = 0; i < ranges.size(); i++) {
+                    if (partHeaders != null) {
+                        os.write(partHeaders.get(i));
+                    }
+                    HttpRange range = ranges.get(i);
+                    NioUtil.transfer(fileChannel, range.getStart(), range.length(), os);
+                }
+                if (partHeaders != null) {
+                    os.write(partHeaders.get(ranges.size()));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 根据Range与If-Range请求头计算需要发送的区间
+     * @param lastModified 资源的最后修改时间，未知时为-1
+     * @return null表示发送完整内容；空列表表示区间无法满足
+     */
+    private List<HttpRange> resolveRanges(HttpServletRequest req, String etag, long lastModified, long length) {
+        String range = req.getHeader("Range");
+        if (range == null) {
+            return null;
+        }
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange != null && !ifRangeMatches(ifRange.trim(), etag, lastModified)) {
+            // 资源已变化，发送完整内容
+            return null;
+        }
+        return HttpRange.parse(range, length);
+    }
+
+    private boolean ifRangeMatches(String ifRange, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // If-Range只能使用强校验
+            return !ifRange.startsWith("W/") && ifRange.equals(etag);
+        }
+        if (lastModified < 0) {
+            return false;
+        }
+        long date = HttpDate.parse(ifRange);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    private void sendRangeNotSatisfiable(HttpServletResponse resp, long length) {
+        resp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        resp.setHeader("Content-Range", "bytes */" + length);
+    }
+
+    /**
+     * 设置206响应头
+     * @return 多个区间时返回multipart/byteranges的分片头，最后一个元素为结束边界；单个区间时返回null
+     */
+    private List<byte[]> preparePartialContent(HttpServletResponse resp, List<HttpRange> ranges,
+                                               String contentType, long length) {
+        resp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            resp.setHeader("Content-Range", ranges.get(0).contentRange(length));
+            return null;
+        }
+
+        // Content-Type直接设置响应头，避免追加charset参数
+        resp.setHeader("Content-Type", "multipart/byteranges; boundary=" + BOUNDARY);
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size() + 1);
+        for (HttpRange range : ranges) {
+            String partHeader = "\r\n--" + BOUNDARY + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: " + range.contentRange(length) + "\r\n\r\n";
+            partHeaders.add(partHeader.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        partHeaders.add(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        return partHeaders;
+    }
+
+    private void setResourceHeaders(String uri, String etag, HttpServletResponse resp) {
+        // 设置Content-Type
+        String contentType = getContentType(uri);
+        resp.setContentType(contentType);
+        if (contentType.startsWith("text/") || contentType.equals("application/javascript")) {
+            resp.setCharacterEncoding("UTF-8");
+        }
+
+        // 设置缓存控制头
+        resp.setHeader("Cache-Control", "public, max-age=" + CACHE_DURATION);
+        resp.setHeader("ETag", etag);
+        resp.setHeader("Accept-Ranges", "bytes");
+    }
+
+    /**
+     * 从classpath加载资源
+     * @return 资源不存在时返回null
+     */
+    private CachedResource loadResource(String resourcePath) throws IOException {
+        URL url = getClass().getResource(resourcePath);
+        if (url == null) {
+            return null;
+        }
+
         // 读取资源内容
+        long lastModified = lastModified(url);
+        byte[] content;
+        try (InputStream inputStream = url.openStream()) {
+            content = readFully(inputStream);
+        }
+
+        // 加载预压缩的同名资源
+        Map<String, byte[]> encodings = new LinkedHashMap<>();
+        if (precompressed) {
+            for (Map.Entry<String, String> entry : PRECOMPRESSED_EXTENSIONS.entrySet()) {
+                URL encodedUrl = getClass().getResource(resourcePath + entry.getValue());
+                if (encodedUrl != null) {
+                    try (InputStream inputStream = encodedUrl.openStream()) {
+                        encodings.put(entry.getKey(), readFully(inputStream));
+                    }
+                }
+            }
+        }
+
+        // 文本内容在后台生成GZIP版本
+        String contentType = getContentType(resourcePath);
+        boolean compressible = contentType.startsWith("text/") ||
+            contentType.equals("application/javascript") ||
+            contentType.equals("application/json") ||
+            contentType.equals("image/svg+xml");
+
+        // 计算ETag
+        String etag = calculateETag(content);
+
+        return new CachedResource(content, encodings, compressible, etag, url, lastModified);
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         byte[] buffer = new byte[BUFFER_SIZE];
         int bytesRead;
         while ((bytesRead = inputStream.read(buffer)) != -1) {
             baos.write(buffer, 0, bytesRead);
         }
-        byte[] content = baos.toByteArray();
-        
-        // 如果缓存已满，清除一些旧条目
-        while (currentCacheSize + content.length > MAX_CACHE_SIZE && !resourceCache.isEmpty()) {
-            String oldestKey = resourceCache.keySet().iterator().next();
-            CachedResource removed = resourceCache.remove(oldestKey);
-            currentCacheSize -= removed.content.length;
-            if (removed.gzippedContent != null) {
-                currentCacheSize -= removed.gzippedContent.length;
-            }
+        return baos.toByteArray();
+    }
+
+    /**
+     * 提交后台压缩任务，每个缓存条目只提交一次，压缩完成后替换缓存条目
+     */
+    private void scheduleCompression(String resourcePath, CachedResource resource) {
+        if (!resource.compressible || resource.encodings.containsKey(AcceptEncoding.GZIP)
+                || !resource.compressionScheduled.compareAndSet(false, true)) {
+            return;
         }
-        
-        // 创建GZIP版本（仅对文本内容）
-        String contentType = getContentType(resourcePath);
-        byte[] gzippedContent = null;
-        if (contentType.startsWith("text/") || 
-            contentType.equals("application/javascript") || 
-            contentType.equals("application/json")) {
-            gzippedContent = gzip(content);
+        try {
+            compressor.execute(() -> {
+                try {
+                    byte[] gzipped = gzip(resource.content);
+                    if (gzipped.length < resource.content.length) {
+                        resourceCache.replace(resourcePath, resource, resource.withEncoding(AcceptEncoding.GZIP, gzipped));
+                    }
+                } catch (IOException e) {
+                    logger.warn("Failed to compress static resource: {}", resourcePath, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 压缩队列已满，下次命中时重试
+            resource.compressionScheduled.set(false);
         }
-        
-        // 计算ETag
-        String etag = calculateETag(content);
-        
-        // 创建并缓存资源
-        CachedResource resource = new CachedResource(content, gzippedContent, etag);
-        resourceCache.put(resourcePath, resource);
-        currentCacheSize += content.length;
-        if (gzippedContent != null) {
-            currentCacheSize += gzippedContent.length;
+    }
+
+    /**
+     * 压缩后的内容使用不同的ETag，避免与原始内容混淆
+     */
+    private static String variantEtag(String etag, String encoding) {
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    /**
+     * 获取文件形式资源的修改时间，jar中的资源运行期间不会变化，返回-1
+     */
+    private static long lastModified(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return -1;
+        }
+        try {
+            return new File(url.toURI()).lastModified();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return -1;
         }
-        
-        return resource;
     }
-    
+
     private byte[] gzip(byte[] input) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
+        try (GZIPOutputStream gzos = new GZIPOutputStream(baos) {
+            {
+                def.setLevel(compressionLevel);
+            }
+        }) {
             gzos.write(input);
         }
         return baos.toByteArray();
@@ -191,10 +483,10 @@ public class StaticResourceServlet extends HttpServlet {
         try {
             MessageDigest md = MessageDigest.getInstance("MD5");
             byte[] hash = md.digest(content);
-            return Base64.getEncoder().encodeToString(hash);
+            return "\"" + Base64.getEncoder().encodeToString(hash) + "\"";
         } catch (NoSuchAlgorithmException e) {
             // 如果MD5不可用，使用内容长度作为ETag
-            return String.valueOf(content.length);
+            return "\"" + content.length + "\"";
         }
     }
     
@@ -212,13 +504,58 @@ public class StaticResourceServlet extends HttpServlet {
     
     private static class CachedResource {
         final byte[] content;
-        final byte[] gzippedContent;
+        // 编码 -> 压缩后的内容，按服务端偏好排序
+        final Map<String, byte[]> encodings;
+        // 是否为可压缩的文本内容
+        final boolean compressible;
         final String etag;
-        
-        CachedResource(byte[] content, byte[] gzippedContent, String etag) {
+        final URL url;
+        final long lastModified;
+        // 上一次检查修改时间的时间戳
+        volatile long lastChecked;
+        final AtomicBoolean compressionScheduled = new AtomicBoolean();
+
+        CachedResource(byte[] content, Map<String, byte[]> encodings, boolean compressible,
+                       String etag, URL url, long lastModified) {
             this.content = content;
-            this.gzippedContent = gzippedContent;
+            this.encodings = encodings;
+            this.compressible = compressible;
             this.etag = etag;
+            this.url = url;
+            this.lastModified = lastModified;
+            this.lastChecked = System.currentTimeMillis();
+        }
+
+        CachedResource withEncoding(String encoding, byte[] encoded) {
+            Map<String, byte[]> newEncodings = new LinkedHashMap<>(encodings);
+            newEncodings.put(encoding, encoded);
+            CachedResource resource = new CachedResource(content, newEncodings, compressible, etag, url, lastModified);
+            resource.lastChecked = lastChecked;
+            resource.compressionScheduled.set(true);
+            return resource;
+        }
+
+        long weight() {
+            long weight = content.length;
+            for (byte[] encoded : encodings.values()) {
+                weight += encoded.length;
+            }
+            return weight;
+        }
+
+        /**
+         * 资源文件是否已被修改，每个资源最多每秒检查一次
+         */
+        boolean isModified(boolean checkModified) {
+            if (!checkModified || lastModified < 0) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastChecked < CHECK_MODIFIED_INTERVAL) {
+                return false;
+            }
+            lastChecked = now;
+            return lastModified(url) != lastModified;
         }
     }
 }
@@ -0,0 +1,100 @@
+package io.github.wj9806.minicat.http;
+
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Accept-Encoding内容协商，支持q值和通配符*
+ */
+public class AcceptEncoding {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String BROTLI = "br";
+    public static final String ZSTD = "zstd";
+
+    private final Map<String, Double> qualities = new HashMap<>();
+    // 通配符*的q值，未出现时为null
+    private Double wildcard;
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * 解析Accept-Encoding请求头的所有值
+     */
+    public static AcceptEncoding parse(Enumeration<String> headerValues) {
+        AcceptEncoding acceptEncoding = new AcceptEncoding();
+        if (headerValues == null) {
+            return acceptEncoding;
+        }
+        while (headerValues.hasMoreElements()) {
+            String value = headerValues.nextElement();
+            if (value == null) {
+                continue;
+            }
+            for (String token : value.split(",")) {
+                acceptEncoding.addToken(token.trim());
+            }
+        }
+        return acceptEncoding;
+    }
+
+    private void addToken(String token) {
+        if (token.isEmpty()) {
+            return;
+        }
+        String name = token;
+        double q = 1.0;
+        int semicolon = token.indexOf(';');
+        if (semicolon != -1) {
+            name = token.substring(0, semicolon).trim();
+            for (String param : token.substring(semicolon + 1).split(";")) {
+                param = param.trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+        }
+        name = name.toLowerCase();
+        if ("*".equals(name)) {
+            wildcard = q;
+        } else {
+            qualities.put(name, q);
+        }
+    }
+
+    /**
+     * 客户端对某种编码的q值，不接受时返回0
+     */
+    public double quality(String encoding) {
+        Double q = qualities.get(encoding);
+        if (q == null) {
+            q = wildcard;
+        }
+        return q == null ? 0 : q;
+    }
+
+    /**
+     * 从服务端可用的编码中选择客户端最偏好的一种，q值相同时按available的顺序优先
+     * @return 选中的编码，没有可接受的编码时返回null（发送原始内容）
+     */
+    public String negotiate(Collection<String> available) {
+        String best = null;
+        double bestQuality = 0;
+        for (String encoding : available) {
+            double q = quality(encoding);
+            if (q > bestQuality) {
+                best = encoding;
+                bestQuality = q;
+            }
+        }
+        return best;
+    }
+}
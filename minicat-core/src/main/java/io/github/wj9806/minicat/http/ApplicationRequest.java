@@ -9,6 +9,8 @@ import io.github.wj9806.minicat.core.Lifecycle;
 import io.github.wj9806.minicat.io.RequestInputStream;
 import io.github.wj9806.minicat.net.Sock;
 import io.github.wj9806.minicat.server.Constants;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.util.HostNameCache;
 import io.github.wj9806.minicat.ws.WsConstants;
 import io.github.wj9806.minicat.ws.WsServerContainer;
 import org.slf4j.Logger;
@@ -18,8 +20,11 @@ import javax.servlet.*;
 import javax.servlet.http.*;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,12 +45,19 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
     public static final String INCLUDE_PATH_INFO = "javax.servlet.include.path_info";
     public static final String INCLUDE_QUERY_STRING = "javax.servlet.include.query_string";
 
+    private static final String LOOPBACK_ADDRESS = "127.0.0.1";
+    private static final String LOCALHOST = "localhost";
+    private static final String SESSION_COOKIE = "JSESSIONID";
+    private static final String SESSION_PATH_PARAM = ";jsessionid=";
+    // 尚未设置请求头时使用的空请求头，不会被修改
+    private static final HttpHeaders EMPTY_HEADERS = new HttpHeaders();
+
     //basic info
-    private final String method;
-    private final String protocol;
+    private String method;
+    private String protocol;
     private String requestURI;
     private String queryString;
-    private final HttpHeaders headers = new HttpHeaders();
+    private HttpHeaders headers = EMPTY_HEADERS;
     final Map<String, String[]> parameters = new HashMap<>();
     private Charset charset;
     private boolean hasReadParameters;
@@ -57,18 +69,23 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
     private final ApplicationContext servletContext;
     private final Map<String, Object> attributes = new ConcurrentHashMap<>();
 
+    //以下连接和请求头相关的信息在第一次访问时才计算并缓存
+    private Sock<?> sock;
+
     //remote info
     private String remoteAddr;
     private String remoteHost;
     private int remotePort = -1;
     private String remoteUser;
     private String authType;
+    private boolean authParsed;
 
     //server info
     private String scheme;
     private String serverName;
     private int serverPort;
     private boolean secure;
+    private boolean serverInfoParsed;
 
     //local info
     private String localAddr;
@@ -82,47 +99,72 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     private HttpServletResponse servletResponse;
     private HttpSession session;
+    private Cookie[] cookies;
+    private boolean cookiesParsed;
     private String requestedSessionId;
     private boolean requestedSessionIdFromCookie;
     private boolean requestedSessionIdFromURL;
 
-    public ApplicationRequest(ApplicationContext context, Sock<?> sock, String[] lines) {
-        String[] requestLine = lines[0].split(" ");
+    /**
+     * 创建可复用的请求对象，每个请求开始时通过{@link #setSock}和{@link #setRequestLine}设置，结束后{@link #recycle()}
+     */
+    public ApplicationRequest(ApplicationContext context) {
+        this.servletContext = context;
+    }
 
-        if (requestLine.length < 3) throw new RequestParseException("requestLine != 3");
+    public ApplicationRequest(ApplicationContext context, Sock<?> sock,
+                              String method, String requestURI, String protocol) {
+        this(context);
+        setSock(sock);
+        setRequestLine(method, requestURI, protocol);
+    }
 
-        String method = requestLine[0];
-        String requestURI = requestLine[1];
-        String protocol = requestLine[2];
+    /**
+     * 设置请求所在的连接
+     */
+    public void setSock(Sock<?> sock) {
+        // 连接对象通过getAttribute(Constants.REQUEST_SOCK)获取，不再每个请求发布一次属性添加事件
+        this.sock = sock;
+        this.secure = sock != null && sock.isSecure();
+        this.scheme = secure ? "https" : "http";
+    }
 
+    /**
+     * 设置请求行，拆分出URI和查询字符串
+     */
+    public void setRequestLine(String method, String requestURI, String protocol) {
         this.method = method;
         this.protocol = protocol;
 
         // Parse URI and query string
         logger.trace("Received request for URI: {}", requestURI);
-        if (requestURI.contains("?")) {
-            String[] parts = requestURI.split("\\?", 2);
-            this.requestURI = parts[0];
-            this.queryString = parts[1];
+        int queryIndex = requestURI.indexOf('?');
+        if (queryIndex != -1) {
+            this.requestURI = requestURI.substring(0, queryIndex);
+            this.queryString = requestURI.substring(queryIndex + 1);
         } else {
             this.requestURI = requestURI;
+            this.queryString = null;
         }
+    }
 
-        this.servletContext = context;
-
-        setAttribute(Constants.REQUEST_SOCK, sock);
+    /**
+     * 从请求对象或者包装后的请求（包括交给应用的{@link RequestFacade}）中取出ApplicationRequest
+     * @return 不是由容器创建的请求时返回null
+     */
+    public static ApplicationRequest unwrap(ServletRequest request) {
+        while (request instanceof ServletRequestWrapper) {
+            request = ((ServletRequestWrapper) request).getRequest();
+        }
+        return request instanceof ApplicationRequest ? (ApplicationRequest) request : null;
     }
 
     /**
-     * 设置请求头
+     * 设置请求头，直接使用解析器为本次请求创建的对象，不再逐个复制
      * @param headers 请求头对象
      */
     public void setHeaders(HttpHeaders headers) {
-        for (Map.Entry<String, List<String>> entry : headers.getAll().entrySet()) {
-            for (String value : entry.getValue()) {
-                this.headers.add(entry.getKey(), value);
-            }
-        }
+        this.headers = headers;
     }
 
     public void setServletResponse(HttpServletResponse servletResponse) {
@@ -246,6 +288,9 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     // 添加请求头
     public void addHeader(String name, String value) {
+        if (headers == EMPTY_HEADERS) {
+            headers = new HttpHeaders();
+        }
         headers.add(name, value);
     }
 
@@ -287,6 +332,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
     // 以下是必须实现但暂时不需要的方法，返回默认值或抛出异常
     @Override
     public String getAuthType() {
+        parseAuthorization();
         return authType;
     }
 
@@ -294,6 +340,39 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
         this.authType = authType;
     }
 
+    /**
+     * 从Authorization请求头解析认证类型，Basic认证时解码出用户名
+     */
+    private void parseAuthorization() {
+        if (authParsed) {
+            return;
+        }
+        authParsed = true;
+        String authHeader = headers.getFirst(HeaderNames.AUTHORIZATION);
+        if (authHeader == null) {
+            return;
+        }
+        int space = authHeader.indexOf(' ');
+        if (space <= 0) {
+            return;
+        }
+        String type = authHeader.substring(0, space).toUpperCase();
+        if (authType == null) {
+            authType = type;
+        }
+        if (remoteUser == null && "BASIC".equals(type)) {
+            try {
+                byte[] credentials = Base64.getDecoder().decode(authHeader.substring(space + 1).trim());
+                int colon = 0;
+                while (colon < credentials.length && credentials[colon] != ':') {
+                    colon++;
+                }
+                remoteUser = new String(credentials, 0, colon, StandardCharsets.UTF_8);
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
     public void setPathInfo(String pathInfo) {
         this.pathInfo = pathInfo;
     }
@@ -304,25 +383,49 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public Cookie[] getCookies() {
-        String cookieHeader = getHeader("Cookie");
+        parseCookies();
+        return cookies;
+    }
+
+    /**
+     * 解析Cookie请求头，结果缓存在请求中，同时记录请求携带的会话id
+     */
+    private void parseCookies() {
+        if (cookiesParsed) {
+            return;
+        }
+        cookiesParsed = true;
+        String cookieHeader = headers.getFirst(HeaderNames.COOKIE);
         if (cookieHeader == null) {
-            return null;
+            return;
         }
 
-        List<Cookie> cookies = new ArrayList<>();
-        String[] cookiePairs = cookieHeader.split(";");
-        for (String cookiePair : cookiePairs) {
-            String[] nameValue = cookiePair.trim().split("=", 2);
-            if (nameValue.length == 2) {
-                Cookie cookie = new Cookie(nameValue[0], nameValue[1]);
-                cookies.add(cookie);
-                if ("JSESSIONID".equals(nameValue[0])) {
-                    requestedSessionId = nameValue[1];
+        List<Cookie> list = new ArrayList<>();
+        int start = 0;
+        int length = cookieHeader.length();
+        while (start < length) {
+            int end = cookieHeader.indexOf(';', start);
+            if (end == -1) {
+                end = length;
+            }
+            int eq = cookieHeader.indexOf('=', start);
+            if (eq != -1 && eq < end) {
+                String name = cookieHeader.substring(start, eq).trim();
+                String value = cookieHeader.substring(eq + 1, end).trim();
+                try {
+                    list.add(new Cookie(name, value));
+                } catch (IllegalArgumentException e) {
+                    // 名称不合法的cookie忽略
+                    logger.debug("Ignoring invalid cookie: {}", name);
+                }
+                if (requestedSessionId == null && SESSION_COOKIE.equals(name)) {
+                    requestedSessionId = value;
                     requestedSessionIdFromCookie = true;
                 }
             }
+            start = end + 1;
         }
-        return cookies.toArray(new Cookie[0]);
+        cookies = list.toArray(new Cookie[0]);
     }
 
     @Override
@@ -332,23 +435,16 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
         }
 
         // 先从cookie中查找
-        Cookie[] cookies = getCookies();
-        if (cookies != null) {
-            for (Cookie cookie : cookies) {
-                if ("JSESSIONID".equals(cookie.getName())) {
-                    requestedSessionId = cookie.getValue();
-                    requestedSessionIdFromCookie = true;
-                    return requestedSessionId;
-                }
-            }
+        parseCookies();
+        if (requestedSessionId != null) {
+            return requestedSessionId;
         }
 
         // 再从URL中查找
         String uri = getRequestURI();
-        String sessionPrefix = ";jsessionid=";
-        int sessionIndex = uri.toLowerCase().indexOf(sessionPrefix);
+        int sessionIndex = indexOfIgnoreCase(uri, SESSION_PATH_PARAM);
         if (sessionIndex != -1) {
-            requestedSessionId = uri.substring(sessionIndex + sessionPrefix.length());
+            requestedSessionId = uri.substring(sessionIndex + SESSION_PATH_PARAM.length());
             requestedSessionIdFromURL = true;
             return requestedSessionId;
         }
@@ -356,6 +452,15 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
         return null;
     }
 
+    private static int indexOfIgnoreCase(String str, String search) {
+        for (int i = 0, last = str.length() - search.length(); i <= last; i++) {
+            if (str.regionMatches(true, i, search, 0, search.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     @Override
     public HttpSession getSession(boolean create) {
         if (session != null && !session.isNew()) {
@@ -374,7 +479,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public boolean isRequestedSessionIdValid() {
-        if (requestedSessionId == null) {
+        if (getRequestedSessionId() == null) {
             return false;
         }
         if (session == null) {
@@ -386,6 +491,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public boolean isRequestedSessionIdFromCookie() {
+        parseCookies();
         return requestedSessionIdFromCookie;
     }
 
@@ -412,6 +518,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public String getRemoteUser() {
+        parseAuthorization();
         return remoteUser;
     }
 
@@ -502,7 +609,11 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public Object getAttribute(String name) {
-        return attributes.get(name);
+        Object value = attributes.get(name);
+        if (value == null && Constants.REQUEST_SOCK.equals(name)) {
+            return sock;
+        }
+        return value;
     }
 
     @Override
@@ -585,7 +696,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public int getContentLength() {
-        String contentLength = getHeader("Content-Length");
+        String contentLength = headers.getFirst(HeaderNames.CONTENT_LENGTH);
         if (contentLength != null) {
             try {
                 return Integer.parseInt(contentLength);
@@ -598,7 +709,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public long getContentLengthLong() {
-        String contentLength = getHeader("Content-Length");
+        String contentLength = headers.getFirst(HeaderNames.CONTENT_LENGTH);
         if (contentLength != null) {
             try {
                 return Long.parseLong(contentLength);
@@ -611,24 +722,47 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public String getContentType() {
-        return getHeader("Content-Type");
+        return headers.getFirst(HeaderNames.CONTENT_TYPE);
     }
 
     @Override
     public String getLocalAddr() {
+        if (localAddr == null) {
+            SocketAddress address = localAddress();
+            // Unix domain socket只在本机可达
+            localAddr = address instanceof InetSocketAddress
+                    ? ((InetSocketAddress) address).getAddress().getHostAddress() : LOOPBACK_ADDRESS;
+        }
         return localAddr;
     }
 
     @Override
     public String getLocalName() {
+        if (localName == null) {
+            SocketAddress address = localAddress();
+            localName = address instanceof InetSocketAddress
+                    ? HostNameCache.hostName(((InetSocketAddress) address).getAddress()) : LOCALHOST;
+        }
         return localName;
     }
 
     @Override
     public int getLocalPort() {
+        if (localPort == -1) {
+            SocketAddress address = localAddress();
+            localPort = address instanceof InetSocketAddress ? ((InetSocketAddress) address).getPort() : 0;
+        }
         return localPort;
     }
 
+    private SocketAddress localAddress() {
+        return sock != null ? sock.getLocalAddress() : null;
+    }
+
+    private SocketAddress remoteAddress() {
+        return sock != null ? sock.getRemoteAddress() : null;
+    }
+
     public void setLocalInfo(String localAddr, String localName, int localPort) {
         this.localAddr = localAddr;
         this.localName = localName;
@@ -658,19 +792,93 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public String getRemoteAddr() {
-        return remoteAddr != null ? remoteAddr : "";
+        if (remoteAddr == null) {
+            SocketAddress address = remoteAddress();
+            if (address instanceof InetSocketAddress) {
+                remoteAddr = ((InetSocketAddress) address).getAddress().getHostAddress();
+            } else if (sock != null) {
+                // Unix domain socket连接没有客户端IP，使用本机代理转发的客户端地址，没有时视为本机
+                String forwarded = forwardedAddress();
+                remoteAddr = forwarded != null ? forwarded : LOOPBACK_ADDRESS;
+            } else {
+                return "";
+            }
+        }
+        return remoteAddr;
     }
 
+    /**
+     * 客户端主机名，只在调用时才做反向DNS解析，结果由{@link HostNameCache}缓存
+     */
     @Override
     public String getRemoteHost() {
-        return remoteHost != null ? remoteHost : getRemoteAddr();
+        if (remoteHost == null) {
+            SocketAddress address = remoteAddress();
+            remoteHost = address instanceof InetSocketAddress
+                    ? HostNameCache.hostName(((InetSocketAddress) address).getAddress()) : getRemoteAddr();
+        }
+        return remoteHost;
     }
 
     @Override
     public int getRemotePort() {
+        if (remotePort == -1 && sock != null) {
+            SocketAddress address = remoteAddress();
+            remotePort = address instanceof InetSocketAddress ? ((InetSocketAddress) address).getPort() : 0;
+        }
         return remotePort;
     }
 
+    /**
+     * 从server.uds.remoteAddressHeader指定的请求头中取出最后一个地址，即本机代理追加的对端地址；
+     * 靠前的地址由客户端提供，不可信。
+     * 支持X-Forwarded-For格式（逗号分隔的地址列表）和RFC 7239的Forwarded格式（for=参数）
+     */
+    private String forwardedAddress() {
+        String header = Config.getInstance().getServer().getUds().getRemoteAddressHeader();
+        if (header == null || header.isEmpty()) {
+            return null;
+        }
+        // 代理可能另起一行请求头追加地址，取最后一行
+        String value = null;
+        Enumeration<String> values = getHeaders(header);
+        while (values.hasMoreElements()) {
+            value = values.nextElement();
+        }
+        if (value == null) {
+            return null;
+        }
+        String node = value.substring(value.lastIndexOf(',') + 1).trim();
+        if ("forwarded".equalsIgnoreCase(header)) {
+            String forValue = null;
+            for (String pair : node.split(";")) {
+                pair = pair.trim();
+                if (pair.regionMatches(true, 0, "for=", 0, 4)) {
+                    forValue = pair.substring(4).trim();
+                    break;
+                }
+            }
+            if (forValue == null) {
+                return null;
+            }
+            node = forValue;
+        }
+        if (node.length() > 1 && node.startsWith("\"") && node.endsWith("\"")) {
+            node = node.substring(1, node.length() - 1);
+        }
+        if (node.startsWith("[")) {
+            // IPv6地址，可能带有端口
+            int end = node.indexOf(']');
+            return end > 1 ? node.substring(1, end) : null;
+        }
+        int colon = node.indexOf(':');
+        if (colon > 0 && colon == node.lastIndexOf(':')) {
+            // IPv4地址带端口
+            node = node.substring(0, colon);
+        }
+        return node.isEmpty() || "unknown".equalsIgnoreCase(node) ? null : node;
+    }
+
     public void setRemoteAddr(String remoteAddr) {
         this.remoteAddr = remoteAddr;
     }
@@ -708,14 +916,48 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
 
     @Override
     public String getServerName() {
+        parseServerInfo();
         return serverName;
     }
 
     @Override
     public int getServerPort() {
+        parseServerInfo();
         return serverPort;
     }
 
+    /**
+     * 从Host请求头解析服务器名称和端口，格式可能是：hostname:port 或 hostname，没有Host时使用本地地址
+     */
+    private void parseServerInfo() {
+        if (serverInfoParsed) {
+            return;
+        }
+        serverInfoParsed = true;
+        serverName = LOCALHOST;
+        serverPort = 8080;
+        try {
+            String host = headers.getFirst(HeaderNames.HOST);
+            if (host != null) {
+                // IPv6地址形式的Host，如[::1]:8080
+                int colonIndex = host.indexOf(':', host.startsWith("[") ? Math.max(host.indexOf(']'), 0) : 0);
+                if (colonIndex != -1) {
+                    serverName = host.substring(0, colonIndex);
+                    serverPort = Integer.parseInt(host.substring(colonIndex + 1));
+                } else {
+                    serverName = host;
+                    serverPort = secure ? 443 : 80;
+                }
+            } else if (localAddress() instanceof InetSocketAddress) {
+                // 如果没有 Host 头，使用本地地址和端口
+                serverName = getLocalName();
+                serverPort = getLocalPort();
+            }
+        } catch (Exception e) {
+            // 解析失败时使用默认值
+        }
+    }
+
     @Override
     public boolean isSecure() {
         return secure;
@@ -734,6 +976,7 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
     public DispatcherType getDispatcherType() { return DispatcherType.REQUEST; }
 
     public void setServerInfo(String serverName, int serverPort, boolean secure) {
+        this.serverInfoParsed = true;
         this.serverName = serverName;
         this.serverPort = serverPort;
         this.secure = secure;
@@ -777,5 +1020,55 @@ public class ApplicationRequest implements HttpServletRequest, Lifecycle {
         body = null;
         charset = null;
         servletResponse = null;
+        sock = null;
+    }
+
+    /**
+     * 请求处理完成（{@link #destroy()}之后）重置所有状态，同一连接上的下一个请求复用该对象
+     */
+    public void recycle() {
+        attributes.clear();
+        parameters.clear();
+        servletRegistration = null;
+        body = null;
+        charset = null;
+        servletResponse = null;
+        sock = null;
+
+        method = null;
+        protocol = null;
+        requestURI = null;
+        queryString = null;
+        headers = EMPTY_HEADERS;
+        hasReadParameters = false;
+        pathInfo = null;
+        servletPath = null;
+
+        remoteAddr = null;
+        remoteHost = null;
+        remotePort = -1;
+        remoteUser = null;
+        authType = null;
+        authParsed = false;
+
+        scheme = null;
+        serverName = null;
+        serverPort = 0;
+        secure = false;
+        serverInfoParsed = false;
+
+        localAddr = null;
+        localName = null;
+        localPort = -1;
+
+        inputStream = null;
+        reader = null;
+
+        session = null;
+        cookies = null;
+        cookiesParsed = false;
+        requestedSessionId = null;
+        requestedSessionIdFromCookie = false;
+        requestedSessionIdFromURL = false;
     }
 }
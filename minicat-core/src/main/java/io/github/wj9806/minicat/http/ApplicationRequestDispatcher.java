@@ -32,9 +32,11 @@ public class ApplicationRequestDispatcher implements RequestDispatcher {
         }
 
         // 重置响应
-        if (response instanceof ApplicationResponse) {
-            ((ApplicationResponse) response).resetBuffer();
+        ApplicationResponse target = ApplicationResponse.unwrap(response);
+        if (target != null) {
+            target.resetBuffer();
         }
+        ApplicationRequest req = ApplicationRequest.unwrap(request);
 
         // 处理路径
         String forwardedPath = path;
@@ -42,7 +44,7 @@ public class ApplicationRequestDispatcher implements RequestDispatcher {
             // 绝对路径，直接使用
         } else {
             // 相对路径，需要根据当前请求的路径进行处理
-            String currentUri = ((ApplicationRequest) request).getRequestURI();
+            String currentUri = req.getRequestURI();
             if (currentUri.endsWith("/")) {
                 forwardedPath = currentUri + forwardedPath;
             } else {
@@ -51,13 +53,13 @@ public class ApplicationRequestDispatcher implements RequestDispatcher {
         }
 
         // 设置转发属性
-        request.setAttribute(ApplicationRequest.FORWARD_REQUEST_URI, ((ApplicationRequest) request).getRequestURI());
-        request.setAttribute(ApplicationRequest.FORWARD_SERVLET_PATH, ((ApplicationRequest) request).getServletPath());
-        request.setAttribute(ApplicationRequest.FORWARD_PATH_INFO, ((ApplicationRequest) request).getPathInfo());
-        request.setAttribute(ApplicationRequest.FORWARD_QUERY_STRING, ((ApplicationRequest) request).getQueryString());
+        request.setAttribute(ApplicationRequest.FORWARD_REQUEST_URI, req.getRequestURI());
+        request.setAttribute(ApplicationRequest.FORWARD_SERVLET_PATH, req.getServletPath());
+        request.setAttribute(ApplicationRequest.FORWARD_PATH_INFO, req.getPathInfo());
+        request.setAttribute(ApplicationRequest.FORWARD_QUERY_STRING, req.getQueryString());
 
         // 更新请求URI
-        ((ApplicationRequest) request).setRequestURI(forwardedPath);
+        req.setRequestURI(forwardedPath);
 
         // 查找匹配的Servlet
         Servlet servlet = servletContext.findMatchingServlet((HttpServletRequest) request);
@@ -73,13 +75,15 @@ public class ApplicationRequestDispatcher implements RequestDispatcher {
 
     @Override
     public void include(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+        ApplicationRequest req = ApplicationRequest.unwrap(request);
+
         // 处理路径
         String includedPath = path;
         if (includedPath.startsWith("/")) {
             // 绝对路径，直接使用
         } else {
             // 相对路径，需要根据当前请求的路径进行处理
-            String currentUri = ((ApplicationRequest) request).getRequestURI();
+            String currentUri = req.getRequestURI();
             if (currentUri.endsWith("/")) {
                 includedPath = currentUri + includedPath;
             } else {
@@ -88,19 +92,19 @@ public class ApplicationRequestDispatcher implements RequestDispatcher {
         }
 
         // 设置包含属性
-        request.setAttribute(ApplicationRequest.INCLUDE_REQUEST_URI, ((ApplicationRequest) request).getRequestURI());
-        request.setAttribute(ApplicationRequest.INCLUDE_SERVLET_PATH, ((ApplicationRequest) request).getServletPath());
-        request.setAttribute(ApplicationRequest.INCLUDE_PATH_INFO, ((ApplicationRequest) request).getPathInfo());
-        request.setAttribute(ApplicationRequest.INCLUDE_QUERY_STRING, ((ApplicationRequest) request).getQueryString());
+        request.setAttribute(ApplicationRequest.INCLUDE_REQUEST_URI, req.getRequestURI());
+        request.setAttribute(ApplicationRequest.INCLUDE_SERVLET_PATH, req.getServletPath());
+        request.setAttribute(ApplicationRequest.INCLUDE_PATH_INFO, req.getPathInfo());
+        request.setAttribute(ApplicationRequest.INCLUDE_QUERY_STRING, req.getQueryString());
 
         // 保存原始URI
-        String originalUri = ((ApplicationRequest) request).getRequestURI();
-        String originalServletPath = ((ApplicationRequest) request).getServletPath();
-        String originalPathInfo = ((ApplicationRequest) request).getPathInfo();
+        String originalUri = req.getRequestURI();
+        String originalServletPath = req.getServletPath();
+        String originalPathInfo = req.getPathInfo();
 
         try {
             // 更新请求URI
-            ((ApplicationRequest) request).setRequestURI(includedPath);
+            req.setRequestURI(includedPath);
 
             // 查找匹配的Servlet
             Servlet servlet = servletContext.findMatchingServlet((HttpServletRequest) request);
@@ -114,9 +118,9 @@ public class ApplicationRequestDispatcher implements RequestDispatcher {
             filterChain.doFilter(request, response);
         } finally {
             // 恢复原始URI
-            ((ApplicationRequest) request).setRequestURI(originalUri);
-            ((ApplicationRequest) request).setServletPath(originalServletPath);
-            ((ApplicationRequest) request).setPathInfo(originalPathInfo);
+            req.setRequestURI(originalUri);
+            req.setServletPath(originalServletPath);
+            req.setPathInfo(originalPathInfo);
         }
     }
 }
@@ -1,31 +1,52 @@
 package io.github.wj9806.minicat.http;
 
 import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.io.BufferPool;
+import io.github.wj9806.minicat.io.NioUtil;
 import io.github.wj9806.minicat.io.ResponseBufferWriter;
 import io.github.wj9806.minicat.io.ResponseOutputStream;
 import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.HttpConfig;
+import io.github.wj9806.minicat.util.HttpDate;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.ServletResponseWrapper;
 import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
 public class ApplicationResponse implements HttpServletResponse {
 
+    // 动态压缩支持的编码，q值相同时优先gzip
+    private static final List<String> COMPRESS_ENCODINGS =
+            Arrays.asList(AcceptEncoding.GZIP, AcceptEncoding.DEFLATE);
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] CRLF_LAST_CHUNK = "\r\n0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
     //socket 输出流
     private final OutputStream socketStream;
 
-    //响应体缓冲
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+
+    //响应体缓冲，第一次写入时才从缓冲池获取，请求结束后归还
     private ByteBuffer bodyBuffer;
-    private int bufferSize = 8192; // 默认8KB缓冲区
+    private int bufferSize = DEFAULT_BUFFER_SIZE; // 默认8KB缓冲区
 
     private PrintWriter writer;
-    private ServletOutputStream servletOutputStream;
+    private ResponseBufferWriter bufferWriter;
+    private ResponseOutputStream servletOutputStream;
     private boolean initial = false;
 
     private Charset charset = StandardCharsets.ISO_8859_1;
@@ -33,121 +54,142 @@ public class ApplicationResponse implements HttpServletResponse {
     private String contentType = "text/html";
     private int status = SC_OK;
     private final HttpHeaders headers = new HttpHeaders();
+    // HTTP/1.1响应头编码器，第一次发送响应头时创建，同一连接的多个响应复用
+    private HeaderEncoder headerEncoder;
+    // 同一连接上的响应通常使用相同的Content-Type和Keep-Alive，缓存最近一次拼接的结果
+    private String cachedContentType;
+    private Charset cachedCharset;
+    private String cachedContentTypeValue;
+    private int cachedKeepAliveTime = -1;
+    private String cachedKeepAliveValue;
     private boolean committed = false;
     private final ApplicationContext context;
 
+    // 请求是否支持chunked传输编码（HTTP/1.1）
+    private boolean chunkingAllowed = true;
+    // 响应体是否由服务器按chunked编码分块发送
+    private boolean chunked = false;
+    // 分帧的响应在响应体写完之前发送了响应头，由协议标识响应结束，不设置Content-Length
+    private boolean framedStreaming = false;
+
+    // 协商出的动态压缩编码，null表示不压缩
+    private String compressEncoding;
+    // 是否已经判断过当前响应能否压缩
+    private boolean compressionDecided = false;
+    // 流式压缩器，压缩后的数据写入bodyBuffer
+    private DeflaterOutputStream compressor;
+
     public ApplicationResponse(ApplicationContext applicationContext, OutputStream socketStream) {
         this.socketStream = socketStream;
-        this.bodyBuffer = ByteBuffer.allocate(bufferSize);
         this.context = applicationContext;
     }
 
+    private ByteBuffer buffer() {
+        if (bodyBuffer == null) {
+            bodyBuffer = BufferPool.getInstance().acquire(bufferSize);
+        }
+        return bodyBuffer;
+    }
+
+    /**
+     * 已缓冲的响应体长度，没有写入过响应体时不占用缓冲区
+     */
+    private int bodyLength() {
+        return bodyBuffer != null ? bodyBuffer.position() : 0;
+    }
+
+    private void clearBuffer() {
+        if (bodyBuffer != null) {
+            bodyBuffer.clear();
+        }
+    }
+
+    /**
+     * 从响应对象或者包装后的响应（包括交给应用的{@link ResponseFacade}）中取出ApplicationResponse
+     * @return 不是由容器创建的响应时返回null
+     */
+    public static ApplicationResponse unwrap(ServletResponse response) {
+        while (response instanceof ServletResponseWrapper) {
+            response = ((ServletResponseWrapper) response).getResponse();
+        }
+        return response instanceof ApplicationResponse ? (ApplicationResponse) response : null;
+    }
+
     private void checkCommitted() {
         if (committed) {
             throw new IllegalStateException("Response already committed");
         }
     }
 
+    /**
+     * 响应头已发送后不能再重置缓冲区
+     */
+    private void checkHeaderSent() {
+        if (isCommitted()) {
+            throw new IllegalStateException("Response already committed");
+        }
+    }
+
     private void writeResponse() throws IOException {
         if (committed) return;
 
+        finishCompression();
+        // 响应头尚未发送时，整个响应体都在缓冲区中，直接使用Content-Length
         sendHeader();
 
-        //do flush
-        if (writer != null)
-            writer.flush();
-        else if (servletOutputStream != null)
-            servletOutputStream.flush();
-        else
-            socketStream.flush();
+        if (bodyBuffer != null) {
+            bodyBuffer.flip();
+            writeChunk(bodyBuffer, true);
+            bodyBuffer.clear();
+        } else {
+            writeChunk(EMPTY_BUFFER, true);
+        }
+        socketStream.flush();
 
         committed = true;
     }
 
+    /**
+     * 完成响应：发送缓冲区中剩余的响应体，chunked编码时发送结束块
+     */
+    public void finishResponse() throws IOException {
+        writeResponse();
+    }
+
     public void sendHeader() throws IOException {
         if (initial) return;
 
         // Add standard headers
         addStandardHeaders();
 
-        // 使用ByteArrayOutputStream构建完整的响应
-        ByteArrayOutputStream fullResponse = buildResponse();
-
-        // Write everything at once
-        socketStream.write(fullResponse.toByteArray());
+        writeHeaders();
 
         initial = true;
     }
 
-    private ByteArrayOutputStream buildResponse() throws IOException {
-        ByteArrayOutputStream fullResponse = new ByteArrayOutputStream();
-
-        // Write status line
-        fullResponse.write(String.format("HTTP/1.1 %d %s\r\n",
-            status, getStatusMessage(status)).getBytes());
-
-        // Write headers
-        Map<String, List<String>> headerMap = headers.getAll();
-        for (Map.Entry<String, List<String>> entry : headerMap.entrySet()) {
-            String headerName = formatHeaderName(entry.getKey());
-            List<String> values = entry.getValue();
-
-            if (HttpHeaders.isMultiValueHeader(entry.getKey())) {
-                // 合并多值响应头
-                fullResponse.write(String.format("%s: %s\r\n",
-                    headerName, String.join(", ", values)).getBytes());
-            } else {
-                // 分别写入每个值
-                for (String value : values) {
-                    fullResponse.write(String.format("%s: %s\r\n",
-                        headerName, value).getBytes());
-                }
-            }
-        }
-
-        // End headers
-        fullResponse.write("\r\n".getBytes());
-
-        return fullResponse;
-    }
-
     /**
-     * 格式化响应头名称，保证首字母大写
+     * 写出状态行和响应头，HTTP/2响应改为发送HEADERS帧
      */
-    private String formatHeaderName(String name) {
-        String[] parts = name.split("-");
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < parts.length; i++) {
-            if (i > 0) {
-                result.append('-');
-            }
-            String part = parts[i];
-            if (!part.isEmpty()) {
-                result.append(Character.toUpperCase(part.charAt(0)));
-                if (part.length() > 1) {
-                    result.append(part.substring(1).toLowerCase());
-                }
-            }
+    protected void writeHeaders() throws IOException {
+        if (headerEncoder == null) {
+            headerEncoder = new HeaderEncoder();
         }
-        return result.toString();
+        headerEncoder.encode(status, headers);
+        socketStream.write(headerEncoder.array(), 0, headerEncoder.length());
     }
 
-    private String getStatusMessage(int status) {
-        switch (status) {
-            case SC_OK: return "OK";
-            case SC_SWITCHING_PROTOCOLS: return "Switching Protocols";
-            case SC_NOT_FOUND: return "Not Found";
-            case SC_INTERNAL_SERVER_ERROR: return "Internal Server Error";
-            case SC_FOUND: return "Found";
-            case SC_NOT_MODIFIED: return "Not Modified";
-            default: return "Unknown";
-        }
+    /**
+     * 响应体是否由协议自身分帧（HTTP/2），分帧时不使用chunked编码，也不需要Connection和Keep-Alive响应头
+     */
+    protected boolean isFramed() {
+        return false;
     }
 
     @Override
     public PrintWriter getWriter() throws IOException {
         if (writer == null) {
-            writer = new PrintWriter(new ResponseBufferWriter(this));
+            bufferWriter = new ResponseBufferWriter(this);
+            writer = new PrintWriter(bufferWriter);
         }
         return writer;
     }
@@ -161,7 +203,7 @@ public class ApplicationResponse implements HttpServletResponse {
 
     @Override
     public void flushBuffer() throws IOException {
-        writeResponse();
+        flushBody();
     }
 
     @Override
@@ -200,7 +242,7 @@ public class ApplicationResponse implements HttpServletResponse {
         if (msg != null) {
             getWriter().write(msg);
         }
-        flushBuffer();
+        writeResponse();
     }
 
     @Override
@@ -212,7 +254,7 @@ public class ApplicationResponse implements HttpServletResponse {
     public void sendRedirect(String location) throws IOException {
         setStatus(SC_FOUND);
         setHeader("Location", location);
-        flushBuffer();
+        writeResponse();
     }
 
     @Override
@@ -248,8 +290,9 @@ public class ApplicationResponse implements HttpServletResponse {
 
     @Override
     public void resetBuffer() {
-        checkCommitted();
-        bodyBuffer.clear();
+        checkHeaderSent();
+        discardCompression();
+        clearBuffer();
         if (writer != null) {
             writer = null;
         }
@@ -257,10 +300,11 @@ public class ApplicationResponse implements HttpServletResponse {
 
     @Override
     public void reset() {
-        checkCommitted();
+        checkHeaderSent();
+        discardCompression();
         headers.clear();
         status = SC_OK;
-        bodyBuffer.clear();
+        clearBuffer();
         if (writer != null) {
             writer = null;
         }
@@ -283,17 +327,21 @@ public class ApplicationResponse implements HttpServletResponse {
 
     @Override
     public boolean isCommitted() {
-        return committed;
+        // 响应头已发送即视为已提交
+        return initial || committed;
     }
 
     @Override
     public void setBufferSize(int size) {
-        checkCommitted();
-        if (bodyBuffer.position() > 0) {
+        checkHeaderSent();
+        if (bodyLength() > 0) {
             throw new IllegalStateException("Cannot set buffer size after data has been written");
         }
         this.bufferSize = size;
-        this.bodyBuffer = ByteBuffer.allocate(this.bufferSize);
+        if (bodyBuffer != null) {
+            BufferPool.getInstance().release(bodyBuffer);
+            bodyBuffer = null;
+        }
         // 重置输出流
         this.writer = null;
         this.servletOutputStream = null;
@@ -359,12 +407,12 @@ public class ApplicationResponse implements HttpServletResponse {
 
     @Override
     public void setDateHeader(String name, long date) {
-        setHeader(name, new Date(date).toString());
+        setHeader(name, HttpDate.format(date));
     }
 
     @Override
     public void addDateHeader(String name, long date) {
-        addHeader(name, new Date(date).toString());
+        addHeader(name, HttpDate.format(date));
     }
 
     @Override
@@ -393,7 +441,7 @@ public class ApplicationResponse implements HttpServletResponse {
     private void addStandardHeaders() {
         // Add Date header
         if (!headers.contains("date")) {
-            headers.set("Date", formatDate(System.currentTimeMillis()));
+            headers.set("Date", HttpDate.now());
         }
 
         if (headers.contains(HttpHeaders.UPGRADE)) {
@@ -401,43 +449,38 @@ public class ApplicationResponse implements HttpServletResponse {
         }
 
         // Add Connection and Keep-Alive headers
-        if (!headers.contains("connection")) {
+        if (!isFramed() && !headers.contains("connection")) {
             headers.set("Connection", "keep-alive");
             if (!headers.contains("keep-alive")) {
                 int keepAliveTime = Config.getInstance().getHttp().getKeepAliveTime();
-                headers.set("Keep-Alive", "timeout=" + keepAliveTime);
+                if (keepAliveTime != cachedKeepAliveTime) {
+                    cachedKeepAliveValue = "timeout=" + keepAliveTime;
+                    cachedKeepAliveTime = keepAliveTime;
+                }
+                headers.set("Keep-Alive", cachedKeepAliveValue);
             }
         }
 
         // Set Content-Length if not already set
         String te = getHeader("Transfer-Encoding");
         boolean chunked = "chunked".equalsIgnoreCase(te);
-        if (!headers.contains("content-length") && !chunked) {
+        if (!headers.contains("content-length") && !chunked && !this.chunked && !framedStreaming
+                && !"close".equalsIgnoreCase(headers.getFirst("connection"))) {
             // 使用bodyBuffer的position()来获取实际内容长度，因为position()返回的是下一个要写入的位置
-            setContentLength(bodyBuffer.position());
+            setContentLength(bodyLength());
         }
 
         // Set Content-Type if not already set
         if (contentType != null && !headers.contains("content-type")) {
-            String contentTypeValue = contentType;
-            contentTypeValue += "; charset=" + charset.name().toLowerCase();
-            headers.set("Content-Type", contentTypeValue);
+            if (!contentType.equals(cachedContentType) || charset != cachedCharset) {
+                cachedContentTypeValue = contentType + "; charset=" + charset.name().toLowerCase();
+                cachedContentType = contentType;
+                cachedCharset = charset;
+            }
+            headers.set("Content-Type", cachedContentTypeValue);
         }
     }
 
-    /**
-     * 格式化HTTP日期（RFC 1123格式）
-     * @param timestamp 时间戳
-     * @return 格式化后的日期字符串
-     */
-    private String formatDate(long timestamp) {
-        // HTTP日期格式：Sun, 06 Nov 1994 08:49:37 GMT
-        SimpleDateFormat sdf = new SimpleDateFormat(
-            "EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
-        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
-        return sdf.format(new Date(timestamp));
-    }
-
     public Charset getCharset() {
         return charset;
     }
@@ -447,10 +490,363 @@ public class ApplicationResponse implements HttpServletResponse {
     }
 
     public ByteBuffer getBodyBuffer() {
-        return bodyBuffer;
+        return buffer();
     }
 
     public void setBodyBuffer(ByteBuffer buffer) {
         this.bodyBuffer = buffer;
     }
+
+    /**
+     * 写入响应体，开启动态压缩时经压缩器写入
+     */
+    public void writeBody(byte[] b, int off, int len) throws IOException {
+        if (compressor == null && shouldStartCompression(len)) {
+            startCompression();
+        }
+        if (compressor != null) {
+            compressor.write(b, off, len);
+        } else {
+            appendBody(b, off, len);
+        }
+    }
+
+    public void writeBody(int b) throws IOException {
+        if (compressor == null && shouldStartCompression(1)) {
+            startCompression();
+        }
+        if (compressor != null) {
+            compressor.write(b);
+        } else {
+            if (buffer().position() >= bufferSize) {
+                drainBody();
+            }
+            buffer().put((byte) b);
+        }
+    }
+
+    /**
+     * 将数据写入响应体缓冲区，缓冲区达到bufferSize时提交响应并发送已缓冲的数据，
+     * 保证每个响应占用的内存不超过bufferSize
+     */
+    private void appendBody(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int space = bufferSize - buffer().position();
+            if (space <= 0) {
+                drainBody();
+                space = bufferSize;
+            }
+            if (buffer().position() == 0 && len >= bufferSize) {
+                // 缓冲区为空且数据不小于缓冲区，直接发送，避免复制
+                sendStreamingHeader();
+                writeChunk(ByteBuffer.wrap(b, off, len), false);
+                return;
+            }
+            int n = Math.min(space, len);
+            buffer().put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * 将缓冲区中的响应体发送到客户端，压缩中的数据先同步刷新到缓冲区
+     */
+    public void flushBody() throws IOException {
+        if (committed) {
+            return;
+        }
+        if (compressor != null) {
+            compressor.flush();
+        }
+        drainBody();
+        socketStream.flush();
+    }
+
+    /**
+     * 提交响应并发送缓冲区中的数据，不刷新压缩器
+     */
+    private void drainBody() throws IOException {
+        sendStreamingHeader();
+        if (bodyBuffer != null) {
+            bodyBuffer.flip();
+            writeChunk(bodyBuffer, false);
+            bodyBuffer.clear();
+        }
+    }
+
+    /**
+     * 在响应体写完之前发送响应头：未设置Content-Length时HTTP/1.1使用chunked编码，
+     * HTTP/1.0通过关闭连接标识响应结束，HTTP/2由END_STREAM标识响应结束
+     */
+    private void sendStreamingHeader() throws IOException {
+        if (initial) {
+            return;
+        }
+        if (!headers.contains("content-length") && !headers.contains("transfer-encoding")
+                && !headers.contains(HttpHeaders.UPGRADE) && hasBody()) {
+            if (isFramed()) {
+                framedStreaming = true;
+            } else if (chunkingAllowed) {
+                headers.set("Transfer-Encoding", "chunked");
+                chunked = true;
+            } else {
+                headers.set("Connection", "close");
+            }
+        }
+        sendHeader();
+    }
+
+    private boolean hasBody() {
+        return status >= SC_OK && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED;
+    }
+
+    /**
+     * 发送一段响应体，chunked编码时加上分块长度和结束标记
+     * @param last 是否为最后一段，chunked编码时在数据后追加结束块
+     */
+    private void writeChunk(ByteBuffer data, boolean last) throws IOException {
+        if (!chunked) {
+            if (data.hasRemaining()) {
+                NioUtil.write(data, socketStream);
+            }
+            return;
+        }
+        if (!data.hasRemaining()) {
+            if (last) {
+                socketStream.write(LAST_CHUNK);
+            }
+            return;
+        }
+        ByteBuffer size = ByteBuffer.wrap((Integer.toHexString(data.remaining()) + "\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        ByteBuffer end = ByteBuffer.wrap(last ? CRLF_LAST_CHUNK : CRLF);
+        NioUtil.write(new ByteBuffer[]{size, data, end}, socketStream);
+    }
+
+    /**
+     * 根据请求准备响应：记录是否支持chunked编码，并协商动态压缩编码
+     */
+    public void prepare(HttpServletRequest request) {
+        chunkingAllowed = "HTTP/1.1".equalsIgnoreCase(request.getProtocol());
+        prepareCompression(request);
+    }
+
+    /**
+     * 根据请求的Accept-Encoding和User-Agent协商动态压缩编码，实际是否压缩在响应体达到最小长度时决定
+     */
+    private void prepareCompression(HttpServletRequest request) {
+        HttpConfig.CompressionConfig config = Config.getInstance().getHttp().getCompression();
+        if (!config.isEnabled()) {
+            return;
+        }
+        String userAgent = request.getHeader("User-Agent");
+        if (userAgent != null && config.getExcludedUserAgents() != null) {
+            for (String excluded : config.getExcludedUserAgents()) {
+                if (userAgent.matches(excluded)) {
+                    return;
+                }
+            }
+        }
+        compressEncoding = AcceptEncoding.parse(request.getHeaders("Accept-Encoding")).negotiate(COMPRESS_ENCODINGS);
+    }
+
+    /**
+     * 响应体即将达到最小压缩长度（或缓冲区大小）时判断一次是否压缩
+     */
+    private boolean shouldStartCompression(int len) {
+        if (compressEncoding == null || compressionDecided || initial) {
+            return false;
+        }
+        HttpConfig.CompressionConfig config = Config.getInstance().getHttp().getCompression();
+        int threshold = Math.min(config.getMinResponseSize(), bufferSize);
+        if (bodyLength() + len < threshold) {
+            return false;
+        }
+        compressionDecided = true;
+        return isCompressible(config);
+    }
+
+    private void startCompression() throws IOException {
+        HttpConfig.CompressionConfig config = Config.getInstance().getHttp().getCompression();
+        // 已缓冲的原始数据交给压缩器，之后的写入直接经过压缩器
+        ByteBuffer raw = buffer();
+        bodyBuffer = BufferPool.getInstance().acquire(bufferSize);
+        try {
+            compressor = newCompressor(compressEncoding, new BodyBufferOutputStream(), config.getLevel());
+            raw.flip();
+            if (raw.hasArray()) {
+                compressor.write(raw.array(), raw.arrayOffset(), raw.remaining());
+            } else {
+                byte[] chunk = new byte[Math.min(raw.remaining(), 8192)];
+                while (raw.hasRemaining()) {
+                    int n = Math.min(chunk.length, raw.remaining());
+                    raw.get(chunk, 0, n);
+                    compressor.write(chunk, 0, n);
+                }
+            }
+        } finally {
+            BufferPool.getInstance().release(raw);
+        }
+
+        headers.set("Content-Encoding", compressEncoding);
+        headers.remove("content-length");
+        List<String> vary = headers.get("vary");
+        if (vary == null || !String.join(",", vary).toLowerCase().contains("accept-encoding")) {
+            headers.add("Vary", "Accept-Encoding");
+        }
+        // 压缩后内容与原始内容不再逐字节一致，强ETag降级为弱ETag
+        String etag = headers.getFirst("etag");
+        if (etag != null && etag.startsWith("\"")) {
+            headers.set("ETag", "W/" + etag);
+        }
+    }
+
+    private boolean isCompressible(HttpConfig.CompressionConfig config) {
+        if (status < SC_OK || status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT || status == SC_NOT_MODIFIED) {
+            return false;
+        }
+        if (headers.contains("content-encoding") || headers.contains("content-range")) {
+            return false;
+        }
+        String type = headers.getFirst("content-type");
+        return config.isCompressibleMimeType(type != null ? type : contentType);
+    }
+
+    private static DeflaterOutputStream newCompressor(String encoding, OutputStream out, int level)
+            throws IOException {
+        // syncFlush为true，flush时输出已压缩的数据，便于分段发送
+        if (AcceptEncoding.GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, 8192, true) {{
+                def.setLevel(level);
+            }};
+        }
+        return new DeflaterOutputStream(out, true) {{
+            def.setLevel(level);
+        }};
+    }
+
+    /**
+     * 结束压缩，写出压缩尾部数据
+     */
+    private void finishCompression() throws IOException {
+        if (compressor != null) {
+            DeflaterOutputStream c = compressor;
+            compressor = null;
+            c.close();
+        }
+    }
+
+    /**
+     * 丢弃压缩状态，释放Deflater
+     */
+    private void discardCompression() {
+        compressionDecided = false;
+        if (compressor != null) {
+            try {
+                compressor.close();
+            } catch (IOException ignored) {
+            }
+            compressor = null;
+            headers.remove("content-encoding");
+        }
+    }
+
+    /**
+     * 压缩器的输出目标，写入bodyBuffer
+     */
+    private class BodyBufferOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            appendBody(b, off, len);
+        }
+    }
+
+    /**
+     * 直接发送文件的指定区间作为响应体，NIO模式下通过transferTo零拷贝，BIO模式下分块复制
+     */
+    public void sendFile(FileChannel fileChannel, long position, long count) throws IOException {
+        sendFile(fileChannel, Collections.singletonList(new HttpRange(position, position + count - 1)), null);
+    }
+
+    /**
+     * 发送文件的多个区间作为响应体
+     * @param partHeaders multipart/byteranges的分片头，第i个元素在第i个区间前写出，最后一个元素为结束边界；
+     *                    为null时直接依次发送各区间
+     */
+    public void sendFile(FileChannel fileChannel, List<HttpRange> ranges, List<byte[]> partHeaders)
+            throws IOException {
+        checkCommitted();
+        if (bodyLength() > 0) {
+            throw new IllegalStateException("Cannot send file after data has been written");
+        }
+        long contentLength = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            contentLength += ranges.get(i).length();
+        }
+        if (partHeaders != null) {
+            for (byte[] partHeader : partHeaders) {
+                contentLength += partHeader.length;
+            }
+        }
+        setContentLengthLong(contentLength);
+        sendHeader();
+        for (int i = 0; i < ranges.size(); i++) {
+            if (partHeaders != null) {
+                socketStream.write(partHeaders.get(i));
+            }
+            HttpRange range = ranges.get(i);
+            NioUtil.transfer(fileChannel, range.getStart(), range.length(), socketStream);
+        }
+        if (partHeaders != null) {
+            socketStream.write(partHeaders.get(ranges.size()));
+        }
+        socketStream.flush();
+        committed = true;
+    }
+
+    /**
+     * 请求处理完成，归还响应体缓冲区
+     */
+    public void release() {
+        discardCompression();
+        if (bodyBuffer != null) {
+            BufferPool.getInstance().release(bodyBuffer);
+            bodyBuffer = null;
+        }
+    }
+
+    /**
+     * 请求处理完成后归还缓冲区并重置所有状态，同一连接上的下一个请求复用该对象
+     */
+    public void recycle() {
+        release();
+        bufferSize = DEFAULT_BUFFER_SIZE;
+        // 应用可能保留了输出流或writer的引用，断开它们与本对象的关联
+        if (bufferWriter != null) {
+            bufferWriter.recycle();
+            bufferWriter = null;
+        }
+        if (servletOutputStream != null) {
+            servletOutputStream.recycle();
+            servletOutputStream = null;
+        }
+        writer = null;
+        initial = false;
+        charset = StandardCharsets.ISO_8859_1;
+        locale = Locale.getDefault();
+        contentType = "text/html";
+        status = SC_OK;
+        headers.clear();
+        committed = false;
+        chunkingAllowed = true;
+        chunked = false;
+        framedStreaming = false;
+        compressEncoding = null;
+    }
 }
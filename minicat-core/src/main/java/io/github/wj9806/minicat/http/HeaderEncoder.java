@@ -0,0 +1,193 @@
+package io.github.wj9806.minicat.http;
+
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * HTTP/1.1响应头编码器，状态行和响应头直接写入字节数组，不再经过String.format和ByteArrayOutputStream
+ * 1. reasonPhrase已知的状态码在类加载时编码状态行，其他状态码每次使用时编码，不缓存
+ * 2. 常用响应头名称（{@link HeaderNames}）预先编码为"Name: "形式，其他名称逐字节写入并保证首字母大写
+ * 3. 每个响应对象持有一个编码器，字节数组在同一连接的多个响应之间复用
+ */
+public final class HeaderEncoder {
+
+    private static final int INITIAL_SIZE = 512;
+    private static final int MAX_CACHED_STATUS = 1000;
+
+    private static final int[] KNOWN_STATUS = {
+            HttpServletResponse.SC_SWITCHING_PROTOCOLS,
+            HttpServletResponse.SC_OK,
+            HttpServletResponse.SC_PARTIAL_CONTENT,
+            HttpServletResponse.SC_FOUND,
+            HttpServletResponse.SC_NOT_MODIFIED,
+            HttpServletResponse.SC_BAD_REQUEST,
+            HttpServletResponse.SC_FORBIDDEN,
+            HttpServletResponse.SC_NOT_FOUND,
+            HttpServletResponse.SC_METHOD_NOT_ALLOWED,
+            HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+            HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+            HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+            HttpServletResponse.SC_SERVICE_UNAVAILABLE
+    };
+
+    // 只在类初始化时写入，之后只读，由类初始化保证对所有线程可见
+    private static final byte[][] STATUS_LINES = new byte[MAX_CACHED_STATUS][];
+    private static final byte[][] NAMES = new byte[HeaderNames.size()][];
+
+    static {
+        for (int status : KNOWN_STATUS) {
+            STATUS_LINES[status] = encodeStatusLine(status);
+        }
+        for (int id = 0; id < NAMES.length; id++) {
+            NAMES[id] = (formatName(HeaderNames.name(id)) + ": ").getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private byte[] buf = new byte[INITIAL_SIZE];
+    private int length;
+
+    /**
+     * 编码状态行和所有响应头，以空行结束，允许多值的响应头合并为一行
+     */
+    public void encode(int status, HttpHeaders headers) {
+        length = 0;
+        write(statusLine(status));
+        for (int i = 0; i < headers.size(); i++) {
+            int id = headers.id(i);
+            String name = headers.name(i);
+            if (HeaderNames.isMultiValue(id)) {
+                // 合并多值响应头，在第一次出现的位置写入所有值
+                if (headers.indexOf(name) < i) {
+                    continue;
+                }
+                writeName(id, name);
+                writeValue(headers.value(i));
+                for (int j = i + 1; j < headers.size(); j++) {
+                    if (headers.id(j) == id) {
+                        write((byte) ',');
+                        write((byte) ' ');
+                        writeValue(headers.value(j));
+                    }
+                }
+            } else {
+                // 分别写入每个值
+                writeName(id, name);
+                writeValue(headers.value(i));
+            }
+            write((byte) '\r');
+            write((byte) '\n');
+        }
+        write((byte) '\r');
+        write((byte) '\n');
+    }
+
+    /**
+     * 编码结果，有效数据为[0, length())
+     */
+    public byte[] array() {
+        return buf;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * 状态码对应的原因短语
+     */
+    public static String reasonPhrase(int status) {
+        switch (status) {
+            case HttpServletResponse.SC_OK: return "OK";
+            case HttpServletResponse.SC_PARTIAL_CONTENT: return "Partial Content";
+            case HttpServletResponse.SC_BAD_REQUEST: return "Bad Request";
+            case HttpServletResponse.SC_FORBIDDEN: return "Forbidden";
+            case HttpServletResponse.SC_METHOD_NOT_ALLOWED: return "Method Not Allowed";
+            case HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE: return "Payload Too Large";
+            case HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE: return "Range Not Satisfiable";
+            case HttpServletResponse.SC_SERVICE_UNAVAILABLE: return "Service Unavailable";
+            case HttpServletResponse.SC_SWITCHING_PROTOCOLS: return "Switching Protocols";
+            case HttpServletResponse.SC_NOT_FOUND: return "Not Found";
+            case HttpServletResponse.SC_INTERNAL_SERVER_ERROR: return "Internal Server Error";
+            case HttpServletResponse.SC_FOUND: return "Found";
+            case HttpServletResponse.SC_NOT_MODIFIED: return "Not Modified";
+            default: return "Unknown";
+        }
+    }
+
+    private static byte[] statusLine(int status) {
+        byte[] line = status >= 0 && status < MAX_CACHED_STATUS ? STATUS_LINES[status] : null;
+        return line != null ? line : encodeStatusLine(status);
+    }
+
+    private static byte[] encodeStatusLine(int status) {
+        return ("HTTP/1.1 " + status + " " + reasonPhrase(status) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 格式化响应头名称，保证每段首字母大写，其余小写
+     */
+    static String formatName(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        boolean start = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            result.append(start ? Character.toUpperCase(c) : Character.toLowerCase(c));
+            start = c == '-';
+        }
+        return result.toString();
+    }
+
+    private void writeName(int id, String name) {
+        if (id >= 0) {
+            write(NAMES[id]);
+            return;
+        }
+        ensureCapacity(name.length() + 2);
+        boolean start = true;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (start && c >= 'a' && c <= 'z') {
+                c -= 'a' - 'A';
+            } else if (!start && c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            buf[length++] = (byte) c;
+            start = c == '-';
+        }
+        buf[length++] = ':';
+        buf[length++] = ' ';
+    }
+
+    private void writeValue(String value) {
+        int len = value.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // 非ASCII字符，整个值按UTF-8编码
+                length -= i;
+                write(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buf[length++] = (byte) c;
+        }
+    }
+
+    private void write(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buf, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void write(byte b) {
+        ensureCapacity(1);
+        buf[length++] = b;
+    }
+
+    private void ensureCapacity(int n) {
+        if (length + n > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, length + n));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package io.github.wj9806.minicat.http;
+
+/**
+ * 常用HTTP头名称表
+ * 1. 每个名称有一个固定的编号，保存小写形式的常量字符串，解析请求头时直接复用，不再为名称分配字符串
+ * 2. 查找时按ASCII忽略大小写计算哈希并比较，不需要先toLowerCase
+ * 3. 编号小于{@link #HOT_COUNT}的请求头在{@link HttpHeaders}中记录第一次出现的位置，直接定位
+ */
+public final class HeaderNames {
+
+    public static final int CONTENT_LENGTH = 0;
+    public static final int CONNECTION = 1;
+    public static final int HOST = 2;
+    public static final int COOKIE = 3;
+    public static final int CONTENT_TYPE = 4;
+    public static final int TRANSFER_ENCODING = 5;
+    public static final int AUTHORIZATION = 6;
+
+    /**
+     * 记录首次出现位置的请求头数量
+     */
+    public static final int HOT_COUNT = 6;
+
+    private static final String[] NAMES = {
+            "content-length", "connection", "host", "cookie", "content-type", "transfer-encoding",
+            "authorization", "accept", "accept-charset", "accept-encoding", "accept-language", "accept-ranges",
+            "age", "allow", "cache-control", "content-disposition", "content-encoding", "content-language",
+            "content-range", "date", "etag", "expect", "expires", "forwarded", "http2-settings", "if-match",
+            "if-modified-since", "if-none-match", "if-range", "if-unmodified-since", "keep-alive",
+            "last-modified", "location", "origin", "pragma", "prefer", "range", "referer", "sec-websocket-accept",
+            "sec-websocket-extensions", "sec-websocket-key", "sec-websocket-protocol", "sec-websocket-version",
+            "server", "set-cookie", "te", "trailer", "upgrade", "user-agent", "vary", "via", "warning",
+            "www-authenticate", "x-forwarded-for", "x-forwarded-host", "x-forwarded-proto", "x-requested-with"
+    };
+
+    // 允许逗号分隔多个值的请求头
+    private static final String[] MULTI_VALUE = {
+            "accept", "accept-language", "accept-encoding", "accept-charset", "allow", "cache-control",
+            "connection", "content-encoding", "content-language", "if-match", "if-none-match", "pragma", "prefer",
+            "te", "trailer", "transfer-encoding", "upgrade", "via", "warning"
+    };
+
+    private static final boolean[] MULTI = new boolean[NAMES.length];
+
+    // 开放寻址哈希表，保存编号+1，0表示空位
+    private static final int[] TABLE = new int[256];
+    private static final int MASK = TABLE.length - 1;
+
+    static {
+        for (int id = 0; id < NAMES.length; id++) {
+            String name = NAMES[id];
+            int slot = hash(name, 0, name.length()) & MASK;
+            while (TABLE[slot] != 0) {
+                slot = (slot + 1) & MASK;
+            }
+            TABLE[slot] = id + 1;
+        }
+        for (String name : MULTI_VALUE) {
+            MULTI[lookup(name)] = true;
+        }
+    }
+
+    private HeaderNames() {
+    }
+
+    /**
+     * 按名称查找编号，忽略大小写
+     * @return 编号，不是常用名称时返回-1
+     */
+    public static int lookup(CharSequence name) {
+        int len = name.length();
+        int slot = hash(name, 0, len) & MASK;
+        int id;
+        while ((id = TABLE[slot] - 1) >= 0) {
+            if (equalsIgnoreCase(NAMES[id], name, len)) {
+                return id;
+            }
+            slot = (slot + 1) & MASK;
+        }
+        return -1;
+    }
+
+    /**
+     * 按字节范围查找编号，忽略大小写，用于直接在读缓冲区上匹配请求头名称
+     * @return 编号，不是常用名称时返回-1
+     */
+    public static int lookup(byte[] buf, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + lower(buf[i] & 0xff);
+        }
+        int slot = mix(h) & MASK;
+        int id;
+        while ((id = TABLE[slot] - 1) >= 0) {
+            if (equalsIgnoreCase(NAMES[id], buf, off, len)) {
+                return id;
+            }
+            slot = (slot + 1) & MASK;
+        }
+        return -1;
+    }
+
+    /**
+     * 常用名称的数量，编号范围为[0, size())
+     */
+    public static int size() {
+        return NAMES.length;
+    }
+
+    /**
+     * 编号对应的小写名称
+     */
+    public static String name(int id) {
+        return NAMES[id];
+    }
+
+    /**
+     * 编号对应的请求头是否允许逗号分隔的多个值
+     */
+    public static boolean isMultiValue(int id) {
+        return id >= 0 && MULTI[id];
+    }
+
+    private static int hash(CharSequence s, int off, int len) {
+        int h = 0;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + lower(s.charAt(i));
+        }
+        return mix(h);
+    }
+
+    private static int mix(int h) {
+        return h ^ (h >>> 16) ^ (h >>> 8);
+    }
+
+    private static int lower(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean equalsIgnoreCase(String name, CharSequence s, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != lower(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(String name, byte[] buf, int off, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != lower(buf[off + i] & 0xff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
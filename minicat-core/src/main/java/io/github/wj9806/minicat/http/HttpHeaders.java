@@ -1,10 +1,15 @@
 package io.github.wj9806.minicat.http;
 
 import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
  * HTTP请求/响应头处理类
+ * 1. 名称、编号和值保存在按添加顺序排列的并行数组中，常用名称使用{@link HeaderNames}中的常量，查找时不需要toLowerCase
+ * 2. 解析器从字节添加的值只复制字节，在第一次访问时才解码为字符串
+ * 3. Content-Length、Connection、Host、Cookie等常用请求头记录第一次出现的位置，查找时直接定位
+ * 4. 解析器在同一连接的多个请求之间复用同一个对象，clear()后数组保留
  */
 public class HttpHeaders {
 
@@ -17,7 +22,28 @@ public class HttpHeaders {
     public static final String WEBSOCKET_EXTENSION = "sec-websocket-extensions";
     public static final String WEBSOCKET_ACCEPT = "sec-websocket-accept";
 
-    private final Map<String, List<String>> headers = new HashMap<>();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_RAW_SIZE = 512;
+
+    // 按添加顺序保存的请求头，同一位置的名称、编号和值组成一个请求头
+    private int size;
+    // 小写名称，常用名称直接使用HeaderNames中的常量
+    private String[] names = new String[INITIAL_CAPACITY];
+    // HeaderNames中的编号，不是常用名称时为-1
+    private int[] ids = new int[INITIAL_CAPACITY];
+    // 已解码的值，从字节添加的值在第一次访问时才解码
+    private String[] values = new String[INITIAL_CAPACITY];
+    private int[] valueOffsets = new int[INITIAL_CAPACITY];
+    private int[] valueLengths = new int[INITIAL_CAPACITY];
+    // 从字节添加的值复制到这里，读缓冲区在请求处理前就会被压缩，不能直接引用
+    private byte[] raw;
+    private int rawLength;
+    // 常用请求头第一次出现的位置，-1表示不存在
+    private final int[] hot = new int[HeaderNames.HOT_COUNT];
+
+    public HttpHeaders() {
+        Arrays.fill(hot, -1);
+    }
 
     /**
      * 添加请求头
@@ -25,8 +51,42 @@ public class HttpHeaders {
      * @param value 请求头值
      */
     public void add(String name, String value) {
-        String lowerName = name.toLowerCase();
-        headers.computeIfAbsent(lowerName, k -> new ArrayList<>()).add(value);
+        int id = HeaderNames.lookup(name);
+        int index = append(id, id >= 0 ? HeaderNames.name(id) : name.toLowerCase());
+        values[index] = value;
+    }
+
+    /**
+     * 从字节范围添加请求头，名称按常用名称表匹配，值复制后在第一次访问时才解码
+     * 允许多值的请求头按逗号拆分为多个值
+     * @param buf 字节数组
+     * @param nameOff 名称起始位置
+     * @param nameLen 名称长度
+     * @param valueOff 值起始位置
+     * @param valueLen 值长度
+     */
+    public void add(byte[] buf, int nameOff, int nameLen, int valueOff, int valueLen) {
+        int id = HeaderNames.lookup(buf, nameOff, nameLen);
+        String name = id >= 0 ? HeaderNames.name(id)
+                : new String(buf, nameOff, nameLen, StandardCharsets.ISO_8859_1).toLowerCase();
+        int end = valueOff + valueLen;
+        if (!HeaderNames.isMultiValue(id)) {
+            appendRaw(id, name, buf, valueOff, end);
+            return;
+        }
+        // 与String.split(",")一致：去掉末尾的空段，其余每段去除首尾空白
+        while (end > valueOff && buf[end - 1] == ',') {
+            end--;
+        }
+        int start = valueOff;
+        while (start < end) {
+            int comma = start;
+            while (comma < end && buf[comma] != ',') {
+                comma++;
+            }
+            appendRaw(id, name, buf, start, comma);
+            start = comma + 1;
+        }
     }
 
     /**
@@ -35,10 +95,8 @@ public class HttpHeaders {
      * @param value 请求头值
      */
     public void set(String name, String value) {
-        String lowerName = name.toLowerCase();
-        List<String> values = new ArrayList<>();
-        values.add(value);
-        headers.put(lowerName, values);
+        remove(name);
+        add(name, value);
     }
 
     /**
@@ -47,33 +105,93 @@ public class HttpHeaders {
      * @return 请求头值，如果不存在返回null
      */
     public String getFirst(String name) {
-        List<String> values = get(name);
-        return values != null && !values.isEmpty() ? values.get(0) : null;
+        int index = indexOf(name);
+        return index >= 0 ? value(index) : null;
+    }
+
+    /**
+     * 按HeaderNames中的编号获取请求头的第一个值
+     */
+    public String getFirst(int id) {
+        int index = indexOf(id);
+        return index >= 0 ? value(index) : null;
     }
 
     /**
      * 获取请求头的所有值
      * @param name 请求头名称
-     * @return 请求头值列表
+     * @return 请求头值列表，如果不存在返回null
      */
     public List<String> get(String name) {
-        return headers.get(name.toLowerCase());
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        List<String> result = new ArrayList<>(2);
+        String lowerName = names[index];
+        for (int i = index; i < size; i++) {
+            if (names[i] == lowerName || names[i].equals(lowerName)) {
+                result.add(value(i));
+            }
+        }
+        return result;
     }
 
     /**
      * 获取所有请求头名称
-     * @return 请求头名称集合
+     * @return 请求头名称集合，按第一次添加的顺序
      */
     public Set<String> names() {
-        return Collections.unmodifiableSet(headers.keySet());
+        Set<String> result = new LinkedHashSet<>();
+        for (int i = 0; i < size; i++) {
+            result.add(names[i]);
+        }
+        return Collections.unmodifiableSet(result);
     }
 
     /**
      * 获取所有请求头
-     * @return 请求头Map的不可修改视图
+     * @return 请求头Map的不可修改副本
      */
     public Map<String, List<String>> getAll() {
-        return Collections.unmodifiableMap(headers);
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            result.computeIfAbsent(names[i], k -> new ArrayList<>()).add(value(i));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * 请求头数量，多个值各算一个
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 指定位置的小写名称
+     */
+    public String name(int index) {
+        return names[index];
+    }
+
+    /**
+     * 指定位置名称在HeaderNames中的编号，不是常用名称时为-1
+     */
+    public int id(int index) {
+        return ids[index];
+    }
+
+    /**
+     * 指定位置的值，从字节添加的值在这里解码并缓存
+     */
+    public String value(int index) {
+        String value = values[index];
+        if (value == null) {
+            value = new String(raw, valueOffsets[index], valueLengths[index], StandardCharsets.UTF_8);
+            values[index] = value;
+        }
+        return value;
     }
 
     /**
@@ -82,23 +200,131 @@ public class HttpHeaders {
      * @return 是否包含
      */
     public boolean contains(String name) {
-        return headers.containsKey(name.toLowerCase());
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * 按HeaderNames中的编号检查是否包含指定请求头
+     */
+    public boolean contains(int id) {
+        return indexOf(id) >= 0;
     }
 
     /**
      * 移除请求头
      * @param name 请求头名称
-     * @return 被移除的值列表
+     * @return 被移除的值列表，如果不存在返回null
      */
     public List<String> remove(String name) {
-        return headers.remove(name.toLowerCase());
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        List<String> removed = new ArrayList<>(2);
+        String lowerName = names[index];
+        int w = index;
+        for (int i = index; i < size; i++) {
+            if (names[i] == lowerName || names[i].equals(lowerName)) {
+                removed.add(value(i));
+                continue;
+            }
+            names[w] = names[i];
+            ids[w] = ids[i];
+            values[w] = values[i];
+            valueOffsets[w] = valueOffsets[i];
+            valueLengths[w] = valueLengths[i];
+            w++;
+        }
+        Arrays.fill(names, w, size, null);
+        Arrays.fill(values, w, size, null);
+        size = w;
+        Arrays.fill(hot, -1);
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i] >= 0 && ids[i] < HeaderNames.HOT_COUNT) {
+                hot[ids[i]] = i;
+            }
+        }
+        return removed;
     }
 
     /**
-     * 清空所有请求头
+     * 清空所有请求头，数组保留给下一次使用
      */
     public void clear() {
-        headers.clear();
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(hot, -1);
+        size = 0;
+        rawLength = 0;
+    }
+
+    /**
+     * 指定名称第一次出现的位置，忽略大小写
+     * @return 位置，不存在时返回-1
+     */
+    public int indexOf(String name) {
+        int id = HeaderNames.lookup(name);
+        if (id >= 0) {
+            return indexOf(id);
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] < 0 && names[i].equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(int id) {
+        if (id < HeaderNames.HOT_COUNT) {
+            return hot[id];
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int append(int id, String name) {
+        if (size == names.length) {
+            int capacity = size << 1;
+            names = Arrays.copyOf(names, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            values = Arrays.copyOf(values, capacity);
+            valueOffsets = Arrays.copyOf(valueOffsets, capacity);
+            valueLengths = Arrays.copyOf(valueLengths, capacity);
+        }
+        int index = size++;
+        names[index] = name;
+        ids[index] = id;
+        if (id >= 0 && id < HeaderNames.HOT_COUNT && hot[id] < 0) {
+            hot[id] = index;
+        }
+        return index;
+    }
+
+    private void appendRaw(int id, String name, byte[] buf, int start, int end) {
+        // 去除首尾空白，与String.trim()一致
+        while (start < end && (buf[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        int len = end - start;
+        if (raw == null) {
+            raw = new byte[Math.max(INITIAL_RAW_SIZE, len)];
+        } else if (rawLength + len > raw.length) {
+            raw = Arrays.copyOf(raw, Math.max(raw.length << 1, rawLength + len));
+        }
+        System.arraycopy(buf, start, raw, rawLength, len);
+        int index = append(id, name);
+        values[index] = null;
+        valueOffsets[index] = rawLength;
+        valueLengths[index] = len;
+        rawLength += len;
     }
 
     /**
@@ -152,7 +378,7 @@ public class HttpHeaders {
      * @param name 请求头名称
      * @param value 请求头值
      */
-    private static void addHeaderValues(HttpHeaders headers, String name, String value) {
+    public static void addHeaderValues(HttpHeaders headers, String name, String value) {
         // 检查是否是允许多值的请求头
         if (isMultiValueHeader(name)) {
             // 分割值并去除每个值的空白
@@ -172,26 +398,7 @@ public class HttpHeaders {
      * @return 是否允许多值
      */
     public static boolean isMultiValueHeader(String name) {
-        String lowerName = name.toLowerCase();
-        return lowerName.equals("accept") ||
-               lowerName.equals("accept-language") ||
-               lowerName.equals("accept-encoding") ||
-               lowerName.equals("accept-charset") ||
-               lowerName.equals("allow") ||
-               lowerName.equals("cache-control") ||
-               lowerName.equals("connection") ||
-               lowerName.equals("content-encoding") ||
-               lowerName.equals("content-language") ||
-               lowerName.equals("if-match") ||
-               lowerName.equals("if-none-match") ||
-               lowerName.equals("pragma") ||
-               lowerName.equals("prefer") ||
-               lowerName.equals("te") ||
-               lowerName.equals("trailer") ||
-               lowerName.equals("transfer-encoding") ||
-               lowerName.equals("upgrade") ||
-               lowerName.equals("via") ||
-               lowerName.equals("warning");
+        return HeaderNames.isMultiValue(HeaderNames.lookup(name));
     }
 
     public static boolean containsHeader(HttpServletRequest req, String name, String value) {
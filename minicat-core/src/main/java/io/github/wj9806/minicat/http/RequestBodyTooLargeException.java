@@ -0,0 +1,11 @@
+package io.github.wj9806.minicat.http;
+
+/**
+ * 请求体超过maxBodySize，处理器返回413后关闭连接
+ */
+public class RequestBodyTooLargeException extends RequestParseException {
+
+    public RequestBodyTooLargeException(long contentLength) {
+        super("Request body is too large: " + contentLength);
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.wj9806.minicat.http;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.lang.reflect.Proxy;
+
+/**
+ * 交给应用的请求对象
+ * 底层的ApplicationRequest在同一连接的多个请求之间复用，请求结束后外观失效，
+ * 应用保留的引用再被访问时抛出IllegalStateException，而不会读到后续请求的数据
+ */
+public class RequestFacade extends HttpServletRequestWrapper {
+
+    private static final HttpServletRequest RECYCLED = (HttpServletRequest) Proxy.newProxyInstance(
+            RequestFacade.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class},
+            (proxy, method, args) -> {
+                throw new IllegalStateException("The request object has been recycled and is no longer "
+                        + "associated with this facade");
+            });
+
+    public RequestFacade(HttpServletRequest request) {
+        super(request);
+    }
+
+    /**
+     * 请求结束，断开与底层请求对象的关联
+     */
+    public void recycle() {
+        setRequest(RECYCLED);
+    }
+}
@@ -0,0 +1,368 @@
+package io.github.wj9806.minicat.http;
+
+import io.github.wj9806.minicat.io.BufferPool;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 增量式HTTP请求解析器，每个连接持有一个实例
+ * 1. 读缓冲区在多次读事件之间保留，请求不完整时直接返回，等待下一次读事件继续解析
+ * 2. 在字节层面逐行解析请求行和请求头，已解析过的字节不会被重复扫描
+ * 3. 一个请求处理完成后调用recycle()，剩余的字节会被保留给下一个请求
+ * 4. 缓冲区从缓冲池中获取，连接关闭时调用release()归还
+ * 5. 请求体按实际收到的字节逐步扩容，Content-Length超过maxBodySize时抛出{@link RequestBodyTooLargeException}
+ */
+public class RequestParser {
+
+    static final int INITIAL_BUFFER_SIZE = 2048;
+
+    private enum State {
+        REQUEST_LINE, HEADERS, BODY, COMPLETE
+    }
+
+    private final int maxHeaderSize;
+    private final int maxBodySize;
+
+    // 写模式：[0, position) 为已读取但尚未消费的数据
+    private ByteBuffer buffer;
+    private State state = State.REQUEST_LINE;
+    // 下一个待扫描的字节位置
+    private int parsePos;
+    // 当前行的起始位置
+    private int lineStart;
+    // 请求体起始位置
+    private int bodyStart;
+    private int contentLength;
+
+    private String method;
+    private String requestURI;
+    private String protocol;
+    // 同一连接的多个请求复用，解析下一个请求行时清空
+    private HttpHeaders headers;
+    // 当前请求头的名称和值在缓冲区中的范围，nameLength为0表示没有待保存的请求头
+    private int nameStart;
+    private int nameLength;
+    private int valueStart;
+    private int valueLength;
+    // 多行请求头的延续，只有出现延续行时才使用
+    private StringBuilder foldedValue;
+
+    public RequestParser() {
+        this(Config.getInstance().getHttp().getMaxHeaderSize(), Config.getInstance().getHttp().getMaxBodySize());
+    }
+
+    public RequestParser(int maxHeaderSize) {
+        this(maxHeaderSize, -1);
+    }
+
+    /**
+     * @param maxHeaderSize 请求行与请求头的最大字节数
+     * @param maxBodySize 请求体的最大字节数，小于0表示不限制
+     */
+    public RequestParser(int maxHeaderSize, int maxBodySize) {
+        this.maxHeaderSize = maxHeaderSize;
+        this.maxBodySize = maxBodySize;
+    }
+
+    /**
+     * 从channel读取数据到缓冲区
+     * @return 读取的字节数，-1表示连接已关闭
+     */
+    public int fill(ReadableByteChannel channel) throws IOException {
+        ensureWritable();
+        return channel.read(buffer);
+    }
+
+    /**
+     * 从输入流读取数据到缓冲区
+     * @return 读取的字节数，-1表示连接已关闭
+     */
+    public int fill(InputStream is) throws IOException {
+        ensureWritable();
+        int n = is.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        if (n > 0) {
+            buffer.position(buffer.position() + n);
+        }
+        return n;
+    }
+
+    /**
+     * 获取有剩余空间的缓冲区（写模式），AIO连接器将异步读取的数据直接写入其中
+     * 读取完成之前不能调用解析器的其他方法
+     */
+    public ByteBuffer writableBuffer() {
+        ensureWritable();
+        return buffer;
+    }
+
+    /**
+     * 从缓冲区头部取出最多len个字节，协议升级之后由websocket读取缓冲区中剩余的数据
+     * @return 取出的字节数
+     */
+    public int drain(byte[] b, int off, int len) {
+        if (buffer == null || buffer.position() == 0) {
+            return 0;
+        }
+        byte[] buf = buffer.array();
+        int available = buffer.position();
+        int n = Math.min(len, available);
+        System.arraycopy(buf, 0, b, off, n);
+        System.arraycopy(buf, n, buf, 0, available - n);
+        buffer.position(available - n);
+        return n;
+    }
+
+    /**
+     * 解析缓冲区中的数据
+     * @return 是否已经得到一个完整的请求（请求行、请求头和请求体）
+     */
+    public boolean parse() {
+        if (buffer == null) {
+            return false;
+        }
+        byte[] buf = buffer.array();
+        int limit = buffer.position();
+
+        while (state == State.REQUEST_LINE || state == State.HEADERS) {
+            int lineEnd = -1;
+            for (int i = parsePos; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    lineEnd = i;
+                    break;
+                }
+            }
+            parsePos = lineEnd == -1 ? limit : lineEnd + 1;
+            if (parsePos > maxHeaderSize) {
+                throw new RequestParseException("Request header is too large");
+            }
+            if (lineEnd == -1) {
+                return false;
+            }
+
+            int end = lineEnd > lineStart && buf[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+            if (state == State.REQUEST_LINE) {
+                // 忽略请求行之前的空行
+                if (end > lineStart) {
+                    parseRequestLine(new String(buf, lineStart, end - lineStart, StandardCharsets.UTF_8));
+                    if (headers == null) {
+                        headers = new HttpHeaders();
+                    } else {
+                        headers.clear();
+                    }
+                    state = State.HEADERS;
+                }
+            } else if (end == lineStart) {
+                // 遇到空行，说明请求头部分结束
+                finishHeader(buf);
+                bodyStart = parsePos;
+                contentLength = parseContentLength();
+                state = State.BODY;
+            } else {
+                parseHeaderLine(buf, lineStart, end);
+            }
+            lineStart = parsePos;
+        }
+
+        if (state == State.BODY) {
+            if (limit - bodyStart < contentLength) {
+                return false;
+            }
+            state = State.COMPLETE;
+        }
+        return state == State.COMPLETE;
+    }
+
+    private void parseRequestLine(String line) {
+        int first = line.indexOf(' ');
+        int second = first == -1 ? -1 : line.indexOf(' ', first + 1);
+        if (first <= 0 || second == -1) {
+            throw new RequestParseException("requestLine != 3");
+        }
+        this.method = line.substring(0, first);
+        this.requestURI = line.substring(first + 1, second);
+        this.protocol = line.substring(second + 1).trim();
+    }
+
+    private void parseHeaderLine(byte[] buf, int start, int end) {
+        if (buf[start] == ' ' || buf[start] == '\t') {
+            // 多行请求头的延续行
+            if (nameLength > 0) {
+                if (foldedValue == null) {
+                    foldedValue = new StringBuilder(
+                            new String(buf, valueStart, valueLength, StandardCharsets.UTF_8).trim());
+                }
+                foldedValue.append(' ')
+                        .append(new String(buf, start, end - start, StandardCharsets.UTF_8).trim());
+            }
+            return;
+        }
+
+        // 新的请求头，先保存之前的请求头（如果有的话）
+        finishHeader(buf);
+
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            if (buf[i] == ':') {
+                colon = i;
+                break;
+            }
+        }
+        if (colon > start) {
+            // 名称去除首尾空白，值的空白在保存时去除
+            int s = start;
+            int e = colon;
+            while (s < e && (buf[s] & 0xff) <= ' ') {
+                s++;
+            }
+            while (e > s && (buf[e - 1] & 0xff) <= ' ') {
+                e--;
+            }
+            nameStart = s;
+            nameLength = e - s;
+            valueStart = colon + 1;
+            valueLength = end - colon - 1;
+        }
+    }
+
+    private void finishHeader(byte[] buf) {
+        if (nameLength > 0) {
+            if (foldedValue != null) {
+                String value = foldedValue.toString().trim();
+                if (!value.isEmpty()) {
+                    HttpHeaders.addHeaderValues(headers,
+                            new String(buf, nameStart, nameLength, StandardCharsets.UTF_8), value);
+                }
+            } else if (!isBlank(buf, valueStart, valueStart + valueLength)) {
+                headers.add(buf, nameStart, nameLength, valueStart, valueLength);
+            }
+        }
+        nameLength = 0;
+        foldedValue = null;
+    }
+
+    private static boolean isBlank(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((buf[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int parseContentLength() {
+        String value = headers.getFirst(HeaderNames.CONTENT_LENGTH);
+        if (value == null) {
+            return 0;
+        }
+        long len;
+        try {
+            len = Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RequestParseException("Invalid Content-Length: " + value);
+        }
+        if (len < 0) {
+            throw new RequestParseException("Invalid Content-Length: " + value);
+        }
+        // 请求体与请求头放在同一个数组中，bodyStart + len不能超过int范围
+        if ((maxBodySize >= 0 && len > maxBodySize) || len > Integer.MAX_VALUE - bodyStart) {
+            throw new RequestBodyTooLargeException(len);
+        }
+        return (int) len;
+    }
+
+    /**
+     * 确保缓冲区有剩余空间，必要时扩容
+     */
+    private void ensureWritable() {
+        if (buffer == null) {
+            buffer = BufferPool.getInstance().acquireHeap(INITIAL_BUFFER_SIZE);
+        }
+        // 请求体也按实际收到的字节倍增扩容，不按客户端声明的Content-Length一次性分配
+        int required = buffer.position() + 1;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        buffer = BufferPool.getInstance().expand(buffer, required);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRequestURI() {
+        return requestURI;
+    }
+
+    public String getProtocol() {
+        return protocol;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    /**
+     * 复制出当前请求的请求体
+     */
+    public byte[] body() {
+        if (state != State.COMPLETE) {
+            throw new IllegalStateException("Request is not complete");
+        }
+        return contentLength == 0 ? new byte[0]
+                : Arrays.copyOfRange(buffer.array(), bodyStart, bodyStart + contentLength);
+    }
+
+    /**
+     * 缓冲区中是否还有未消费的数据
+     */
+    public boolean hasRemaining() {
+        return buffer != null && buffer.position() > 0;
+    }
+
+    /**
+     * 当前请求处理完成，丢弃已消费的数据并保留剩余字节，重置解析状态
+     */
+    public void recycle() {
+        int consumed = state == State.COMPLETE ? bodyStart + contentLength : 0;
+        int remaining = buffer.position() - consumed;
+        if (buffer.capacity() > INITIAL_BUFFER_SIZE && remaining <= INITIAL_BUFFER_SIZE) {
+            // 大请求体处理完后收缩缓冲区，大缓冲区归还到缓冲池
+            BufferPool bufferPool = BufferPool.getInstance();
+            ByteBuffer newBuffer = bufferPool.acquireHeap(INITIAL_BUFFER_SIZE);
+            newBuffer.put(buffer.array(), consumed, remaining);
+            bufferPool.release(buffer);
+            buffer = newBuffer;
+        } else {
+            System.arraycopy(buffer.array(), consumed, buffer.array(), 0, remaining);
+            buffer.position(remaining);
+        }
+
+        state = State.REQUEST_LINE;
+        parsePos = 0;
+        lineStart = 0;
+        bodyStart = 0;
+        contentLength = 0;
+        method = null;
+        requestURI = null;
+        protocol = null;
+        // 请求头对象已交给请求使用，等到解析下一个请求行时再清空
+        nameLength = 0;
+        foldedValue = null;
+    }
+
+    /**
+     * 连接关闭，归还缓冲区
+     */
+    public void release() {
+        if (buffer != null) {
+            BufferPool.getInstance().release(buffer);
+            buffer = null;
+        }
+    }
+}
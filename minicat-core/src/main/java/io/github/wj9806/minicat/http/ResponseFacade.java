@@ -0,0 +1,31 @@
+package io.github.wj9806.minicat.http;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.lang.reflect.Proxy;
+
+/**
+ * 交给应用的响应对象
+ * 底层的ApplicationResponse在同一连接的多个请求之间复用，请求结束后外观失效，
+ * 应用保留的引用再被访问时抛出IllegalStateException，而不会写入后续请求的响应
+ */
+public class ResponseFacade extends HttpServletResponseWrapper {
+
+    private static final HttpServletResponse RECYCLED = (HttpServletResponse) Proxy.newProxyInstance(
+            ResponseFacade.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class},
+            (proxy, method, args) -> {
+                throw new IllegalStateException("The response object has been recycled and is no longer "
+                        + "associated with this facade");
+            });
+
+    public ResponseFacade(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * 请求结束，断开与底层响应对象的关联
+     */
+    public void recycle() {
+        setResponse(RECYCLED);
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.wj9806.minicat.http2;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HPACK解码器（RFC 7541），每个连接一个，只在读取帧的线程中使用
+ * 1. 支持索引字段、带索引/不带索引/永不索引的字面量和动态表大小更新
+ * 2. 动态表大小不能超过本端通过SETTINGS_HEADER_TABLE_SIZE公布的值
+ * 3. 头部列表超过maxHeaderListSize时仍然解码完整个头部块以保持动态表一致，由调用方拒绝该请求
+ */
+class HpackDecoder {
+
+    private final HpackTable table;
+    private final int maxTableSize;
+    private final int maxHeaderListSize;
+    private boolean headerListTooLarge;
+
+    HpackDecoder(int maxTableSize, int maxHeaderListSize) {
+        this.table = new HpackTable(maxTableSize);
+        this.maxTableSize = maxTableSize;
+        this.maxHeaderListSize = maxHeaderListSize;
+    }
+
+    /**
+     * 解码一个完整的头部块
+     * @return 按顺序排列的名称和值，名称和值交替出现，按ISO-8859-1保存原始字节
+     */
+    List<String> decode(byte[] block, int length) throws HpackException {
+        List<String> fields = new ArrayList<>();
+        headerListTooLarge = false;
+        int listSize = 0;
+        int[] pos = {0};
+        boolean fieldSeen = false;
+        while (pos[0] < length) {
+            int b = block[pos[0]] & 0xff;
+            String name;
+            String value;
+            if ((b & 0x80) != 0) {
+                // 索引字段
+                int index = decodeInt(block, pos, length, 7);
+                name = table.name(index);
+                value = table.value(index);
+            } else if ((b & 0x40) != 0) {
+                // 带索引的字面量
+                name = readName(block, pos, length, 6);
+                value = readString(block, pos, length);
+                table.add(name, value);
+            } else if ((b & 0x20) != 0) {
+                // 动态表大小更新只能出现在头部块的开头
+                if (fieldSeen) {
+                    throw new HpackException("Dynamic table size update after header field");
+                }
+                int size = decodeInt(block, pos, length, 5);
+                if (size > maxTableSize) {
+                    throw new HpackException("Dynamic table size " + size + " exceeds " + maxTableSize);
+                }
+                table.setMaxSize(size);
+                continue;
+            } else {
+                // 不带索引或永不索引的字面量
+                name = readName(block, pos, length, 4);
+                value = readString(block, pos, length);
+            }
+            fieldSeen = true;
+            listSize += HpackTable.size(name, value);
+            if (listSize > maxHeaderListSize) {
+                headerListTooLarge = true;
+                continue;
+            }
+            fields.add(name);
+            fields.add(value);
+        }
+        return fields;
+    }
+
+    /**
+     * 上一次解码的头部列表是否超过了maxHeaderListSize
+     */
+    boolean isHeaderListTooLarge() {
+        return headerListTooLarge;
+    }
+
+    private String readName(byte[] block, int[] pos, int length, int prefix) throws HpackException {
+        int index = decodeInt(block, pos, length, prefix);
+        return index == 0 ? readString(block, pos, length) : table.name(index);
+    }
+
+    private static String readString(byte[] block, int[] pos, int length) throws HpackException {
+        if (pos[0] >= length) {
+            throw new HpackException("Truncated header block");
+        }
+        boolean huffman = (block[pos[0]] & 0x80) != 0;
+        int len = decodeInt(block, pos, length, 7);
+        if (len > length - pos[0]) {
+            throw new HpackException("Truncated string literal");
+        }
+        int off = pos[0];
+        pos[0] += len;
+        if (huffman) {
+            byte[] decoded = Huffman.decode(block, off, len);
+            return new String(decoded, StandardCharsets.ISO_8859_1);
+        }
+        return new String(block, off, len, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 解码前缀为prefix位的整数（RFC 7541第5.1节）
+     */
+    static int decodeInt(byte[] block, int[] pos, int length, int prefix) throws HpackException {
+        int mask = (1 << prefix) - 1;
+        int value = block[pos[0]++] & mask;
+        if (value < mask) {
+            return value;
+        }
+        int shift = 0;
+        while (true) {
+            if (pos[0] >= length) {
+                throw new HpackException("Truncated integer");
+            }
+            int b = block[pos[0]++] & 0xff;
+            if (shift > 21) {
+                throw new HpackException("Integer overflow");
+            }
+            value += (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
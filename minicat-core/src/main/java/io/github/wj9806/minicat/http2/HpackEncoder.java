@@ -0,0 +1,124 @@
+package io.github.wj9806.minicat.http2;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * HPACK编码器（RFC 7541），每个连接一个，编码和写出头部块在连接的写锁中进行，保证动态表与对端一致
+ * 1. 完全匹配静态表或动态表的字段只发送索引
+ * 2. 其他字段使用带索引的字面量加入动态表，同一连接上的后续响应可以直接引用；
+ *    每次响应都变化的字段（content-length、date等）不加入动态表，避免淘汰有用的条目
+ * 3. 字符串在Huffman编码更短时使用Huffman编码
+ * 4. 对端修改SETTINGS_HEADER_TABLE_SIZE后，在下一个头部块的开头发送动态表大小更新
+ */
+class HpackEncoder {
+
+    private static final Set<String> NOT_INDEXED = new HashSet<>(Arrays.asList(
+            "content-length", "date", "etag", "last-modified", "expires", "age",
+            "content-range", "location", "set-cookie", "authorization"));
+
+    // 本端动态表的上限，不超过对端公布的SETTINGS_HEADER_TABLE_SIZE
+    private final int maxTableSize;
+    private final HpackTable table;
+    // 尚未通知对端的动态表大小更新，-1表示没有
+    private int pendingSizeUpdate = -1;
+    // 两次更新之间出现过的最小值，需要先通知最小值再通知最终值（RFC 7541第4.2节）
+    private int minSizeUpdate = -1;
+
+    HpackEncoder(int maxTableSize) {
+        this.maxTableSize = maxTableSize;
+        this.table = new HpackTable(Math.min(maxTableSize, Http2Protocol.DEFAULT_HEADER_TABLE_SIZE));
+        if (table.getMaxSize() < Http2Protocol.DEFAULT_HEADER_TABLE_SIZE) {
+            // 对端初始认为动态表大小为4096，使用更小的表时需要通知
+            pendingSizeUpdate = table.getMaxSize();
+            minSizeUpdate = pendingSizeUpdate;
+        }
+    }
+
+    /**
+     * 对端修改了SETTINGS_HEADER_TABLE_SIZE
+     */
+    void setPeerTableSize(int peerTableSize) {
+        int size = Math.min(peerTableSize, maxTableSize);
+        if (size == table.getMaxSize() && pendingSizeUpdate == -1) {
+            return;
+        }
+        minSizeUpdate = minSizeUpdate == -1 ? size : Math.min(minSizeUpdate, size);
+        pendingSizeUpdate = size;
+        table.setMaxSize(size);
+    }
+
+    /**
+     * 开始一个新的头部块，先写出待发送的动态表大小更新
+     */
+    void beginBlock(ByteArrayOutputStream out) {
+        if (pendingSizeUpdate == -1) {
+            return;
+        }
+        if (minSizeUpdate < pendingSizeUpdate) {
+            encodeInt(out, 0x20, 5, minSizeUpdate);
+        }
+        encodeInt(out, 0x20, 5, pendingSizeUpdate);
+        pendingSizeUpdate = -1;
+        minSizeUpdate = -1;
+    }
+
+    /**
+     * 编码一个字段，name必须为小写
+     */
+    void encode(ByteArrayOutputStream out, String name, String value) {
+        // 值按UTF-8编码后以ISO-8859-1保存原始字节，与HpackTable中的条目一致
+        value = new String(value.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        int index = table.find(name, value);
+        if (index > 0) {
+            encodeInt(out, 0x80, 7, index);
+            return;
+        }
+        int nameIndex = -index;
+        if (NOT_INDEXED.contains(name) || name.startsWith(":")
+                || HpackTable.size(name, value) > table.getMaxSize() / 2) {
+            // 不带索引的字面量
+            encodeInt(out, 0x00, 4, nameIndex);
+        } else {
+            encodeInt(out, 0x40, 6, nameIndex);
+            table.add(name, value);
+        }
+        if (nameIndex == 0) {
+            encodeString(out, name);
+        }
+        encodeString(out, value);
+    }
+
+    private static void encodeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.ISO_8859_1);
+        int huffmanLength = Huffman.encodedLength(bytes);
+        if (huffmanLength < bytes.length) {
+            encodeInt(out, 0x80, 7, huffmanLength);
+            Huffman.encode(bytes, out);
+        } else {
+            encodeInt(out, 0x00, 7, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * 编码前缀为prefix位的整数，first为第一个字节中前缀之外的标志位
+     */
+    static void encodeInt(ByteArrayOutputStream out, int first, int prefix, int value) {
+        int mask = (1 << prefix) - 1;
+        if (value < mask) {
+            out.write(first | value);
+            return;
+        }
+        out.write(first | mask);
+        value -= mask;
+        while (value >= 0x80) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
@@ -0,0 +1,13 @@
+package io.github.wj9806.minicat.http2;
+
+import java.io.IOException;
+
+/**
+ * 头部块解码失败，HPACK状态已无法与对端保持一致，按COMPRESSION_ERROR关闭连接
+ */
+class HpackException extends IOException {
+
+    HpackException(String message) {
+        super(message);
+    }
+}
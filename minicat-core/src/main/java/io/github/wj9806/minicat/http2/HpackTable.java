@@ -0,0 +1,224 @@
+package io.github.wj9806.minicat.http2;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HPACK的索引表（RFC 7541第2.3节）
+ * 1. 静态表由所有连接共享，索引1~61
+ * 2. 动态表每个连接的编码器和解码器各有一个，索引从62开始，最新加入的条目索引最小
+ * 3. 条目大小为名称和值的字节数加32，加入新条目超过上限时从最旧的条目开始淘汰
+ * 4. 名称和值按ISO-8859-1保存原始字节，字符串长度即字节数
+ */
+final class HpackTable {
+
+    static final String[][] STATIC_TABLE = {
+            {":authority", ""},
+            {":method", "GET"},
+            {":method", "POST"},
+            {":path", "/"},
+            {":path", "/index.html"},
+            {":scheme", "http"},
+            {":scheme", "https"},
+            {":status", "200"},
+            {":status", "204"},
+            {":status", "206"},
+            {":status", "304"},
+            {":status", "400"},
+            {":status", "404"},
+            {":status", "500"},
+            {"accept-charset", ""},
+            {"accept-encoding", "gzip, deflate"},
+            {"accept-language", ""},
+            {"accept-ranges", ""},
+            {"accept", ""},
+            {"access-control-allow-origin", ""},
+            {"age", ""},
+            {"allow", ""},
+            {"authorization", ""},
+            {"cache-control", ""},
+            {"content-disposition", ""},
+            {"content-encoding", ""},
+            {"content-language", ""},
+            {"content-length", ""},
+            {"content-location", ""},
+            {"content-range", ""},
+            {"content-type", ""},
+            {"cookie", ""},
+            {"date", ""},
+            {"etag", ""},
+            {"expect", ""},
+            {"expires", ""},
+            {"from", ""},
+            {"host", ""},
+            {"if-match", ""},
+            {"if-modified-since", ""},
+            {"if-none-match", ""},
+            {"if-range", ""},
+            {"if-unmodified-since", ""},
+            {"last-modified", ""},
+            {"link", ""},
+            {"location", ""},
+            {"max-forwards", ""},
+            {"proxy-authenticate", ""},
+            {"proxy-authorization", ""},
+            {"range", ""},
+            {"referer", ""},
+            {"refresh", ""},
+            {"retry-after", ""},
+            {"server", ""},
+            {"set-cookie", ""},
+            {"strict-transport-security", ""},
+            {"transfer-encoding", ""},
+            {"user-agent", ""},
+            {"vary", ""},
+            {"via", ""},
+            {"www-authenticate", ""}
+    };
+
+    static final int STATIC_LENGTH = STATIC_TABLE.length;
+
+    // 名称到静态表中第一个同名条目索引的映射，供编码器查找
+    private static final Map<String, Integer> STATIC_NAMES = new HashMap<>();
+
+    static {
+        for (int i = STATIC_LENGTH - 1; i >= 0; i--) {
+            STATIC_NAMES.put(STATIC_TABLE[i][0], i + 1);
+        }
+    }
+
+    private static final int ENTRY_OVERHEAD = 32;
+
+    // 环形数组，head为最新条目的位置
+    private Entry[] entries = new Entry[16];
+    private int head;
+    private int count;
+    private int size;
+    private int maxSize;
+
+    HpackTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 静态表中与name同名的第一个条目索引，不存在时返回0
+     */
+    static int staticNameIndex(String name) {
+        Integer index = STATIC_NAMES.get(name);
+        return index == null ? 0 : index;
+    }
+
+    /**
+     * 按索引获取条目名称，索引不存在时抛出异常
+     */
+    String name(int index) throws HpackException {
+        if (index > 0 && index <= STATIC_LENGTH) {
+            return STATIC_TABLE[index - 1][0];
+        }
+        return dynamic(index).name;
+    }
+
+    String value(int index) throws HpackException {
+        if (index > 0 && index <= STATIC_LENGTH) {
+            return STATIC_TABLE[index - 1][1];
+        }
+        return dynamic(index).value;
+    }
+
+    private Entry dynamic(int index) throws HpackException {
+        int i = index - STATIC_LENGTH - 1;
+        if (index <= 0 || i >= count) {
+            throw new HpackException("Invalid header index " + index);
+        }
+        return entries[(head - i + entries.length) % entries.length];
+    }
+
+    /**
+     * 查找完全匹配的条目，先查静态表再查动态表
+     * @return 完全匹配的索引；只有名称匹配时返回负的索引；都不匹配时返回0
+     */
+    int find(String name, String value) {
+        int nameIndex = staticNameIndex(name);
+        if (nameIndex > 0) {
+            for (int i = nameIndex; i <= STATIC_LENGTH && STATIC_TABLE[i - 1][0].equals(name); i++) {
+                if (STATIC_TABLE[i - 1][1].equals(value)) {
+                    return i;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            Entry entry = entries[(head - i + entries.length) % entries.length];
+            if (entry.name.equals(name)) {
+                if (entry.value.equals(value)) {
+                    return STATIC_LENGTH + 1 + i;
+                }
+                if (nameIndex == 0) {
+                    nameIndex = STATIC_LENGTH + 1 + i;
+                }
+            }
+        }
+        return -nameIndex;
+    }
+
+    /**
+     * 加入新条目，超过上限时淘汰旧条目，单个条目超过上限时清空动态表
+     */
+    void add(String name, String value) {
+        int entrySize = size(name, value);
+        while (count > 0 && size + entrySize > maxSize) {
+            evict();
+        }
+        if (entrySize > maxSize) {
+            return;
+        }
+        if (count == entries.length) {
+            Entry[] expanded = new Entry[entries.length << 1];
+            for (int i = 0; i < count; i++) {
+                expanded[count - 1 - i] = entries[(head - i + entries.length) % entries.length];
+            }
+            entries = expanded;
+            head = count - 1;
+        }
+        head = (head + 1) % entries.length;
+        entries[head] = new Entry(name, value, entrySize);
+        count++;
+        size += entrySize;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 修改动态表的大小上限，淘汰超出的条目
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (count > 0 && size > maxSize) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        int tail = (head - count + 1 + entries.length) % entries.length;
+        size -= entries[tail].size;
+        entries[tail] = null;
+        count--;
+    }
+
+    static int size(String name, String value) {
+        return name.length() + value.length() + ENTRY_OVERHEAD;
+    }
+
+    private static final class Entry {
+        final String name;
+        final String value;
+        final int size;
+
+        Entry(String name, String value, int size) {
+            this.name = name;
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,953 @@
+package io.github.wj9806.minicat.http2;
+
+import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.http.HttpHeaders;
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.io.BufferPool;
+import io.github.wj9806.minicat.io.OutboundQueue;
+import io.github.wj9806.minicat.net.Sock;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.HttpConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.github.wj9806.minicat.http2.Http2Protocol.*;
+
+/**
+ * HTTP/2连接（RFC 9113），与HTTP/1.1的Processor并列，只有NIO连接器支持
+ * 1. 三种进入方式：h2c prior knowledge（直接发送连接前言）、HTTP/1.1的Upgrade: h2c、TLS上ALPN协商出h2；
+ *    请求解析器把连接前言的前半部分解析为PRI请求，由Processor切换到HTTP/2
+ * 2. 读取帧在连接的读事件任务中进行，与HTTP/1.1一样同一时刻只有一个线程读取；
+ *    流的请求接收完整后交给worker，经ApplicationContext.findMatchingServlet和buildFilterChain处理，多个流并发执行
+ * 3. 写出帧由连接的写锁串行化，HPACK编码和写出HEADERS帧在同一个锁中进行，保证动态表与对端一致
+ * 4. 流控：发送时扣减连接和流的发送窗口，窗口用完时写线程等待WINDOW_UPDATE；
+ *    接收的DATA帧扣减接收窗口，未归还的字节数达到窗口一半时发送WINDOW_UPDATE
+ * 5. 连接错误发送GOAWAY后关闭连接，流错误只发送RST_STREAM
+ */
+public class Http2Connection {
+
+    private static final Logger logger = LoggerFactory.getLogger(Http2Connection.class);
+
+    private static final byte[] SWITCHING_PROTOCOLS = ("HTTP/1.1 101 Switching Protocols\r\n"
+            + "Connection: Upgrade\r\nUpgrade: h2c\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+    private final ApplicationContext applicationContext;
+    private final Sock<SelectionKey> sock;
+    private final ReadableByteChannel input;
+    private final StreamDispatcher dispatcher;
+    private final OutboundQueue outbound;
+    private final long writeTimeout;
+
+    // 本端设置
+    private final int maxConcurrentStreams;
+    // 请求体的最大字节数，小于0表示不限制
+    private final int maxBodySize;
+    private final int localInitialWindowSize;
+    private final int localMaxFrameSize;
+
+    private final HpackDecoder decoder;
+    private final HpackEncoder encoder;
+    private final Map<Integer, Http2Stream> streams = new ConcurrentHashMap<>();
+
+    // 写出帧的锁，多个流的写线程和读取帧的线程共用
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 发送窗口的锁，窗口增大或连接关闭时通知等待的写线程
+    private final ReentrantLock windowLock = new ReentrantLock();
+    private final Condition windowAvailable = windowLock.newCondition();
+    // 连接级发送窗口，由windowLock保护
+    private long sendWindow = DEFAULT_WINDOW_SIZE;
+    // 对端的SETTINGS_INITIAL_WINDOW_SIZE，由windowLock保护
+    private int peerInitialWindowSize = DEFAULT_WINDOW_SIZE;
+    private volatile int peerMaxFrameSize = DEFAULT_MAX_FRAME_SIZE;
+
+    // 以下字段只在读取帧的线程中访问
+    private ByteBuffer inBuf;
+    // 连接前言中已经校验的字节数
+    private int prefaceOffset;
+    private int recvWindow = DEFAULT_WINDOW_SIZE;
+    private int recvConsumed;
+    private int lastStreamId;
+    // 对端是否已经确认本端的SETTINGS
+    private boolean settingsAcked;
+    // 正在接收的头部块（HEADERS和之后的CONTINUATION），headerStreamId为0表示没有
+    private int headerStreamId;
+    private boolean headerEndStream;
+    private byte[] headerBlock = new byte[1024];
+    private int headerBlockLength;
+
+    private volatile boolean closed;
+
+    public Http2Connection(ApplicationContext applicationContext, Sock<SelectionKey> sock,
+                           ReadableByteChannel input, StreamDispatcher dispatcher) {
+        this.applicationContext = applicationContext;
+        this.sock = sock;
+        this.input = input;
+        this.dispatcher = dispatcher;
+        this.outbound = sock.outbound();
+        Config config = Config.getInstance();
+        HttpConfig.Http2Config http2 = config.getHttp().getHttp2();
+        this.writeTimeout = config.getServer().getNio().getWriteTimeout();
+        this.maxConcurrentStreams = http2.getMaxConcurrentStreams();
+        this.localInitialWindowSize = Math.min(Math.max(http2.getInitialWindowSize(), 1), MAX_WINDOW_SIZE);
+        this.localMaxFrameSize = Math.min(Math.max(http2.getMaxFrameSize(), DEFAULT_MAX_FRAME_SIZE),
+                MAX_FRAME_SIZE_UPPER_BOUND);
+        this.decoder = new HpackDecoder(http2.getHeaderTableSize(), config.getHttp().getMaxHeaderSize());
+        this.maxBodySize = config.getHttp().getMaxBodySize();
+        this.encoder = new HpackEncoder(http2.getHeaderTableSize());
+    }
+
+    /**
+     * 请求解析器得到的请求是否为连接前言的前半部分"PRI * HTTP/2.0"
+     */
+    public static boolean isPreface(String method, String requestURI, String protocol) {
+        return "PRI".equals(method) && "*".equals(requestURI) && "HTTP/2.0".equals(protocol);
+    }
+
+    /**
+     * 是否为没有请求体的h2c升级请求（RFC 7540第3.2节）
+     */
+    public static boolean isUpgrade(HttpHeaders headers) {
+        if (headers == null || headers.get("http2-settings") == null || headers.get("http2-settings").size() != 1) {
+            return false;
+        }
+        List<String> upgrade = headers.get(HttpHeaders.UPGRADE);
+        if (upgrade == null || !containsToken(upgrade, "h2c")) {
+            return false;
+        }
+        String contentLength = headers.getFirst("content-length");
+        return (contentLength == null || "0".equals(contentLength.trim())) && !headers.contains("transfer-encoding");
+    }
+
+    private static boolean containsToken(List<String> values, String token) {
+        for (String value : values) {
+            for (String t : value.split(",")) {
+                if (token.equalsIgnoreCase(t.trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 收到连接前言（prior knowledge或ALPN h2），解析器已经解析了前言的前半部分
+     */
+    public void startWithPreface(RequestParser parser) throws IOException {
+        parser.recycle();
+        prefaceOffset = PREFACE_REQUEST_LENGTH;
+        start(parser);
+    }
+
+    /**
+     * 处理h2c升级请求：返回101后发送本端SETTINGS，升级请求作为流1处理，之后等待客户端的连接前言
+     * @return HTTP2-Settings不合法时返回false，继续按HTTP/1.1处理该请求
+     */
+    public boolean startWithUpgrade(RequestParser parser, OutputStream out) throws IOException {
+        byte[] settings;
+        try {
+            settings = Base64.getUrlDecoder().decode(parser.getHeaders().getFirst("http2-settings").trim());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (settings.length % 6 != 0) {
+            return false;
+        }
+        out.write(SWITCHING_PROTOCOLS);
+        out.flush();
+
+        Http2Stream stream = new Http2Stream(1, localInitialWindowSize, DEFAULT_WINDOW_SIZE);
+        stream.setUpgradeRequest(parser.getMethod(), parser.getRequestURI(), parser.getHeaders());
+        parser.recycle();
+        prefaceOffset = 0;
+        start(parser);
+        lastStreamId = 1;
+        streams.put(1, stream);
+        // 流1的发送窗口也按HTTP2-Settings中的初始窗口大小调整
+        applySettings(ByteBuffer.wrap(settings));
+        dispatch(stream);
+        return true;
+    }
+
+    /**
+     * 发送本端的SETTINGS，并取出解析器中剩余的数据
+     */
+    private void start(RequestParser parser) throws IOException {
+        ByteBuffer settings = ByteBuffer.allocate(6 * 5);
+        putSetting(settings, SETTINGS_MAX_CONCURRENT_STREAMS, maxConcurrentStreams);
+        putSetting(settings, SETTINGS_INITIAL_WINDOW_SIZE, localInitialWindowSize);
+        putSetting(settings, SETTINGS_MAX_FRAME_SIZE, localMaxFrameSize);
+        HttpConfig http = Config.getInstance().getHttp();
+        putSetting(settings, SETTINGS_MAX_HEADER_LIST_SIZE, http.getMaxHeaderSize());
+        if (http.getHttp2().getHeaderTableSize() != DEFAULT_HEADER_TABLE_SIZE) {
+            putSetting(settings, SETTINGS_HEADER_TABLE_SIZE, http.getHttp2().getHeaderTableSize());
+        }
+        settings.flip();
+        writeFrame(SETTINGS, 0, 0, settings);
+        if (localInitialWindowSize > DEFAULT_WINDOW_SIZE) {
+            // 连接级窗口不受SETTINGS影响，通过WINDOW_UPDATE扩大到与流的窗口一致
+            int increment = localInitialWindowSize - DEFAULT_WINDOW_SIZE;
+            recvWindow += increment;
+            writeWindowUpdate(0, increment);
+        }
+
+        inBuf = BufferPool.getInstance().acquireHeap(FRAME_HEADER_LENGTH + localMaxFrameSize);
+        while (parser.hasRemaining() && inBuf.hasRemaining()) {
+            int n = parser.drain(inBuf.array(), inBuf.arrayOffset() + inBuf.position(), inBuf.remaining());
+            inBuf.position(inBuf.position() + n);
+        }
+    }
+
+    private static void putSetting(ByteBuffer buffer, int id, int value) {
+        buffer.putShort((short) id);
+        buffer.putInt(value);
+    }
+
+    /**
+     * 在连接的读事件任务中调用，读取并处理所有已到达的帧
+     * @return 1表示等待下一次读事件，-1表示需要关闭连接
+     */
+    public int process() {
+        if (closed) {
+            return -1;
+        }
+        int result = -1;
+        try {
+            if (inBuf == null) {
+                inBuf = BufferPool.getInstance().acquireHeap(FRAME_HEADER_LENGTH + localMaxFrameSize);
+            }
+            while (true) {
+                handleFrames();
+                int n = input.read(inBuf);
+                if (n == -1) {
+                    return result;
+                }
+                if (n == 0) {
+                    return result = 1;
+                }
+                sock.freshLastProcess();
+            }
+        } catch (Http2Exception e) {
+            logger.debug("HTTP/2 connection error: {}", e.getMessage());
+            goAway(e.getError(), e.getMessage());
+            return result;
+        } catch (HpackException e) {
+            logger.debug("HPACK decoding error: {}", e.getMessage());
+            goAway(COMPRESSION_ERROR, e.getMessage());
+            return result;
+        } catch (IOException e) {
+            return result;
+        } finally {
+            // 连接关闭或等待数据期间不占用读缓冲区
+            if (inBuf != null && (result == -1 || inBuf.position() == 0)) {
+                BufferPool.getInstance().release(inBuf);
+                inBuf = null;
+            }
+        }
+    }
+
+    /**
+     * 处理读缓冲区中所有完整的帧，不完整的帧留在缓冲区中
+     */
+    private void handleFrames() throws IOException {
+        inBuf.flip();
+        try {
+            if (!readPreface()) {
+                return;
+            }
+            while (inBuf.remaining() >= FRAME_HEADER_LENGTH) {
+                int pos = inBuf.position();
+                int length = ((inBuf.get(pos) & 0xff) << 16) | ((inBuf.get(pos + 1) & 0xff) << 8)
+                        | (inBuf.get(pos + 2) & 0xff);
+                if (length > localMaxFrameSize) {
+                    throw Http2Exception.connection(FRAME_SIZE_ERROR, "Frame size " + length + " exceeds "
+                            + localMaxFrameSize);
+                }
+                if (inBuf.remaining() < FRAME_HEADER_LENGTH + length) {
+                    return;
+                }
+                int type = inBuf.get(pos + 3) & 0xff;
+                int flags = inBuf.get(pos + 4) & 0xff;
+                int streamId = inBuf.getInt(pos + 5) & 0x7fffffff;
+                ByteBuffer payload = inBuf.duplicate();
+                payload.position(pos + FRAME_HEADER_LENGTH);
+                payload.limit(pos + FRAME_HEADER_LENGTH + length);
+                inBuf.position(pos + FRAME_HEADER_LENGTH + length);
+                try {
+                    handleFrame(type, flags, streamId, payload);
+                } catch (Http2Exception e) {
+                    if (e.isConnectionError()) {
+                        throw e;
+                    }
+                    resetStream(e.getStreamId(), e.getError());
+                }
+            }
+        } finally {
+            inBuf.compact();
+        }
+    }
+
+    /**
+     * 校验客户端的连接前言
+     * @return 连接前言是否已经全部收到
+     */
+    private boolean readPreface() throws Http2Exception {
+        while (prefaceOffset < PREFACE.length && inBuf.hasRemaining()) {
+            if (inBuf.get() != PREFACE[prefaceOffset++]) {
+                throw Http2Exception.connection(PROTOCOL_ERROR, "Invalid connection preface");
+            }
+        }
+        return prefaceOffset == PREFACE.length;
+    }
+
+    private void handleFrame(int type, int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (headerStreamId != 0 && (type != CONTINUATION || streamId != headerStreamId)) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "Expected CONTINUATION for stream " + headerStreamId);
+        }
+        switch (type) {
+            case DATA:
+                handleData(flags, streamId, payload);
+                break;
+            case HEADERS:
+                handleHeaders(flags, streamId, payload);
+                break;
+            case PRIORITY:
+                if (streamId == 0) {
+                    throw Http2Exception.connection(PROTOCOL_ERROR, "PRIORITY on stream 0");
+                }
+                if (payload.remaining() != 5) {
+                    throw Http2Exception.stream(streamId, FRAME_SIZE_ERROR, "Invalid PRIORITY frame");
+                }
+                // 不支持优先级，忽略
+                break;
+            case RST_STREAM:
+                handleRstStream(streamId, payload);
+                break;
+            case SETTINGS:
+                handleSettings(flags, streamId, payload);
+                break;
+            case PING:
+                handlePing(flags, streamId, payload);
+                break;
+            case GOAWAY:
+                if (streamId != 0) {
+                    throw Http2Exception.connection(PROTOCOL_ERROR, "GOAWAY on stream " + streamId);
+                }
+                // 对端不再创建新的流，已有的流继续处理，由对端关闭连接
+                logger.debug("Received GOAWAY, error code {}", payload.remaining() >= 8 ? payload.getInt(4) : -1);
+                break;
+            case WINDOW_UPDATE:
+                handleWindowUpdate(streamId, payload);
+                break;
+            case CONTINUATION:
+                handleContinuation(flags, streamId, payload);
+                break;
+            case PUSH_PROMISE:
+                throw Http2Exception.connection(PROTOCOL_ERROR, "Client cannot push");
+            default:
+                // 忽略未知类型的帧
+        }
+    }
+
+    private void handleData(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId == 0) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "DATA on stream 0");
+        }
+        int length = payload.remaining();
+        // 填充也计入流控
+        recvWindow -= length;
+        recvConsumed += length;
+        if (recvWindow < 0) {
+            throw Http2Exception.connection(FLOW_CONTROL_ERROR, "Connection receive window exceeded");
+        }
+        int threshold = localInitialWindowSize / 2;
+        if (recvConsumed >= threshold) {
+            recvWindow += recvConsumed;
+            writeWindowUpdate(0, recvConsumed);
+            recvConsumed = 0;
+        }
+
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null || stream.isRequestComplete()) {
+            if (streamId > lastStreamId) {
+                throw Http2Exception.connection(PROTOCOL_ERROR, "DATA on idle stream " + streamId);
+            }
+            throw Http2Exception.stream(streamId, STREAM_CLOSED, "DATA on closed stream " + streamId);
+        }
+        if (!stream.consumeRecvWindow(length)) {
+            throw Http2Exception.stream(streamId, FLOW_CONTROL_ERROR, "Stream receive window exceeded");
+        }
+        ByteBuffer data = unpad(flags, streamId, payload);
+        if (isBodyTooLarge((long) stream.getBodyLength() + data.remaining())) {
+            rejectTooLarge(stream);
+        }
+        stream.appendBody(data);
+        if ((flags & FLAG_END_STREAM) != 0) {
+            if (!stream.isContentLengthValid()) {
+                throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Content-Length mismatch");
+            }
+            stream.setRequestComplete();
+            dispatch(stream);
+        } else {
+            if (stream.getContentLength() >= 0 && stream.getBodyLength() > stream.getContentLength()) {
+                throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Content-Length exceeded");
+            }
+            int increment = stream.takeWindowUpdate(threshold);
+            if (increment > 0) {
+                writeWindowUpdate(streamId, increment);
+            }
+        }
+    }
+
+    private void handleHeaders(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId == 0) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "HEADERS on stream 0");
+        }
+        ByteBuffer block = unpad(flags, streamId, payload);
+        if ((flags & FLAG_PRIORITY) != 0) {
+            if (block.remaining() < 5) {
+                throw Http2Exception.connection(FRAME_SIZE_ERROR, "Invalid HEADERS frame");
+            }
+            if ((block.getInt(block.position()) & 0x7fffffff) == streamId) {
+                throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Stream depends on itself");
+            }
+            block.position(block.position() + 5);
+        }
+        Http2Stream stream = streams.get(streamId);
+        if (stream == null) {
+            if ((streamId & 1) == 0 || streamId <= lastStreamId) {
+                throw Http2Exception.connection(streamId <= lastStreamId ? STREAM_CLOSED : PROTOCOL_ERROR,
+                        "Invalid stream id " + streamId);
+            }
+            lastStreamId = streamId;
+        } else if (stream.isRequestComplete() || (flags & FLAG_END_STREAM) == 0) {
+            // 已有的流上只能收到带END_STREAM的trailer
+            throw Http2Exception.connection(PROTOCOL_ERROR, "Unexpected HEADERS on stream " + streamId);
+        }
+        headerStreamId = streamId;
+        headerEndStream = (flags & FLAG_END_STREAM) != 0;
+        headerBlockLength = 0;
+        appendHeaderBlock(block);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            finishHeaders();
+        }
+    }
+
+    private void handleContinuation(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (headerStreamId == 0 || streamId != headerStreamId) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "Unexpected CONTINUATION on stream " + streamId);
+        }
+        appendHeaderBlock(payload);
+        if ((flags & FLAG_END_HEADERS) != 0) {
+            finishHeaders();
+        }
+    }
+
+    private void appendHeaderBlock(ByteBuffer data) throws Http2Exception {
+        int len = data.remaining();
+        // 编码后的头部块不会比解码后的头部列表大太多，超过上限时直接关闭连接
+        if (headerBlockLength + len > Config.getInstance().getHttp().getMaxHeaderSize() * 2 + localMaxFrameSize) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "Header block is too large");
+        }
+        if (headerBlockLength + len > headerBlock.length) {
+            byte[] expanded = new byte[Math.max(headerBlock.length << 1, headerBlockLength + len)];
+            System.arraycopy(headerBlock, 0, expanded, 0, headerBlockLength);
+            headerBlock = expanded;
+        }
+        data.get(headerBlock, headerBlockLength, len);
+        headerBlockLength += len;
+    }
+
+    /**
+     * 头部块接收完整：解码后创建流，请求没有请求体时直接交给worker
+     */
+    private void finishHeaders() throws IOException {
+        int streamId = headerStreamId;
+        boolean endStream = headerEndStream;
+        headerStreamId = 0;
+        // 无论流是否会被拒绝都要解码，保持动态表与对端一致
+        List<String> fields = decoder.decode(headerBlock, headerBlockLength);
+        Http2Stream stream = streams.get(streamId);
+        if (stream != null) {
+            // trailer，忽略其内容
+            if (!stream.isContentLengthValid()) {
+                throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Content-Length mismatch");
+            }
+            stream.setRequestComplete();
+            dispatch(stream);
+            return;
+        }
+        if (decoder.isHeaderListTooLarge()) {
+            throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Header list is too large");
+        }
+        if (streams.size() >= maxConcurrentStreams) {
+            throw Http2Exception.stream(streamId, REFUSED_STREAM, "Too many concurrent streams");
+        }
+        int initialRecvWindow = settingsAcked ? localInitialWindowSize
+                : Math.max(localInitialWindowSize, DEFAULT_WINDOW_SIZE);
+        windowLock.lock();
+        try {
+            stream = new Http2Stream(streamId, initialRecvWindow, peerInitialWindowSize);
+        } finally {
+            windowLock.unlock();
+        }
+        if (!stream.setRequestHeaders(fields)) {
+            throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Malformed request headers");
+        }
+        streams.put(streamId, stream);
+        if (isBodyTooLarge(stream.getContentLength())) {
+            rejectTooLarge(stream);
+        }
+        if (endStream) {
+            if (!stream.isContentLengthValid()) {
+                streams.remove(streamId);
+                throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "Content-Length mismatch");
+            }
+            stream.setRequestComplete();
+            dispatch(stream);
+        }
+    }
+
+    private void handleRstStream(int streamId, ByteBuffer payload) throws Http2Exception {
+        if (streamId == 0) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "RST_STREAM on stream 0");
+        }
+        if (payload.remaining() != 4) {
+            throw Http2Exception.connection(FRAME_SIZE_ERROR, "Invalid RST_STREAM frame");
+        }
+        if (streamId > lastStreamId) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "RST_STREAM on idle stream " + streamId);
+        }
+        Http2Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            stream.setReset();
+            signalWindow();
+        }
+    }
+
+    private void handleSettings(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId != 0) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "SETTINGS on stream " + streamId);
+        }
+        if ((flags & FLAG_ACK) != 0) {
+            if (payload.hasRemaining()) {
+                throw Http2Exception.connection(FRAME_SIZE_ERROR, "SETTINGS ACK with payload");
+            }
+            settingsAcked = true;
+            return;
+        }
+        if (payload.remaining() % 6 != 0) {
+            throw Http2Exception.connection(FRAME_SIZE_ERROR, "Invalid SETTINGS frame");
+        }
+        applySettings(payload);
+        writeFrame(SETTINGS, FLAG_ACK, 0, ByteBuffer.allocate(0));
+    }
+
+    private void applySettings(ByteBuffer payload) throws IOException {
+        while (payload.remaining() >= 6) {
+            int id = payload.getShort() & 0xffff;
+            int value = payload.getInt();
+            switch (id) {
+                case SETTINGS_HEADER_TABLE_SIZE:
+                    writeLock.lock();
+                    try {
+                        encoder.setPeerTableSize(value < 0 ? Integer.MAX_VALUE : value);
+                    } finally {
+                        writeLock.unlock();
+                    }
+                    break;
+                case SETTINGS_ENABLE_PUSH:
+                    if (value != 0 && value != 1) {
+                        throw Http2Exception.connection(PROTOCOL_ERROR, "Invalid SETTINGS_ENABLE_PUSH");
+                    }
+                    break;
+                case SETTINGS_INITIAL_WINDOW_SIZE:
+                    if (value < 0) {
+                        throw Http2Exception.connection(FLOW_CONTROL_ERROR, "Invalid SETTINGS_INITIAL_WINDOW_SIZE");
+                    }
+                    updateInitialWindowSize(value);
+                    break;
+                case SETTINGS_MAX_FRAME_SIZE:
+                    if (value < DEFAULT_MAX_FRAME_SIZE || value > MAX_FRAME_SIZE_UPPER_BOUND) {
+                        throw Http2Exception.connection(PROTOCOL_ERROR, "Invalid SETTINGS_MAX_FRAME_SIZE");
+                    }
+                    peerMaxFrameSize = value;
+                    break;
+                default:
+                    // SETTINGS_MAX_CONCURRENT_STREAMS只限制服务端推送，SETTINGS_MAX_HEADER_LIST_SIZE为建议值，都忽略
+            }
+        }
+    }
+
+    /**
+     * 对端修改初始窗口大小后，按差值调整所有流的发送窗口
+     */
+    private void updateInitialWindowSize(int value) throws Http2Exception {
+        windowLock.lock();
+        try {
+            int delta = value - peerInitialWindowSize;
+            peerInitialWindowSize = value;
+            for (Http2Stream stream : streams.values()) {
+                long window = stream.getSendWindow() + delta;
+                if (window > MAX_WINDOW_SIZE) {
+                    throw Http2Exception.connection(FLOW_CONTROL_ERROR, "Stream send window overflow");
+                }
+                stream.setSendWindow(window);
+            }
+            windowAvailable.signalAll();
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    private void handlePing(int flags, int streamId, ByteBuffer payload) throws IOException {
+        if (streamId != 0) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "PING on stream " + streamId);
+        }
+        if (payload.remaining() != 8) {
+            throw Http2Exception.connection(FRAME_SIZE_ERROR, "Invalid PING frame");
+        }
+        if ((flags & FLAG_ACK) == 0) {
+            ByteBuffer ack = ByteBuffer.allocate(8);
+            ack.put(payload);
+            ack.flip();
+            writeFrame(PING, FLAG_ACK, 0, ack);
+        }
+    }
+
+    private void handleWindowUpdate(int streamId, ByteBuffer payload) throws Http2Exception {
+        if (payload.remaining() != 4) {
+            throw Http2Exception.connection(FRAME_SIZE_ERROR, "Invalid WINDOW_UPDATE frame");
+        }
+        int increment = payload.getInt() & 0x7fffffff;
+        if (increment == 0) {
+            if (streamId == 0) {
+                throw Http2Exception.connection(PROTOCOL_ERROR, "WINDOW_UPDATE with 0 increment");
+            }
+            throw Http2Exception.stream(streamId, PROTOCOL_ERROR, "WINDOW_UPDATE with 0 increment");
+        }
+        windowLock.lock();
+        try {
+            if (streamId == 0) {
+                sendWindow += increment;
+                if (sendWindow > MAX_WINDOW_SIZE) {
+                    throw Http2Exception.connection(FLOW_CONTROL_ERROR, "Connection send window overflow");
+                }
+            } else {
+                Http2Stream stream = streams.get(streamId);
+                if (stream == null) {
+                    // 已关闭的流上的WINDOW_UPDATE忽略
+                    return;
+                }
+                stream.setSendWindow(stream.getSendWindow() + increment);
+                if (stream.getSendWindow() > MAX_WINDOW_SIZE) {
+                    throw Http2Exception.stream(streamId, FLOW_CONTROL_ERROR, "Stream send window overflow");
+                }
+            }
+            windowAvailable.signalAll();
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    /**
+     * 去掉PADDED标志的填充
+     */
+    private static ByteBuffer unpad(int flags, int streamId, ByteBuffer payload) throws Http2Exception {
+        if ((flags & FLAG_PADDED) == 0) {
+            return payload;
+        }
+        if (!payload.hasRemaining()) {
+            throw Http2Exception.connection(FRAME_SIZE_ERROR, "Missing pad length on stream " + streamId);
+        }
+        int padding = payload.get() & 0xff;
+        if (padding > payload.remaining()) {
+            throw Http2Exception.connection(PROTOCOL_ERROR, "Padding exceeds payload on stream " + streamId);
+        }
+        payload.limit(payload.limit() - padding);
+        return payload;
+    }
+
+    /**
+     * 把接收完整的流交给worker，过载时以REFUSED_STREAM重置
+     */
+    private void dispatch(Http2Stream stream) {
+        dispatcher.dispatch(new Http2StreamProcessor(applicationContext, sock, this, stream),
+                () -> refuse(stream));
+    }
+
+    private void refuse(Http2Stream stream) {
+        if (streams.remove(stream.getId()) != null) {
+            stream.setReset();
+            try {
+                writeRstStream(stream.getId(), REFUSED_STREAM);
+            } catch (IOException ignore) {
+                // 连接已经关闭
+            }
+        }
+    }
+
+    /**
+     * 流处理结束，处理失败且尚未重置时以INTERNAL_ERROR重置
+     */
+    void streamFinished(Http2Stream stream, boolean completed) {
+        if (streams.remove(stream.getId()) != null && !completed && !stream.isReset()) {
+            stream.setReset();
+            try {
+                writeRstStream(stream.getId(), INTERNAL_ERROR);
+            } catch (IOException ignore) {
+                // 连接已经关闭
+            }
+        }
+        // 空闲超时从最后一个流完成时开始计算
+        sock.freshLastProcess();
+    }
+
+    private boolean isBodyTooLarge(long length) {
+        return maxBodySize >= 0 && length > maxBodySize;
+    }
+
+    /**
+     * 请求体超过maxBodySize：先返回413，再以NO_ERROR重置流，让客户端停止发送剩余的请求体
+     */
+    private void rejectTooLarge(Http2Stream stream) throws IOException {
+        writeHeaders(stream, Arrays.asList(":status", "413"), true);
+        throw Http2Exception.stream(stream.getId(), NO_ERROR, "Request body is too large");
+    }
+
+    /**
+     * 流错误：重置流并通知等待中的写线程
+     */
+    private void resetStream(int streamId, int error) throws IOException {
+        Http2Stream stream = streams.remove(streamId);
+        if (stream != null) {
+            stream.setReset();
+            signalWindow();
+        }
+        writeRstStream(streamId, error);
+    }
+
+    /**
+     * 发送HEADERS帧，头部块超过对端的最大帧大小时拆分为CONTINUATION，所有帧一次写出，中间不会插入其他帧
+     */
+    void writeHeaders(Http2Stream stream, List<String> fields, boolean endStream) throws IOException {
+        writeLock.lock();
+        try {
+            checkStream(stream);
+            ByteArrayOutputStream block = new ByteArrayOutputStream(256);
+            encoder.beginBlock(block);
+            for (int i = 0; i < fields.size(); i += 2) {
+                encoder.encode(block, fields.get(i).toLowerCase(), fields.get(i + 1));
+            }
+            byte[] bytes = block.toByteArray();
+            int maxFrameSize = peerMaxFrameSize;
+            List<ByteBuffer> buffers = new ArrayList<>();
+            int off = 0;
+            do {
+                int len = Math.min(bytes.length - off, maxFrameSize);
+                boolean first = off == 0;
+                boolean last = off + len == bytes.length;
+                int flags = (last ? FLAG_END_HEADERS : 0) | (first && endStream ? FLAG_END_STREAM : 0);
+                buffers.add(frameHeader(len, first ? HEADERS : CONTINUATION, flags, stream.getId()));
+                buffers.add(ByteBuffer.wrap(bytes, off, len));
+                off += len;
+            } while (off < bytes.length);
+            outbound.write(buffers.toArray(new ByteBuffer[0]));
+        } finally {
+            writeLock.unlock();
+        }
+        if (endStream) {
+            streams.remove(stream.getId());
+        }
+    }
+
+    /**
+     * 发送DATA帧，按对端的最大帧大小拆分，连接或流的发送窗口用完时等待WINDOW_UPDATE
+     */
+    void writeData(Http2Stream stream, byte[] b, int off, int len, boolean endStream) throws IOException {
+        if (len == 0) {
+            if (endStream) {
+                writeLock.lock();
+                try {
+                    checkStream(stream);
+                    outbound.write(frameHeader(0, DATA, FLAG_END_STREAM, stream.getId()));
+                } finally {
+                    writeLock.unlock();
+                }
+                streams.remove(stream.getId());
+            }
+            return;
+        }
+        while (len > 0) {
+            int n = acquireWindow(stream, Math.min(len, peerMaxFrameSize));
+            boolean last = n == len && endStream;
+            writeLock.lock();
+            try {
+                try {
+                    checkStream(stream);
+                } catch (IOException e) {
+                    // 窗口已扣减但数据不会发出，对端不会为这些字节发送WINDOW_UPDATE，需要归还连接窗口
+                    releaseWindow(n);
+                    throw e;
+                }
+                outbound.write(frameHeader(n, DATA, last ? FLAG_END_STREAM : 0, stream.getId()),
+                        ByteBuffer.wrap(b, off, n));
+            } finally {
+                writeLock.unlock();
+            }
+            off += n;
+            len -= n;
+        }
+        if (endStream) {
+            streams.remove(stream.getId());
+        }
+    }
+
+    /**
+     * 从连接和流的发送窗口中扣减最多max个字节，窗口用完时等待
+     * @return 实际可以发送的字节数
+     */
+    private int acquireWindow(Http2Stream stream, int max) throws IOException {
+        windowLock.lock();
+        try {
+            long start = System.currentTimeMillis();
+            while (true) {
+                checkStream(stream);
+                long available = Math.min(sendWindow, stream.getSendWindow());
+                if (available > 0) {
+                    int n = (int) Math.min(available, max);
+                    sendWindow -= n;
+                    stream.setSendWindow(stream.getSendWindow() - n);
+                    return n;
+                }
+                try {
+                    if (writeTimeout > 0) {
+                        long remaining = writeTimeout - (System.currentTimeMillis() - start);
+                        if (remaining <= 0) {
+                            throw new SocketTimeoutException("Timed out waiting for HTTP/2 flow control window");
+                        }
+                        windowAvailable.await(remaining, TimeUnit.MILLISECONDS);
+                    } else {
+                        windowAvailable.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for HTTP/2 flow control window", e);
+                }
+            }
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    /**
+     * 归还未发送数据占用的连接级发送窗口，并唤醒等待窗口的写线程
+     */
+    private void releaseWindow(int n) {
+        windowLock.lock();
+        try {
+            sendWindow += n;
+            windowAvailable.signalAll();
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    private void checkStream(Http2Stream stream) throws IOException {
+        if (closed) {
+            throw new IOException("HTTP/2 connection has been closed");
+        }
+        if (stream.isReset()) {
+            throw new IOException("HTTP/2 stream " + stream.getId() + " has been reset");
+        }
+    }
+
+    private void signalWindow() {
+        windowLock.lock();
+        try {
+            windowAvailable.signalAll();
+        } finally {
+            windowLock.unlock();
+        }
+    }
+
+    private void writeWindowUpdate(int streamId, int increment) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(4);
+        payload.putInt(increment);
+        payload.flip();
+        writeFrame(WINDOW_UPDATE, 0, streamId, payload);
+    }
+
+    private void writeRstStream(int streamId, int error) throws IOException {
+        ByteBuffer payload = ByteBuffer.allocate(4);
+        payload.putInt(error);
+        payload.flip();
+        writeFrame(RST_STREAM, 0, streamId, payload);
+    }
+
+    /**
+     * 连接错误：发送GOAWAY，之后由调用方关闭连接
+     */
+    private void goAway(int error, String message) {
+        byte[] debug = message == null ? new byte[0] : message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(8 + debug.length);
+        payload.putInt(lastStreamId);
+        payload.putInt(error);
+        payload.put(debug);
+        payload.flip();
+        try {
+            writeFrame(GOAWAY, 0, 0, payload);
+        } catch (IOException ignore) {
+            // 连接已经关闭
+        }
+    }
+
+    private void writeFrame(int type, int flags, int streamId, ByteBuffer payload) throws IOException {
+        writeLock.lock();
+        try {
+            outbound.write(frameHeader(payload.remaining(), type, flags, streamId), payload);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static ByteBuffer frameHeader(int length, int type, int flags, int streamId) {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_LENGTH);
+        header.put((byte) (length >>> 16));
+        header.put((byte) (length >>> 8));
+        header.put((byte) length);
+        header.put((byte) type);
+        header.put((byte) flags);
+        header.putInt(streamId);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * 连接已关闭，唤醒等待流控窗口的写线程
+     */
+    public void close() {
+        closed = true;
+        for (Http2Stream stream : streams.values()) {
+            stream.setReset();
+        }
+        signalWindow();
+    }
+}
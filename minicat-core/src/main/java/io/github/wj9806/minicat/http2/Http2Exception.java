@@ -0,0 +1,44 @@
+package io.github.wj9806.minicat.http2;
+
+import java.io.IOException;
+
+/**
+ * HTTP/2协议错误，streamId为0时是连接错误（发送GOAWAY并关闭连接），否则是流错误（发送RST_STREAM）
+ */
+class Http2Exception extends IOException {
+
+    private final int streamId;
+    private final int error;
+
+    Http2Exception(int streamId, int error, String message) {
+        super(message);
+        this.streamId = streamId;
+        this.error = error;
+    }
+
+    /**
+     * 连接错误
+     */
+    static Http2Exception connection(int error, String message) {
+        return new Http2Exception(0, error, message);
+    }
+
+    /**
+     * 流错误
+     */
+    static Http2Exception stream(int streamId, int error, String message) {
+        return new Http2Exception(streamId, error, message);
+    }
+
+    int getStreamId() {
+        return streamId;
+    }
+
+    int getError() {
+        return error;
+    }
+
+    boolean isConnectionError() {
+        return streamId == 0;
+    }
+}
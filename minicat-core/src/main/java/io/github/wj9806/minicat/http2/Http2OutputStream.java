@@ -0,0 +1,106 @@
+package io.github.wj9806.minicat.http2;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HTTP/2流的响应输出流
+ * 1. 响应头先保存，第一次写出响应体、flush或结束时才发送HEADERS帧，没有响应体时HEADERS帧直接带上END_STREAM
+ * 2. 响应体按对端的最大帧大小和流控窗口拆分为DATA帧
+ */
+class Http2OutputStream extends OutputStream {
+
+    private final Http2Connection connection;
+    private final Http2Stream stream;
+    // 尚未发送的响应头，名称和值交替出现
+    private List<String> pendingHeaders;
+    private boolean headersSent;
+    private boolean finished;
+
+    Http2OutputStream(Http2Connection connection, Http2Stream stream) {
+        this.connection = connection;
+        this.stream = stream;
+    }
+
+    /**
+     * 设置响应状态和响应头，名称必须为小写
+     */
+    void setHeaders(int status, List<String> fields) {
+        List<String> headers = new ArrayList<>(fields.size() + 2);
+        headers.add(":status");
+        headers.add(String.valueOf(status));
+        headers.addAll(fields);
+        this.pendingHeaders = headers;
+    }
+
+    boolean isHeadersSent() {
+        return headersSent;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        if (finished) {
+            throw new IOException("Stream has been closed");
+        }
+        sendHeaders(false);
+        connection.writeData(stream, b, off, len, false);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!finished && pendingHeaders != null) {
+            sendHeaders(false);
+        }
+    }
+
+    /**
+     * 直接发送一个完整的响应，用于404和500等错误响应
+     */
+    void sendResponse(int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        setHeaders(status, Arrays.asList("content-type", "text/html", "content-length", String.valueOf(bytes.length)));
+        write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * 结束响应：发送END_STREAM，没有设置过响应头时返回404
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!headersSent) {
+            if (pendingHeaders == null) {
+                setHeaders(404, new ArrayList<>());
+            }
+            sendHeaders(true);
+        } else {
+            connection.writeData(stream, null, 0, 0, true);
+        }
+    }
+
+    private void sendHeaders(boolean endStream) throws IOException {
+        if (headersSent) {
+            return;
+        }
+        if (pendingHeaders == null) {
+            throw new IllegalStateException("Response headers have not been set");
+        }
+        headersSent = true;
+        connection.writeHeaders(stream, pendingHeaders, endStream);
+        pendingHeaders = null;
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.wj9806.minicat.http2;
+
+import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.http.ApplicationResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP/2响应：响应头经HPACK编码后作为HEADERS帧发送，响应体写入流的输出流，由END_STREAM标识结束
+ */
+class Http2Response extends ApplicationResponse {
+
+    private final Http2OutputStream out;
+
+    Http2Response(ApplicationContext applicationContext, Http2OutputStream out) {
+        super(applicationContext, out);
+        this.out = out;
+    }
+
+    @Override
+    protected boolean isFramed() {
+        return true;
+    }
+
+    @Override
+    protected void writeHeaders() throws IOException {
+        List<String> fields = new ArrayList<>();
+        for (String name : getHeaderNames()) {
+            // HTTP/2禁止连接相关的响应头
+            if (isConnectionHeader(name)) {
+                continue;
+            }
+            for (String value : getHeaders(name)) {
+                fields.add(name);
+                fields.add(value);
+            }
+        }
+        out.setHeaders(getStatus(), fields);
+    }
+
+    private static boolean isConnectionHeader(String name) {
+        switch (name) {
+            case "connection":
+            case "keep-alive":
+            case "proxy-connection":
+            case "transfer-encoding":
+            case "upgrade":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package io.github.wj9806.minicat.http2;
+
+import io.github.wj9806.minicat.http.HttpHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HTTP/2的一个流，对应一个请求和响应
+ * 1. 请求头和请求体由读取帧的线程写入，收到END_STREAM后交给worker处理
+ * 2. 发送窗口由连接的窗口锁保护，响应体的写线程在窗口用完时等待WINDOW_UPDATE
+ */
+class Http2Stream {
+
+    private static final int INITIAL_BODY_SIZE = 1024;
+
+    private final int id;
+
+    private String method;
+    private String path;
+    private String scheme;
+    private String authority;
+    private final HttpHeaders headers = new HttpHeaders();
+    private long contentLength = -1;
+
+    private byte[] body;
+    private int bodyLength;
+    // 请求是否已经接收完整（收到END_STREAM）
+    private boolean requestComplete;
+
+    // 接收窗口和尚未通过WINDOW_UPDATE归还的字节数，只在读取帧的线程中访问
+    private int recvWindow;
+    private int recvConsumed;
+
+    // 发送窗口，由连接的窗口锁保护
+    private long sendWindow;
+
+    // 流已被任意一端重置
+    private volatile boolean reset;
+
+    Http2Stream(int id, int recvWindow, long sendWindow) {
+        this.id = id;
+        this.recvWindow = recvWindow;
+        this.sendWindow = sendWindow;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * 设置解码后的请求头，名称和值交替出现
+     * @return 请求头是否合法：必须包含:method、:scheme和:path，伪头部必须在普通头部之前，不能有连接相关的头部
+     */
+    boolean setRequestHeaders(List<String> fields) {
+        boolean regular = false;
+        StringBuilder cookie = null;
+        for (int i = 0; i < fields.size(); i += 2) {
+            String name = fields.get(i);
+            // 按UTF-8解释原始字节，与HTTP/1.1请求解析器一致
+            String value = new String(fields.get(i + 1).getBytes(StandardCharsets.ISO_8859_1), StandardCharsets.UTF_8);
+            if (name.startsWith(":")) {
+                if (regular || !setPseudoHeader(name, value)) {
+                    return false;
+                }
+                continue;
+            }
+            regular = true;
+            if (!name.equals(name.toLowerCase()) || isConnectionHeader(name, value)) {
+                return false;
+            }
+            if ("cookie".equals(name)) {
+                // HTTP/2允许把cookie拆成多个字段，合并为一个请求头
+                cookie = cookie == null ? new StringBuilder(value) : cookie.append("; ").append(value);
+                continue;
+            }
+            if ("content-length".equals(name)) {
+                try {
+                    contentLength = Long.parseLong(value.trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            HttpHeaders.addHeaderValues(headers, name, value);
+        }
+        if (cookie != null) {
+            headers.add("cookie", cookie.toString());
+        }
+        // 没有Host请求头时使用:authority
+        if (authority != null && !headers.contains("host")) {
+            headers.set("host", authority);
+        }
+        return method != null && scheme != null && path != null && !path.isEmpty();
+    }
+
+    private boolean setPseudoHeader(String name, String value) {
+        switch (name) {
+            case ":method":
+                if (method != null) return false;
+                method = value;
+                return true;
+            case ":path":
+                if (path != null) return false;
+                path = value;
+                return true;
+            case ":scheme":
+                if (scheme != null) return false;
+                scheme = value;
+                return true;
+            case ":authority":
+                if (authority != null) return false;
+                authority = value;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isConnectionHeader(String name, String value) {
+        switch (name) {
+            case "connection":
+            case "keep-alive":
+            case "proxy-connection":
+            case "transfer-encoding":
+            case "upgrade":
+                return true;
+            case "te":
+                return !"trailers".equalsIgnoreCase(value.trim());
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 使用HTTP/1.1请求初始化（h2c升级的请求作为流1处理）
+     */
+    void setUpgradeRequest(String method, String path, HttpHeaders upgradeHeaders) {
+        this.method = method;
+        this.path = path;
+        this.scheme = "http";
+        for (String name : upgradeHeaders.names()) {
+            if (isConnectionHeader(name, "") || "http2-settings".equals(name)) {
+                continue;
+            }
+            for (String value : upgradeHeaders.get(name)) {
+                headers.add(name, value);
+            }
+        }
+        this.requestComplete = true;
+    }
+
+    /**
+     * 追加请求体数据
+     */
+    void appendBody(ByteBuffer data) {
+        int len = data.remaining();
+        if (len == 0) {
+            return;
+        }
+        if (body == null) {
+            // 不按客户端声明的content-length一次性分配，从较小的缓冲区开始随收到的数据倍增
+            int initial = contentLength >= 0 && contentLength < INITIAL_BODY_SIZE ? (int) contentLength : INITIAL_BODY_SIZE;
+            body = new byte[Math.max(initial, len)];
+        } else if (bodyLength + len > body.length) {
+            long capacity = (long) body.length << 1;
+            if (contentLength > 0) {
+                capacity = Math.min(capacity, contentLength);
+            }
+            body = Arrays.copyOf(body, (int) Math.min(Math.max(capacity, bodyLength + len), Integer.MAX_VALUE));
+        }
+        data.get(body, bodyLength, len);
+        bodyLength += len;
+    }
+
+    /**
+     * 请求体长度是否与content-length一致
+     */
+    boolean isContentLengthValid() {
+        return contentLength == -1 || contentLength == bodyLength;
+    }
+
+    long getContentLength() {
+        return contentLength;
+    }
+
+    int getBodyLength() {
+        return bodyLength;
+    }
+
+    byte[] getBody() {
+        if (body == null) {
+            return new byte[0];
+        }
+        return body.length == bodyLength ? body : Arrays.copyOf(body, bodyLength);
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    boolean isRequestComplete() {
+        return requestComplete;
+    }
+
+    void setRequestComplete() {
+        this.requestComplete = true;
+    }
+
+    int getRecvWindow() {
+        return recvWindow;
+    }
+
+    /**
+     * 接收到DATA帧，扣减接收窗口
+     * @return 扣减后的窗口是否仍然合法
+     */
+    boolean consumeRecvWindow(int length) {
+        recvWindow -= length;
+        recvConsumed += length;
+        return recvWindow >= 0;
+    }
+
+    /**
+     * 未归还的字节数达到阈值时返回需要通过WINDOW_UPDATE归还的字节数，否则返回0
+     */
+    int takeWindowUpdate(int threshold) {
+        if (recvConsumed < threshold) {
+            return 0;
+        }
+        int increment = recvConsumed;
+        recvWindow += increment;
+        recvConsumed = 0;
+        return increment;
+    }
+
+    long getSendWindow() {
+        return sendWindow;
+    }
+
+    void setSendWindow(long sendWindow) {
+        this.sendWindow = sendWindow;
+    }
+
+    boolean isReset() {
+        return reset;
+    }
+
+    void setReset() {
+        this.reset = true;
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.wj9806.minicat.http2;
+
+import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.http.ApplicationResponse;
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.net.Sock;
+import io.github.wj9806.minicat.server.processor.Processor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+
+/**
+ * 在worker中处理HTTP/2的一个流，请求已由连接在读取帧时接收完整，
+ * 之后与HTTP/1.1请求一样经ApplicationContext查找Servlet并执行过滤器链
+ */
+class Http2StreamProcessor extends Processor<SelectionKey> implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Http2StreamProcessor.class);
+
+    private static final String PROTOCOL = "HTTP/2.0";
+
+    private final Http2Connection connection;
+    private final Http2Stream stream;
+    private final Http2OutputStream out;
+
+    Http2StreamProcessor(ApplicationContext applicationContext, Sock<SelectionKey> sock,
+                         Http2Connection connection, Http2Stream stream) {
+        super(applicationContext, sock);
+        this.connection = connection;
+        this.stream = stream;
+        this.out = new Http2OutputStream(connection, stream);
+        this.hos = out;
+    }
+
+    @Override
+    public void run() {
+        boolean completed = false;
+        try {
+            if (process() != -1) {
+                out.finish();
+                completed = true;
+            }
+        } catch (Exception e) {
+            if (!stream.isReset()) {
+                logger.error("Error processing stream {}", stream.getId(), e);
+            }
+        } finally {
+            connection.streamFinished(stream, completed);
+        }
+    }
+
+    @Override
+    protected boolean readRequest(RequestParser parser) {
+        // 请求在连接读取帧时已经接收完整
+        return true;
+    }
+
+    @Override
+    protected boolean upgradeToHttp2(RequestParser parser) {
+        return false;
+    }
+
+    @Override
+    protected int fill(RequestParser parser) {
+        return 0;
+    }
+
+    @Override
+    protected ApplicationResponse buildResponse(ApplicationContext applicationContext) {
+        return new Http2Response(applicationContext, out);
+    }
+
+    @Override
+    protected HttpServletRequest buildRequest(Sock<SelectionKey> socket, ApplicationContext applicationContext,
+                                              HttpServletResponse servletResponse) throws IOException {
+        return prepareRequest(newRequest(socket, applicationContext, stream.getMethod(), stream.getPath(),
+                PROTOCOL, stream.getHeaders(), stream.getBody()), servletResponse);
+    }
+
+    @Override
+    protected boolean keepAlive(HttpServletRequest servletRequest) {
+        // HTTP/2连接在流之间保持，流由END_STREAM结束
+        return true;
+    }
+
+    @Override
+    protected void sendNotFoundResponse() throws Exception {
+        out.sendResponse(404, "<h1>404 Not Found</h1>");
+    }
+
+    @Override
+    protected void sendErrorResponse(String message) throws Exception {
+        if (!out.isHeadersSent()) {
+            out.sendResponse(500, message == null ? "" : message);
+        }
+    }
+
+    @Override
+    protected Logger logger() {
+        return logger;
+    }
+
+    @Override
+    public void close() {
+        // 流的生命周期由连接管理，连接关闭时才关闭socket
+    }
+}
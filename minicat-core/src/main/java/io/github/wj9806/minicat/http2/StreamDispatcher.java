@@ -0,0 +1,14 @@
+package io.github.wj9806.minicat.http2;
+
+/**
+ * 把接收完整的流交给worker处理，由连接器提供，与连接的读事件使用相同的worker和过载策略
+ */
+@FunctionalInterface
+public interface StreamDispatcher {
+
+    /**
+     * @param task 处理流的任务
+     * @param reject 过载时执行的动作，以REFUSED_STREAM重置该流，客户端可以安全地重试
+     */
+    void dispatch(Runnable task, Runnable reject);
+}
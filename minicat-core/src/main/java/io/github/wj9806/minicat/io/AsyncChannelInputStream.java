@@ -0,0 +1,72 @@
+package io.github.wj9806.minicat.io;
+
+import io.github.wj9806.minicat.http.RequestParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * AIO连接协议升级后的输入流
+ * 先读取请求解析器缓冲区中已经到达的数据，没有数据时在当前线程中等待异步读完成，
+ * 读到的数据同样放入解析器的缓冲区，未读取的部分留给下一次读取
+ */
+public class AsyncChannelInputStream extends InputStream {
+
+    private final AsynchronousSocketChannel channel;
+
+    private final RequestParser parser;
+
+    private final byte[] single = new byte[1];
+
+    public AsyncChannelInputStream(AsynchronousSocketChannel channel, RequestParser parser) {
+        this.channel = channel;
+        this.parser = parser;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException("Invalid offset or length");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int bytesRead = 0;
+        while (bytesRead < len) {
+            int n = parser.drain(b, off + bytesRead, len - bytesRead);
+            if (n > 0) {
+                bytesRead += n;
+                continue;
+            }
+            if (fill() == -1) {
+                return bytesRead == 0 ? -1 : bytesRead;
+            }
+        }
+        return bytesRead;
+    }
+
+    private int fill() throws IOException {
+        try {
+            return channel.read(parser.writableBuffer()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading from channel");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
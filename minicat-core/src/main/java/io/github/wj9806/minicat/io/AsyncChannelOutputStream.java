@@ -0,0 +1,66 @@
+package io.github.wj9806.minicat.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * AIO连接的输出流，小数据先在内存中缓冲，flush或写ByteBuffer时放入出站写队列异步写出
+ */
+public class AsyncChannelOutputStream extends ByteArrayOutputStream {
+
+    private boolean closed = false;
+
+    private final AsyncOutboundQueue outbound;
+
+    public AsyncChannelOutputStream(AsyncOutboundQueue outbound) {
+        super();
+        this.outbound = outbound;
+    }
+
+    public void flush() throws IOException {
+        checkClosed();
+        if (count > 0) {
+            try {
+                outbound.write(ByteBuffer.wrap(super.buf, 0, count));
+            } finally {
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * 将已缓冲的数据与buffer一起放入写队列，避免先复制到输出流的内存中
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        write(new ByteBuffer[]{buffer});
+    }
+
+    /**
+     * 将已缓冲的数据与多个buffer一起放入写队列
+     */
+    public void write(ByteBuffer[] buffers) throws IOException {
+        checkClosed();
+        ByteBuffer[] all = new ByteBuffer[buffers.length + 1];
+        all[0] = ByteBuffer.wrap(super.buf, 0, count);
+        System.arraycopy(buffers, 0, all, 1, buffers.length);
+        try {
+            outbound.write(all);
+        } finally {
+            count = 0;
+        }
+    }
+
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+        }
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Stream has been closed");
+        }
+    }
+
+}
@@ -0,0 +1,247 @@
+package io.github.wj9806.minicat.io;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIO连接的出站写队列
+ * 1. 写入的数据复制到缓冲池的buffer中排队后立即返回，同一时间只有一个异步聚集写在进行
+ * 2. 异步写完成时在完成回调中归还已写出的buffer，并继续写出后续排队的数据
+ * 3. 排队数据超过上限时写线程等待异步写完成，保证每个连接占用的内存有上限
+ * 4. 关闭连接时如果还有排队数据，等数据全部写出后再关闭
+ * 5. 先关闭channel再归还buffer，关闭之后JDK不会再访问进行中读写的buffer
+ */
+public class AsyncOutboundQueue {
+
+    // 单个排队buffer的最大字节数
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+    // 一次聚集写的最大buffer数
+    private static final int MAX_GATHER = 64;
+
+    private final AsynchronousSocketChannel channel;
+    private final long maxPendingBytes;
+    private final long writeTimeout;
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // 有数据写出或队列被丢弃时通知等待的写线程
+    private final Condition progress = lock.newCondition();
+    private final CompletionHandler<Long, Void> writeHandler = new WriteHandler();
+    private long pendingBytes;
+    // 是否有进行中的异步写
+    private boolean writing;
+    // 数据全部写出后执行的关闭动作
+    private Runnable closeAction;
+    private boolean closed;
+
+    /**
+     * @param maxPendingBytes 排队数据的上限，超过时写线程等待
+     * @param writeTimeout 单次异步写的超时时间（毫秒），超时后关闭连接，小于等于0表示不超时
+     */
+    public AsyncOutboundQueue(AsynchronousSocketChannel channel, long maxPendingBytes, long writeTimeout) {
+        this.channel = channel;
+        this.maxPendingBytes = Math.max(1, maxPendingBytes);
+        this.writeTimeout = writeTimeout;
+    }
+
+    /**
+     * 将buffers中的全部数据放入队列，返回后调用方可以复用buffers
+     */
+    public void write(ByteBuffer... buffers) throws IOException {
+        lock.lock();
+        try {
+            long remaining = remaining(buffers);
+            while (remaining > 0) {
+                checkOpen();
+                long room = maxPendingBytes - pendingBytes;
+                if (room <= 0) {
+                    awaitDrain();
+                    continue;
+                }
+                remaining -= enqueue(buffers, room);
+                startWrite();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasPending() {
+        lock.lock();
+        try {
+            return !pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 排队数据全部写出后执行关闭动作，没有排队数据时立即执行
+     */
+    public void closeWhenDrained(Runnable action) {
+        lock.lock();
+        try {
+            if (!pending.isEmpty() && !closed) {
+                closeAction = action;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        action.run();
+    }
+
+    /**
+     * 丢弃排队数据并归还buffer，唤醒等待中的写线程，必须在channel关闭之后调用
+     */
+    public void discard() {
+        lock.lock();
+        try {
+            closed = true;
+            closeAction = null;
+            ByteBuffer buffer;
+            while ((buffer = pending.poll()) != null) {
+                BufferPool.getInstance().release(buffer);
+            }
+            pendingBytes = 0;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 没有进行中的异步写时发起一次聚集写，需要持有锁
+     * 在AsynchronousChannelGroup的线程中调用时完成回调可能直接在当前线程中重入执行
+     */
+    private void startWrite() {
+        if (writing || closed || pending.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] srcs = new ByteBuffer[Math.min(pending.size(), MAX_GATHER)];
+        int i = 0;
+        for (ByteBuffer buffer : pending) {
+            if (i == srcs.length) {
+                break;
+            }
+            srcs[i++] = buffer;
+        }
+        writing = true;
+        channel.write(srcs, 0, srcs.length, Math.max(0, writeTimeout), TimeUnit.MILLISECONDS, null, writeHandler);
+    }
+
+    private long enqueue(ByteBuffer[] buffers, long room) {
+        long copied = 0;
+        for (ByteBuffer src : buffers) {
+            while (src.hasRemaining() && copied < room) {
+                int n = (int) Math.min(Math.min(src.remaining(), room - copied), MAX_CHUNK_SIZE);
+                ByteBuffer chunk = BufferPool.getInstance().acquire(n);
+                ByteBuffer slice = src.duplicate();
+                slice.limit(slice.position() + n);
+                chunk.put(slice);
+                chunk.flip();
+                src.position(src.position() + n);
+                pending.offer(chunk);
+                pendingBytes += n;
+                copied += n;
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * 等待排队数据降到上限的一半以下
+     */
+    private void awaitDrain() throws IOException {
+        while (pendingBytes > maxPendingBytes / 2) {
+            checkOpen();
+            long start = System.currentTimeMillis();
+            try {
+                if (writeTimeout > 0) {
+                    progress.await(writeTimeout, TimeUnit.MILLISECONDS);
+                } else {
+                    progress.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for pending writes", e);
+            }
+            if (writeTimeout > 0 && System.currentTimeMillis() - start >= writeTimeout) {
+                throw new SocketTimeoutException("Write timed out");
+            }
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed || !channel.isOpen()) {
+            throw new IOException("Connection closed");
+        }
+    }
+
+    private static long remaining(ByteBuffer[] buffers) {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        return remaining;
+    }
+
+    private class WriteHandler implements CompletionHandler<Long, Void> {
+
+        @Override
+        public void completed(Long written, Void attachment) {
+            Runnable action = null;
+            lock.lock();
+            try {
+                writing = false;
+                if (closed) {
+                    return;
+                }
+                pendingBytes -= written;
+                while (!pending.isEmpty() && !pending.peek().hasRemaining()) {
+                    BufferPool.getInstance().release(pending.poll());
+                }
+                progress.signalAll();
+                if (!pending.isEmpty()) {
+                    startWrite();
+                } else if (closeAction != null) {
+                    action = closeAction;
+                    closeAction = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (action != null) {
+                action.run();
+            }
+        }
+
+        @Override
+        public void failed(Throwable exc, Void attachment) {
+            Runnable action;
+            lock.lock();
+            try {
+                writing = false;
+                action = closeAction;
+                closeAction = null;
+            } finally {
+                lock.unlock();
+            }
+            // 写失败或超时后关闭channel，等待中的写线程和进行中的异步读都会因此失败，最终关闭连接
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            discard();
+            if (action != null) {
+                action.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package io.github.wj9806.minicat.io;
+
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.util.VirtualThreads;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ByteBuffer池
+ * 1. 按2的幂划分规格（最小512字节，最大为配置的maxBufferSize），超过最大规格的缓冲区不池化
+ * 2. 每个线程持有一级缓存，线程缓存满了之后归还到共享队列；虚拟线程不使用线程缓存
+ * 3. 同时支持direct与heap两种缓冲区，acquire()使用配置的类型，acquireHeap()总是返回heap缓冲区
+ * 4. 使用方在请求或帧处理完成后必须调用release()归还
+ */
+public class BufferPool {
+
+    private static final int MIN_SIZE_SHIFT = 9;
+
+    private static volatile BufferPool pool;
+
+    public static BufferPool getInstance() {
+        if (pool == null) {
+            synchronized (BufferPool.class) {
+                if (pool == null) {
+                    pool = new BufferPool(Config.getInstance().getServer().getBuffer());
+                }
+            }
+        }
+        return pool;
+    }
+
+    private final boolean enabled;
+    private final boolean direct;
+    private final int maxBufferSize;
+    private final Arena heapArena;
+    private final Arena directArena;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    public BufferPool(ServerConfig.BufferConfig config) {
+        this.enabled = config.isEnabled();
+        this.direct = config.isDirect();
+        this.maxBufferSize = Math.max(1 << MIN_SIZE_SHIFT, config.getMaxBufferSize());
+        int sizeClasses = sizeClass(maxBufferSize) + 1;
+        this.heapArena = new Arena(false, sizeClasses, config.getThreadCacheSize(), config.getSharedCacheSize());
+        this.directArena = new Arena(true, sizeClasses, config.getThreadCacheSize(), config.getSharedCacheSize());
+    }
+
+    /**
+     * 获取一个容量不小于size的缓冲区，类型由配置决定
+     */
+    public ByteBuffer acquire(int size) {
+        return acquire(size, direct);
+    }
+
+    /**
+     * 获取一个容量不小于size的heap缓冲区，用于需要直接访问数组的场景
+     */
+    public ByteBuffer acquireHeap(int size) {
+        return acquire(size, false);
+    }
+
+    private ByteBuffer acquire(int size, boolean isDirect) {
+        if (!enabled) {
+            return isDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        }
+
+        ByteBuffer buffer;
+        if (size > maxBufferSize) {
+            misses.increment();
+            buffer = isDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+        } else {
+            Arena arena = isDirect ? directArena : heapArena;
+            int sizeClass = sizeClass(size);
+            buffer = arena.poll(sizeClass);
+            if (buffer != null) {
+                hits.increment();
+                buffer.clear();
+            } else {
+                misses.increment();
+                buffer = arena.allocate(sizeClass);
+            }
+        }
+        outstandingBytes.addAndGet(buffer.capacity());
+        return buffer;
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不能再使用该缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (!enabled || buffer == null) {
+            return;
+        }
+        outstandingBytes.addAndGet(-buffer.capacity());
+
+        int capacity = buffer.capacity();
+        if (capacity > maxBufferSize || Integer.bitCount(capacity) != 1 || capacity < (1 << MIN_SIZE_SHIFT)) {
+            // 非池化规格，交给GC回收
+            return;
+        }
+        Arena arena = buffer.isDirect() ? directArena : heapArena;
+        arena.offer(sizeClass(capacity), buffer);
+    }
+
+    /**
+     * 扩容：从池中获取更大的缓冲区，复制已写入的数据后归还原缓冲区
+     * @param buffer 写模式的缓冲区
+     * @param minCapacity 需要的最小容量
+     */
+    public ByteBuffer expand(ByteBuffer buffer, int minCapacity) {
+        if (buffer.capacity() >= minCapacity) {
+            return buffer;
+        }
+        ByteBuffer newBuffer = acquire(Math.max(buffer.capacity() << 1, minCapacity), buffer.isDirect());
+        buffer.flip();
+        newBuffer.put(buffer);
+        release(buffer);
+        return newBuffer;
+    }
+
+    private static int sizeClass(int size) {
+        if (size <= (1 << MIN_SIZE_SHIFT)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SIZE_SHIFT;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * 从池中命中的次数
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * 未命中而新分配的次数
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * 已借出且尚未归还的字节数
+     */
+    public long getOutstandingBytes() {
+        return outstandingBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "BufferPool{enabled=" + enabled +
+                ", direct=" + direct +
+                ", hits=" + getHits() +
+                ", misses=" + getMisses() +
+                ", outstandingBytes=" + getOutstandingBytes() +
+                '}';
+    }
+
+    /**
+     * 同一种缓冲区类型（heap或direct）的各个规格
+     */
+    private static final class Arena {
+        private final boolean direct;
+        private final int threadCacheSize;
+        private final int sharedCacheSize;
+        private final Queue<ByteBuffer>[] shared;
+        private final AtomicInteger[] sharedCounts;
+        private final ThreadLocal<ArrayDeque<ByteBuffer>[]> threadCache;
+
+        @SuppressWarnings("unchecked")
+        Arena(boolean direct, int sizeClasses, int threadCacheSize, int sharedCacheSize) {
+            this.direct = direct;
+            this.threadCacheSize = threadCacheSize;
+            this.sharedCacheSize = sharedCacheSize;
+            this.shared = new Queue[sizeClasses];
+            this.sharedCounts = new AtomicInteger[sizeClasses];
+            for (int i = 0; i < sizeClasses; i++) {
+                shared[i] = new ConcurrentLinkedQueue<>();
+                sharedCounts[i] = new AtomicInteger();
+            }
+            this.threadCache = ThreadLocal.withInitial(() -> {
+                ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[sizeClasses];
+                for (int i = 0; i < sizeClasses; i++) {
+                    caches[i] = new ArrayDeque<>();
+                }
+                return caches;
+            });
+        }
+
+        ByteBuffer allocate(int sizeClass) {
+            int capacity = 1 << (sizeClass + MIN_SIZE_SHIFT);
+            return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        ByteBuffer poll(int sizeClass) {
+            // 虚拟线程不复用，线程缓存中的buffer会随线程结束丢失，只使用共享缓存
+            ByteBuffer buffer = VirtualThreads.isVirtual() ? null : threadCache.get()[sizeClass].pollFirst();
+            if (buffer == null) {
+                buffer = shared[sizeClass].poll();
+                if (buffer != null) {
+                    sharedCounts[sizeClass].decrementAndGet();
+                }
+            }
+            return buffer;
+        }
+
+        void offer(int sizeClass, ByteBuffer buffer) {
+            if (!VirtualThreads.isVirtual()) {
+                ArrayDeque<ByteBuffer> cache = threadCache.get()[sizeClass];
+                if (cache.size() < threadCacheSize) {
+                    cache.offerFirst(buffer);
+                    return;
+                }
+            }
+            if (sharedCounts[sizeClass].incrementAndGet() <= sharedCacheSize) {
+                shared[sizeClass].offer(buffer);
+            } else {
+                sharedCounts[sizeClass].decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,25 +1,87 @@
 package io.github.wj9806.minicat.io;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 public class NioUtil {
 
     // 扩容方法
     public static ByteBuffer expandBuffer(ByteBuffer originalBuffer, int additionalCapacity) {
-        // 获取原始缓冲区的当前大小
-        int currentCapacity = originalBuffer.capacity();
+        // 新的容量至少为已写入的数据 + 额外的容量，从缓冲池中获取并归还原缓冲区
+        return BufferPool.getInstance().expand(originalBuffer, originalBuffer.position() + additionalCapacity);
+    }
 
-        // 新的容量为当前容量 + 额外的容量
-        int newCapacity = currentCapacity + additionalCapacity;
+    /**
+     * 将读模式的缓冲区写入输出流，兼容没有底层数组的direct缓冲区
+     */
+    public static void write(ByteBuffer buffer, OutputStream outputStream) throws IOException {
+        if (outputStream instanceof SocketChannelOutputStream) {
+            ((SocketChannelOutputStream) outputStream).write(buffer);
+        } else if (outputStream instanceof AsyncChannelOutputStream) {
+            ((AsyncChannelOutputStream) outputStream).write(buffer);
+        } else if (buffer.hasArray()) {
+            outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            byte[] tmp = new byte[Math.min(8192, buffer.remaining())];
+            while (buffer.hasRemaining()) {
+                int len = Math.min(tmp.length, buffer.remaining());
+                buffer.get(tmp, 0, len);
+                outputStream.write(tmp, 0, len);
+            }
+        }
+    }
 
-        // 创建一个新的 ByteBuffer，其容量更大
-        ByteBuffer newBuffer = ByteBuffer.allocate(newCapacity);
+    /**
+     * 依次写出多个缓冲区，socket channel使用一次聚集写
+     */
+    public static void write(ByteBuffer[] buffers, OutputStream outputStream) throws IOException {
+        if (outputStream instanceof SocketChannelOutputStream) {
+            ((SocketChannelOutputStream) outputStream).write(buffers);
+            return;
+        }
+        if (outputStream instanceof AsyncChannelOutputStream) {
+            ((AsyncChannelOutputStream) outputStream).write(buffers);
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            write(buffer, outputStream);
+        }
+    }
 
-        // 将原 ByteBuffer 的内容复制到新缓冲区
-        originalBuffer.flip();  // 切换为读取模式
-        newBuffer.put(originalBuffer);
+    /**
+     * 将文件的指定区间写入输出流，socket channel使用transferTo零拷贝，其他输出流使用缓冲区分块复制
+     */
+    public static void transfer(FileChannel fileChannel, long position, long count, OutputStream outputStream)
+            throws IOException {
+        if (outputStream instanceof SocketChannelOutputStream) {
+            ((SocketChannelOutputStream) outputStream).transferFrom(fileChannel, position, count);
+            return;
+        }
 
-        return newBuffer;  // 返回新缓冲区
+        BufferPool bufferPool = BufferPool.getInstance();
+        ByteBuffer buffer = bufferPool.acquire((int) Math.min(count, 64 * 1024));
+        try {
+            long end = position + count;
+            while (position < end) {
+                buffer.clear();
+                if (end - position < buffer.capacity()) {
+                    buffer.limit((int) (end - position));
+                }
+                int n = fileChannel.read(buffer, position);
+                if (n == -1) {
+                    throw new EOFException("Unexpected end of file at position " + position);
+                }
+                position += n;
+                buffer.flip();
+                write(buffer, outputStream);
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
     }
 
 }
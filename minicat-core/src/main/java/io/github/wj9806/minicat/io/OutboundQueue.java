@@ -0,0 +1,347 @@
+package io.github.wj9806.minicat.io;
+
+import io.github.wj9806.minicat.ssl.SslChannel;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NIO连接的出站写队列
+ * 1. 队列为空时直接写入channel，socket发送缓冲区写满后剩余数据复制到缓冲池的buffer中排队
+ * 2. 有排队数据时通过回调请求poller关注OP_WRITE，由poller在channel可写时继续写出
+ * 3. 排队数据超过上限时写线程等待poller写出（不空转），保证每个连接占用的内存有上限
+ * 4. 关闭连接时如果还有排队数据，等数据全部写出后再关闭
+ * 5. 使用ReentrantLock而不是synchronized，虚拟线程等待时不会占住载体线程
+ * 6. TLS连接写入的明文先加密为TLS记录，排队和poller写出的都是加密后的数据
+ */
+public class OutboundQueue {
+
+    // 单个排队buffer的最大字节数
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    private final SelectionKey key;
+    private final SocketChannel channel;
+    private final long maxPendingBytes;
+    private final long writeTimeout;
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    // 有数据写出或队列被丢弃时通知等待的写线程
+    private final Condition progress = lock.newCondition();
+    private long pendingBytes;
+    // poller每次处理可写事件时递增，用于等待channel可写
+    private long writableSignals;
+    // 请求poller关注OP_WRITE
+    private Runnable writeInterest;
+    // 数据全部写出后执行的关闭动作
+    private Runnable closeAction;
+    private boolean closed;
+    // TLS连接的加密层，普通连接为null
+    private SslChannel ssl;
+
+    /**
+     * @param maxPendingBytes 排队数据的上限，超过时写线程等待
+     * @param writeTimeout 等待poller写出的超时时间（毫秒），期间没有任何数据写出时超时，小于等于0表示不超时
+     */
+    public OutboundQueue(SelectionKey key, long maxPendingBytes, long writeTimeout) {
+        this.key = key;
+        this.channel = (SocketChannel) key.channel();
+        this.maxPendingBytes = Math.max(1, maxPendingBytes);
+        this.writeTimeout = writeTimeout;
+    }
+
+    public SelectionKey key() {
+        return key;
+    }
+
+    public void setWriteInterest(Runnable writeInterest) {
+        lock.lock();
+        try {
+            this.writeInterest = writeInterest;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void setSslChannel(SslChannel ssl) {
+        lock.lock();
+        try {
+            this.ssl = ssl;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 写出buffers中的全部数据，无法立即写出的部分排队，由poller继续写出
+     */
+    public void write(ByteBuffer... buffers) throws IOException {
+        lock.lock();
+        try {
+            if (ssl == null) {
+                writeRaw(buffers);
+                return;
+            }
+            // 加密后的记录写出或复制到排队buffer后即可归还
+            ByteBuffer[] records = ssl.wrap(buffers);
+            try {
+                writeRaw(records);
+            } finally {
+                for (ByteBuffer record : records) {
+                    BufferPool.getInstance().release(record);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeRaw(ByteBuffer[] buffers) throws IOException {
+        long remaining = remaining(buffers);
+        while (remaining > 0) {
+            checkOpen();
+            if (pending.isEmpty()) {
+                remaining -= channel.write(buffers);
+                if (remaining == 0) {
+                    break;
+                }
+            }
+            long room = maxPendingBytes - pendingBytes;
+            if (room <= 0) {
+                awaitDrain();
+                continue;
+            }
+            remaining -= enqueue(buffers, room);
+            requestWrite();
+        }
+    }
+
+    /**
+     * 通过FileChannel.transferTo将文件区间直接发送到channel，socket不可写时等待poller通知
+     * TLS连接的文件数据需要加密，分块读取后写出
+     */
+    public void transferFrom(FileChannel fileChannel, long position, long length) throws IOException {
+        lock.lock();
+        try {
+            if (ssl != null) {
+                copyFrom(fileChannel, position, length);
+                return;
+            }
+            // 保证文件数据在已排队数据之后发送
+            while (!pending.isEmpty()) {
+                checkOpen();
+                awaitWritable();
+            }
+            long end = position + length;
+            while (position < end) {
+                checkOpen();
+                long n = fileChannel.transferTo(position, end - position, channel);
+                if (n > 0) {
+                    position += n;
+                } else {
+                    awaitWritable();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void copyFrom(FileChannel fileChannel, long position, long length) throws IOException {
+        BufferPool bufferPool = BufferPool.getInstance();
+        ByteBuffer buffer = bufferPool.acquire((int) Math.min(length, MAX_CHUNK_SIZE));
+        try {
+            long end = position + length;
+            while (position < end) {
+                buffer.clear();
+                if (end - position < buffer.capacity()) {
+                    buffer.limit((int) (end - position));
+                }
+                int n = fileChannel.read(buffer, position);
+                if (n == -1) {
+                    throw new EOFException("Unexpected end of file at position " + position);
+                }
+                position += n;
+                buffer.flip();
+                write(buffer);
+            }
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * 由poller在channel可写时调用，尽可能写出排队数据
+     * @return 排队数据是否已全部写出
+     */
+    public boolean flush() throws IOException {
+        lock.lock();
+        try {
+            writableSignals++;
+            try {
+                while (!pending.isEmpty()) {
+                    ByteBuffer head = pending.peek();
+                    pendingBytes -= channel.write(head);
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    pending.poll();
+                    BufferPool.getInstance().release(head);
+                }
+            } finally {
+                progress.signalAll();
+            }
+            if (pending.isEmpty() && closeAction != null) {
+                Runnable action = closeAction;
+                closeAction = null;
+                action.run();
+            }
+            return pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean hasPending() {
+        lock.lock();
+        try {
+            return !pending.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 是否正在等待排队数据写出后关闭
+     */
+    public boolean isClosing() {
+        lock.lock();
+        try {
+            return closeAction != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 排队数据全部写出后执行关闭动作，没有排队数据时立即执行
+     */
+    public void closeWhenDrained(Runnable action) {
+        lock.lock();
+        try {
+            if (!pending.isEmpty() && !closed) {
+                closeAction = action;
+                requestWrite();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        action.run();
+    }
+
+    /**
+     * 丢弃排队数据并归还buffer，唤醒等待中的写线程
+     */
+    public void discard() {
+        lock.lock();
+        try {
+            closed = true;
+            closeAction = null;
+            ByteBuffer buffer;
+            while ((buffer = pending.poll()) != null) {
+                BufferPool.getInstance().release(buffer);
+            }
+            pendingBytes = 0;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long enqueue(ByteBuffer[] buffers, long room) {
+        long copied = 0;
+        for (ByteBuffer src : buffers) {
+            while (src.hasRemaining() && copied < room) {
+                int n = (int) Math.min(Math.min(src.remaining(), room - copied), MAX_CHUNK_SIZE);
+                ByteBuffer chunk = BufferPool.getInstance().acquire(n);
+                ByteBuffer slice = src.duplicate();
+                slice.limit(slice.position() + n);
+                chunk.put(slice);
+                chunk.flip();
+                src.position(src.position() + n);
+                pending.offer(chunk);
+                pendingBytes += n;
+                copied += n;
+            }
+        }
+        return copied;
+    }
+
+    private void requestWrite() {
+        if (writeInterest != null) {
+            writeInterest.run();
+        }
+    }
+
+    /**
+     * 等待排队数据降到上限的一半以下
+     */
+    private void awaitDrain() throws IOException {
+        while (pendingBytes > maxPendingBytes / 2) {
+            checkOpen();
+            await();
+        }
+    }
+
+    /**
+     * 等待poller的下一次可写通知
+     */
+    private void awaitWritable() throws IOException {
+        long signals = writableSignals;
+        requestWrite();
+        while (signals == writableSignals) {
+            checkOpen();
+            await();
+        }
+    }
+
+    private void await() throws IOException {
+        long start = System.currentTimeMillis();
+        try {
+            if (writeTimeout > 0) {
+                progress.await(writeTimeout, TimeUnit.MILLISECONDS);
+            } else {
+                progress.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for socket to be writable", e);
+        }
+        if (writeTimeout > 0 && System.currentTimeMillis() - start >= writeTimeout) {
+            throw new SocketTimeoutException("Write timed out");
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed || !channel.isOpen()) {
+            throw new IOException("Connection closed");
+        }
+    }
+
+    private static long remaining(ByteBuffer[] buffers) {
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        return remaining;
+    }
+}
@@ -3,67 +3,60 @@ package io.github.wj9806.minicat.io;
 import io.github.wj9806.minicat.http.ApplicationResponse;
 
 import java.io.*;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 public class ResponseBufferWriter extends Writer {
 
-    private ByteBuffer byteBuffer;
-    private final OutputStream outputStream;
     private final Charset charset;
-    private final Writer byteWriter;
-    private final ApplicationResponse response;
+    // 请求结束后置为null，应用保留的writer不能再写入同一连接上后续请求的响应
+    private ApplicationResponse response;
 
-    // 构造方法，传入 ByteBuffer, OutputStream 和 Charset
+    // 构造方法，传入 ApplicationResponse 和 Charset
     public ResponseBufferWriter(ApplicationResponse response) {
-        this.byteBuffer = response.getBodyBuffer();
-        this.outputStream = response.getSocketStream();
         this.charset = response.getCharset();  // 默认为 UTF-8
-        this.byteWriter = new OutputStreamWriter(outputStream, this.charset); // 使用指定字符集的 OutputStreamWriter
         this.response = response;
     }
 
+    private ApplicationResponse response() {
+        ApplicationResponse r = response;
+        if (r == null) {
+            throw new IllegalStateException("The writer has been recycled");
+        }
+        return r;
+    }
+
+    /**
+     * 请求结束，断开与响应对象的关联
+     */
+    public void recycle() {
+        response = null;
+    }
+
     @Override
     public void write(int c) throws IOException {
-        // 将字符转换为字节并写入 ByteBuffer
-        if (byteBuffer.remaining() < 1) {
-            byteBuffer = NioUtil.expandBuffer(byteBuffer, 1);
-        }
-        byteBuffer.put((byte) c);
+        // 将字符转换为字节并写入响应体缓冲区
+        response().writeBody(c);
     }
 
     @Override
     public void write(char[] cbuf, int off, int len) throws IOException {
-        // 检查 ByteBuffer 是否有足够空间
-        if (byteBuffer.remaining() < len) {
-            byteBuffer = NioUtil.expandBuffer(byteBuffer, len - byteBuffer.remaining());
-        }
-
-        // 使用指定字符集将字符数组转换为字节并写入 ByteBuffer
+        // 使用指定字符集将字符数组转换为字节后写入响应体缓冲区
         byte[] encoded = new String(cbuf, off, len).getBytes(charset);
-        if (byteBuffer.remaining() < encoded.length) {
-            throw new IOException("Not enough space in ByteBuffer");
-        }
-        byteBuffer.put(encoded);
+        response().writeBody(encoded, 0, encoded.length);
     }
 
     @Override
     public void flush() throws IOException {
-        response.sendHeader();
-
-        // 将 ByteBuffer 中的数据刷新到 OutputStream
-        byteBuffer.flip();  // 切换为读取模式
-        while (byteBuffer.hasRemaining()) {
-            outputStream.write(byteBuffer.get());
-        }
-        byteBuffer.clear();  // 清空 ByteBuffer 数据
-        outputStream.flush();  // 刷新 OutputStream
+        // 将响应体缓冲区中的数据刷新到 OutputStream
+        response().flushBody();
     }
 
+    /**
+     * 关闭writer即完成响应，底层连接的输出流在keep-alive的多个请求之间复用，不能关闭
+     */
     @Override
     public void close() throws IOException {
-        // 关闭 OutputStream
-        byteWriter.close();
+        response().finishResponse();
     }
 }
 
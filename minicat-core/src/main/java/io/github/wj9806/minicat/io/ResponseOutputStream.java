@@ -5,87 +5,80 @@ import io.github.wj9806.minicat.http.ApplicationResponse;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 /**
  * 自定义ServletOutputStream实现
  */
 public class ResponseOutputStream extends ServletOutputStream {
-    private ByteBuffer byteBuffer;
-    private final OutputStream outputStream;
     private WriteListener writeListener;  // 用于异步 I/O
     private final Charset charset;
-    private final ApplicationResponse response;
+    // 请求结束后置为null，应用保留的输出流不能再写入同一连接上后续请求的响应
+    private ApplicationResponse response;
 
     // 构造方法，传入 ByteBuffer、OutputStream 和 Charset
     public ResponseOutputStream(ApplicationResponse response) {
-        this.byteBuffer = response.getBodyBuffer();
-        this.outputStream = response.getSocketStream();
         this.charset = response.getCharset();  // 默认为 UTF-8
         this.response = response;
     }
 
+    private ApplicationResponse response() {
+        ApplicationResponse r = response;
+        if (r == null) {
+            throw new IllegalStateException("The output stream has been recycled");
+        }
+        return r;
+    }
+
+    /**
+     * 请求结束，断开与响应对象的关联
+     */
+    public void recycle() {
+        response = null;
+        writeListener = null;
+    }
+
     @Override
     public void write(int b) throws IOException {
-        // 确保 ByteBuffer 有足够的空间
-        if (byteBuffer.remaining() < 1) {
-            byteBuffer = NioUtil.expandBuffer(byteBuffer, 1);
-            // 更新ApplicationResponse中的bodyBuffer引用
-            response.setBodyBuffer(byteBuffer);
-        }
-        // 写入 ByteBuffer
-        byteBuffer.put((byte) b);
+        // 写入响应体缓冲区，开启动态压缩时经压缩器写入
+        response().writeBody(b);
 
         // 如果有 WriteListener，通知它
-        if (writeListener != null && byteBuffer.hasRemaining()) {
+        if (writeListener != null) {
             writeListener.onWritePossible();
         }
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
-        // 确保 ByteBuffer 有足够的空间
-        if (byteBuffer.remaining() < len) {
-            byteBuffer = NioUtil.expandBuffer(byteBuffer, len - byteBuffer.remaining());
-            // 更新ApplicationResponse中的bodyBuffer引用
-            response.setBodyBuffer(byteBuffer);
-        }
-
-        // 批量将数据写入 ByteBuffer
-        byteBuffer.put(b, off, len);
+        // 批量写入响应体缓冲区，开启动态压缩时经压缩器写入
+        response().writeBody(b, off, len);
 
         // 如果有 WriteListener，通知它
-        if (writeListener != null && byteBuffer.hasRemaining()) {
+        if (writeListener != null) {
             writeListener.onWritePossible();
         }
     }
 
     @Override
     public void flush() throws IOException {
-        // 只有在响应未提交时才发送头，避免重复设置Content-Length
-        if (!response.isCommitted()) {
-            response.sendHeader();
-        }
-
-        // 将 ByteBuffer 中的数据批量刷新到 OutputStream
-        byteBuffer.flip(); // 切换为读取模式
-        outputStream.write(byteBuffer.array(), byteBuffer.position(), byteBuffer.remaining());
-        byteBuffer.clear(); // 清空 ByteBuffer 数据
-        outputStream.flush(); // 刷新 OutputStream
+        // 将响应体缓冲区中的数据批量刷新到 OutputStream，未发送响应头时先发送响应头
+        response().flushBody();
     }
 
+    /**
+     * 关闭输出流即完成响应，底层连接的输出流在keep-alive的多个请求之间复用，不能关闭
+     */
     @Override
     public void close() throws IOException {
-        outputStream.close();
+        response().finishResponse();
     }
 
     // 判断是否准备好写入
     @Override
     public boolean isReady() {
         // 这里返回 ByteBuffer 是否有剩余空间，如果有空间则可以继续写入
-        return byteBuffer.remaining() > 0;
+        return response().getBodyBuffer().remaining() > 0;
     }
 
     // 设置 WriteListener，当输出流准备好时会调用监听器
@@ -3,15 +3,18 @@ package io.github.wj9806.minicat.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
+import java.nio.channels.ReadableByteChannel;
 
+/**
+ * NIO连接的输入流，TLS连接传入SslChannel读取解密后的数据
+ */
 public class SocketChannelInputStream extends InputStream {
 
-    private final SocketChannel socketChannel;
+    private final ReadableByteChannel socketChannel;
 
     private final ByteBuffer buffer;
 
-    public SocketChannelInputStream(SocketChannel socketChannel, int bufferSize) {
+    public SocketChannelInputStream(ReadableByteChannel socketChannel, int bufferSize) {
         if (socketChannel == null || bufferSize <= 0) {
             throw new IllegalArgumentException("SocketChannel cannot be null and bufferSize must be positive");
         }
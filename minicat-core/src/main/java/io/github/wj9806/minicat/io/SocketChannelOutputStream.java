@@ -3,31 +3,63 @@ package io.github.wj9806.minicat.io;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.SocketChannel;
-import java.util.Arrays;
+import java.nio.channels.FileChannel;
 
+/**
+ * NIO连接的输出流，小数据先在内存中缓冲，flush或写ByteBuffer时经出站写队列写入channel
+ */
 public class SocketChannelOutputStream extends ByteArrayOutputStream {
 
     private boolean closed = false;
 
-    private final SocketChannel socketChannel;
+    private final OutboundQueue outbound;
 
-    public SocketChannelOutputStream(SocketChannel socketChannel) {
+    public SocketChannelOutputStream(OutboundQueue outbound) {
         super();
-        this.socketChannel = socketChannel;
+        this.outbound = outbound;
     }
 
     public void flush() throws IOException {
         checkClosed();
-        if (socketChannel.isOpen()) {
-            ByteBuffer buf = ByteBuffer.wrap(super.toByteArray());
-            socketChannel.write(buf);
+        if (count > 0) {
+            try {
+                outbound.write(ByteBuffer.wrap(super.buf, 0, count));
+            } finally {
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * 将已缓冲的数据与buffer通过一次聚集写写入channel，避免复制到堆内存
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        write(new ByteBuffer[]{buffer});
+    }
 
-            Arrays.fill(super.buf, (byte)0);
+    /**
+     * 将已缓冲的数据与多个buffer通过一次聚集写写入channel
+     */
+    public void write(ByteBuffer[] buffers) throws IOException {
+        checkClosed();
+        ByteBuffer[] all = new ByteBuffer[buffers.length + 1];
+        all[0] = ByteBuffer.wrap(super.buf, 0, count);
+        System.arraycopy(buffers, 0, all, 1, buffers.length);
+        try {
+            outbound.write(all);
+        } finally {
             count = 0;
         }
     }
 
+    /**
+     * 先写出已缓冲的数据，再通过FileChannel.transferTo将文件直接发送到channel（零拷贝）
+     */
+    public void transferFrom(FileChannel fileChannel, long position, long length) throws IOException {
+        flush();
+        outbound.transferFrom(fileChannel, position, length);
+    }
+
     public void close() throws IOException {
         if (!closed) {
             closed = true;
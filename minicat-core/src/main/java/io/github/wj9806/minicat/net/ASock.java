@@ -0,0 +1,178 @@
+package io.github.wj9806.minicat.net;
+
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.io.AsyncOutboundQueue;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.server.IProcessor;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
+import io.github.wj9806.minicat.ws.processor.WsProcessor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+class ASock implements Sock<AsynchronousSocketChannel> {
+
+    InetSocketAddress r;
+    InetSocketAddress l;
+    private long lastProcess;
+    private final AsynchronousSocketChannel channel;
+    private WsProcessor<AsynchronousSocketChannel> p;
+    // 连接上复用的请求处理器，同一连接的请求依次在不同的worker线程中处理
+    private volatile IProcessor<AsynchronousSocketChannel> processor;
+    private final Object lock;
+    private RequestParser parser;
+    private volatile HashedTimerWheel.Timeout timeout;
+    private final AsyncOutboundQueue outbound;
+    private volatile Runnable closeListener;
+    private final AtomicBoolean channelClosed = new AtomicBoolean();
+
+    ASock(AsynchronousSocketChannel channel) {
+        this.channel = channel;
+        try {
+            this.r = (InetSocketAddress) channel.getRemoteAddress();
+            this.l = (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.lastProcess = System.currentTimeMillis();
+        this.lock = new Object();
+        ServerConfig.AioConfig aioConfig = Config.getInstance().getServer().getAio();
+        this.outbound = new AsyncOutboundQueue(channel, aioConfig.getMaxPendingWrite(), aioConfig.getWriteTimeout());
+    }
+
+    @Override
+    public Object sockLock() {
+        return lock;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return r;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return l;
+    }
+
+    @Override
+    public long getLastProcess() {
+        return lastProcess;
+    }
+
+    @Override
+    public void freshLastProcess() {
+        lastProcess = System.currentTimeMillis();
+        HashedTimerWheel.Timeout t = timeout;
+        if (t != null) {
+            t.touch();
+        }
+    }
+
+    @Override
+    public void setTimeout(HashedTimerWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public HashedTimerWheel.Timeout timeout() {
+        return timeout;
+    }
+
+    @Override
+    public AsynchronousSocketChannel source() {
+        return channel;
+    }
+
+    @Override
+    public RequestParser parser() {
+        if (parser == null) {
+            parser = new RequestParser();
+        }
+        return parser;
+    }
+
+    @Override
+    public AsyncOutboundQueue asyncOutbound() {
+        return outbound;
+    }
+
+    @Override
+    public IProcessor<AsynchronousSocketChannel> processor() {
+        return processor;
+    }
+
+    @Override
+    public void setProcessor(IProcessor<AsynchronousSocketChannel> processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public void setWsProcessor(WsProcessor<AsynchronousSocketChannel> p) {
+        this.p = p;
+    }
+
+    @Override
+    public WsProcessor<AsynchronousSocketChannel> wsProcessor() {
+        return p;
+    }
+
+    @Override
+    public void close() throws Exception {
+        HashedTimerWheel.Timeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        try {
+            if (p != null) {
+                // 发送关闭帧
+                p.close();
+            }
+        } finally {
+            // 还有排队数据时等异步写完成后再关闭，避免响应被截断
+            outbound.closeWhenDrained(this::closeChannel);
+        }
+    }
+
+    @Override
+    public void setCloseListener(Runnable listener) {
+        this.closeListener = listener;
+    }
+
+    private void closeChannel() {
+        // 先关闭channel，进行中的异步读写随之失败，之后才能归还它们使用的buffer
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+        releaseParser();
+        outbound.discard();
+        Runnable listener = closeListener;
+        if (listener != null && channelClosed.compareAndSet(false, true)) {
+            listener.run();
+        }
+    }
+
+    private synchronized void releaseParser() {
+        if (parser != null) {
+            parser.release();
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ASock aSock = (ASock) o;
+        return Objects.equals(channel, aSock.channel);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(channel);
+    }
+}
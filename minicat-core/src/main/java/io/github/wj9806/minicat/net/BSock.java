@@ -1,10 +1,13 @@
 package io.github.wj9806.minicat.net;
 
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
 import io.github.wj9806.minicat.ws.processor.WsProcessor;
 
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class BSock implements Sock<Socket> {
     InetSocketAddress r;
@@ -13,6 +16,10 @@ class BSock implements Sock<Socket> {
     private final Socket s;
     private WsProcessor<Socket> p;
     private final Object lock;
+    private RequestParser parser;
+    private volatile HashedTimerWheel.Timeout timeout;
+    private volatile Runnable closeListener;
+    private final AtomicBoolean socketClosed = new AtomicBoolean();
 
     BSock(Socket s) {
         this.r = new InetSocketAddress(s.getInetAddress(), s.getPort());
@@ -45,6 +52,20 @@ class BSock implements Sock<Socket> {
     @Override
     public void freshLastProcess() {
         lastProcess = System.currentTimeMillis();
+        HashedTimerWheel.Timeout t = timeout;
+        if (t != null) {
+            t.touch();
+        }
+    }
+
+    @Override
+    public void setTimeout(HashedTimerWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public HashedTimerWheel.Timeout timeout() {
+        return timeout;
     }
 
     @Override
@@ -52,6 +73,14 @@ class BSock implements Sock<Socket> {
         return s;
     }
 
+    @Override
+    public RequestParser parser() {
+        if (parser == null) {
+            parser = new RequestParser();
+        }
+        return parser;
+    }
+
     @Override
     public void setWsProcessor(WsProcessor<Socket> p) {
         this.p = p;
@@ -64,13 +93,32 @@ class BSock implements Sock<Socket> {
 
     @Override
     public void close() throws Exception {
-        if (p != null) {
-            p.close();
-        } else {
+        HashedTimerWheel.Timeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        if (parser != null) {
+            parser.release();
+        }
+        try {
+            if (p != null) {
+                // 发送关闭帧
+                p.close();
+            }
+        } finally {
             s.close();
+            Runnable listener = closeListener;
+            if (listener != null && socketClosed.compareAndSet(false, true)) {
+                listener.run();
+            }
         }
     }
 
+    @Override
+    public void setCloseListener(Runnable listener) {
+        this.closeListener = listener;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,34 +1,59 @@
 package io.github.wj9806.minicat.net;
 
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.http2.Http2Connection;
+import io.github.wj9806.minicat.io.OutboundQueue;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.server.IProcessor;
+import io.github.wj9806.minicat.ssl.SslChannel;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
 import io.github.wj9806.minicat.ws.processor.WsProcessor;
 
+import javax.net.ssl.SSLEngine;
 import java.io.IOException;
-import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class NSock implements Sock<SelectionKey> {
 
-    InetSocketAddress r;
-    InetSocketAddress l;
+    SocketAddress r;
+    SocketAddress l;
     private long lastProcess;
     private final SocketChannel sc;
     private final SelectionKey key;
     private WsProcessor<SelectionKey> p;
+    // 连接上复用的请求处理器，同一连接的请求依次在不同的worker线程中处理
+    private volatile IProcessor<SelectionKey> processor;
+    // 切换到HTTP/2后的连接
+    private volatile Http2Connection http2;
     private final Object lock;
-
-    NSock(SelectionKey key) {
+    private RequestParser parser;
+    private volatile HashedTimerWheel.Timeout timeout;
+    private final OutboundQueue outbound;
+    private final SslChannel ssl;
+    // 是否有处理中的请求，由poller线程设置，worker线程处理完成后清除
+    private volatile boolean processing;
+    private volatile Runnable closeListener;
+    private final AtomicBoolean channelClosed = new AtomicBoolean();
+
+    NSock(SelectionKey key, SSLEngine engine) {
         this.sc = (SocketChannel) key.channel();
         this.key = key;
         try {
-            this.r = (InetSocketAddress) sc.getRemoteAddress();
-            this.l = (InetSocketAddress) sc.getLocalAddress();
+            this.r = sc.getRemoteAddress();
+            this.l = sc.getLocalAddress();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
         this.lastProcess = System.currentTimeMillis();
         this.lock = new Object();
+        ServerConfig.NioConfig nioConfig = Config.getInstance().getServer().getNio();
+        this.outbound = new OutboundQueue(key, nioConfig.getMaxPendingWrite(), nioConfig.getWriteTimeout());
+        this.ssl = engine == null ? null : new SslChannel(engine, sc, outbound);
     }
 
     @Override
@@ -37,12 +62,12 @@ class NSock implements Sock<SelectionKey> {
     }
 
     @Override
-    public InetSocketAddress getRemoteAddress() {
+    public SocketAddress getRemoteAddress() {
         return r;
     }
 
     @Override
-    public InetSocketAddress getLocalAddress() {
+    public SocketAddress getLocalAddress() {
         return l;
     }
 
@@ -54,6 +79,20 @@ class NSock implements Sock<SelectionKey> {
     @Override
     public void freshLastProcess() {
         lastProcess = System.currentTimeMillis();
+        HashedTimerWheel.Timeout t = timeout;
+        if (t != null) {
+            t.touch();
+        }
+    }
+
+    @Override
+    public void setTimeout(HashedTimerWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    @Override
+    public HashedTimerWheel.Timeout timeout() {
+        return timeout;
     }
 
     @Override
@@ -61,6 +100,54 @@ class NSock implements Sock<SelectionKey> {
         return key;
     }
 
+    @Override
+    public RequestParser parser() {
+        if (parser == null) {
+            parser = new RequestParser();
+        }
+        return parser;
+    }
+
+    @Override
+    public boolean isProcessing() {
+        return processing;
+    }
+
+    @Override
+    public void setProcessing(boolean processing) {
+        this.processing = processing;
+    }
+
+    @Override
+    public OutboundQueue outbound() {
+        return outbound;
+    }
+
+    @Override
+    public SslChannel ssl() {
+        return ssl;
+    }
+
+    @Override
+    public Http2Connection http2() {
+        return http2;
+    }
+
+    @Override
+    public void setHttp2(Http2Connection connection) {
+        this.http2 = connection;
+    }
+
+    @Override
+    public IProcessor<SelectionKey> processor() {
+        return processor;
+    }
+
+    @Override
+    public void setProcessor(IProcessor<SelectionKey> processor) {
+        this.processor = processor;
+    }
+
     @Override
     public void setWsProcessor(WsProcessor<SelectionKey> p) {
         this.p = p;
@@ -73,14 +160,59 @@ class NSock implements Sock<SelectionKey> {
 
     @Override
     public void close() throws Exception {
-        if (p != null) {
-            p.close();
-        } else {
-            if (sc.isOpen()) {
-                key.cancel();
+        HashedTimerWheel.Timeout t = timeout;
+        if (t != null) {
+            t.cancel();
+        }
+        try {
+            if (p != null) {
+                releaseParser();
+                // 发送关闭帧
+                p.close();
+            }
+        } finally {
+            if (ssl != null) {
+                // 发送close_notify
+                ssl.closeOutbound();
+            }
+            // 还有排队数据时等poller写完再关闭，避免响应被截断
+            outbound.closeWhenDrained(this::closeChannel);
+        }
+    }
+
+    @Override
+    public void setCloseListener(Runnable listener) {
+        this.closeListener = listener;
+    }
+
+    private void closeChannel() {
+        releaseParser();
+        Http2Connection h2 = http2;
+        if (h2 != null) {
+            // 唤醒等待流控窗口的响应写线程
+            h2.close();
+        }
+        if (ssl != null) {
+            ssl.release();
+        }
+        outbound.discard();
+        if (sc.isOpen()) {
+            key.cancel();
+            try {
                 sc.close();
+            } catch (IOException ignored) {
             }
         }
+        Runnable listener = closeListener;
+        if (listener != null && channelClosed.compareAndSet(false, true)) {
+            listener.run();
+        }
+    }
+
+    private synchronized void releaseParser() {
+        if (parser != null) {
+            parser.release();
+        }
     }
 
     @Override
@@ -1,9 +1,19 @@
 package io.github.wj9806.minicat.net;
 
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.http2.Http2Connection;
+import io.github.wj9806.minicat.io.AsyncOutboundQueue;
+import io.github.wj9806.minicat.io.OutboundQueue;
+import io.github.wj9806.minicat.server.IProcessor;
+import io.github.wj9806.minicat.ssl.SslChannel;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
+import io.github.wj9806.minicat.util.UnixDomainSockets;
 import io.github.wj9806.minicat.ws.processor.WsProcessor;
 
-import java.net.InetSocketAddress;
+import javax.net.ssl.SSLEngine;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.SelectionKey;
 
 /**
@@ -13,9 +23,19 @@ public interface Sock<S> {
 
     Object sockLock();
 
-    InetSocketAddress getRemoteAddress();
+    /**
+     * 对端地址，TCP连接为InetSocketAddress，Unix domain socket连接为UnixDomainSocketAddress
+     */
+    SocketAddress getRemoteAddress();
 
-    InetSocketAddress getLocalAddress();
+    SocketAddress getLocalAddress();
+
+    /**
+     * 是否为Unix domain socket连接，只有NIO连接支持
+     */
+    default boolean isUnixDomain() {
+        return UnixDomainSockets.isUnixDomain(getLocalAddress());
+    }
 
     /**
      * 获取最后一次处理请求时间
@@ -23,23 +43,112 @@ public interface Sock<S> {
     long getLastProcess();
 
     /**
-     * 刷新最后一次处理请求时间
+     * 刷新最后一次处理请求时间，并重新计算连接的超时
      */
     void freshLastProcess();
 
+    /**
+     * 设置连接的超时句柄，由连接器在创建连接时注册到时间轮
+     */
+    void setTimeout(HashedTimerWheel.Timeout timeout);
+
+    HashedTimerWheel.Timeout timeout();
+
     S source();
 
+    /**
+     * 获取连接对应的请求解析器，解析状态在多次读事件之间保留
+     */
+    RequestParser parser();
+
+    /**
+     * 连接是否有处理中的请求，只有NIO连接使用，处理期间poller不再分发该连接的读事件
+     */
+    default boolean isProcessing() {
+        return false;
+    }
+
+    default void setProcessing(boolean processing) {
+
+    }
+
+    /**
+     * 获取连接的出站写队列，只有NIO连接使用，其他连接返回null
+     */
+    default OutboundQueue outbound() {
+        return null;
+    }
+
+    /**
+     * 获取连接的异步出站写队列，只有AIO连接使用，其他连接返回null
+     */
+    default AsyncOutboundQueue asyncOutbound() {
+        return null;
+    }
+
+    /**
+     * 获取连接的TLS层，只有开启TLS的NIO连接使用，其他连接返回null
+     */
+    default SslChannel ssl() {
+        return null;
+    }
+
+    /**
+     * 是否为TLS连接
+     */
+    default boolean isSecure() {
+        return ssl() != null;
+    }
+
+    /**
+     * 获取连接切换后的HTTP/2连接，只有NIO连接支持，未切换时返回null
+     */
+    default Http2Connection http2() {
+        return null;
+    }
+
+    default void setHttp2(Http2Connection connection) {
+        throw new UnsupportedOperationException("HTTP/2 is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * 获取连接上复用的请求处理器，NIO和AIO连接在多次读事件之间保留，其他连接返回null
+     */
+    default IProcessor<S> processor() {
+        return null;
+    }
+
+    default void setProcessor(IProcessor<S> processor) {
+
+    }
+
     void setWsProcessor(WsProcessor<S> p);
 
     WsProcessor<S> wsProcessor();
 
     void close() throws Exception;
 
+    /**
+     * 设置底层连接关闭后的回调，只执行一次，连接器用于移除连接并释放连接数
+     */
+    void setCloseListener(Runnable listener);
+
     static Sock<Socket> from(Socket s) {
         return new BSock(s);
     }
 
     static Sock<SelectionKey> from(SelectionKey key) {
-        return new NSock(key);
+        return new NSock(key, null);
+    }
+
+    /**
+     * 创建TLS连接，engine为null时为普通连接
+     */
+    static Sock<SelectionKey> from(SelectionKey key, SSLEngine engine) {
+        return new NSock(key, engine);
+    }
+
+    static Sock<AsynchronousSocketChannel> from(AsynchronousSocketChannel channel) {
+        return new ASock(channel);
     }
 }
@@ -2,14 +2,17 @@ package io.github.wj9806.minicat.server;
 
 import io.github.wj9806.minicat.core.ApplicationContext;
 import io.github.wj9806.minicat.core.Lifecycle;
+import io.github.wj9806.minicat.io.BufferPool;
 import io.github.wj9806.minicat.server.config.Config;
 import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.server.connector.AioConnector;
 import io.github.wj9806.minicat.server.connector.BioConnector;
 import io.github.wj9806.minicat.server.connector.NioConnector;
 import io.github.wj9806.minicat.server.connector.ServerConnector;
-import io.github.wj9806.minicat.server.thread.WorkerQueue;
-import io.github.wj9806.minicat.server.thread.Worker;
+import io.github.wj9806.minicat.server.thread.WorkerExecutor;
+import io.github.wj9806.minicat.server.thread.WorkerFactory;
 import io.github.wj9806.minicat.util.BannerPrinter;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,11 +21,8 @@ import javax.servlet.Filter;
 import javax.servlet.FilterRegistration;
 import javax.servlet.ServletRegistration;
 import javax.servlet.http.HttpServlet;
-import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class HttpServer implements Lifecycle {
     private static final Logger logger = LoggerFactory.getLogger(HttpServer.class);
@@ -30,14 +30,15 @@ public class HttpServer implements Lifecycle {
     private int port;
     private String contextPath;
     private List<String> staticPath;
-    private Worker worker;
+    private WorkerExecutor worker;
     private final Config config;
     private volatile boolean running = false;
     private volatile boolean stopped = false;
     private volatile boolean destroyed = false;
     private final ApplicationContext applicationContext;
     private final ServerConnector<?> connector;
-    private final ScheduledExecutorService monitorService;
+    // 连接超时时间轮：50ms一格，512格
+    private final HashedTimerWheel timerWheel;
     private final long startTime;
 
     public HttpServer() {
@@ -59,14 +60,22 @@ public class HttpServer implements Lifecycle {
         this.applicationContext = new ApplicationContext(this.config);
         //创建工作线程
         this.createWorker();
-        this.connector = server.nioEnabled()
-                ? new NioConnector(worker, applicationContext, config)
-                : new BioConnector(worker, applicationContext, config);
-        this.monitorService = new ScheduledThreadPoolExecutor(1, r -> {
-            Thread t = new Thread(r);
-            t.setName("Monitor");
-            return t;
-        });
+        this.timerWheel = new HashedTimerWheel("TimerWheel", 50, 512);
+        if (server.nioEnabled()) {
+            this.connector = new NioConnector(worker, timerWheel, applicationContext, config);
+        } else if (server.aioEnabled()) {
+            this.connector = new AioConnector(worker, timerWheel, applicationContext, config);
+        } else {
+            this.connector = new BioConnector(worker, timerWheel, applicationContext, config);
+        }
+        if (server.getSsl().isEnabled() && !server.nioEnabled()) {
+            logger.warn("server.ssl is only supported by the nio connector, {} serves plain HTTP",
+                    connector.getName());
+        }
+        if (server.udsEnabled() && !server.nioEnabled()) {
+            logger.warn("server.uds is only supported by the nio connector, {} listens on TCP only",
+                    connector.getName());
+        }
     }
 
     @Override
@@ -84,9 +93,11 @@ public class HttpServer implements Lifecycle {
     public void start() throws Exception {
         this.applicationContext.start();
         this.running = true;
+        if (worker != null) {
+            worker.start();
+        }
         this.connector.start();
-        this.monitorService.scheduleWithFixedDelay(new Monitor(Collections.singletonList(connector)),
-                50, 50, TimeUnit.MILLISECONDS);
+        this.timerWheel.start();
         // 打印启动信息
         printStartupInfo();
     }
@@ -102,7 +113,8 @@ public class HttpServer implements Lifecycle {
         if (worker != null) {
             worker.stop();
         }
-        logger.info("MiniCat Server stopped");
+        logger.info("MiniCat Server stopped, connections={}, rejected={}, {}", connector.getConnectionCount(),
+                connector.getRejectedCount(), BufferPool.getInstance());
         stopped = true;
     }
 
@@ -114,7 +126,8 @@ public class HttpServer implements Lifecycle {
         // 销毁所有 Servlet
         this.applicationContext.destroy();
         this.connector.destroy();
-        this.monitorService.shutdown();
+        this.timerWheel.stop();
+        this.timerWheel.destroy();
         
         logger.info("MiniCat Server destroyed");
         destroyed = true;
@@ -124,47 +137,37 @@ public class HttpServer implements Lifecycle {
         ServerConfig.WorkerConfig workerConfig = config.getServer().getWorker();
         if (!workerConfig.isEnabled()) return;
 
-        WorkerQueue taskQueue = new WorkerQueue(workerConfig.getQueueSize());
-        AtomicInteger threadNumber = new AtomicInteger(1);
-        ThreadFactory threadFactory = r -> {
-            Thread thread = new Thread(r);
-            thread.setName(config.getServer().getMode() + "-worker-" + threadNumber.getAndIncrement());
-            return thread;
-        };
-
-        worker = new Worker(
-            workerConfig.getCoreSize(),
-            workerConfig.getMaxSize(),
-            workerConfig.getKeepAliveTime(),
-            TimeUnit.SECONDS,
-            taskQueue,
-            threadFactory,
-            new ThreadPoolExecutor.CallerRunsPolicy()
-        );
-
-        taskQueue.setExecutor(worker);
+        worker = WorkerFactory.create(workerConfig, config.getServer().getMode() + "-worker-");
     }
 
-    private void initWorker() {
-        if (!config.getServer().getWorker().isEnabled()) return;
-
-        // 允许核心线程超时
-        //worker.allowCoreThreadTimeOut(true);
-        worker.prestartAllCoreThreads();
+    private void initWorker() throws Exception {
+        if (worker != null) {
+            worker.init();
+        }
     }
 
     private void printStartupInfo() {
         logger.info("MiniCat context path: {}", contextPath.isEmpty() ? "/" : contextPath);
 
         ServerConfig.WorkerConfig workerConfig = config.getServer().getWorker();
-        if (workerConfig.isEnabled()) {
-            logger.info("MiniCat worker pool: enabled, core={}, max={}, queueSize={}",
+        if (worker != null) {
+            logger.info("MiniCat worker pool: enabled, mode={}, core={}, max={}, queueSize={}",
+                    workerConfig.getMode(),
                     workerConfig.getCoreSize(),
                     workerConfig.getMaxSize(),
                     workerConfig.getQueueSize());
         } else {
             logger.info("MiniCat worker pool: disabled");
         }
+        ServerConfig.BufferConfig bufferConfig = config.getServer().getBuffer();
+        logger.info("MiniCat buffer pool: {}, direct={}, maxBufferSize={}",
+                bufferConfig.isEnabled() ? "enabled" : "disabled",
+                bufferConfig.isDirect(),
+                bufferConfig.getMaxBufferSize());
+        if (config.getHttp().getHttp2().isEnabled() && !"nio".equalsIgnoreCase(config.getServer().getMode())) {
+            logger.warn("HTTP/2 is only supported by the nio connector, ignoring http.http2 in {} mode",
+                    config.getServer().getMode());
+        }
         logger.info("MiniCat start on port: {}", port);
 
         long totalTime = System.currentTimeMillis() - startTime;
@@ -227,6 +230,10 @@ public class HttpServer implements Lifecycle {
         return port;
     }
 
+    public ServerConnector<?> getConnector() {
+        return connector;
+    }
+
     public ApplicationContext getApplicationContext() {
         return applicationContext;
     }
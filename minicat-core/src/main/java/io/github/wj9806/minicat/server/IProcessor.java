@@ -7,7 +7,7 @@ public interface IProcessor<S> extends AutoCloseable {
     /**
      * 处理请求
      * @throws Exception 处理过程中可能出现的异常
-     * @return 等于0 说明处理正常 等于-1说明处理完成
+     * @return 等于0 说明处理正常 等于-1说明处理完成 等于1说明请求尚未读取完整，等待下一次读事件
      */
     int process() throws Exception;
 
@@ -1,9 +1,150 @@
 package io.github.wj9806.minicat.server.config;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class HttpConfig {
 
     private int keepAliveTime = 30;
 
+    // 请求行与请求头的最大字节数
+    private int maxHeaderSize = 8192;
+
+    // 请求体的最大字节数，超过时返回413，小于0表示不限制
+    private int maxBodySize = 10 * 1024 * 1024;
+
+    private CompressionConfig compression = new CompressionConfig();
+
+    private Http2Config http2 = new Http2Config();
+
+    // 内部类用于配置动态响应压缩
+    public static class CompressionConfig {
+        private boolean enabled = false;
+        // 响应体达到该字节数才进行压缩
+        private int minResponseSize = 2048;
+        // 可压缩的Content-Type
+        private List<String> mimeTypes = Arrays.asList("text/html", "text/xml", "text/plain", "text/css",
+                "text/javascript", "application/javascript", "application/json", "application/xml");
+        // 不压缩的User-Agent
+        private List<String> excludedUserAgents = Collections.emptyList();
+        // 压缩级别（1-9）
+        private int level = 6;
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinResponseSize() {
+            return minResponseSize;
+        }
+
+        public void setMinResponseSize(int minResponseSize) {
+            this.minResponseSize = minResponseSize;
+        }
+
+        public List<String> getMimeTypes() {
+            return mimeTypes;
+        }
+
+        public void setMimeTypes(List<String> mimeTypes) {
+            this.mimeTypes = mimeTypes;
+        }
+
+        public List<String> getExcludedUserAgents() {
+            return excludedUserAgents;
+        }
+
+        public void setExcludedUserAgents(List<String> excludedUserAgents) {
+            this.excludedUserAgents = excludedUserAgents;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        /**
+         * Content-Type是否在可压缩列表中，忽略charset等参数
+         */
+        public boolean isCompressibleMimeType(String contentType) {
+            if (contentType == null) {
+                return false;
+            }
+            int semicolon = contentType.indexOf(';');
+            String mimeType = (semicolon == -1 ? contentType : contentType.substring(0, semicolon)).trim();
+            for (String candidate : mimeTypes) {
+                if (candidate.equalsIgnoreCase(mimeType)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // 内部类用于配置HTTP/2，只有nio模式支持
+    public static class Http2Config {
+        // 开启后支持h2c（prior knowledge和Upgrade: h2c）以及TLS连接上通过ALPN协商的h2
+        private boolean enabled = false;
+        // 每个连接同时处理的最大流数
+        private int maxConcurrentStreams = 100;
+        // 每个流的初始接收窗口，大于65535时同时扩大连接级窗口
+        private int initialWindowSize = 65535;
+        // 允许接收的最大帧负载（16384-16777215）
+        private int maxFrameSize = 16384;
+        // HPACK动态表的大小上限
+        private int headerTableSize = 4096;
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxConcurrentStreams() {
+            return maxConcurrentStreams;
+        }
+
+        public void setMaxConcurrentStreams(int maxConcurrentStreams) {
+            this.maxConcurrentStreams = maxConcurrentStreams;
+        }
+
+        public int getInitialWindowSize() {
+            return initialWindowSize;
+        }
+
+        public void setInitialWindowSize(int initialWindowSize) {
+            this.initialWindowSize = initialWindowSize;
+        }
+
+        public int getMaxFrameSize() {
+            return maxFrameSize;
+        }
+
+        public void setMaxFrameSize(int maxFrameSize) {
+            this.maxFrameSize = maxFrameSize;
+        }
+
+        public int getHeaderTableSize() {
+            return headerTableSize;
+        }
+
+        public void setHeaderTableSize(int headerTableSize) {
+            this.headerTableSize = headerTableSize;
+        }
+    }
+
     // Getters and Setters
     public int getKeepAliveTime() {
         return keepAliveTime;
@@ -13,4 +154,35 @@ public class HttpConfig {
         this.keepAliveTime = keepAliveTime;
     }
 
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public void setMaxHeaderSize(int maxHeaderSize) {
+        this.maxHeaderSize = maxHeaderSize;
+    }
+
+    public int getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    public void setMaxBodySize(int maxBodySize) {
+        this.maxBodySize = maxBodySize;
+    }
+
+    public CompressionConfig getCompression() {
+        return compression;
+    }
+
+    public void setCompression(CompressionConfig compression) {
+        this.compression = compression;
+    }
+
+    public Http2Config getHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(Http2Config http2) {
+        this.http2 = http2;
+    }
 }
@@ -10,22 +10,47 @@ public class ServerConfig {
     private String contextPath = "/";
     private List<String> staticPath = Collections.singletonList("/static");
     private boolean showBanner = true;
+    // 连接器：nio、bio、aio（AsynchronousSocketChannel）
     private String mode = "nio";
+    // 最大连接数，达到上限后暂停accept，小于等于0表示不限制
+    private int maxConnections = 10000;
+    // 监听socket数，大于1时每个监听socket开启SO_REUSEPORT绑定同一个端口并由独立的acceptor处理（需要Linux和JDK 9+）
+    private int acceptorCount = 1;
 
     private WorkerConfig worker = new WorkerConfig();
+    private OverloadConfig overload = new OverloadConfig();
     private NioConfig nio  = new NioConfig();
+    private AioConfig aio = new AioConfig();
+    private SslConfig ssl = new SslConfig();
+    private UdsConfig uds = new UdsConfig();
+    private BufferConfig buffer = new BufferConfig();
+    private StaticResourceConfig staticResource = new StaticResourceConfig();
 
     public boolean nioEnabled() {
         return Objects.equals("nio", mode);
     }
 
+    public boolean aioEnabled() {
+        return Objects.equals("aio", mode);
+    }
+
+    public boolean udsEnabled() {
+        return uds.getPath() != null && !uds.getPath().isEmpty();
+    }
+
     // 内部类用于配置worker
     public static class WorkerConfig {
         private boolean enabled = true;
+        // 执行器：eager（线程数优先增长的线程池）、queue（无锁队列固定线程池）、forkJoin（work-stealing）、
+        // virtual（虚拟线程，需要JDK 21+，低版本JDK回退到eager），其他值通过WorkerProvider查找
+        private String mode = "eager";
         private int coreSize = 10;
         private int maxSize = 50;
         private int queueSize = 100;
         private int keepAliveTime = 60;
+        // virtual模式下同时执行的任务数上限（BIO为连接数，NIO为请求数），小于等于0表示不限制
+        private int maxConcurrency = 10000;
+
 
         // Getters and Setters
         public boolean isEnabled() {
@@ -36,6 +61,22 @@ public class ServerConfig {
             this.enabled = enabled;
         }
 
+        public String getMode() {
+            return mode;
+        }
+
+        public void setMode(String mode) {
+            this.mode = mode;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
         public int getCoreSize() {
             return coreSize;
         }
@@ -69,9 +110,111 @@ public class ServerConfig {
         }
     }
 
+    // 内部类用于配置worker过载时的处理策略，过载时不会在I/O线程中执行servlet代码
+    public static class OverloadConfig {
+        // queue：任务在worker队列中等待，等待超过queueTimeout或队列已满时返回503；reject：worker没有空闲线程时立即返回503
+        private String policy = "queue";
+        // 任务在队列中等待的最长时间（毫秒），小于等于0表示不限制
+        private long queueTimeout = 30000;
+        // 503响应中Retry-After的秒数
+        private int retryAfter = 1;
+
+        public boolean rejectEnabled() {
+            return Objects.equals("reject", policy);
+        }
+
+        public String getPolicy() {
+            return policy;
+        }
+
+        public void setPolicy(String policy) {
+            this.policy = policy;
+        }
+
+        public long getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(long queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+
+        public int getRetryAfter() {
+            return retryAfter;
+        }
+
+        public void setRetryAfter(int retryAfter) {
+            this.retryAfter = retryAfter;
+        }
+    }
+
     // 内部类用于配置nio
     public static class NioConfig {
         private int backlog = 50;
+        // poller线程数，每个poller持有独立的Selector
+        private int pollerCount = Math.min(2, Runtime.getRuntime().availableProcessors());
+        // 新连接分配给poller的策略：roundRobin 或 leastLoad
+        private String pollerStrategy = "roundRobin";
+        // 每个连接出站写队列中排队数据的上限（字节），超过时写线程等待poller写出
+        private int maxPendingWrite = 65536;
+        // 写线程等待socket可写的超时时间（毫秒），小于等于0表示不超时
+        private long writeTimeout = 30000;
+
+        // Getters and Setters
+        public int getBacklog() {
+            return backlog;
+        }
+
+        public void setBacklog(int backlog) {
+            this.backlog = backlog;
+        }
+
+        public int getPollerCount() {
+            return pollerCount;
+        }
+
+        public void setPollerCount(int pollerCount) {
+            this.pollerCount = pollerCount;
+        }
+
+        public String getPollerStrategy() {
+            return pollerStrategy;
+        }
+
+        public void setPollerStrategy(String pollerStrategy) {
+            this.pollerStrategy = pollerStrategy;
+        }
+
+        public int getMaxPendingWrite() {
+            return maxPendingWrite;
+        }
+
+        public void setMaxPendingWrite(int maxPendingWrite) {
+            this.maxPendingWrite = maxPendingWrite;
+        }
+
+        public long getWriteTimeout() {
+            return writeTimeout;
+        }
+
+        public void setWriteTimeout(long writeTimeout) {
+            this.writeTimeout = writeTimeout;
+        }
+
+        public boolean leastLoadEnabled() {
+            return Objects.equals("leastLoad", pollerStrategy);
+        }
+    }
+
+    // 内部类用于配置AIO连接器
+    public static class AioConfig {
+        private int backlog = 50;
+        // AsynchronousChannelGroup的线程数，负责执行读写完成回调
+        private int threads = Math.min(2, Runtime.getRuntime().availableProcessors());
+        // 每个连接出站写队列中排队数据的上限（字节），超过时写线程等待异步写完成
+        private int maxPendingWrite = 65536;
+        // 单次异步写的超时时间（毫秒），小于等于0表示不超时
+        private long writeTimeout = 30000;
 
         // Getters and Setters
         public int getBacklog() {
@@ -81,8 +224,279 @@ public class ServerConfig {
         public void setBacklog(int backlog) {
             this.backlog = backlog;
         }
+
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        public int getMaxPendingWrite() {
+            return maxPendingWrite;
+        }
+
+        public void setMaxPendingWrite(int maxPendingWrite) {
+            this.maxPendingWrite = maxPendingWrite;
+        }
+
+        public long getWriteTimeout() {
+            return writeTimeout;
+        }
+
+        public void setWriteTimeout(long writeTimeout) {
+            this.writeTimeout = writeTimeout;
+        }
+    }
+
+    // 内部类用于配置TLS（只支持nio连接器）
+    public static class SslConfig {
+        private boolean enabled = false;
+        // keystore路径，以classpath:开头时从类路径加载
+        private String keyStore = "";
+        private String keyStorePassword = "";
+        private String keyStoreType = "PKCS12";
+        // 私钥密码，为空时使用keyStorePassword
+        private String keyPassword = "";
+        // 启用的协议和加密套件，为空时使用JDK默认值
+        private List<String> protocols = Collections.emptyList();
+        private List<String> ciphers = Collections.emptyList();
+        // 服务端session缓存的条目数和有效期（秒），用于session恢复，0表示不限制
+        private int sessionCacheSize = 20480;
+        private int sessionTimeout = 86400;
+        // 是否启用session ticket（无状态session恢复，需要JDK 13+）
+        private boolean sessionTickets = true;
+        // ALPN协议，按服务端优先级排列，为空时不协商（需要JDK 9+或8u252+）
+        private List<String> alpnProtocols = Collections.singletonList("http/1.1");
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getKeyStore() {
+            return keyStore;
+        }
+
+        public void setKeyStore(String keyStore) {
+            this.keyStore = keyStore;
+        }
+
+        public String getKeyStorePassword() {
+            return keyStorePassword;
+        }
+
+        public void setKeyStorePassword(String keyStorePassword) {
+            this.keyStorePassword = keyStorePassword;
+        }
+
+        public String getKeyStoreType() {
+            return keyStoreType;
+        }
+
+        public void setKeyStoreType(String keyStoreType) {
+            this.keyStoreType = keyStoreType;
+        }
+
+        public String getKeyPassword() {
+            return keyPassword;
+        }
+
+        public void setKeyPassword(String keyPassword) {
+            this.keyPassword = keyPassword;
+        }
+
+        public List<String> getProtocols() {
+            return protocols;
+        }
+
+        public void setProtocols(List<String> protocols) {
+            this.protocols = protocols;
+        }
+
+        public List<String> getCiphers() {
+            return ciphers;
+        }
+
+        public void setCiphers(List<String> ciphers) {
+            this.ciphers = ciphers;
+        }
+
+        public int getSessionCacheSize() {
+            return sessionCacheSize;
+        }
+
+        public void setSessionCacheSize(int sessionCacheSize) {
+            this.sessionCacheSize = sessionCacheSize;
+        }
+
+        public int getSessionTimeout() {
+            return sessionTimeout;
+        }
+
+        public void setSessionTimeout(int sessionTimeout) {
+            this.sessionTimeout = sessionTimeout;
+        }
+
+        public boolean isSessionTickets() {
+            return sessionTickets;
+        }
+
+        public void setSessionTickets(boolean sessionTickets) {
+            this.sessionTickets = sessionTickets;
+        }
+
+        public List<String> getAlpnProtocols() {
+            return alpnProtocols;
+        }
+
+        public void setAlpnProtocols(List<String> alpnProtocols) {
+            this.alpnProtocols = alpnProtocols;
+        }
+    }
+
+    // 内部类用于配置Unix domain socket监听（只支持nio连接器，需要JDK 16+）
+    public static class UdsConfig {
+        // socket文件路径，为空时不监听；启动时删除残留的文件，停止时删除
+        private String path = "";
+        // Unix domain socket连接没有客户端IP，从该请求头中取本机代理追加的最后一个地址（只对Unix domain socket连接生效），为空时不使用
+        private String remoteAddressHeader = "X-Forwarded-For";
+
+        // Getters and Setters
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getRemoteAddressHeader() {
+            return remoteAddressHeader;
+        }
+
+        public void setRemoteAddressHeader(String remoteAddressHeader) {
+            this.remoteAddressHeader = remoteAddressHeader;
+        }
+    }
+
+    // 内部类用于配置ByteBuffer池
+    public static class BufferConfig {
+        private boolean enabled = true;
+        // 是否使用direct缓冲区
+        private boolean direct = false;
+        // 池化的最大缓冲区大小，超过该大小的缓冲区不池化
+        private int maxBufferSize = 65536;
+        // 每个线程每种规格缓存的缓冲区个数
+        private int threadCacheSize = 8;
+        // 共享队列中每种规格缓存的缓冲区个数
+        private int sharedCacheSize = 256;
+
+        // Getters and Setters
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public boolean isDirect() {
+            return direct;
+        }
+
+        public void setDirect(boolean direct) {
+            this.direct = direct;
+        }
+
+        public int getMaxBufferSize() {
+            return maxBufferSize;
+        }
+
+        public void setMaxBufferSize(int maxBufferSize) {
+            this.maxBufferSize = maxBufferSize;
+        }
+
+        public int getThreadCacheSize() {
+            return threadCacheSize;
+        }
+
+        public void setThreadCacheSize(int threadCacheSize) {
+            this.threadCacheSize = threadCacheSize;
+        }
+
+        public int getSharedCacheSize() {
+            return sharedCacheSize;
+        }
+
+        public void setSharedCacheSize(int sharedCacheSize) {
+            this.sharedCacheSize = sharedCacheSize;
+        }
     }
 
+    // 内部类用于配置静态资源
+    public static class StaticResourceConfig {
+        // 文件系统中的静态资源目录，配置后优先从该目录通过零拷贝发送文件，为空时只从classpath加载
+        private String directory = "";
+        // classpath静态资源缓存的最大字节数
+        private long cacheMaxSize = 10 * 1024 * 1024;
+        // 文件修改后是否使缓存失效（仅对文件形式的classpath资源有效）
+        private boolean checkModified = true;
+        // 是否发送预压缩的.br/.zst/.gz同名文件
+        private boolean precompressed = true;
+        // 后台gzip压缩文本资源的压缩级别（1-9）
+        private int compressionLevel = 6;
+
+        // Getters and Setters
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public long getCacheMaxSize() {
+            return cacheMaxSize;
+        }
+
+        public void setCacheMaxSize(long cacheMaxSize) {
+            this.cacheMaxSize = cacheMaxSize;
+        }
+
+        public boolean isCheckModified() {
+            return checkModified;
+        }
+
+        public void setCheckModified(boolean checkModified) {
+            this.checkModified = checkModified;
+        }
+
+        public boolean isPrecompressed() {
+            return precompressed;
+        }
+
+        public void setPrecompressed(boolean precompressed) {
+            this.precompressed = precompressed;
+        }
+
+        public int getCompressionLevel() {
+            return compressionLevel;
+        }
+
+        public void setCompressionLevel(int compressionLevel) {
+            this.compressionLevel = compressionLevel;
+        }
+
+        public boolean fileSystemEnabled() {
+            return directory != null && !directory.isEmpty();
+        }
+    }
 
     public int getPort() {
         return port;
@@ -92,6 +506,22 @@ public class ServerConfig {
         this.port = port;
     }
 
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getAcceptorCount() {
+        return acceptorCount;
+    }
+
+    public void setAcceptorCount(int acceptorCount) {
+        this.acceptorCount = acceptorCount;
+    }
+
     public String getContextPath() {
         return contextPath;
     }
@@ -139,6 +569,14 @@ public class ServerConfig {
         this.worker = worker;
     }
 
+    public OverloadConfig getOverload() {
+        return overload;
+    }
+
+    public void setOverload(OverloadConfig overload) {
+        this.overload = overload;
+    }
+
     public NioConfig getNio() {
         return nio;
     }
@@ -146,4 +584,44 @@ public class ServerConfig {
     public void setNio(NioConfig nio) {
         this.nio = nio;
     }
+
+    public AioConfig getAio() {
+        return aio;
+    }
+
+    public void setAio(AioConfig aio) {
+        this.aio = aio;
+    }
+
+    public SslConfig getSsl() {
+        return ssl;
+    }
+
+    public void setSsl(SslConfig ssl) {
+        this.ssl = ssl;
+    }
+
+    public UdsConfig getUds() {
+        return uds;
+    }
+
+    public void setUds(UdsConfig uds) {
+        this.uds = uds;
+    }
+
+    public BufferConfig getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(BufferConfig buffer) {
+        this.buffer = buffer;
+    }
+
+    public StaticResourceConfig getStaticResource() {
+        return staticResource;
+    }
+
+    public void setStaticResource(StaticResourceConfig staticResource) {
+        this.staticResource = staticResource;
+    }
 }
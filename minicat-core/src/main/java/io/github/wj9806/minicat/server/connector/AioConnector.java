@@ -0,0 +1,310 @@
+package io.github.wj9806.minicat.server.connector;
+
+import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.net.Sock;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.server.processor.AioProcessor;
+import io.github.wj9806.minicat.server.thread.WorkerExecutor;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
+import io.github.wj9806.minicat.util.ReusePort;
+import io.github.wj9806.minicat.ws.processor.WsProcessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousChannelGroup;
+import java.nio.channels.AsynchronousServerSocketChannel;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.CompletionHandler;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AIO连接器实现（AsynchronousSocketChannel）
+ * 1. AsynchronousChannelGroup的线程执行accept和读写的完成回调，不需要单独的Acceptor和Poller线程
+ * 2. 每个连接同一时间只有一个异步读，读完成后把连接交给worker处理，处理完成后再发起下一次异步读
+ * 3. 异步读的数据直接写入连接的请求解析器缓冲区，响应放入异步出站写队列，由写完成回调继续写出
+ * 4. 连接数达到maxConnections时暂停发起accept，worker过载时返回503，不在I/O线程中执行servlet代码
+ * 5. acceptorCount大于1时打开多个开启SO_REUSEPORT的监听channel，各自发起accept，由内核分配新连接
+ */
+public class AioConnector implements ServerConnector<AsynchronousSocketChannel> {
+
+    private static final Logger logger = LoggerFactory.getLogger(AioConnector.class);
+    private final Config config;
+    private final ApplicationContext applicationContext;
+    private final WorkerDispatcher dispatcher;
+    private final ConnectionLimiter limiter;
+    private final HashedTimerWheel timerWheel;
+    private AsynchronousChannelGroup group;
+    private final AsynchronousServerSocketChannel[] serverChannels;
+    private volatile boolean running = false;
+    // 因为连接数达到上限暂停了accept的监听channel
+    private final Queue<AsynchronousServerSocketChannel> pausedChannels = new ConcurrentLinkedQueue<>();
+    private final AcceptHandler acceptHandler = new AcceptHandler();
+    private final ReadHandler readHandler = new ReadHandler();
+    private final Set<Sock<AsynchronousSocketChannel>> socks;
+
+    public AioConnector(WorkerExecutor worker, HashedTimerWheel timerWheel, ApplicationContext applicationContext,
+                        Config config) {
+        this.dispatcher = new WorkerDispatcher(worker, config);
+        this.limiter = new ConnectionLimiter(config.getServer().getMaxConnections());
+        this.timerWheel = timerWheel;
+        this.applicationContext = applicationContext;
+        this.config = config;
+        this.socks = ConcurrentHashMap.newKeySet();
+        this.serverChannels = new AsynchronousServerSocketChannel[
+                ReusePort.listenerCount(config.getServer().getAcceptorCount())];
+    }
+
+    @Override
+    public String getName() {
+        return "AioConnector";
+    }
+
+    @Override
+    public Set<Sock<AsynchronousSocketChannel>> getSocks() {
+        return socks;
+    }
+
+    @Override
+    public int getConnectionCount() {
+        return limiter.getCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return dispatcher.getRejectedCount();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return dispatcher.getQueuedCount();
+    }
+
+    @Override
+    public void init() throws Exception {
+        ServerConfig.AioConfig aioConfig = config.getServer().getAio();
+        try {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            group = AsynchronousChannelGroup.withFixedThreadPool(Math.max(1, aioConfig.getThreads()),
+                    r -> new Thread(r, "Aio-" + threadNumber.getAndIncrement()));
+            for (int i = 0; i < serverChannels.length; i++) {
+                serverChannels[i] = AsynchronousServerSocketChannel.open(group);
+                if (serverChannels.length > 1) {
+                    // 多个监听channel绑定同一个端口
+                    ReusePort.enable(serverChannels[i]);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Failed to initialize {}", getName(), e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        running = true;
+        for (AsynchronousServerSocketChannel serverChannel : serverChannels) {
+            serverChannel.bind(new InetSocketAddress(config.getServer().getPort()),
+                    config.getServer().getAio().getBacklog());
+        }
+        // 连接数从上限回落时恢复accept
+        limiter.setOnAvailable(this::resumeAccept);
+        for (AsynchronousServerSocketChannel serverChannel : serverChannels) {
+            accept(serverChannel);
+        }
+        logger.info("{} started with {} acceptor(s) and {} thread(s)", getName(), serverChannels.length,
+                Math.max(1, config.getServer().getAio().getThreads()));
+    }
+
+    @Override
+    public void stop() throws Exception {
+        running = false;
+        logger.info("{} stopping...", getName());
+        for (AsynchronousServerSocketChannel serverChannel : serverChannels) {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        }
+        for (Sock<AsynchronousSocketChannel> sock : socks) {
+            close(sock);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (group != null) {
+            group.shutdownNow();
+            if (!group.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("{} channel group did not terminate in time", getName());
+            }
+        }
+    }
+
+    private void accept(AsynchronousServerSocketChannel serverChannel) {
+        try {
+            serverChannel.accept(serverChannel, acceptHandler);
+        } catch (RuntimeException e) {
+            if (running) {
+                logger.error("Error accepting connection", e);
+            }
+        }
+    }
+
+    private void resumeAccept() {
+        AsynchronousServerSocketChannel serverChannel;
+        while (running && (serverChannel = pausedChannels.poll()) != null) {
+            accept(serverChannel);
+        }
+    }
+
+    /**
+     * 创建连接对象并发起第一次异步读
+     */
+    private void open(AsynchronousSocketChannel channel) {
+        Sock<AsynchronousSocketChannel> sock;
+        try {
+            sock = Sock.from(channel);
+        } catch (RuntimeException e) {
+            logger.error("Error registering channel", e);
+            limiter.decrement();
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+            return;
+        }
+        // 连接关闭时从连接集合中移除并释放连接数，只执行一次
+        sock.setCloseListener(() -> {
+            socks.remove(sock);
+            limiter.decrement();
+        });
+        socks.add(sock);
+        scheduleTimeout(sock);
+        read(sock);
+    }
+
+    /**
+     * 发起异步读，数据直接写入解析器的缓冲区
+     */
+    private void read(Sock<AsynchronousSocketChannel> sock) {
+        AsynchronousSocketChannel channel = sock.source();
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            channel.read(sock.parser().writableBuffer(), sock, readHandler);
+        } catch (RuntimeException e) {
+            // channel已关闭或channel group已停止
+            close(sock);
+        }
+    }
+
+    /**
+     * 在worker中处理解析器缓冲区中的数据，处理完成后连接仍然打开时发起下一次异步读
+     */
+    private void process(Sock<AsynchronousSocketChannel> sock) {
+        try {
+            AioProcessor processor = (AioProcessor) sock.processor();
+            if (processor == null) {
+                // 连接上复用的处理器，请求和响应对象在keep-alive的多个请求之间回收复用
+                processor = new AioProcessor(applicationContext, sock);
+                sock.setProcessor(processor);
+            }
+            // HTTP/1.1 pipelining：缓冲区中还有后续请求时继续处理，协议升级后剩余的数据交给websocket
+            int process;
+            do {
+                WsProcessor<AsynchronousSocketChannel> wsProcessor = sock.wsProcessor();
+                process = wsProcessor == null ? processor.process() : wsProcessor.process();
+            } while (process == 0 && sock.parser().hasRemaining());
+            if (process == -1) {
+                processor.destroy();
+                return;
+            }
+        } catch (Exception e) {
+            logger.error("Error processing request", e);
+        }
+        read(sock);
+    }
+
+    /**
+     * 在时间轮中注册连接的keep-alive超时，超时后关闭连接
+     */
+    private void scheduleTimeout(Sock<AsynchronousSocketChannel> sock) {
+        int keepAliveTime = config.getHttp().getKeepAliveTime();
+        sock.setTimeout(timerWheel.schedule(() -> close(sock), keepAliveTime < 0 ? -1 : keepAliveTime * 1000L));
+    }
+
+    /**
+     * 返回503并关闭连接
+     */
+    private void reject(Sock<AsynchronousSocketChannel> sock) {
+        try {
+            sock.asyncOutbound().write(ByteBuffer.wrap(dispatcher.rejectResponse()));
+        } catch (IOException ignore) {
+        }
+        close(sock);
+    }
+
+    private void close(Sock<AsynchronousSocketChannel> sock) {
+        try {
+            sock.close();
+        } catch (Exception e) {
+            logger.error("remove sock failed", e);
+        }
+    }
+
+    private class AcceptHandler
+            implements CompletionHandler<AsynchronousSocketChannel, AsynchronousServerSocketChannel> {
+
+        @Override
+        public void completed(AsynchronousSocketChannel channel, AsynchronousServerSocketChannel serverChannel) {
+            if (limiter.increment()) {
+                // 达到最大连接数，不再发起accept，新连接留在backlog中，直到有连接关闭
+                pausedChannels.offer(serverChannel);
+                logger.debug("Max connections {} reached, pausing accept", config.getServer().getMaxConnections());
+                // 设置暂停标记之前可能已经有连接关闭
+                if (!limiter.isFull()) {
+                    resumeAccept();
+                }
+            } else {
+                accept(serverChannel);
+            }
+            open(channel);
+        }
+
+        @Override
+        public void failed(Throwable exc, AsynchronousServerSocketChannel serverChannel) {
+            if (!running) {
+                return;
+            }
+            logger.error("Error accepting connection", exc);
+            accept(serverChannel);
+        }
+    }
+
+    private class ReadHandler implements CompletionHandler<Integer, Sock<AsynchronousSocketChannel>> {
+
+        @Override
+        public void completed(Integer n, Sock<AsynchronousSocketChannel> sock) {
+            if (n == -1) {
+                close(sock);
+                return;
+            }
+            dispatcher.dispatch(() -> process(sock), () -> reject(sock));
+        }
+
+        @Override
+        public void failed(Throwable exc, Sock<AsynchronousSocketChannel> sock) {
+            // 连接被关闭或读取出错
+            close(sock);
+        }
+    }
+}
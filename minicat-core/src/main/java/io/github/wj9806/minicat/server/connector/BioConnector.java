@@ -4,42 +4,64 @@ import io.github.wj9806.minicat.net.Sock;
 import io.github.wj9806.minicat.server.config.Config;
 import io.github.wj9806.minicat.core.ApplicationContext;
 import io.github.wj9806.minicat.server.processor.BioProcessor;
-import io.github.wj9806.minicat.server.thread.Worker;
+import io.github.wj9806.minicat.server.thread.WorkerExecutor;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
+import io.github.wj9806.minicat.util.ReusePort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.List;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
  * BIO连接器实现
+ * 连接数达到maxConnections时acceptor等待连接关闭，worker过载时返回503，不在acceptor线程中执行servlet代码
+ * acceptorCount大于1时每个acceptor持有一个开启SO_REUSEPORT的监听socket，由内核分配新连接
  */
 public class BioConnector implements ServerConnector<Socket> {
     private static final Logger logger = LoggerFactory.getLogger(BioConnector.class);
     private final Config config;
     private final ApplicationContext applicationContext;
-    private final Worker worker;
+    private final WorkerDispatcher dispatcher;
+    private final ConnectionLimiter limiter;
+    private final HashedTimerWheel timerWheel;
     private volatile boolean running = false;
-    private ServerSocket serverSocket;
-    private final BioAcceptor acceptor;
-    private final List<Sock<Socket>> socks;
+    private final BioAcceptor[] acceptors;
+    private final Set<Sock<Socket>> socks;
 
-    public BioConnector(Worker worker, ApplicationContext applicationContext, Config config) {
-        this.worker = worker;
+    public BioConnector(WorkerExecutor worker, HashedTimerWheel timerWheel, ApplicationContext applicationContext,
+                        Config config) {
+        this.dispatcher = new WorkerDispatcher(worker, config);
+        this.limiter = new ConnectionLimiter(config.getServer().getMaxConnections());
+        this.timerWheel = timerWheel;
         this.applicationContext = applicationContext;
         this.config = config;
-        this.acceptor = new BioAcceptor();
-        this.socks = new CopyOnWriteArrayList<>();
+        this.acceptors = new BioAcceptor[ReusePort.listenerCount(config.getServer().getAcceptorCount())];
+        this.socks = ConcurrentHashMap.newKeySet();
     }
 
     @Override
     public void init() throws Exception {
         // BIO模式下初始化比较简单，主要是准备ServerSocket
         try {
-            serverSocket = new ServerSocket(config.getServer().getPort());
+            if (acceptors.length == 1) {
+                acceptors[0] = new BioAcceptor("Acceptor", new ServerSocket(config.getServer().getPort()));
+                return;
+            }
+            for (int i = 0; i < acceptors.length; i++) {
+                // 阻塞模式的ServerSocketChannel，多个监听socket绑定同一个端口
+                ServerSocketChannel channel = ServerSocketChannel.open();
+                ReusePort.enable(channel);
+                channel.socket().bind(new InetSocketAddress(config.getServer().getPort()));
+                acceptors[i] = new BioAcceptor("Acceptor-" + i, channel.socket());
+            }
         } catch (IOException e) {
             logger.error("Failed to initialize {}", getName(), e);
             throw e;
@@ -49,21 +71,33 @@ public class BioConnector implements ServerConnector<Socket> {
     @Override
     public void start() throws Exception {
         running = true;
-        acceptor.start();
+        for (BioAcceptor acceptor : acceptors) {
+            acceptor.start();
+        }
+        if (acceptors.length > 1) {
+            logger.info("{} started with {} acceptor(s)", getName(), acceptors.length);
+        }
     }
 
     @Override
     public void stop() throws Exception {
         running = false;
-        acceptor.interrupt();
+        for (BioAcceptor acceptor : acceptors) {
+            if (acceptor != null) {
+                acceptor.interrupt();
+            }
+        }
         logger.info("{} stopping...", getName());
         closeSocks();
-        if (serverSocket != null && !serverSocket.isClosed()) {
-            try {
-                serverSocket.close();
-            } catch (IOException e) {
-                logger.error("Error closing server socket", e);
-                throw e;
+        for (BioAcceptor acceptor : acceptors) {
+            ServerSocket serverSocket = acceptor == null ? null : acceptor.serverSocket;
+            if (serverSocket != null && !serverSocket.isClosed()) {
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    logger.error("Error closing server socket", e);
+                    throw e;
+                }
             }
         }
     }
@@ -85,10 +119,25 @@ public class BioConnector implements ServerConnector<Socket> {
     }
 
     @Override
-    public List<Sock<Socket>> getSocks() {
+    public Set<Sock<Socket>> getSocks() {
         return socks;
     }
 
+    @Override
+    public int getConnectionCount() {
+        return limiter.getCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return dispatcher.getRejectedCount();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return dispatcher.getQueuedCount();
+    }
+
     public void addSock(Sock<Socket> sock) {
         socks.add(sock);
     }
@@ -97,14 +146,34 @@ public class BioConnector implements ServerConnector<Socket> {
         socks.remove(sock);
     }
 
+    /**
+     * 在时间轮中注册连接的keep-alive超时，超时后关闭连接
+     */
+    private void scheduleTimeout(Sock<Socket> sock) {
+        int keepAliveTime = config.getHttp().getKeepAliveTime();
+        sock.setTimeout(timerWheel.schedule(() -> expire(sock), keepAliveTime < 0 ? -1 : keepAliveTime * 1000L));
+    }
+
+    private void expire(Sock<Socket> sock) {
+        try {
+            sock.close();
+        } catch (Exception e) {
+            logger.error("remove sock failed", e);
+        }
+    }
+
     private void handleSocket(Socket socket) {
+        Sock<Socket> sock = Sock.from(socket);
+        sock.setCloseListener(() -> {
+            removeSock(sock);
+            limiter.decrement();
+        });
         Runnable task = () -> {
             BioProcessor processor = null;
-            Sock<Socket> sock = null;
             try {
-                processor = new BioProcessor(applicationContext, Sock.from(socket));
-                sock = processor.sock();
+                processor = new BioProcessor(applicationContext, sock);
                 addSock(sock);
+                scheduleTimeout(sock);
                 while (true) {
                     if (sock.wsProcessor() == null) {
                         if (processor.process() == -1)
@@ -114,16 +183,14 @@ public class BioConnector implements ServerConnector<Socket> {
                             break;
                     }
                 }
-                removeSock(sock);
             } catch (Exception e) {
                 logger.error("Error processing request", e);
             } finally {
                 try {
                     if (processor != null) {
                         processor.destroy();
-                    }
-                    if (sock != null) {
-                        removeSock(sock);
+                    } else {
+                        sock.close();
                     }
                 } catch (Exception e) {
                     logger.error("Error closing socket", e);
@@ -131,26 +198,53 @@ public class BioConnector implements ServerConnector<Socket> {
             }
         };
 
-        if (config.getServer().getWorker().isEnabled() && worker != null) {
-            worker.execute(task);
-        } else {
-            task.run();
+        dispatcher.dispatch(task, () -> reject(sock));
+    }
+
+    /**
+     * 返回503并关闭连接
+     */
+    private void reject(Sock<Socket> sock) {
+        Socket socket = sock.source();
+        try {
+            // 先跳过已到达的请求数据，避免接收缓冲区中还有数据时关闭连接发送RST，导致客户端收不到响应
+            InputStream is = socket.getInputStream();
+            int available = is.available();
+            if (available > 0) {
+                is.skip(available);
+            }
+            OutputStream os = socket.getOutputStream();
+            os.write(dispatcher.rejectResponse());
+            os.flush();
+        } catch (IOException ignore) {
+        }
+        try {
+            sock.close();
+        } catch (Exception e) {
+            logger.error("Error closing socket", e);
         }
     }
 
     class BioAcceptor extends Thread {
+        private final ServerSocket serverSocket;
 
-        public BioAcceptor() {
-            super("Acceptor");
+        BioAcceptor(String name, ServerSocket serverSocket) {
+            super(name);
+            this.serverSocket = serverSocket;
         }
 
         @Override
         public void run() {
             try {
                 while (running) {
+                    // 达到最大连接数时等待连接关闭，新连接留在backlog中
+                    limiter.await();
                     Socket socket = serverSocket.accept();
+                    limiter.increment();
                     handleSocket(socket);
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             } catch (IOException e) {
                 if (running) {
                     logger.error("Error accepting connection", e);
@@ -0,0 +1,73 @@
+package io.github.wj9806.minicat.server.connector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接数限制
+ * 达到上限后NIO暂停关注OP_ACCEPT，BIO的acceptor等待连接关闭，未accept的连接留在内核的backlog中
+ */
+class ConnectionLimiter {
+
+    private final int maxConnections;
+    private final AtomicInteger count = new AtomicInteger();
+    private final Object lock = new Object();
+    // 从上限回落时的回调，NIO用于唤醒acceptor恢复accept
+    private volatile Runnable onAvailable;
+
+    /**
+     * @param maxConnections 最大连接数，小于等于0表示不限制
+     */
+    ConnectionLimiter(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    void setOnAvailable(Runnable onAvailable) {
+        this.onAvailable = onAvailable;
+    }
+
+    /**
+     * 登记一个新连接
+     * @return 登记后是否达到上限
+     */
+    boolean increment() {
+        return count.incrementAndGet() >= maxConnections && maxConnections > 0;
+    }
+
+    /**
+     * 连接关闭后调用
+     */
+    void decrement() {
+        int current = count.decrementAndGet();
+        if (maxConnections > 0 && current == maxConnections - 1) {
+            Runnable r = onAvailable;
+            if (r != null) {
+                r.run();
+            }
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    boolean isFull() {
+        return maxConnections > 0 && count.get() >= maxConnections;
+    }
+
+    /**
+     * 等待连接数回落到上限以下
+     */
+    void await() throws InterruptedException {
+        if (maxConnections <= 0) {
+            return;
+        }
+        synchronized (lock) {
+            while (count.get() >= maxConnections) {
+                lock.wait();
+            }
+        }
+    }
+
+    int getCount() {
+        return count.get();
+    }
+}
@@ -1,37 +1,73 @@
 package io.github.wj9806.minicat.server.connector;
 
 import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.io.OutboundQueue;
 import io.github.wj9806.minicat.net.Sock;
 import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
 import io.github.wj9806.minicat.server.processor.NioProcessor;
-import io.github.wj9806.minicat.server.thread.Worker;
+import io.github.wj9806.minicat.server.thread.WorkerExecutor;
+import io.github.wj9806.minicat.ssl.SslContextFactory;
+import io.github.wj9806.minicat.util.HashedTimerWheel;
+import io.github.wj9806.minicat.util.ReusePort;
+import io.github.wj9806.minicat.util.UnixDomainSockets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * NIO连接器实现（多Reactor模式）
+ * 1. Acceptor线程负责接收新连接，acceptorCount大于1时每个Acceptor持有一个开启SO_REUSEPORT的监听socket，由内核分配新连接
+ * 2. N个Poller线程各自持有独立的Selector，负责读事件的分发
+ * 3. socket发送缓冲区写满时由Poller关注写事件，继续写出连接出站队列中的数据
+ * 4. 连接对象作为SelectionKey的attachment，读事件分发时直接取出，不需要查找
+ * 5. 连接数达到maxConnections时暂停关注OP_ACCEPT，worker过载时返回503，不在I/O线程中执行servlet代码
+ * 6. 开启server.ssl时每个连接持有一个SSLEngine，握手和加解密在worker中执行，poller只负责事件分发和写出密文
+ * 7. 配置server.uds.path时额外由一个acceptor监听Unix domain socket，连接与TCP连接共用poller和处理流程，不使用TLS
+ */
 public class NioConnector implements ServerConnector<SelectionKey> {
 
     private static final Logger logger = LoggerFactory.getLogger(NioConnector.class);
     private final Config config;
     private final ApplicationContext applicationContext;
-    private final Worker worker;
-    private Selector selector;
-    private ServerSocketChannel serverChannel;
+    private final WorkerDispatcher dispatcher;
+    private final ConnectionLimiter limiter;
+    private final HashedTimerWheel timerWheel;
     private volatile boolean running = false;
-    private final NioAcceptor acceptor;
+    private final NioAcceptor[] acceptors;
+    private final NioPoller[] pollers;
+    private final AtomicInteger pollerRotater = new AtomicInteger();
     private final Set<Sock<SelectionKey>> socks;
+    private SslContextFactory sslContextFactory;
+    // 是否额外监听Unix domain socket
+    private final boolean uds;
 
-    public NioConnector(Worker worker, ApplicationContext applicationContext, Config config) {
-        this.worker = worker;
+    public NioConnector(WorkerExecutor worker, HashedTimerWheel timerWheel, ApplicationContext applicationContext,
+                        Config config) {
+        this.dispatcher = new WorkerDispatcher(worker, config);
+        this.limiter = new ConnectionLimiter(config.getServer().getMaxConnections());
+        this.timerWheel = timerWheel;
         this.applicationContext = applicationContext;
         this.config = config;
-        this.acceptor = new NioAcceptor();
-        this.socks = new CopyOnWriteArraySet<>();
+        this.uds = udsEnabled(config);
+        int listenerCount = ReusePort.listenerCount(config.getServer().getAcceptorCount());
+        this.acceptors = new NioAcceptor[listenerCount + (uds ? 1 : 0)];
+        this.pollers = new NioPoller[Math.max(1, config.getServer().getNio().getPollerCount())];
+        // 连接数较多时每次增删都复制数组的代价很高，使用并发哈希集合
+        this.socks = ConcurrentHashMap.newKeySet();
     }
 
     @Override
@@ -44,14 +80,48 @@ public class NioConnector implements ServerConnector<SelectionKey> {
         return socks;
     }
 
+    @Override
+    public int getConnectionCount() {
+        return limiter.getCount();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return dispatcher.getRejectedCount();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return dispatcher.getQueuedCount();
+    }
+
+    /**
+     * 开启TLS时返回SSLEngine的工厂，可用于设置ALPN协议选择器，未开启时返回null
+     */
+    public SslContextFactory getSslContextFactory() {
+        return sslContextFactory;
+    }
+
     @Override
     public void init() throws Exception {
         try {
-            selector = Selector.open();
-            // 创建ServerSocketChannel
-            serverChannel = ServerSocketChannel.open();
-            serverChannel.configureBlocking(false);
-        } catch (IOException e) {
+            if (config.getServer().getSsl().isEnabled()) {
+                sslContextFactory = new SslContextFactory(config.getServer().getSsl());
+            }
+            int tcpCount = uds ? acceptors.length - 1 : acceptors.length;
+            for (int i = 0; i < tcpCount; i++) {
+                acceptors[i] = new NioAcceptor(tcpCount == 1 ? "Acceptor" : "Acceptor-" + i,
+                        tcpChannel(tcpCount > 1), new InetSocketAddress(config.getServer().getPort()), null);
+            }
+            if (tcpCount < acceptors.length) {
+                String path = config.getServer().getUds().getPath();
+                acceptors[tcpCount] = new NioAcceptor("Acceptor-uds", UnixDomainSockets.openServerChannel(),
+                        UnixDomainSockets.address(path), Paths.get(path));
+            }
+            for (int i = 0; i < pollers.length; i++) {
+                pollers[i] = new NioPoller(i);
+            }
+        } catch (IOException | GeneralSecurityException e) {
             logger.error("Failed to initialize {}", getName(), e);
             throw e;
         }
@@ -60,51 +130,207 @@ public class NioConnector implements ServerConnector<SelectionKey> {
     @Override
     public void start() throws Exception {
         running = true;
-        serverChannel.socket().bind(new InetSocketAddress(config.getServer().getPort()),
-                config.getServer().getNio().getBacklog());
-        // 注册到Selector
-        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        for (NioAcceptor acceptor : acceptors) {
+            acceptor.bind();
+        }
+        // 连接数从上限回落时唤醒acceptor恢复accept
+        limiter.setOnAvailable(() -> {
+            for (NioAcceptor acceptor : acceptors) {
+                acceptor.wakeup();
+            }
+        });
 
-        acceptor.start();
+        for (NioPoller poller : pollers) {
+            poller.start();
+        }
+        for (NioAcceptor acceptor : acceptors) {
+            acceptor.start();
+        }
+        logger.info("{} started with {} acceptor(s) and {} poller(s){}{}", getName(), acceptors.length, pollers.length,
+                sslContextFactory == null ? "" : ", TLS enabled",
+                uds ? ", unix domain socket " + config.getServer().getUds().getPath() : "");
     }
 
     @Override
     public void stop() throws Exception {
         running = false;
         // 唤醒selector以响应停止信号
-        selector.wakeup();
+        for (NioAcceptor acceptor : acceptors) {
+            if (acceptor != null) {
+                acceptor.wakeup();
+            }
+        }
+        for (NioPoller poller : pollers) {
+            if (poller != null) {
+                poller.wakeup();
+            }
+        }
     }
 
     @Override
     public void destroy() throws Exception {
-        acceptor.interrupt();
-        // 关闭所有客户端连接
-        if (selector != null && selector.isOpen()) {
-            for (SelectionKey key : selector.keys()) {
-                try {
-                    key.channel().close();
-                } catch (IOException e) {
-                    logger.error("Error closing channel: {}", e.getMessage());
+        for (NioAcceptor acceptor : acceptors) {
+            if (acceptor != null) {
+                acceptor.interrupt();
+                acceptor.close();
+            }
+        }
+        for (NioPoller poller : pollers) {
+            if (poller != null) {
+                poller.interrupt();
+                poller.close();
+            }
+        }
+    }
+
+    /**
+     * 是否监听Unix domain socket，当前JDK不支持时忽略配置
+     */
+    private static boolean udsEnabled(Config config) {
+        if (!config.getServer().udsEnabled()) {
+            return false;
+        }
+        if (!UnixDomainSockets.isSupported()) {
+            logger.warn("Unix domain sockets require JDK 16+ (java={}), ignoring server.uds.path",
+                    System.getProperty("java.version"));
+            return false;
+        }
+        return true;
+    }
+
+    private static ServerSocketChannel tcpChannel(boolean reusePort) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        if (reusePort) {
+            // 多个监听socket绑定同一个端口
+            ReusePort.enable(channel);
+        }
+        return channel;
+    }
+
+    /**
+     * 在时间轮中注册连接的keep-alive超时，超时后关闭连接
+     */
+    private void scheduleTimeout(Sock<SelectionKey> sock) {
+        int keepAliveTime = config.getHttp().getKeepAliveTime();
+        sock.setTimeout(timerWheel.schedule(() -> expire(sock), keepAliveTime < 0 ? -1 : keepAliveTime * 1000L));
+    }
+
+    private void expire(Sock<SelectionKey> sock) {
+        try {
+            sock.close();
+        } catch (Exception e) {
+            logger.error("remove sock failed", e);
+        }
+    }
+
+    /**
+     * 为新连接选择一个poller
+     */
+    private NioPoller nextPoller() {
+        if (pollers.length == 1) {
+            return pollers[0];
+        }
+        ServerConfig.NioConfig nioConfig = config.getServer().getNio();
+        if (nioConfig.leastLoadEnabled()) {
+            NioPoller selected = pollers[0];
+            for (int i = 1; i < pollers.length; i++) {
+                if (pollers[i].load() < selected.load()) {
+                    selected = pollers[i];
                 }
             }
-            selector.close();
+            return selected;
         }
+        return pollers[Math.abs(pollerRotater.getAndIncrement() % pollers.length)];
+    }
 
-        // 关闭服务器Socket
-        if (serverChannel != null && serverChannel.isOpen()) {
-            serverChannel.close();
+    /**
+     * 返回503并关闭连接
+     */
+    private void reject(Sock<SelectionKey> sock) {
+        SocketChannel channel = (SocketChannel) sock.source().channel();
+        if (sock.ssl() != null && !sock.ssl().isHandshakeComplete()) {
+            // 握手未完成时无法发送加密的响应，直接关闭连接
+            expire(sock);
+            return;
+        }
+        try {
+            // 先读出已到达的请求数据，避免接收缓冲区中还有数据时关闭连接发送RST，导致客户端收不到响应
+            ByteBuffer discard = ByteBuffer.allocate(8192);
+            for (int i = 0; i < 8 && channel.read(discard) > 0; i++) {
+                discard.clear();
+            }
+            sock.outbound().write(ByteBuffer.wrap(dispatcher.rejectResponse()));
+        } catch (IOException ignore) {
+        }
+        try {
+            sock.close();
+        } catch (Exception e) {
+            logger.error("remove sock failed", e);
         }
     }
 
+    /**
+     * 只负责accept新连接，并把连接交给poller，每个acceptor持有独立的监听socket和Selector
+     */
     class NioAcceptor extends Thread {
-        public NioAcceptor() {
-            super("Acceptor");
+        private final Selector selector;
+        private final ServerSocketChannel serverChannel;
+        private final SocketAddress address;
+        // Unix domain socket的socket文件，TCP监听为null
+        private final Path socketFile;
+        private SelectionKey serverKey;
+        // 是否因为连接数达到上限暂停了accept，只在acceptor线程中访问
+        private boolean paused;
+
+        NioAcceptor(String name, ServerSocketChannel serverChannel, SocketAddress address, Path socketFile)
+                throws IOException {
+            super(name);
+            this.selector = Selector.open();
+            this.serverChannel = serverChannel;
+            this.address = address;
+            this.socketFile = socketFile;
+            serverChannel.configureBlocking(false);
+        }
+
+        void bind() throws IOException {
+            if (socketFile != null) {
+                // 上次异常退出时残留的socket文件会导致绑定失败
+                Files.deleteIfExists(socketFile);
+            }
+            serverChannel.bind(address, config.getServer().getNio().getBacklog());
+            // 注册到Selector
+            serverKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        }
+
+        void wakeup() {
+            selector.wakeup();
+        }
+
+        void close() {
+            try {
+                if (selector.isOpen()) {
+                    selector.close();
+                }
+                // 关闭服务器Socket
+                if (serverChannel.isOpen()) {
+                    serverChannel.close();
+                }
+                if (socketFile != null) {
+                    Files.deleteIfExists(socketFile);
+                }
+            } catch (IOException e) {
+                logger.error("Error closing acceptor: {}", e.getMessage());
+            }
         }
 
         @Override
         public void run() {
             while (running) {
                 try {
+                    if (paused && !limiter.isFull()) {
+                        paused = false;
+                        serverKey.interestOps(SelectionKey.OP_ACCEPT);
+                    }
                     if (selector.select(100) == 0) {
                         continue;
                     }
@@ -114,17 +340,13 @@ public class NioConnector implements ServerConnector<SelectionKey> {
                         SelectionKey key = keyIterator.next();
                         keyIterator.remove();
 
-                        if (!key.isValid()) {
-                            continue;
-                        }
-
-                        if (key.isAcceptable()) {
+                        if (key.isValid() && key.isAcceptable()) {
                             handleAccept(key);
-                        } else if (key.isReadable()) {
-                            handleRead(key);
                         }
                     }
 
+                } catch (ClosedSelectorException e) {
+                    break;
                 } catch (IOException e) {
                     if (running) {
                         logger.error("Error accepting connection", e);
@@ -137,40 +359,284 @@ public class NioConnector implements ServerConnector<SelectionKey> {
         private void handleAccept(SelectionKey key) throws IOException {
             ServerSocketChannel serverChannel = (ServerSocketChannel) key.channel();
             SocketChannel clientChannel = serverChannel.accept();
+            if (clientChannel == null) {
+                return;
+            }
             clientChannel.configureBlocking(false);
+            if (limiter.increment()) {
+                // 达到最大连接数，新连接留在backlog中，直到有连接关闭
+                paused = true;
+                key.interestOps(0);
+                logger.debug("Max connections {} reached, pausing accept", config.getServer().getMaxConnections());
+            }
+
+            // 交给poller注册读事件
+            nextPoller().register(clientChannel);
+        }
+    }
+
+    /**
+     * 持有独立Selector的读写事件分发线程
+     */
+    class NioPoller extends Thread {
+        private final Selector pollerSelector;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        private final Queue<SelectionKey> rearms = new ConcurrentLinkedQueue<>();
+        private final Queue<OutboundQueue> writeRequests = new ConcurrentLinkedQueue<>();
+        // 有排队数据等待写出的连接，只在poller线程中访问
+        private final Map<SelectionKey, OutboundQueue> writers = new HashMap<>();
+
+        NioPoller(int index) throws IOException {
+            super("Poller-" + index);
+            this.pollerSelector = Selector.open();
+        }
+
+        /**
+         * 由acceptor调用，注册动作延迟到poller线程中执行，避免与select竞争
+         */
+        void register(SocketChannel channel) {
+            registrations.offer(channel);
+            pollerSelector.wakeup();
+        }
 
-            // 注册读事件
-            clientChannel.register(selector, SelectionKey.OP_READ);
+        /**
+         * 由worker调用，请求处理完成后重新关注读事件
+         */
+        void rearm(SelectionKey key) {
+            rearms.offer(key);
+            pollerSelector.wakeup();
         }
 
-        private Sock<SelectionKey> fromKey(SelectionKey key) {
-            if (socks.isEmpty()) return Sock.from(key);
-            for (Sock<SelectionKey> sock : socks) {
-                SelectionKey k = sock.source();
-                if (k.equals(key)) return sock;
+        /**
+         * 由写线程调用，出站队列有排队数据或等待可写时请求关注写事件
+         */
+        void requestWrite(OutboundQueue outbound) {
+            writeRequests.offer(outbound);
+            pollerSelector.wakeup();
+        }
+
+        void wakeup() {
+            pollerSelector.wakeup();
+        }
+
+        /**
+         * 当前poller负责的连接数（近似值）
+         */
+        int load() {
+            return pollerSelector.keys().size() + registrations.size();
+        }
+
+        private void processEvents() {
+            SocketChannel channel;
+            while ((channel = registrations.poll()) != null) {
+                try {
+                    SelectionKey key = channel.register(pollerSelector, SelectionKey.OP_READ);
+                    // 注册时即创建连接并开始计算超时，避免只连接不发送数据的连接一直存在
+                    socks.add(newSock(key, channel.getLocalAddress() instanceof InetSocketAddress));
+                } catch (IOException | RuntimeException e) {
+                    logger.error("Error registering channel", e);
+                    limiter.decrement();
+                    try {
+                        channel.close();
+                    } catch (IOException ignore) {
+                    }
+                }
+            }
+
+            OutboundQueue outbound;
+            while ((outbound = writeRequests.poll()) != null) {
+                SelectionKey key = outbound.key();
+                if (key.channel().isOpen() && key.isValid()) {
+                    try {
+                        writers.put(key, outbound);
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    } catch (CancelledKeyException e) {
+                        writers.remove(key);
+                    }
+                }
+            }
+
+            SelectionKey key;
+            while ((key = rearms.poll()) != null) {
+                if (key.channel().isOpen() && key.isValid()) {
+                    try {
+                        OutboundQueue writer = writers.get(key);
+                        if (writer == null) {
+                            key.interestOps(SelectionKey.OP_READ);
+                        } else if (writer.isClosing()) {
+                            // 连接等待排队数据写完后关闭，不再读取新请求
+                            key.interestOps(SelectionKey.OP_WRITE);
+                        } else {
+                            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        }
+                    } catch (CancelledKeyException e) {
+                        // 忽略已取消的key
+                    }
+                }
             }
-            return Sock.from(key);
         }
 
+        /**
+         * channel可写时继续写出排队数据，全部写出后取消关注写事件
+         */
+        private void handleWrite(SelectionKey key) {
+            OutboundQueue outbound = writers.get(key);
+            if (outbound == null) {
+                try {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                } catch (CancelledKeyException e) {
+                    // 连接已被worker或超时关闭
+                }
+                return;
+            }
+            try {
+                if (outbound.flush()) {
+                    writers.remove(key);
+                    if (key.isValid()) {
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                    }
+                }
+            } catch (IOException | CancelledKeyException e) {
+                writers.remove(key);
+                outbound.discard();
+                try {
+                    ((Sock<?>) key.attachment()).close();
+                } catch (Exception ignore) {
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    processEvents();
+                    if (pollerSelector.select(100) == 0) {
+                        continue;
+                    }
+
+                    Iterator<SelectionKey> keyIterator = pollerSelector.selectedKeys().iterator();
+                    while (keyIterator.hasNext() && running) {
+                        SelectionKey key = keyIterator.next();
+                        keyIterator.remove();
+
+                        try {
+                            if (key.isValid() && key.isWritable()) {
+                                handleWrite(key);
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                handleRead(key);
+                            }
+                        } catch (CancelledKeyException e) {
+                            // key在处理过程中被其他线程关闭连接时取消
+                        } catch (RuntimeException e) {
+                            // 单个连接的异常不能导致poller线程退出，否则该poller上的所有连接都无法继续处理
+                            logger.error("Error handling connection event", e);
+                            try {
+                                ((Sock<?>) key.attachment()).close();
+                            } catch (Exception ignore) {
+                            }
+                        }
+                    }
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (IOException e) {
+                    if (running) {
+                        logger.error("Error polling connection", e);
+                    }
+                }
+            }
+        }
+
+        void close() {
+            // 关闭所有客户端连接
+            for (OutboundQueue outbound : writers.values()) {
+                outbound.discard();
+            }
+            if (pollerSelector.isOpen()) {
+                for (SelectionKey key : pollerSelector.keys()) {
+                    try {
+                        key.channel().close();
+                    } catch (IOException e) {
+                        logger.error("Error closing channel: {}", e.getMessage());
+                    }
+                }
+                try {
+                    pollerSelector.close();
+                } catch (IOException e) {
+                    logger.error("Error closing selector: {}", e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 创建连接并作为attachment绑定到key上，Unix domain socket连接不使用TLS
+         */
+        private Sock<SelectionKey> newSock(SelectionKey key, boolean tcp) {
+            Sock<SelectionKey> sock = Sock.from(key,
+                    sslContextFactory == null || !tcp ? null : sslContextFactory.createEngine());
+            OutboundQueue outbound = sock.outbound();
+            outbound.setWriteInterest(() -> requestWrite(outbound));
+            sock.setCloseListener(() -> {
+                socks.remove(sock);
+                limiter.decrement();
+            });
+            scheduleTimeout(sock);
+            key.attach(sock);
+            return sock;
+        }
+
+        /**
+         * 连接上复用的处理器，第一次处理请求时创建，请求和响应对象在keep-alive的多个请求之间回收复用
+         */
+        private NioProcessor processor(Sock<SelectionKey> sock) {
+            NioProcessor processor = (NioProcessor) sock.processor();
+            if (processor == null) {
+                processor = new NioProcessor(applicationContext, sock, dispatcher::dispatch);
+                sock.setProcessor(processor);
+            }
+            return processor;
+        }
+
+        @SuppressWarnings("unchecked")
         private void handleRead(SelectionKey key) {
-            // 检查key是否已经有处理中的任务
-            if (key.attachment() != null) {
+            Sock<SelectionKey> sock = (Sock<SelectionKey>) key.attachment();
+            // 检查连接是否已经有处理中的任务
+            if (sock.isProcessing()) {
                 return;
             }
 
-            // 标记该key正在处理中
-            key.attach(Boolean.TRUE);
+            // 标记连接正在处理中，处理期间不再关注读事件，避免selector空转；仍有排队数据时继续关注写事件
+            sock.setProcessing(true);
+            try {
+                key.interestOps(writers.containsKey(key) ? SelectionKey.OP_WRITE : 0);
+            } catch (CancelledKeyException e) {
+                // 连接已被worker或超时关闭，不再处理
+                sock.setProcessing(false);
+                return;
+            }
 
             Runnable task = () -> {
-                try (NioProcessor processor = new NioProcessor(applicationContext, fromKey(key))) {
-                    Sock<SelectionKey> sock = processor.sock();
-                    if (sock.wsProcessor() == null) {
-                        int process = processor.process();
+                try {
+                    NioProcessor processor = processor(sock);
+                    if (sock.http2() != null) {
+                        // HTTP/2连接：读取并处理帧，流交给worker并发处理
+                        if (sock.http2().process() == -1) {
+                            processor.destroy();
+                        }
+                    } else if (sock.wsProcessor() == null) {
+                        // HTTP/1.1 pipelining：缓冲区中还有后续请求时继续处理，响应按顺序写回
+                        int process;
+                        do {
+                            process = processor.process();
+                        } while (process == 0 && sock.wsProcessor() == null && sock.http2() == null
+                                && sock.parser().hasRemaining());
+                        if (process == 0 && sock.http2() != null) {
+                            // 刚切换到HTTP/2，处理已经到达的帧
+                            process = sock.http2().process();
+                        }
                         if (process == -1) {
                             processor.destroy();
-                            socks.remove(sock);
-                        } else {
-                            socks.add(sock);
                         }
                     } else {
                         if (sock.wsProcessor().process() == -1) {
@@ -182,24 +648,16 @@ public class NioConnector implements ServerConnector<SelectionKey> {
                     logger.error("Error processing request", e);
                 } finally {
                     // 清除处理中标记，允许下次读取
-                    key.attach(null);
+                    sock.setProcessing(false);
 
-                    // 如果channel还是打开的，重新注册读事件
+                    // 如果channel还是打开的，交给poller重新注册读事件
                     if (key.channel().isOpen() && key.isValid()) {
-                        try {
-                            key.interestOps(SelectionKey.OP_READ);
-                        } catch (CancelledKeyException e) {
-                            // 忽略已取消的key
-                        }
+                        rearm(key);
                     }
                 }
             };
 
-            if (config.getServer().getWorker().isEnabled() && worker != null) {
-                worker.execute(task);
-            } else {
-                task.run();
-            }
+            dispatcher.dispatch(task, () -> reject(sock));
         }
     }
 }
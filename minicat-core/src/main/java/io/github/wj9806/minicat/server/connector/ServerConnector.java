@@ -20,4 +20,19 @@ public interface ServerConnector<S> extends Lifecycle {
      * 获取当前正在运行的处理器
      */
     Collection<Sock<S>> getSocks();
+
+    /**
+     * 当前连接数
+     */
+    int getConnectionCount();
+
+    /**
+     * 因过载返回503的请求数
+     */
+    long getRejectedCount();
+
+    /**
+     * worker中排队等待执行的任务数
+     */
+    int getQueuedCount();
 }
@@ -0,0 +1,89 @@
+package io.github.wj9806.minicat.server.connector;
+
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.server.thread.WorkerExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 把连接或请求的处理任务提交给worker，并按server.overload处理worker过载
+ * 1. queue：任务在worker队列中等待，开始执行时已超过queueTimeout则不再处理，改为返回503
+ * 2. reject：worker没有空闲的执行能力时立即返回503
+ * 3. 两种策略下worker队列已满时都返回503，servlet代码不会在I/O线程中执行
+ */
+class WorkerDispatcher {
+
+    private static final String REJECT_BODY = "Service Unavailable";
+
+    private final Config config;
+    private final WorkerExecutor worker;
+    private final LongAdder rejected = new LongAdder();
+    private final byte[] rejectResponse;
+
+    WorkerDispatcher(WorkerExecutor worker, Config config) {
+        this.worker = worker;
+        this.config = config;
+        this.rejectResponse = ("HTTP/1.1 503 Service Unavailable\r\n" +
+                "Retry-After: " + config.getServer().getOverload().getRetryAfter() + "\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "Content-Length: " + REJECT_BODY.length() + "\r\n" +
+                "Connection: close\r\n\r\n" +
+                REJECT_BODY).getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @param task 处理任务
+     * @param reject 过载时执行的动作，负责返回503并关闭连接，可能在I/O线程或worker线程中执行
+     */
+    void dispatch(Runnable task, Runnable reject) {
+        if (!config.getServer().getWorker().isEnabled() || worker == null) {
+            task.run();
+            return;
+        }
+        ServerConfig.OverloadConfig overload = config.getServer().getOverload();
+        if (overload.rejectEnabled() && worker.isSaturated()) {
+            reject(reject);
+            return;
+        }
+        Runnable command = task;
+        long queueTimeout = overload.getQueueTimeout();
+        if (!overload.rejectEnabled() && queueTimeout > 0) {
+            long deadline = System.currentTimeMillis() + queueTimeout;
+            command = () -> {
+                if (System.currentTimeMillis() > deadline) {
+                    reject(reject);
+                } else {
+                    task.run();
+                }
+            };
+        }
+        try {
+            worker.execute(command);
+        } catch (RejectedExecutionException e) {
+            reject(reject);
+        }
+    }
+
+    private void reject(Runnable reject) {
+        rejected.increment();
+        reject.run();
+    }
+
+    /**
+     * 过载时返回的503响应
+     */
+    byte[] rejectResponse() {
+        return rejectResponse;
+    }
+
+    long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    int getQueuedCount() {
+        return worker == null ? 0 : worker.getQueuedCount();
+    }
+}
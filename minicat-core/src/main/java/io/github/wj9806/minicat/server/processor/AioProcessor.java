@@ -0,0 +1,68 @@
+package io.github.wj9806.minicat.server.processor;
+
+import io.github.wj9806.minicat.core.ApplicationContext;
+import io.github.wj9806.minicat.http.ApplicationResponse;
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.io.AsyncChannelOutputStream;
+import io.github.wj9806.minicat.net.Sock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.AsynchronousSocketChannel;
+
+/**
+ * AIO模式的请求处理器
+ * 请求数据由连接器的异步读直接写入解析器的缓冲区，响应放入连接的异步出站写队列
+ */
+public class AioProcessor extends Processor<AsynchronousSocketChannel> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AioProcessor.class);
+
+    public AioProcessor(ApplicationContext applicationContext, Sock<AsynchronousSocketChannel> s) {
+        super(applicationContext, s);
+        this.hos = new AsyncChannelOutputStream(s.asyncOutbound());
+    }
+
+    @Override
+    protected ApplicationResponse buildResponse(ApplicationContext applicationContext) {
+        return new ApplicationResponse(applicationContext, hos);
+    }
+
+    /**
+     * 数据已经由异步读写入缓冲区，请求不完整时返回0，由连接器发起下一次异步读
+     */
+    @Override
+    protected int fill(RequestParser parser) {
+        return 0;
+    }
+
+    @Override
+    protected void sendNotFoundResponse() throws Exception {
+        String notFoundResponse = notFoundResponse();
+        hos.write(notFoundResponse.getBytes());
+        hos.flush();
+    }
+
+    @Override
+    protected void sendErrorResponse(String message) throws Exception {
+        String errorResponse = errorResponse(message);
+        hos.write(errorResponse.getBytes());
+        hos.flush();
+    }
+
+    @Override
+    protected Logger logger() {
+        return logger;
+    }
+
+    public void close() throws IOException {
+        hos.close();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        close();
+        sock.close();
+    }
+}
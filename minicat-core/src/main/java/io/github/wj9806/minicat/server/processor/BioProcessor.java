@@ -2,11 +2,11 @@ package io.github.wj9806.minicat.server.processor;
 
 import io.github.wj9806.minicat.core.ApplicationContext;
 import io.github.wj9806.minicat.http.ApplicationResponse;
+import io.github.wj9806.minicat.http.RequestParser;
 import io.github.wj9806.minicat.net.Sock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.servlet.http.HttpServletResponse;
 import java.io.*;
 import java.net.Socket;
 
@@ -35,36 +35,13 @@ public class BioProcessor extends Processor<Socket> {
     }
 
     @Override
-    protected Object allocTmpBuf() {
-        return new byte[1024];
-    }
-
-    @Override
-    protected HttpServletResponse buildResponse(ApplicationContext applicationContext) {
+    protected ApplicationResponse buildResponse(ApplicationContext applicationContext) {
         return new ApplicationResponse(applicationContext, hos);
     }
 
     @Override
-    protected int read(Object buf) throws IOException {
-        return his.read((byte[])buf);
-    }
-
-    @Override
-    protected void write(OutputStream os, Object buffer, int off, int len) throws IOException {
-        byte[] buf = (byte[]) buffer;
-        // 检查边界条件
-        if (os == null) {
-            throw new NullPointerException("ByteArrayOutputStream cannot be null");
-        }
-        if (buf == null) {
-            throw new NullPointerException("byte array cannot be null");
-        }
-        if (off < 0 || len < 0 || (off + len) > buf.length) {
-            throw new IndexOutOfBoundsException("Invalid offset or length");
-        }
-
-        // 直接将指定范围的数据写入ByteArrayOutputStream
-        os.write(buf, off, len);
+    protected int fill(RequestParser parser) throws IOException {
+        return parser.fill(his);
     }
 
     @Override
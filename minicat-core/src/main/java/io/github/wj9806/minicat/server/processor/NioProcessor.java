@@ -2,15 +2,17 @@ package io.github.wj9806.minicat.server.processor;
 
 import io.github.wj9806.minicat.core.ApplicationContext;
 import io.github.wj9806.minicat.http.ApplicationResponse;
+import io.github.wj9806.minicat.http.RequestParser;
+import io.github.wj9806.minicat.http2.Http2Connection;
+import io.github.wj9806.minicat.http2.StreamDispatcher;
 import io.github.wj9806.minicat.io.SocketChannelOutputStream;
 import io.github.wj9806.minicat.net.Sock;
+import io.github.wj9806.minicat.server.config.Config;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 
@@ -22,23 +24,42 @@ public class NioProcessor extends Processor<SelectionKey> implements AutoCloseab
 
     public final SocketChannel socketChannel;
 
+    // 读取请求数据的channel，TLS连接为解密后的SslChannel
+    private final ReadableByteChannel input;
+
+    // 把HTTP/2的流交给worker处理，为null时不支持HTTP/2
+    private final StreamDispatcher streamDispatcher;
+
     public NioProcessor(ApplicationContext applicationContext, Sock<SelectionKey> s) {
+        this(applicationContext, s, null);
+    }
+
+    public NioProcessor(ApplicationContext applicationContext, Sock<SelectionKey> s,
+                        StreamDispatcher streamDispatcher) {
         super(applicationContext, s);
         this.key = s.source();
         this.socketChannel = (SocketChannel) key.channel();
-        this.hos = new SocketChannelOutputStream(socketChannel);
+        this.input = s.ssl() != null ? s.ssl() : socketChannel;
+        this.hos = new SocketChannelOutputStream(s.outbound());
+        this.streamDispatcher = streamDispatcher;
     }
 
     @Override
-    protected HttpServletResponse buildResponse(ApplicationContext applicationContext) {
+    protected Http2Connection createHttp2Connection() {
+        if (streamDispatcher == null || !Config.getInstance().getHttp().getHttp2().isEnabled()) {
+            return null;
+        }
+        return new Http2Connection(applicationContext, sock, input, streamDispatcher);
+    }
+
+    @Override
+    protected ApplicationResponse buildResponse(ApplicationContext applicationContext) {
         return new ApplicationResponse(applicationContext, hos);
     }
 
     @Override
-    protected int read(Object buf) throws IOException {
-        ByteBuffer buffer = (ByteBuffer)buf;
-        buffer.clear();
-        return socketChannel.read(buffer);
+    protected int fill(RequestParser parser) throws IOException {
+        return parser.fill(input);
     }
 
     @Override
@@ -60,31 +81,6 @@ public class NioProcessor extends Processor<SelectionKey> implements AutoCloseab
         return logger;
     }
 
-    protected Object allocTmpBuf() {
-        return ByteBuffer.allocate(BUFFER_SIZE);
-    }
-
-    @Override
-    protected void write(OutputStream os, Object buffer, int off, int len) throws IOException {
-        ByteBuffer buf = (ByteBuffer) buffer;
-        buf.flip();
-        // 检查边界条件
-        if (off < 0 || len < 0 || (off + len) > buf.limit()) {
-            throw new IndexOutOfBoundsException("Invalid offset or length");
-        }
-
-        byte[] tempBuffer = new byte[Math.min(BUFFER_SIZE, len)]; // 使用一个较小的临时缓冲区
-        buf.position(off);
-        int bytesCopied = 0;
-
-        while (bytesCopied < len) {
-            int bytesToRead = Math.min(tempBuffer.length, len - bytesCopied);
-            buf.get(tempBuffer, 0, bytesToRead);
-            os.write(tempBuffer, 0, bytesToRead);
-            bytesCopied += bytesToRead;
-        }
-    }
-
     public void close() throws IOException {
         hos.close();
     }
@@ -5,6 +5,8 @@ import io.github.wj9806.minicat.core.Lifecycle;
 import io.github.wj9806.minicat.core.event.EventType;
 import io.github.wj9806.minicat.core.event.ServletRequestEventObject;
 import io.github.wj9806.minicat.http.*;
+import io.github.wj9806.minicat.http2.Http2Connection;
+import io.github.wj9806.minicat.io.NioUtil;
 import io.github.wj9806.minicat.net.Sock;
 import io.github.wj9806.minicat.server.IProcessor;
 import org.slf4j.Logger;
@@ -13,42 +15,48 @@ import javax.servlet.FilterChain;
 import javax.servlet.Servlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.InetSocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.Enumeration;
 
 /**
  * 请求处理器接口
  */
 public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
-    static final int BUFFER_SIZE = 1024;
 
     protected final ApplicationContext applicationContext;
     protected final Sock<S> sock;
 
+    private static final byte[] PAYLOAD_TOO_LARGE_RESPONSE = ("HTTP/1.1 413 Payload Too Large\r\n" +
+            "Content-Type: text/html\r\n" +
+            "Content-Length: 30\r\n" +
+            "Connection: close\r\n\r\n" +
+            "<h1>413 Payload Too Large</h1>").getBytes(StandardCharsets.ISO_8859_1);
+
     protected OutputStream hos;
 
+    // 同一连接上依次处理的请求复用的请求和响应对象，每个请求结束后回收
+    private ApplicationRequest request;
+    private ApplicationResponse response;
+
     public Processor(ApplicationContext applicationContext, Sock<S> sock) {
         this.applicationContext = applicationContext;
         this.sock = sock;
     }
 
-    protected abstract HttpServletResponse buildResponse(ApplicationContext applicationContext);
-
     /**
-     * 从socket中读取数据到buf中
+     * 创建响应对象，每个处理器只创建一次，之后的请求回收后复用
      */
-    protected abstract int read(Object buf) throws IOException;
+    protected abstract ApplicationResponse buildResponse(ApplicationContext applicationContext);
 
     /**
-     * 把buf的数据写入到ByteArrayOutputStream
+     * 从socket中读取数据到解析器的缓冲区中
+     * @return 读取的字节数，-1表示连接已关闭，0表示暂无可读数据（非阻塞模式）
      */
-    protected abstract void write(OutputStream os, Object buf, int off, int len) throws IOException;
+    protected abstract int fill(RequestParser parser) throws IOException;
 
     protected abstract void sendNotFoundResponse() throws Exception;
 
@@ -56,14 +64,12 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
 
     protected abstract Logger logger();
 
-    protected abstract Object allocTmpBuf();
-
     public Sock<S> sock() {
         return sock;
     }
 
     public void send(ByteBuffer buf) throws IOException {
-        hos.write(buf.array());
+        NioUtil.write(buf, hos);
     }
 
     public void flush() throws IOException {
@@ -71,12 +77,29 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
     }
 
     public int process() throws Exception {
-        HttpServletRequest servletRequest = null;
+        // 交给应用的外观，每个请求新建，请求结束后失效
+        RequestFacade servletRequest = null;
+        ResponseFacade servletResponse = null;
+        ApplicationResponse response = null;
         try {
-            // 创建Request和Response对象
-            HttpServletResponse servletResponse = buildResponse(applicationContext);
             try {
-                servletRequest = buildRequest(sock, applicationContext, servletResponse);
+                if (!readRequest(sock.parser())) {
+                    // 请求尚未读取完整，等待下一次读事件
+                    return 1;
+                }
+                if (upgradeToHttp2(sock.parser())) {
+                    // 之后连接上的数据按HTTP/2帧处理
+                    return 0;
+                }
+                // 请求读取完整后才准备Request和Response对象，响应体缓冲区在第一次写入时才获取
+                response = response();
+                servletResponse = new ResponseFacade(response);
+                servletRequest = new RequestFacade(buildRequest(sock, applicationContext, response));
+            } catch (RequestBodyTooLargeException e) {
+                // 请求体还未读取，无法继续解析后续请求，返回413后关闭连接
+                logger().debug(e.getMessage());
+                sendPayloadTooLargeResponse();
+                return -1;
             } catch (SocketCloseException | RequestParseException | SocketException e) {
                 return -1;
             } catch (Exception e) {
@@ -110,17 +133,23 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
                         FilterChain filterChain = applicationContext.buildFilterChain(servletRequest, servlet);
                         filterChain.doFilter(servletRequest, servletResponse);
 
-                        if (!servletResponse.isCommitted()) {
-                            servletResponse.flushBuffer();
-                        }
+                        // 发送剩余的响应体，chunked编码时发送结束块
+                        response.finishResponse();
                     } catch (Exception e) {
                         logger().error("Error processing request", e);
+                        if (response.isCommitted()) {
+                            // 响应已部分发送，无法再返回错误响应，只能关闭连接
+                            return -1;
+                        }
                         sendErrorResponse(e.getMessage());
                     }
                 }
             }
 
-            if (keepAlive(servletRequest))
+            // keep-alive超时从响应完成时开始计算
+            sock.freshLastProcess();
+            if (keepAlive(servletRequest)
+                    && !"close".equalsIgnoreCase(response.getHeader(HttpHeaders.CONNECTION)))
                 return 0;
             else
                 return -1;
@@ -131,9 +160,7 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
             try {
                 if (servletRequest != null) {
                     // 调用请求销毁方法
-                    if (servletRequest instanceof Lifecycle) {
-                        ((Lifecycle)servletRequest).destroy();
-                    }
+                    request.destroy();
                     // 发布销毁事件
                     applicationContext.publishEvent(new ServletRequestEventObject(
                             applicationContext, servletRequest, EventType.SERVLET_REQUEST_DESTROYED));
@@ -141,94 +168,133 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
             } catch (Exception e) {
                 logger().error("Error while cleaning up request resources", e);
             }
+            if (response != null) {
+                recycle(servletRequest, servletResponse, response);
+            }
         }
     }
 
-    protected HttpServletRequest buildRequest(Sock<S> socket, ApplicationContext applicationContext,
-                                              HttpServletResponse servletResponse) throws IOException {
-        ByteArrayOutputStream headerOutputStream = new ByteArrayOutputStream();
-        ByteArrayOutputStream bodyOutputStream = new ByteArrayOutputStream();
-
-        // 状态标记
-        boolean headersComplete = false;
-        int contentLength = -1;
-        ApplicationRequest servletRequest = null;
-
-        Object buffer = allocTmpBuf();
-        int len;
-        int totalBodyRead = 0;
-
-        // 读取并解析请求
-        while ((len = read(buffer)) != -1) {
-            if (!headersComplete) {
-                // 还在处理请求头
-                write(headerOutputStream, buffer, 0, len);
-                String headers = headerOutputStream.toString(StandardCharsets.UTF_8.name());
-                int headerEnd = headers.indexOf("\r\n\r\n");
-
-                if (headerEnd != -1) {
-                    // 找到请求头结束标记
-                    headersComplete = true;
-
-                    // 解析请求头部分
-                    String headerContent = headers.substring(0, headerEnd);
-                    String[] lines = headerContent.split("\r\n");
-
-                    // 创建request对象并设置基本信息
-                    servletRequest = new ApplicationRequest(applicationContext, socket, lines);
-                    prepareHeaders(lines, servletRequest);
-                    prepareRemoteInfo(socket, servletRequest);
-                    prepareLocalInfo(socket, servletRequest);
-                    prepareServerInfo(socket, servletRequest);
-
-                    // 获取Content-Length
-                    contentLength = servletRequest.getIntHeader("Content-Length");
-                    if (contentLength <= 0) {
-                        break;  // 没有请求体，直接结束
-                    }
+    /**
+     * 请求结束后外观失效，连接上的请求和响应对象重置后留给下一个请求使用，响应体缓冲区归还到缓冲池
+     */
+    private void recycle(RequestFacade servletRequest, ResponseFacade servletResponse, ApplicationResponse response) {
+        if (servletRequest != null) {
+            servletRequest.recycle();
+        }
+        if (servletResponse != null) {
+            servletResponse.recycle();
+        }
+        if (request != null) {
+            request.recycle();
+        }
+        response.recycle();
+    }
 
-                    // 处理已经读取的body部分
-                    int headerBytesLength = headerEnd + 4; // 包含\r\n\r\n
-                    int remainingInBuffer = headerOutputStream.size() - headerBytesLength;
+    /**
+     * 连接上复用的响应对象，第一次使用时创建
+     */
+    private ApplicationResponse response() {
+        if (response == null) {
+            response = buildResponse(applicationContext);
+        }
+        return response;
+    }
 
-                    if (remainingInBuffer > 0) {
-                        bodyOutputStream.write(
-                                headerOutputStream.toByteArray(),
-                                headerBytesLength,
-                                remainingInBuffer
-                        );
-                        totalBodyRead += remainingInBuffer;
+    /**
+     * 使用连接上的解析器读取请求，解析状态在多次调用之间保留
+     * @return 是否已经读取到一个完整的请求
+     */
+    protected boolean readRequest(RequestParser parser) throws IOException {
+        // 先尝试解析缓冲区中已有的数据，不完整时再从socket读取
+        while (!parser.parse()) {
+            int len = fill(parser);
+            if (len == -1) {
+                throw new SocketCloseException();
+            }
+            if (len == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-                        if (totalBodyRead >= contentLength) {
-                            break;  // 已读完所需数据
-                        }
-                    }
-                }
-            } else {
-                // 处理请求体
-                int bytesToRead = Math.min(len, contentLength - totalBodyRead);
-                if (bytesToRead > 0) {
-                    write(bodyOutputStream, buffer, 0, bytesToRead);
-                    totalBodyRead += bytesToRead;
-
-                    if (totalBodyRead >= contentLength) {
-                        break;  // 已读完所需数据
-                    }
-                }
+    /**
+     * HTTP/2协议切换：收到连接前言（h2c prior knowledge或TLS上ALPN协商出h2）或者Upgrade: h2c请求
+     * @return 是否已切换到HTTP/2，切换后连接上的数据由{@link Http2Connection}处理
+     */
+    protected boolean upgradeToHttp2(RequestParser parser) throws IOException {
+        boolean preface = Http2Connection.isPreface(parser.getMethod(), parser.getRequestURI(), parser.getProtocol());
+        if (!preface && (sock.isSecure() || !Http2Connection.isUpgrade(parser.getHeaders()))) {
+            return false;
+        }
+        Http2Connection connection = createHttp2Connection();
+        if (connection == null) {
+            if (preface) {
+                throw new RequestParseException("HTTP/2 is not enabled");
             }
+            return false;
         }
+        if (preface) {
+            connection.startWithPreface(parser);
+        } else if (!connection.startWithUpgrade(parser, hos)) {
+            return false;
+        }
+        sock.setHttp2(connection);
+        return true;
+    }
+
+    /**
+     * 创建HTTP/2连接，连接器不支持或没有开启HTTP/2时返回null
+     */
+    protected Http2Connection createHttp2Connection() {
+        return null;
+    }
+
+    /**
+     * 使用解析器中已读取完整的请求构建请求对象
+     */
+    protected HttpServletRequest buildRequest(Sock<S> socket, ApplicationContext applicationContext,
+                                              HttpServletResponse servletResponse) throws IOException {
+        RequestParser parser = socket.parser();
 
-        if (len == -1) {
-            throw new SocketCloseException();
+        ApplicationRequest servletRequest;
+        try {
+            servletRequest = newRequest(socket, applicationContext, parser.getMethod(), parser.getRequestURI(),
+                    parser.getProtocol(), parser.getHeaders(), parser.body());
+        } finally {
+            parser.recycle();
         }
+        return prepareRequest(servletRequest, servletResponse);
+    }
 
-        if (servletRequest == null) {
-            throw new RequestParseException("Invalid HTTP request: headers not found");
+    /**
+     * 准备request对象并设置基本信息和请求体，request对象在处理器处理的多个请求之间复用
+     */
+    protected ApplicationRequest newRequest(Sock<S> socket, ApplicationContext applicationContext, String method,
+                                            String requestURI, String protocol, HttpHeaders headers, byte[] body) {
+        if (request == null) {
+            request = new ApplicationRequest(applicationContext);
         }
+        ApplicationRequest servletRequest = request;
+        servletRequest.setSock(socket);
+        servletRequest.setRequestLine(method, requestURI, protocol);
+        // 客户端、本地和服务器信息，认证信息以及cookie都在第一次访问时才从连接和请求头中解析
+        servletRequest.setHeaders(headers);
 
         // 设置请求体
-        byte[] bodyContent = bodyOutputStream.size() > 0 ? bodyOutputStream.toByteArray() : new byte[0];
-        servletRequest.setBody(bodyContent);
+        servletRequest.setBody(body);
+        return servletRequest;
+    }
+
+    /**
+     * 根据请求准备响应，multipart请求包装为MultipartHttpServletRequest
+     */
+    protected HttpServletRequest prepareRequest(ApplicationRequest servletRequest,
+                                                HttpServletResponse servletResponse) throws IOException {
+        // 根据Accept-Encoding确定是否对响应进行动态压缩
+        if (servletResponse instanceof ApplicationResponse) {
+            ((ApplicationResponse) servletResponse).prepare(servletRequest);
+        }
 
         // 如果是multipart请求，解析multipart内容
         String contentType = servletRequest.getContentType();
@@ -241,86 +307,30 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
         return servletRequest;
     }
 
-    private void prepareLocalInfo(Sock<S> socket, ApplicationRequest servletRequest) {
-        InetSocketAddress localAddress = socket.getLocalAddress();
-        String localAddr = localAddress.getAddress().getHostAddress();
-        String localName = socket.getLocalAddress().getHostName();
-        int localPort = localAddress.getPort();
-        servletRequest.setLocalInfo(localAddr, localName, localPort);
-    }
-
-    private void prepareServerInfo(Sock<S> socket, ApplicationRequest servletRequest) {
-        String serverName = "localhost";
-        int serverPort = 8080;
-        boolean isSecure;
-
-        try {
-            // 尝试从请求头中获取 Host
-            String host = servletRequest.getHeader("Host");
-            if (host != null) {
-                // 解析 Host 头，格式可能是：hostname:port 或 hostname
-                int colonIndex = host.indexOf(':');
-                if (colonIndex != -1) {
-                    serverName = host.substring(0, colonIndex);
-                    serverPort = Integer.parseInt(host.substring(colonIndex + 1));
-                } else {
-                    serverName = host;
-                    serverPort = 80;
+    /**
+     * 判断请求处理完后是否保持连接
+     * 1. 任一Connection头包含close则关闭
+     * 2. HTTP/1.1默认持久连接，HTTP/1.0需要显式的keep-alive
+     * 3. Connection可能有多个头，每个头也可能是逗号分隔的多个值，需要逐个检查
+     */
+    protected boolean keepAlive(HttpServletRequest servletRequest) {
+        boolean keepAlive = false;
+        Enumeration<String> connections = servletRequest.getHeaders(HttpHeaders.CONNECTION);
+        while (connections != null && connections.hasMoreElements()) {
+            String connection = connections.nextElement();
+            if (connection == null) continue;
+            for (String token : connection.split(",")) {
+                token = token.trim();
+                if ("close".equalsIgnoreCase(token)) {
+                    return false;
                 }
-            } else {
-                // 如果没有 Host 头，使用本地地址和端口
-                serverName = socket.getLocalAddress().getHostName();
-                serverPort = socket.getLocalAddress().getPort();
-            }
-        } catch (Exception e) {
-            // 解析失败时使用默认值，已在变量初始化时设置
-        }
-
-        // 检查是否是安全连接
-        isSecure = servletRequest.getProtocol() != null &&
-                servletRequest.getProtocol().toLowerCase().startsWith("https");
-
-        // 只调用一次 setServerInfo
-        servletRequest.setServerInfo(serverName, serverPort, isSecure);
-    }
-
-    private void prepareRemoteInfo(Sock<S> socket, ApplicationRequest servletRequest) {
-        InetSocketAddress remoteAddress = socket.getRemoteAddress();
-        servletRequest.setRemoteAddr(remoteAddress.getAddress().getHostAddress());
-        servletRequest.setRemoteHost(remoteAddress.getHostName());
-        servletRequest.setRemotePort(remoteAddress.getPort());
-
-        // 处理认证信息
-        String authHeader = servletRequest.getHeader("Authorization");
-        if (authHeader != null) {
-            int space = authHeader.indexOf(' ');
-            if (space > 0) {
-                String authType = authHeader.substring(0, space).toUpperCase();
-                servletRequest.setAuthType(authType);
-
-                // 如果是 Basic 认证，设置 remoteUser
-                if ("BASIC".equalsIgnoreCase(authType)) {
-                    try {
-                        String base64Credentials = authHeader.substring(space + 1).trim();
-                        String credentials = new String(Base64.getDecoder().decode(base64Credentials), StandardCharsets.UTF_8);
-                        String username = credentials.split(":")[0];
-                        servletRequest.setRemoteUser(username);
-                    } catch (Exception ignore) {
-                    }
+                if (HttpHeaders.KEEP_ALIVE.equalsIgnoreCase(token)
+                        || HttpHeaders.UPGRADE.equalsIgnoreCase(token)) {
+                    keepAlive = true;
                 }
             }
         }
-    }
-
-    private void prepareHeaders(String[] lines, ApplicationRequest servletRequest) {
-        HttpHeaders headers = HttpHeaders.parse(lines);
-        servletRequest.setHeaders(headers);
-    }
-
-    protected boolean keepAlive(HttpServletRequest servletRequest) {
-        String connection = servletRequest.getHeader("connection");
-        return HttpHeaders.KEEP_ALIVE.equalsIgnoreCase(connection)
-                || HttpHeaders.UPGRADE.equalsIgnoreCase(connection);
+        return keepAlive || !"HTTP/1.0".equalsIgnoreCase(servletRequest.getProtocol());
     }
 
 
@@ -331,6 +341,14 @@ public abstract class Processor<S> implements IProcessor<S>, Lifecycle {
                 "<h1>404 Not Found</h1>";
     }
 
+    /**
+     * 请求体超过maxBodySize
+     */
+    protected void sendPayloadTooLargeResponse() throws Exception {
+        hos.write(PAYLOAD_TOO_LARGE_RESPONSE);
+        hos.flush();
+    }
+
     String errorResponse(String message) {
         message = message == null ? "" : message;
         return "HTTP/1.1 500 Internal Server Error\r\n" +
@@ -0,0 +1,88 @@
+package io.github.wj9806.minicat.server.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于ForkJoinPool的work-stealing线程池
+ * 执行策略：
+ * 1. 并行度为parallelism，外部提交的任务分散到多个提交队列，空闲线程从其他线程的队列中窃取任务
+ * 2. 使用asyncMode（FIFO），适合互相独立的请求任务
+ * 3. 队列没有上限，适合处理时间短、不长时间阻塞的任务
+ */
+public class ForkJoinWorker implements WorkerExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinWorker.class);
+
+    private final ForkJoinPool pool;
+
+    public ForkJoinWorker(String namePrefix, int parallelism) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = p -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName(namePrefix + threadNumber.getAndIncrement());
+            return thread;
+        };
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), threadFactory, null, true);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        pool.execute(() -> {
+            try {
+                command.run();
+            } catch (Throwable t) {
+                // 异常抛出到ForkJoinPool会导致工作线程退出并重建
+                logger.error("Task execution failed", t);
+            }
+        });
+    }
+
+    @Override
+    public int getActiveCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount());
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return pool.getActiveThreadCount() + getQueuedCount() >= pool.getParallelism();
+    }
+
+    @Override
+    public void init() throws Exception {
+
+    }
+
+    @Override
+    public void start() throws Exception {
+
+    }
+
+    @Override
+    public void stop() throws Exception {
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(60, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("MiniCat fork-join worker has been terminated");
+    }
+
+    @Override
+    public void destroy() throws Exception {
+
+    }
+}
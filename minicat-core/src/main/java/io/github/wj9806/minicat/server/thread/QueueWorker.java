@@ -0,0 +1,172 @@
+package io.github.wj9806.minicat.server.thread;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于无锁MPMC队列的固定线程池
+ * 执行策略：
+ * 1. 启动时创建threadCount个线程，提交任务时放入无锁队列（ConcurrentLinkedQueue），不获取任何锁
+ * 2. 没有任务的线程登记到无锁的空闲栈后park，提交任务时从空闲栈弹出一个线程unpark，最近空闲的线程优先被唤醒
+ * 3. 排队任务数超过queueSize时抛出RejectedExecutionException，由连接器按server.overload处理
+ */
+public class QueueWorker implements WorkerExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(QueueWorker.class);
+
+    private final String namePrefix;
+    private final int queueSize;
+    private final WorkerThread[] threads;
+    private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    // 空闲线程栈，栈中可能有已经被唤醒的线程，弹出时通过WorkerThread.idle判断
+    private final ConcurrentLinkedDeque<WorkerThread> idleThreads = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean running;
+
+    /**
+     * @param threadCount 线程数
+     * @param queueSize 排队任务数上限
+     */
+    public QueueWorker(String namePrefix, int threadCount, int queueSize) {
+        this.namePrefix = namePrefix;
+        this.queueSize = Math.max(1, queueSize);
+        this.threads = new WorkerThread[Math.max(1, threadCount)];
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (!running) {
+            throw new RejectedExecutionException("MiniCat queue worker is not running");
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            throw new RejectedExecutionException("MiniCat queue worker is full");
+        }
+        queue.offer(command);
+        signal();
+    }
+
+    /**
+     * 唤醒一个空闲线程
+     */
+    private void signal() {
+        WorkerThread thread;
+        while ((thread = idleThreads.pollFirst()) != null) {
+            if (thread.idle.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return active.get() + queued.get() >= threads.length;
+    }
+
+    @Override
+    public void init() throws Exception {
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new WorkerThread(namePrefix + (i + 1));
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        running = true;
+        for (WorkerThread thread : threads) {
+            thread.start();
+        }
+    }
+
+    @Override
+    public void stop() throws Exception {
+        running = false;
+        for (WorkerThread thread : threads) {
+            LockSupport.unpark(thread);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        try {
+            for (WorkerThread thread : threads) {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                if (thread.isAlive()) {
+                    thread.interrupt();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (WorkerThread thread : threads) {
+                thread.interrupt();
+            }
+            Thread.currentThread().interrupt();
+        }
+        logger.info("MiniCat queue worker has been terminated");
+    }
+
+    @Override
+    public void destroy() throws Exception {
+
+    }
+
+    private final class WorkerThread extends Thread {
+        // 是否已登记为空闲，由唤醒方或线程自身通过CAS清除
+        private final AtomicBoolean idle = new AtomicBoolean();
+
+        WorkerThread(String name) {
+            super(name);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task = queue.poll();
+                if (task != null) {
+                    queued.decrementAndGet();
+                    runTask(task);
+                    continue;
+                }
+                // 停止后先执行完队列中剩余的任务
+                if (!running) {
+                    break;
+                }
+                if (idle.compareAndSet(false, true)) {
+                    idleThreads.offerFirst(this);
+                }
+                // 登记为空闲之后再检查一次队列，避免与execute之间丢失唤醒
+                if (!queue.isEmpty()) {
+                    idle.compareAndSet(true, false);
+                    continue;
+                }
+                LockSupport.park(this);
+            }
+        }
+
+        private void runTask(Runnable task) {
+            active.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                logger.error("Task execution failed", t);
+            } finally {
+                active.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.wj9806.minicat.server.thread;
+
+import io.github.wj9806.minicat.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 虚拟线程执行器（JDK 21+）
+ * 执行策略：
+ * 1. 每个任务在一个新的虚拟线程中执行，不复用线程，阻塞的servlet代码不占用平台线程
+ * 2. 同时执行的任务数超过maxConcurrency时，新任务的虚拟线程在信号量上等待，提交任务的I/O线程不会被阻塞
+ */
+public class VirtualThreadWorker extends AbstractExecutorService implements WorkerExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadWorker.class);
+
+    private final ThreadFactory threadFactory;
+    // 同时执行的任务数上限，为null表示不限制
+    private final Semaphore permits;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private final Object terminationLock = new Object();
+    private volatile boolean shutdown;
+
+    /**
+     * @param namePrefix 线程名前缀
+     * @param maxConcurrency 同时执行的任务数上限，小于等于0表示不限制
+     */
+    public VirtualThreadWorker(String namePrefix, int maxConcurrency) {
+        this.threadFactory = VirtualThreads.newThreadFactory(namePrefix);
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("MiniCat virtual thread worker has been shut down");
+        }
+        Thread thread = threadFactory.newThread(() -> run(command));
+        threads.add(thread);
+        thread.start();
+    }
+
+    private void run(Runnable command) {
+        boolean acquired = false;
+        try {
+            if (permits != null) {
+                permits.acquire();
+                acquired = true;
+            }
+            command.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable t) {
+            logger.error("Task execution failed", t);
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+            threads.remove(Thread.currentThread());
+            if (shutdown && threads.isEmpty()) {
+                synchronized (terminationLock) {
+                    terminationLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return Math.max(0, threads.size() - getQueuedCount());
+    }
+
+    /**
+     * 在信号量上等待执行的任务数
+     */
+    @Override
+    public int getQueuedCount() {
+        return permits == null ? 0 : permits.getQueueLength();
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return permits != null && permits.availablePermits() <= 0;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        return new ArrayList<>();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && threads.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (terminationLock) {
+            while (!isTerminated()) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                terminationLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void init() throws Exception {
+
+    }
+
+    @Override
+    public void start() throws Exception {
+
+    }
+
+    @Override
+    public void stop() throws Exception {
+        this.shutdown();
+        try {
+            if (!this.awaitTermination(60, TimeUnit.SECONDS)) {
+                this.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        logger.info("MiniCat virtual thread worker has been terminated");
+    }
+
+    @Override
+    public void destroy() throws Exception {
+
+    }
+}
@@ -1,10 +1,11 @@
 package io.github.wj9806.minicat.server.thread;
 
-import io.github.wj9806.minicat.core.Lifecycle;
+import io.github.wj9806.minicat.server.config.ServerConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MiniCat自定义线程池
@@ -12,11 +13,16 @@ import java.util.concurrent.*;
  * 1. 优先使用核心线程处理任务
  * 2. 如果核心线程都忙，则创建新线程直到最大线程数
  * 3. 如果达到最大线程数，则将任务放入队列等待
- * 4. 如果队列已满，则执行拒绝策略
+ * 4. 如果队列已满，则执行拒绝策略（抛出RejectedExecutionException，由连接器按server.overload处理）
  */
-public class Worker extends ThreadPoolExecutor implements Lifecycle {
+public class Worker extends ThreadPoolExecutor implements WorkerExecutor {
     private static final Logger logger = LoggerFactory.getLogger(Worker.class);
-    
+
+    // 已提交但还未执行完成的任务数，WorkerQueue据此判断是否有空闲线程
+    private final AtomicInteger submittedCount = new AtomicInteger();
+    // 线程数，由线程工厂包装的线程维护，WorkerQueue读取时不需要获取线程池的mainLock（getPoolSize()需要）
+    private final AtomicInteger poolSize = new AtomicInteger();
+
     public Worker(int corePoolSize,
                   int maximumPoolSize,
                   long keepAliveTime,
@@ -25,6 +31,78 @@ public class Worker extends ThreadPoolExecutor implements Lifecycle {
                   ThreadFactory threadFactory,
                   RejectedExecutionHandler handler) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        // 线程开始运行时计数加一，退出时减一；创建后未能启动的线程不会计入
+        setThreadFactory(r -> threadFactory.newThread(() -> {
+            poolSize.incrementAndGet();
+            try {
+                r.run();
+            } finally {
+                poolSize.decrementAndGet();
+            }
+        }));
+        setRejectedExecutionHandler((r, executor) -> {
+            // 线程计数与线程池实际的线程数之间有短暂的差异，WorkerQueue可能在线程数已达上限时要求创建线程，
+            // 此时任务仍可以放入队列
+            if (!isShutdown() && workQueue instanceof WorkerQueue && ((WorkerQueue) workQueue).force(r)) {
+                return;
+            }
+            // 被拒绝的任务不会经过afterExecute，在拒绝时扣减计数
+            submittedCount.decrementAndGet();
+            handler.rejectedExecution(r, executor);
+        });
+    }
+
+    /**
+     * 按配置创建线程池，线程名为namePrefix加从1开始的序号
+     */
+    public static Worker create(ServerConfig.WorkerConfig config, String namePrefix) {
+        WorkerQueue taskQueue = new WorkerQueue(config.getQueueSize());
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        ThreadFactory threadFactory = r -> {
+            Thread thread = new Thread(r);
+            thread.setName(namePrefix + threadNumber.getAndIncrement());
+            return thread;
+        };
+
+        Worker worker = new Worker(
+            config.getCoreSize(),
+            config.getMaxSize(),
+            config.getKeepAliveTime(),
+            TimeUnit.SECONDS,
+            taskQueue,
+            threadFactory,
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        taskQueue.setExecutor(worker);
+        return worker;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submittedCount.incrementAndGet();
+        super.execute(command);
+    }
+
+    int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    /**
+     * 当前线程数，与{@link #getPoolSize()}不同，读取时不加锁
+     */
+    int getThreadCount() {
+        return poolSize.get();
+    }
+
+    @Override
+    public int getQueuedCount() {
+        return getQueue().size();
+    }
+
+    @Override
+    public boolean isSaturated() {
+        return submittedCount.get() >= getMaximumPoolSize();
     }
 
     @Override
@@ -36,6 +114,7 @@ public class Worker extends ThreadPoolExecutor implements Lifecycle {
     @Override
     protected void afterExecute(Runnable r, Throwable t) {
         super.afterExecute(r, t);
+        submittedCount.decrementAndGet();
         if (t != null) {
             logger.error("Task execution failed", t);
         } else {
@@ -51,7 +130,9 @@ public class Worker extends ThreadPoolExecutor implements Lifecycle {
 
     @Override
     public void init() throws Exception {
-
+        // 允许核心线程超时
+        //allowCoreThreadTimeOut(true);
+        prestartAllCoreThreads();
     }
 
     @Override
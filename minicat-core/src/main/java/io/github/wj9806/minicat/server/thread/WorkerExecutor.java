@@ -0,0 +1,29 @@
+package io.github.wj9806.minicat.server.thread;
+
+import io.github.wj9806.minicat.core.Lifecycle;
+
+import java.util.concurrent.Executor;
+
+/**
+ * worker执行器SPI，连接器把连接或请求的处理任务提交给worker执行
+ * 内置的实现见{@link WorkerFactory}，自定义实现通过{@link WorkerProvider}注册
+ */
+public interface WorkerExecutor extends Executor, Lifecycle {
+
+    /**
+     * 正在执行任务的线程数（近似值）
+     */
+    int getActiveCount();
+
+    /**
+     * 排队等待执行的任务数（近似值）
+     */
+    int getQueuedCount();
+
+    /**
+     * 是否已经没有空闲的执行能力，新提交的任务需要排队等待
+     */
+    default boolean isSaturated() {
+        return getQueuedCount() > 0;
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.wj9806.minicat.server.thread;
+
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.util.VirtualThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ServiceLoader;
+
+/**
+ * 根据server.worker.mode创建worker执行器
+ * 1. eager：线程数优先增长到maxSize，之后任务才进入队列（{@link Worker}）
+ * 2. queue：maxSize个固定线程从无锁队列中取任务（{@link QueueWorker}）
+ * 3. forkJoin：maxSize并行度的ForkJoinPool，空闲线程从其他线程的队列中窃取任务（{@link ForkJoinWorker}）
+ * 4. virtual：每个任务一个虚拟线程，需要JDK 21+，低版本JDK回退到eager（{@link VirtualThreadWorker}）
+ * 5. 其他：通过ServiceLoader查找mode相同的{@link WorkerProvider}
+ */
+public final class WorkerFactory {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerFactory.class);
+
+    public static final String EAGER = "eager";
+    public static final String QUEUE = "queue";
+    public static final String FORK_JOIN = "forkJoin";
+    public static final String VIRTUAL = "virtual";
+
+    private WorkerFactory() {
+    }
+
+    /**
+     * @param namePrefix 线程名前缀
+     */
+    public static WorkerExecutor create(ServerConfig.WorkerConfig config, String namePrefix) {
+        String mode = config.getMode() == null ? EAGER : config.getMode();
+        switch (mode) {
+            case EAGER:
+                return Worker.create(config, namePrefix);
+            case QUEUE:
+                return new QueueWorker(namePrefix, config.getMaxSize(), config.getQueueSize());
+            case FORK_JOIN:
+                return new ForkJoinWorker(namePrefix, config.getMaxSize());
+            case VIRTUAL:
+                if (VirtualThreads.isSupported()) {
+                    return new VirtualThreadWorker(namePrefix, config.getMaxConcurrency());
+                }
+                logger.warn("Virtual threads require JDK 21+, current: {}, falling back to {} worker pool",
+                        System.getProperty("java.version"), EAGER);
+                return Worker.create(config, namePrefix);
+            default:
+                for (WorkerProvider provider : ServiceLoader.load(WorkerProvider.class)) {
+                    if (mode.equals(provider.mode())) {
+                        return provider.create(config, namePrefix);
+                    }
+                }
+                throw new IllegalArgumentException("Unknown worker mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.wj9806.minicat.server.thread;
+
+import io.github.wj9806.minicat.server.config.ServerConfig;
+
+/**
+ * 自定义worker执行器的提供者，通过META-INF/services/io.github.wj9806.minicat.server.thread.WorkerProvider注册，
+ * server.worker.mode与{@link #mode()}相同时使用
+ */
+public interface WorkerProvider {
+
+    /**
+     * 对应的server.worker.mode
+     */
+    String mode();
+
+    /**
+     * @param namePrefix 线程名前缀
+     */
+    WorkerExecutor create(ServerConfig.WorkerConfig config, String namePrefix);
+}
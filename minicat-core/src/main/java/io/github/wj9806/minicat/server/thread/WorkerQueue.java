@@ -2,25 +2,23 @@ package io.github.wj9806.minicat.server.thread;
 
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Minicat自定义任务队列
  * 执行策略：
  * 1. 如果线程数小于最大线程数，优先创建新线程
  * 2. 如果线程数达到最大线程数，才将任务放入队列
+ * 是否有空闲线程由Worker的提交计数判断，线程数也由Worker自行计数，提交任务时不需要获取线程池的mainLock
  */
 public class WorkerQueue extends LinkedBlockingQueue<Runnable> {
     private static final long serialVersionUID = -1L;
-    private transient ThreadPoolExecutor executor;
-    private transient ReentrantLock lock = new ReentrantLock();
+    private transient Worker executor;
 
     public WorkerQueue(int capacity) {
         super(capacity);
     }
 
-    public void setExecutor(ThreadPoolExecutor executor) {
+    public void setExecutor(Worker executor) {
         this.executor = executor;
     }
 
@@ -30,31 +28,26 @@ public class WorkerQueue extends LinkedBlockingQueue<Runnable> {
             throw new RejectedExecutionException("The task queue is not initialized with an executor");
         }
 
-        lock.lock();
-        try {
-            int currentPoolSize = executor.getPoolSize();
+        int currentPoolSize = executor.getThreadCount();
 
-            // 如果有空闲线程，直接加入队列让空闲线程执行
-            if (executor.getActiveCount() < currentPoolSize) {
-                return super.offer(runnable);
-            }
-        } finally {
-            lock.unlock();
+        // 如果有空闲线程，直接加入队列让空闲线程执行
+        if (executor.getSubmittedCount() <= currentPoolSize) {
+            return super.offer(runnable);
         }
 
-        lock.lock();
-        try {
-            int currentPoolSize = executor.getPoolSize();
-
-            // 如果当前线程数小于最大线程数，返回false让executor创建新线程
-            if (currentPoolSize < executor.getMaximumPoolSize()) {
-                return false;
-            }
-        } finally {
-            lock.unlock();
+        // 如果当前线程数小于最大线程数，返回false让executor创建新线程
+        if (currentPoolSize < executor.getMaximumPoolSize()) {
+            return false;
         }
 
         // 如果当前线程数达到最大线程数，则加入队列
         return super.offer(runnable);
     }
+
+    /**
+     * 线程池拒绝任务时直接放入队列，队列已满时返回false
+     */
+    boolean force(Runnable runnable) {
+        return super.offer(runnable);
+    }
 }
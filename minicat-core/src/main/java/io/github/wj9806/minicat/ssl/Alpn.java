@@ -0,0 +1,85 @@
+package io.github.wj9806.minicat.ssl;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * ALPN支持（JDK 9+或8u252+）
+ * 项目以Java 8为基线编译，ALPN相关的API在运行时通过反射查找，不支持时{@link #isSupported()}返回false
+ */
+final class Alpn {
+
+    private static final MethodHandle SET_APPLICATION_PROTOCOLS;
+    private static final MethodHandle SET_SELECTOR;
+    private static final MethodHandle GET_APPLICATION_PROTOCOL;
+
+    static {
+        MethodHandle setApplicationProtocols = null;
+        MethodHandle setSelector = null;
+        MethodHandle getApplicationProtocol = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            setApplicationProtocols = lookup.findVirtual(SSLParameters.class, "setApplicationProtocols",
+                    MethodType.methodType(void.class, String[].class));
+            setSelector = lookup.findVirtual(SSLEngine.class, "setHandshakeApplicationProtocolSelector",
+                    MethodType.methodType(void.class, BiFunction.class));
+            getApplicationProtocol = lookup.findVirtual(SSLEngine.class, "getApplicationProtocol",
+                    MethodType.methodType(String.class));
+        } catch (ReflectiveOperationException e) {
+            // 不支持ALPN
+            setApplicationProtocols = null;
+        }
+        SET_APPLICATION_PROTOCOLS = setApplicationProtocols;
+        SET_SELECTOR = setSelector;
+        GET_APPLICATION_PROTOCOL = getApplicationProtocol;
+    }
+
+    private Alpn() {
+    }
+
+    static boolean isSupported() {
+        return SET_APPLICATION_PROTOCOLS != null;
+    }
+
+    /**
+     * 设置服务端支持的协议，握手时选择服务端优先级最高且客户端支持的协议
+     */
+    static void setApplicationProtocols(SSLParameters parameters, String[] protocols) {
+        try {
+            SET_APPLICATION_PROTOCOLS.invoke(parameters, protocols);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to set ALPN protocols", e);
+        }
+    }
+
+    /**
+     * 设置自定义的协议选择器，参数为engine和客户端提供的协议列表，返回null表示不协商
+     */
+    static void setSelector(SSLEngine engine, BiFunction<SSLEngine, List<String>, String> selector) {
+        try {
+            SET_SELECTOR.invoke(engine, selector);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Failed to set ALPN selector", e);
+        }
+    }
+
+    /**
+     * 握手完成后协商出的协议，没有协商时返回null
+     */
+    static String getApplicationProtocol(SSLEngine engine) {
+        if (!isSupported()) {
+            return null;
+        }
+        try {
+            String protocol = (String) GET_APPLICATION_PROTOCOL.invoke(engine);
+            return protocol == null || protocol.isEmpty() ? null : protocol;
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+}
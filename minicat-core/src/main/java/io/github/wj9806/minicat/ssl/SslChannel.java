@@ -0,0 +1,377 @@
+package io.github.wj9806.minicat.ssl;
+
+import io.github.wj9806.minicat.io.BufferPool;
+import io.github.wj9806.minicat.io.OutboundQueue;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NIO连接的TLS层，基于SSLEngine
+ * 1. 作为ReadableByteChannel供请求解析器读取明文，握手在第一次读取时进行，由worker线程执行，不阻塞poller
+ * 2. 非阻塞：数据不足时返回0，等待poller的下一次读事件继续握手或解密
+ * 3. 出站数据由连接的出站写队列调用{@link #wrap}加密后写出，握手消息也经出站写队列发送
+ * 4. 网络数据和解密数据的缓冲区从缓冲池中获取，连接关闭时调用release()归还
+ */
+public class SslChannel implements ReadableByteChannel {
+
+    private static final ByteBuffer[] EMPTY = new ByteBuffer[0];
+
+    private final SSLEngine engine;
+    private final SocketChannel channel;
+    private final OutboundQueue outbound;
+    // 写模式：[0, position) 为已从socket读取但尚未解密的数据
+    private ByteBuffer netIn;
+    // 写模式：[0, position) 为已解密但尚未被读取的明文
+    private ByteBuffer appIn;
+    private volatile boolean handshakeComplete;
+    private volatile String applicationProtocol;
+    private volatile boolean closed;
+    // 读取期间持有，release()可能在持有出站写队列锁时调用，不能等待读取完成
+    private final ReentrantLock readLock = new ReentrantLock();
+
+    public SslChannel(SSLEngine engine, SocketChannel channel, OutboundQueue outbound) {
+        this.engine = engine;
+        this.channel = channel;
+        this.outbound = outbound;
+        outbound.setSslChannel(this);
+    }
+
+    public SSLEngine engine() {
+        return engine;
+    }
+
+    public SSLSession getSession() {
+        return engine.getSession();
+    }
+
+    public boolean isHandshakeComplete() {
+        return handshakeComplete;
+    }
+
+    /**
+     * ALPN协商出的协议，握手未完成或没有协商时返回null
+     */
+    public String getApplicationProtocol() {
+        return applicationProtocol;
+    }
+
+    /**
+     * 读取解密后的明文，握手未完成时先继续握手
+     * @return 读取的字节数，0表示暂无可读数据，-1表示连接已关闭
+     */
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        readLock.lock();
+        try {
+            return doRead(dst);
+        } finally {
+            readLock.unlock();
+            // 读取期间连接被关闭时由读取线程归还缓冲区
+            if (closed) {
+                release();
+            }
+        }
+    }
+
+    private int doRead(ByteBuffer dst) throws IOException {
+        if (closed) {
+            return -1;
+        }
+        if (!handshakeComplete) {
+            int handshake = handshake();
+            if (handshake <= 0) {
+                return handshake;
+            }
+        }
+        while (true) {
+            if (appIn != null && appIn.position() > 0) {
+                return drainAppIn(dst);
+            }
+            int n = unwrap(dst);
+            if (n != 0) {
+                return n;
+            }
+            int read = fillNetIn();
+            if (read <= 0) {
+                return read;
+            }
+        }
+    }
+
+    /**
+     * 继续握手，握手消息经出站写队列发送，委托任务在当前线程中执行
+     * @return 1表示握手完成，0表示需要等待更多数据，-1表示连接已关闭
+     */
+    private int handshake() throws IOException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NOT_HANDSHAKING:
+                case FINISHED:
+                    handshakeComplete = true;
+                    applicationProtocol = Alpn.getApplicationProtocol(engine);
+                    if (appIn != null && appIn.position() == 0) {
+                        BufferPool.getInstance().release(appIn);
+                        appIn = null;
+                    }
+                    return 1;
+                case NEED_TASK:
+                    runTasks();
+                    break;
+                case NEED_WRAP:
+                    outbound.write(EMPTY);
+                    break;
+                default:
+                    ensureAppIn();
+                    netIn = ensureNetIn();
+                    netIn.flip();
+                    SSLEngineResult result;
+                    try {
+                        result = engine.unwrap(netIn, appIn);
+                    } finally {
+                        netIn.compact();
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
+                        return -1;
+                    }
+                    if (result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                        appIn = BufferPool.getInstance().expand(appIn,
+                                appIn.position() + engine.getSession().getApplicationBufferSize());
+                    } else if (result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                        int read = fillNetIn();
+                        if (read <= 0) {
+                            return read;
+                        }
+                    }
+            }
+        }
+    }
+
+    /**
+     * 解密netIn中的数据，优先直接解密到dst，dst空间不足时解密到appIn
+     * @return 解密得到的字节数，0表示需要更多数据，-1表示对端已关闭
+     */
+    private int unwrap(ByteBuffer dst) throws IOException {
+        if (netIn == null || netIn.position() == 0) {
+            return 0;
+        }
+        netIn.flip();
+        try {
+            while (netIn.hasRemaining()) {
+                ByteBuffer target = appIn != null ? appIn : dst;
+                SSLEngineResult result = engine.unwrap(netIn, target);
+                switch (result.getStatus()) {
+                    case OK:
+                        afterUnwrap(result);
+                        if (result.bytesProduced() > 0) {
+                            return target == dst ? result.bytesProduced() : drainAppIn(dst);
+                        }
+                        break;
+                    case BUFFER_OVERFLOW:
+                        if (target == dst) {
+                            ensureAppIn();
+                        } else {
+                            appIn = BufferPool.getInstance().expand(appIn,
+                                    appIn.position() + engine.getSession().getApplicationBufferSize());
+                        }
+                        break;
+                    case BUFFER_UNDERFLOW:
+                        return 0;
+                    default:
+                        // 收到close_notify
+                        return -1;
+                }
+            }
+            return 0;
+        } finally {
+            netIn.compact();
+        }
+    }
+
+    /**
+     * 握手之后的消息（session ticket、密钥更新等）需要执行委托任务或回复
+     */
+    private void afterUnwrap(SSLEngineResult result) throws IOException {
+        SSLEngineResult.HandshakeStatus status = result.getHandshakeStatus();
+        if (status == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+            runTasks();
+            status = engine.getHandshakeStatus();
+        }
+        if (status == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+            outbound.write(EMPTY);
+        }
+    }
+
+    /**
+     * 加密明文，由出站写队列在持有锁时调用，engine需要发送握手消息或关闭通知时srcs可以为空
+     * @return 加密后的TLS记录，从缓冲池中获取，调用方负责归还
+     */
+    public ByteBuffer[] wrap(ByteBuffer[] srcs) throws IOException {
+        List<ByteBuffer> records = new ArrayList<>(4);
+        BufferPool bufferPool = BufferPool.getInstance();
+        int packetSize = engine.getSession().getPacketBufferSize();
+        try {
+            while (hasRemaining(srcs) || engine.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_WRAP) {
+                ByteBuffer record = bufferPool.acquire(packetSize);
+                SSLEngineResult result;
+                try {
+                    result = engine.wrap(srcs, record);
+                } catch (SSLException e) {
+                    bufferPool.release(record);
+                    throw e;
+                }
+                if (record.position() > 0) {
+                    record.flip();
+                    records.add(record);
+                } else {
+                    bufferPool.release(record);
+                }
+                SSLEngineResult.Status status = result.getStatus();
+                if (status == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    packetSize = Math.max(packetSize, engine.getSession().getPacketBufferSize()) << 1;
+                    continue;
+                }
+                if (status == SSLEngineResult.Status.CLOSED) {
+                    if (hasRemaining(srcs)) {
+                        throw new SSLException("SSLEngine is closed");
+                    }
+                    break;
+                }
+                if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.NEED_TASK) {
+                    runTasks();
+                } else if (result.bytesConsumed() == 0 && result.bytesProduced() == 0) {
+                    // 握手未完成时不能发送应用数据
+                    if (hasRemaining(srcs)) {
+                        throw new SSLException("TLS handshake is not complete");
+                    }
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ByteBuffer record : records) {
+                bufferPool.release(record);
+            }
+            throw e;
+        }
+        return records.toArray(EMPTY);
+    }
+
+    /**
+     * 发送close_notify，连接关闭前调用，握手未完成或还有排队数据时不发送，避免关闭连接的线程等待写出
+     */
+    public void closeOutbound() {
+        if (!handshakeComplete || closed || outbound.hasPending()) {
+            return;
+        }
+        engine.closeOutbound();
+        try {
+            outbound.write(EMPTY);
+        } catch (IOException ignore) {
+            // 连接已经关闭
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null) {
+            task.run();
+        }
+    }
+
+    private int fillNetIn() throws IOException {
+        netIn = ensureNetIn();
+        if (!netIn.hasRemaining()) {
+            netIn = BufferPool.getInstance().expand(netIn, netIn.capacity() + 1);
+        }
+        int n = channel.read(netIn);
+        if (n == -1) {
+            engine.closeInbound();
+        }
+        return n;
+    }
+
+    private ByteBuffer ensureNetIn() {
+        int packetSize = engine.getSession().getPacketBufferSize();
+        if (netIn == null) {
+            return BufferPool.getInstance().acquire(packetSize);
+        }
+        return BufferPool.getInstance().expand(netIn, packetSize);
+    }
+
+    private void ensureAppIn() {
+        if (appIn == null) {
+            appIn = BufferPool.getInstance().acquire(engine.getSession().getApplicationBufferSize());
+        }
+    }
+
+    /**
+     * 把appIn中的明文复制到dst，appIn为空时归还
+     */
+    private int drainAppIn(ByteBuffer dst) {
+        appIn.flip();
+        int n = Math.min(appIn.remaining(), dst.remaining());
+        ByteBuffer slice = appIn.duplicate();
+        slice.limit(slice.position() + n);
+        dst.put(slice);
+        appIn.position(appIn.position() + n);
+        appIn.compact();
+        if (appIn.position() == 0) {
+            BufferPool.getInstance().release(appIn);
+            appIn = null;
+        }
+        return n;
+    }
+
+    private static boolean hasRemaining(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return !closed && channel.isOpen();
+    }
+
+    /**
+     * 只释放TLS层的缓冲区，底层channel由连接关闭
+     */
+    @Override
+    public void close() {
+        release();
+    }
+
+    /**
+     * 连接关闭，归还缓冲区，正在读取时由读取线程在读取结束后归还
+     */
+    public void release() {
+        closed = true;
+        if (readLock.tryLock()) {
+            try {
+                freeBuffers();
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    private void freeBuffers() {
+        BufferPool bufferPool = BufferPool.getInstance();
+        bufferPool.release(netIn);
+        bufferPool.release(appIn);
+        netIn = null;
+        appIn = null;
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.wj9806.minicat.ssl;
+
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSessionContext;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * 根据server.ssl创建服务端SSLContext和SSLEngine
+ * 1. 从keystore加载证书和私钥，服务端session缓存用于返回的客户端恢复session，不需要完整握手
+ * 2. session ticket由JDK的jdk.tls.server.enableSessionTicketExtension控制，只在创建第一个SSLContext之前设置有效
+ * 3. ALPN默认按alpnProtocols选择协议，开启http.http2时优先选择h2，也可以通过{@link #setAlpnSelector}自定义
+ */
+public class SslContextFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SslContextFactory.class);
+
+    private static final String SESSION_TICKET_PROPERTY = "jdk.tls.server.enableSessionTicketExtension";
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    private static final String H2 = "h2";
+
+    private final ServerConfig.SslConfig config;
+    private final SSLContext context;
+    private final String[] protocols;
+    private final String[] ciphers;
+    private final String[] alpnProtocols;
+    private volatile BiFunction<SSLEngine, List<String>, String> alpnSelector;
+
+    public SslContextFactory(ServerConfig.SslConfig config) throws GeneralSecurityException, IOException {
+        this.config = config;
+        this.protocols = toArray(config.getProtocols());
+        this.ciphers = toArray(config.getCiphers());
+        String[] alpn = toArray(alpnProtocols(config.getAlpnProtocols(),
+                Config.getInstance().getHttp().getHttp2().isEnabled()));
+        if (alpn != null && !Alpn.isSupported()) {
+            logger.warn("ALPN is not supported by java {}, ignoring alpnProtocols", System.getProperty("java.version"));
+            alpn = null;
+        }
+        this.alpnProtocols = alpn;
+        if (System.getProperty(SESSION_TICKET_PROPERTY) == null) {
+            System.setProperty(SESSION_TICKET_PROPERTY, String.valueOf(config.isSessionTickets()));
+        }
+        this.context = createContext();
+    }
+
+    private SSLContext createContext() throws GeneralSecurityException, IOException {
+        char[] storePassword = config.getKeyStorePassword().toCharArray();
+        String keyPassword = config.getKeyPassword();
+        KeyStore keyStore = KeyStore.getInstance(config.getKeyStoreType());
+        try (InputStream is = openKeyStore(config.getKeyStore())) {
+            keyStore.load(is, storePassword);
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, keyPassword == null || keyPassword.isEmpty() ? storePassword : keyPassword.toCharArray());
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(kmf.getKeyManagers(), null, null);
+        SSLSessionContext sessionContext = sslContext.getServerSessionContext();
+        sessionContext.setSessionCacheSize(config.getSessionCacheSize());
+        sessionContext.setSessionTimeout(config.getSessionTimeout());
+        return sslContext;
+    }
+
+    private static InputStream openKeyStore(String path) throws IOException {
+        if (path == null || path.isEmpty()) {
+            throw new FileNotFoundException("server.ssl.keyStore is not configured");
+        }
+        if (path.startsWith(CLASSPATH_PREFIX)) {
+            String resource = path.substring(CLASSPATH_PREFIX.length());
+            InputStream is = SslContextFactory.class.getClassLoader()
+                    .getResourceAsStream(resource.startsWith("/") ? resource.substring(1) : resource);
+            if (is == null) {
+                throw new FileNotFoundException("KeyStore not found on classpath: " + resource);
+            }
+            return is;
+        }
+        return new FileInputStream(path);
+    }
+
+    public SSLContext getContext() {
+        return context;
+    }
+
+    /**
+     * 自定义ALPN协议选择器，参数为engine和客户端提供的协议列表，返回null表示不协商
+     */
+    public void setAlpnSelector(BiFunction<SSLEngine, List<String>, String> alpnSelector) {
+        if (alpnSelector != null && !Alpn.isSupported()) {
+            throw new UnsupportedOperationException("ALPN is not supported by java "
+                    + System.getProperty("java.version"));
+        }
+        this.alpnSelector = alpnSelector;
+    }
+
+    /**
+     * 为新连接创建服务端模式的SSLEngine
+     */
+    public SSLEngine createEngine() {
+        SSLEngine engine = context.createSSLEngine();
+        engine.setUseClientMode(false);
+        SSLParameters parameters = engine.getSSLParameters();
+        if (protocols != null) {
+            parameters.setProtocols(protocols);
+        }
+        if (ciphers != null) {
+            parameters.setCipherSuites(ciphers);
+            parameters.setUseCipherSuitesOrder(true);
+        }
+        if (alpnProtocols != null) {
+            Alpn.setApplicationProtocols(parameters, alpnProtocols);
+        }
+        engine.setSSLParameters(parameters);
+        BiFunction<SSLEngine, List<String>, String> selector = alpnSelector;
+        if (selector != null) {
+            Alpn.setSelector(engine, selector);
+        }
+        return engine;
+    }
+
+    /**
+     * 开启HTTP/2时优先协商h2，没有开启时不能协商出h2
+     */
+    private static List<String> alpnProtocols(List<String> configured, boolean http2) {
+        if (configured == null || configured.isEmpty()) {
+            return configured;
+        }
+        List<String> protocols = new ArrayList<>(configured);
+        protocols.remove(H2);
+        if (http2) {
+            protocols.add(0, H2);
+        }
+        return protocols;
+    }
+
+    private static String[] toArray(List<String> list) {
+        return list == null || list.isEmpty() ? null : list.toArray(new String[0]);
+    }
+}
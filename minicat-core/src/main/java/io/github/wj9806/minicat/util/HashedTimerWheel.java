@@ -0,0 +1,233 @@
+package io.github.wj9806.minicat.util;
+
+import io.github.wj9806.minicat.core.Lifecycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 哈希时间轮，用于连接的keep-alive、WebSocket空闲以及读写超时
+ * 1. 时间轮由wheelSize个槽组成，每tickDuration毫秒前进一个槽，每次只处理当前槽中的任务，
+ *    到期检查的开销与到期（以及本槽中被刷新过）的任务数成正比，而不是与全部连接数成正比
+ * 2. 刷新超时只更新Timeout的截止时间（一次volatile写），时间轮处理到该任务时发现未到期再放入新的槽
+ * 3. 新增的任务先放入无锁队列，由时间轮线程统一放入槽中，槽只在时间轮线程中访问
+ */
+public class HashedTimerWheel implements Lifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimerWheel.class);
+
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int CANCELLED = 2;
+    private static final int EXPIRED = 3;
+
+    private final long tickDuration;
+    private final ArrayDeque<Timeout>[] wheel;
+    private final int mask;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread workerThread;
+    private final long startTime;
+    private volatile boolean running;
+    // 下一个要处理的槽对应的tick，只在时间轮线程中访问
+    private long tick;
+
+    /**
+     * @param tickDuration 每个槽的时间跨度（毫秒）
+     * @param wheelSize 槽的个数，向上取整为2的幂
+     */
+    @SuppressWarnings("unchecked")
+    public HashedTimerWheel(String name, long tickDuration, int wheelSize) {
+        this.tickDuration = Math.max(1, tickDuration);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.wheel = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.startTime = System.currentTimeMillis();
+        this.workerThread = new Thread(this::run, name);
+        this.workerThread.setDaemon(true);
+    }
+
+    /**
+     * 添加超时任务
+     * @param delayMillis 超时时间（毫秒），小于0表示暂不超时，之后可以通过{@link Timeout#reschedule(long)}设置
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task);
+        timeout.reschedule(delayMillis);
+        return timeout;
+    }
+
+    @Override
+    public void init() throws Exception {
+
+    }
+
+    @Override
+    public void start() throws Exception {
+        running = true;
+        workerThread.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        running = false;
+        workerThread.interrupt();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        workerThread.join(1000);
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startTime + (tick + 1) * tickDuration;
+            long sleep = deadline - System.currentTimeMillis();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            transferPending();
+            expire(wheel[(int) (tick & mask)], System.currentTimeMillis());
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.state.get() == SCHEDULED) {
+                place(timeout, tick);
+            }
+        }
+    }
+
+    /**
+     * 按截止时间把任务放入对应的槽，截止时间早于firstTick时放入firstTick对应的槽
+     * @param firstTick 下一个尚未处理的tick，圈数从该tick开始计算：
+     *                  在expire中重新放入时当前槽已经处理过，下一次处理当前槽是一整圈之后
+     */
+    private void place(Timeout timeout, long firstTick) {
+        long deadline = timeout.deadline;
+        if (deadline == Long.MAX_VALUE) {
+            // 暂不超时，移出时间轮，重新设置超时时间后再放入
+            park(timeout);
+            return;
+        }
+        long target = Math.max((deadline - startTime) / tickDuration, firstTick);
+        timeout.remainingRounds = (target - firstTick) / wheel.length;
+        wheel[(int) (target & mask)].offer(timeout);
+    }
+
+    private void park(Timeout timeout) {
+        if (!timeout.state.compareAndSet(SCHEDULED, IDLE)) {
+            return;
+        }
+        // 与reschedule并发时，reschedule要么看到IDLE并自行放入队列，要么在此之前已经写入新的截止时间
+        if (timeout.deadline != Long.MAX_VALUE && timeout.state.compareAndSet(IDLE, SCHEDULED)) {
+            pending.offer(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket, long now) {
+        for (int n = bucket.size(); n > 0; n--) {
+            Timeout timeout = bucket.poll();
+            if (timeout.state.get() != SCHEDULED) {
+                continue;
+            }
+            if (timeout.remainingRounds > 0) {
+                timeout.remainingRounds--;
+                bucket.offer(timeout);
+            } else if (timeout.deadline <= now) {
+                if (timeout.state.compareAndSet(SCHEDULED, EXPIRED)) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable t) {
+                        logger.error("Timeout task failed", t);
+                    }
+                }
+            } else {
+                // 截止时间已被刷新，放入新的槽
+                place(timeout, tick + 1);
+            }
+        }
+    }
+
+    /**
+     * 超时句柄
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        private volatile long delay;
+        private volatile long deadline = Long.MAX_VALUE;
+        // 剩余圈数，只在时间轮线程中访问
+        private long remainingRounds;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        /**
+         * 从当前时间起重新计时
+         * @param delayMillis 超时时间（毫秒），小于0表示暂不超时
+         */
+        public void reschedule(long delayMillis) {
+            this.delay = delayMillis;
+            if (delayMillis < 0) {
+                deadline = Long.MAX_VALUE;
+                return;
+            }
+            deadline = System.currentTimeMillis() + delayMillis;
+            if (state.compareAndSet(IDLE, SCHEDULED)) {
+                pending.offer(this);
+            }
+        }
+
+        /**
+         * 使用上一次的超时时间重新计时
+         */
+        public void touch() {
+            long d = delay;
+            if (d < 0) {
+                return;
+            }
+            deadline = System.currentTimeMillis() + d;
+            if (state.get() == IDLE && state.compareAndSet(IDLE, SCHEDULED)) {
+                pending.offer(this);
+            }
+        }
+
+        /**
+         * 取消超时任务，任务在时间轮处理到所在的槽时移除
+         */
+        public void cancel() {
+            state.set(CANCELLED);
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public long getDelay() {
+            return delay;
+        }
+    }
+}
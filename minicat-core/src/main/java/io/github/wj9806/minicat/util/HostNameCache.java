@@ -0,0 +1,70 @@
+package io.github.wj9806.minicat.util;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 反向DNS解析结果的缓存
+ * InetAddress.getHostName()可能发起阻塞的反向DNS查询，只在调用getRemoteHost()/getLocalName()时才解析，
+ * 同一地址的结果在TTL内复用，避免keep-alive连接或同一客户端的每个请求都查询一次
+ */
+public final class HostNameCache {
+
+    /**
+     * 缓存有效期
+     */
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * 最多缓存的地址数，超过时先清理过期条目，仍然超过则全部清空
+     */
+    private static final int MAX_ENTRIES = 1024;
+
+    private static final ConcurrentHashMap<InetAddress, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private HostNameCache() {
+    }
+
+    /**
+     * 地址对应的主机名，解析失败时返回IP字符串（与InetAddress.getHostName()一致）
+     */
+    public static String hostName(InetAddress address) {
+        long now = System.nanoTime();
+        Entry entry = CACHE.get(address);
+        if (entry != null && now - entry.expireAt < 0) {
+            return entry.hostName;
+        }
+        // 连接上的地址对象由accept创建，不带主机名，getHostName()会发起查询
+        String hostName = address.getHostName();
+        if (CACHE.size() >= MAX_ENTRIES) {
+            evict(now);
+        }
+        CACHE.put(address, new Entry(hostName, now + TTL_NANOS));
+        return hostName;
+    }
+
+    /**
+     * 清空缓存
+     */
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static void evict(long now) {
+        CACHE.values().removeIf(entry -> now - entry.expireAt >= 0);
+        if (CACHE.size() >= MAX_ENTRIES) {
+            CACHE.clear();
+        }
+    }
+
+    private static final class Entry {
+        final String hostName;
+        final long expireAt;
+
+        Entry(String hostName, long expireAt) {
+            this.hostName = hostName;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.wj9806.minicat.util;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * HTTP日期（RFC 1123格式）
+ * 1. 格式化使用线程安全的DateTimeFormatter，不再每次创建SimpleDateFormat
+ * 2. 响应的Date头使用缓存的当前时间，访问时发现秒数变化才重新格式化，不需要后台线程
+ */
+public final class HttpDate {
+
+    // HTTP日期格式：Sun, 06 Nov 1994 08:49:37 GMT
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private static volatile Cached current = new Cached(System.currentTimeMillis() / 1000);
+
+    private HttpDate() {
+    }
+
+    /**
+     * 格式化时间戳
+     * @param timestamp 时间戳
+     * @return 格式化后的日期字符串
+     */
+    public static String format(long timestamp) {
+        return FORMATTER.format(Instant.ofEpochMilli(timestamp));
+    }
+
+    /**
+     * 解析RFC 1123格式的HTTP日期
+     * @param value 日期字符串
+     * @return 时间戳，无法解析时返回-1
+     */
+    public static long parse(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 当前时间，精确到秒，同一秒内返回同一个字符串
+     */
+    public static String now() {
+        long second = System.currentTimeMillis() / 1000;
+        Cached cached = current;
+        if (cached.second != second) {
+            // 多个线程同时刷新时结果相同，谁覆盖谁都可以
+            cached = new Cached(second);
+            current = cached;
+        }
+        return cached.value;
+    }
+
+    /**
+     * 秒数和对应的格式化结果放在同一个不可变对象中，保证读取时二者一致
+     */
+    private static final class Cached {
+        final long second;
+        final String value;
+
+        Cached(long second) {
+            this.second = second;
+            this.value = format(second * 1000);
+        }
+    }
+}
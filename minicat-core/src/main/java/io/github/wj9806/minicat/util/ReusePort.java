@@ -0,0 +1,71 @@
+package io.github.wj9806.minicat.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+
+/**
+ * SO_REUSEPORT支持：多个监听socket绑定同一个端口，由内核把新连接分配到各个监听socket的accept队列
+ * 项目以Java 8为基线编译，SO_REUSEPORT（JDK 9+）在运行时通过反射查找；
+ * 只在Linux上启用，其他系统上多个监听socket不保证负载均衡
+ */
+public final class ReusePort {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReusePort.class);
+
+    private static final SocketOption<Boolean> SO_REUSEPORT;
+
+    static {
+        SocketOption<Boolean> option = null;
+        if (System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+            try {
+                @SuppressWarnings("unchecked")
+                SocketOption<Boolean> found = (SocketOption<Boolean>)
+                        StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+                option = found;
+            } catch (ReflectiveOperationException e) {
+                // JDK 9以下没有SO_REUSEPORT
+            }
+        }
+        SO_REUSEPORT = option;
+    }
+
+    private ReusePort() {
+    }
+
+    /**
+     * 当前JDK和操作系统是否支持SO_REUSEPORT
+     */
+    public static boolean isSupported() {
+        return SO_REUSEPORT != null;
+    }
+
+    /**
+     * 根据配置的acceptor数返回实际创建的监听socket数，不支持SO_REUSEPORT时回退为1
+     */
+    public static int listenerCount(int acceptorCount) {
+        if (acceptorCount <= 1) {
+            return 1;
+        }
+        if (!isSupported()) {
+            logger.warn("SO_REUSEPORT requires Linux and JDK 9+ (os={}, java={}), falling back to 1 acceptor",
+                    System.getProperty("os.name"), System.getProperty("java.version"));
+            return 1;
+        }
+        return acceptorCount;
+    }
+
+    /**
+     * 在绑定端口之前为监听channel开启SO_REUSEPORT
+     */
+    public static void enable(NetworkChannel channel) throws IOException {
+        if (!isSupported() || !channel.supportedOptions().contains(SO_REUSEPORT)) {
+            throw new UnsupportedOperationException("SO_REUSEPORT is not supported");
+        }
+        channel.setOption(SO_REUSEPORT, true);
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.wj9806.minicat.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Unix domain socket支持：同一台机器上的sidecar或反向代理不经过TCP协议栈直接连接
+ * 项目以Java 8为基线编译，UnixDomainSocketAddress和StandardProtocolFamily.UNIX（JDK 16+）在运行时通过反射查找；
+ * Unix domain socket的channel仍然是SocketChannel，可以直接注册到NIO的Selector
+ */
+public final class UnixDomainSockets {
+
+    private static final ProtocolFamily UNIX;
+    private static final Method ADDRESS_OF;
+    private static final Method ADDRESS_PATH;
+    private static final Method OPEN_SERVER;
+    private static final Method OPEN_CLIENT;
+    private static final Class<?> ADDRESS_CLASS;
+
+    static {
+        ProtocolFamily unix = null;
+        Method of = null;
+        Method path = null;
+        Method openServer = null;
+        Method openClient = null;
+        Class<?> addressClass = null;
+        try {
+            unix = StandardProtocolFamily.valueOf("UNIX");
+            addressClass = Class.forName("java.net.UnixDomainSocketAddress");
+            of = addressClass.getMethod("of", String.class);
+            path = addressClass.getMethod("getPath");
+            openServer = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openClient = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+        } catch (IllegalArgumentException | ReflectiveOperationException e) {
+            // JDK 16以下不支持Unix domain socket
+            unix = null;
+        }
+        UNIX = unix;
+        ADDRESS_OF = of;
+        ADDRESS_PATH = path;
+        OPEN_SERVER = openServer;
+        OPEN_CLIENT = openClient;
+        ADDRESS_CLASS = addressClass;
+    }
+
+    private UnixDomainSockets() {
+    }
+
+    /**
+     * 当前JDK是否支持Unix domain socket
+     */
+    public static boolean isSupported() {
+        return UNIX != null;
+    }
+
+    /**
+     * 根据socket文件路径创建UnixDomainSocketAddress
+     */
+    public static SocketAddress address(String path) {
+        return invoke(ADDRESS_OF, null, path);
+    }
+
+    /**
+     * 地址是否为Unix domain socket地址
+     */
+    public static boolean isUnixDomain(SocketAddress address) {
+        return ADDRESS_CLASS != null && ADDRESS_CLASS.isInstance(address);
+    }
+
+    /**
+     * Unix domain socket地址的路径，未绑定路径的客户端地址返回空字符串
+     */
+    public static String path(SocketAddress address) {
+        return String.valueOf((Object) invoke(ADDRESS_PATH, address));
+    }
+
+    /**
+     * 打开Unix domain socket的监听channel，之后通过bind绑定socket文件
+     */
+    public static ServerSocketChannel openServerChannel() throws IOException {
+        return invokeIO(OPEN_SERVER, null, UNIX);
+    }
+
+    /**
+     * 打开并连接到socket文件，用于客户端和测试
+     */
+    public static SocketChannel connect(String path) throws IOException {
+        SocketChannel channel = invokeIO(OPEN_CLIENT, null, UNIX);
+        try {
+            channel.connect(address(path));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * 地址的字符串形式：TCP地址返回IP，Unix domain socket地址返回路径
+     */
+    public static String describe(SocketAddress address) {
+        if (address instanceof InetSocketAddress) {
+            return ((InetSocketAddress) address).getAddress().getHostAddress();
+        }
+        return isUnixDomain(address) ? path(address) : String.valueOf(address);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T invoke(Method method, Object target, Object... args) {
+        checkSupported();
+        try {
+            return (T) method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T invokeIO(Method method, Object target, Object... args) throws IOException {
+        checkSupported();
+        try {
+            return (T) method.invoke(target, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void checkSupported() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Unix domain sockets require JDK 16+");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.wj9806.minicat.ws;
 
+import io.github.wj9806.minicat.io.BufferPool;
 import io.github.wj9806.minicat.ws.processor.WsProcessor;
 
 import javax.websocket.EncodeException;
@@ -48,7 +49,7 @@ public class BasicRemoteEndpoint implements RemoteEndpoint.Basic {
 
     @Override
     public void sendBinary(ByteBuffer data) throws IOException {
-        int capacity = data.capacity();
+        int capacity = data.remaining();
 
         // 创建帧头
         byte firstByte = (byte) (0x80 | 0x01); // FIN=1, RSV1-3=0, Opcode=1 (text)
@@ -64,30 +65,34 @@ public class BasicRemoteEndpoint implements RemoteEndpoint.Basic {
             headerLength = 10;
         }
 
-        // 分配缓冲区
-        ByteBuffer buffer = ByteBuffer.allocate(headerLength + capacity);
-
-        // 写入帧头
-        buffer.put(firstByte);
-        if (capacity < 126) {
-            buffer.put((byte) capacity); // Masked bit = 0
-        } else if (capacity <= 65535) {
-            buffer.put((byte) 126); // Extended payload length
-            buffer.putShort((short) capacity);
-        } else {
-            buffer.put((byte) 127); // Extended payload length
-            for (int i = 7; i >= 0; i--) {
-                buffer.put((byte) ((capacity >> (8 * i)) & 0xFF));
+        // 从缓冲池分配缓冲区，帧发送完成后归还
+        BufferPool bufferPool = BufferPool.getInstance();
+        ByteBuffer buffer = bufferPool.acquire(headerLength + capacity);
+        try {
+            // 写入帧头
+            buffer.put(firstByte);
+            if (capacity < 126) {
+                buffer.put((byte) capacity); // Masked bit = 0
+            } else if (capacity <= 65535) {
+                buffer.put((byte) 126); // Extended payload length
+                buffer.putShort((short) capacity);
+            } else {
+                buffer.put((byte) 127); // Extended payload length
+                for (int i = 7; i >= 0; i--) {
+                    buffer.put((byte) (((long) capacity >> (8 * i)) & 0xFF));
+                }
             }
-        }
 
-        // 写入负载数据
-        buffer.put(data);
+            // 写入负载数据
+            buffer.put(data);
 
-        buffer.flip();
-        // 发送数据
-        processor.send(buffer);
-        processor.flush();
+            buffer.flip();
+            // 发送数据
+            processor.send(buffer);
+            processor.flush();
+        } finally {
+            bufferPool.release(buffer);
+        }
     }
 
     @Override
@@ -32,8 +32,6 @@ public class WsHttpUpgradeHandler implements HttpUpgradeHandler {
 
     private List<BaseMessageHandlerWhole<?>> wholeMessageHandlers;
 
-    private volatile long lastIdleTime;
-
     @Override
     public void init(WebConnection wc) {
         this.processor = (WsProcessor<?>) wc;
@@ -43,7 +41,8 @@ public class WsHttpUpgradeHandler implements HttpUpgradeHandler {
         this.wholeMessageHandlers = new ArrayList<>();
         this.initMessageHandlers();
         this.onOpen();
-        this.lastIdleTime = System.currentTimeMillis();
+        // 升级后连接的超时改为WebSocket会话的空闲超时
+        this.session.scheduleIdleTimeout();
     }
 
     private void initMessageHandlers() {
@@ -93,11 +92,6 @@ public class WsHttpUpgradeHandler implements HttpUpgradeHandler {
         this.sc = sc;
     }
 
-    public boolean idleTimeout() {
-        if (session.getMaxIdleTimeout() == -1) return false;
-        return System.currentTimeMillis() - lastIdleTime >= session.getMaxIdleTimeout();
-    }
-
     @Override
     public void destroy() {
         try {
@@ -1,5 +1,6 @@
 package io.github.wj9806.minicat.ws;
 
+import io.github.wj9806.minicat.util.HashedTimerWheel;
 import io.github.wj9806.minicat.ws.processor.WsProcessor;
 
 import javax.websocket.*;
@@ -125,7 +126,7 @@ public class WsSession implements Session {
 
     @Override
     public boolean isSecure() {
-        return false;
+        return processor.sock().isSecure();
     }
 
     @Override
@@ -141,6 +142,17 @@ public class WsSession implements Session {
     @Override
     public void setMaxIdleTimeout(long milliseconds) {
         this.maxIdleTimeout = milliseconds;
+        scheduleIdleTimeout();
+    }
+
+    /**
+     * 按maxIdleTimeout重新计算连接的空闲超时，小于等于0表示不超时
+     */
+    void scheduleIdleTimeout() {
+        HashedTimerWheel.Timeout timeout = processor == null ? null : processor.sock().timeout();
+        if (timeout != null) {
+            timeout.reschedule(maxIdleTimeout > 0 ? maxIdleTimeout : -1);
+        }
     }
 
     @Override
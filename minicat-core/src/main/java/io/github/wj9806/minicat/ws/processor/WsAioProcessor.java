@@ -0,0 +1,27 @@
+package io.github.wj9806.minicat.ws.processor;
+
+import io.github.wj9806.minicat.io.AsyncChannelInputStream;
+import io.github.wj9806.minicat.io.AsyncChannelOutputStream;
+import io.github.wj9806.minicat.net.Sock;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.AsynchronousSocketChannel;
+
+class WsAioProcessor extends WsProcessor<AsynchronousSocketChannel> {
+
+    WsAioProcessor(Sock<AsynchronousSocketChannel> sock) throws IOException {
+        super(sock);
+    }
+
+    @Override
+    protected OutputStream initOutputStream() {
+        return new AsyncChannelOutputStream(sock.asyncOutbound());
+    }
+
+    @Override
+    protected InputStream initInputStream() {
+        return new AsyncChannelInputStream(sock.source(), sock.parser());
+    }
+}
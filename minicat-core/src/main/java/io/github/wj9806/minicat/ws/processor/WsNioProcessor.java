@@ -18,11 +18,14 @@ class WsNioProcessor extends WsProcessor<SelectionKey> {
 
     @Override
     protected OutputStream initOutputStream() {
-        return new SocketChannelOutputStream((SocketChannel)sock.source().channel());
+        return new SocketChannelOutputStream(sock.outbound());
     }
 
     @Override
     protected InputStream initInputStream() throws IOException {
+        if (sock.ssl() != null) {
+            return new SocketChannelInputStream(sock.ssl(), 128);
+        }
         return new SocketChannelInputStream((SocketChannel)sock.source().channel(), 128);
     }
 }
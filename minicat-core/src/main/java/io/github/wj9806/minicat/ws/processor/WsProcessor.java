@@ -1,5 +1,6 @@
 package io.github.wj9806.minicat.ws.processor;
 
+import io.github.wj9806.minicat.io.NioUtil;
 import io.github.wj9806.minicat.net.Sock;
 import io.github.wj9806.minicat.server.IProcessor;
 import io.github.wj9806.minicat.ws.WsConstants;
@@ -15,6 +16,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
 import java.nio.channels.SelectionKey;
 
 public abstract class WsProcessor<S> implements WebConnection, IProcessor<S> {
@@ -129,7 +131,7 @@ public abstract class WsProcessor<S> implements WebConnection, IProcessor<S> {
     }
 
     public void send(ByteBuffer buf) throws IOException {
-        os.write(buf.array());
+        NioUtil.write(buf, os);
     }
 
     public void flush() throws IOException {
@@ -159,6 +161,8 @@ public abstract class WsProcessor<S> implements WebConnection, IProcessor<S> {
             return new WsBioProcessor((Sock<Socket>) s);
         } else if (source instanceof SelectionKey) {
             return new WsNioProcessor((Sock<SelectionKey>) s);
+        } else if (source instanceof AsynchronousSocketChannel) {
+            return new WsAioProcessor((Sock<AsynchronousSocketChannel>) s);
         }
         return null;
     }
@@ -168,8 +172,4 @@ public abstract class WsProcessor<S> implements WebConnection, IProcessor<S> {
         onClose(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, ""));
     }
 
-    public boolean idleTimeout() {
-        WsHttpUpgradeHandler upgradeHandler = sc.getUpgradeHandler(sock);
-        return upgradeHandler.idleTimeout();
-    }
 }
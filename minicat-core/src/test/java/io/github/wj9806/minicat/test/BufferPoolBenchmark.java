@@ -0,0 +1,106 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.io.BufferPool;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓冲池压测：对比开启/关闭缓冲池时的吞吐量与GC次数、耗时
+ * 缓冲池为单例，每种配置需要单独运行一次
+ * 用法：BufferPoolBenchmark [pooled|unpooled|direct] [clients] [seconds]
+ */
+public class BufferPoolBenchmark {
+
+    private static final int PORT = 18083;
+
+    public static void main(String[] args) throws Exception {
+        String kind = args.length > 0 ? args[0] : "pooled";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().getBuffer().setEnabled(!"unpooled".equals(kind));
+        config.getServer().getBuffer().setDirect("direct".equals(kind));
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+        miniCat.init();
+        miniCat.start();
+        try {
+            // 预热
+            run(clients, 1);
+            long gcCount = gcCount();
+            long gcTime = gcTime();
+            double requests = run(clients, seconds);
+            System.out.printf("buffer=%s clients=%d%n", kind, clients);
+            System.out.printf("%-14s %.0f%n", "requests/sec", requests);
+            System.out.printf("%-14s %d%n", "gc count", gcCount() - gcCount);
+            System.out.printf("%-14s %d ms%n", "gc time", gcTime() - gcTime);
+            System.out.println(BufferPool.getInstance());
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        System.exit(0);
+    }
+
+    private static double run(int clients, int seconds) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(clients);
+        byte[] request = ("GET /hello.html HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < clients; i++) {
+            new Thread(() -> {
+                byte[] buf = new byte[8192];
+                try (Socket socket = new Socket("localhost", PORT)) {
+                    socket.setTcpNoDelay(true);
+                    socket.setSoTimeout(5000);
+                    OutputStream os = socket.getOutputStream();
+                    while (System.nanoTime() < deadline) {
+                        os.write(request);
+                        os.flush();
+                        if (!NioPollerBenchmark.readResponse(socket.getInputStream(), buf)) {
+                            break;
+                        }
+                        completed.increment();
+                    }
+                } catch (IOException e) {
+                    // 压测结束时连接被关闭，忽略
+                } finally {
+                    latch.countDown();
+                }
+            }, "bench-client-" + i).start();
+        }
+        latch.await();
+        return completed.sum() / (double) seconds;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, bean.getCollectionTime());
+        }
+        return time;
+    }
+}
@@ -0,0 +1,150 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接数压测（NIO）：保持不同数量的空闲keep-alive连接，统计少量活跃连接上每个请求的平均耗时
+ * 连接的查找和登记与连接总数无关时，每个请求的耗时应基本不变
+ * 客户端和服务端在同一进程中，每个连接占用两个文件描述符，超过系统限制时停止增加连接
+ * 用法：ConnectionScaleBenchmark [seconds] [connectionCounts...]
+ */
+public class ConnectionScaleBenchmark {
+
+    private static final int PORT = 18085;
+    private static final int ACTIVE_CLIENTS = 4;
+    // 每个本地地址使用的连接数，避免单个地址的临时端口耗尽
+    private static final int CONNECTIONS_PER_ADDRESS = 20000;
+    private static final byte[] REQUEST = ("GET /hello.html HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n")
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int[] connectionCounts = {100, 1000, 10000, 50000};
+        if (args.length > 1) {
+            connectionCounts = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                connectionCounts[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode("nio");
+        // 压测期间空闲连接不能因keep-alive超时被关闭
+        config.getHttp().setKeepAliveTime(3600);
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+        miniCat.init();
+        miniCat.start();
+        List<SocketChannel> idle = new ArrayList<>();
+        try {
+            // 预热
+            run(seconds);
+            System.out.printf("%-12s %-14s %-14s%n", "connections", "requests/sec", "us/request");
+            for (int count : connectionCounts) {
+                boolean opened = openIdle(idle, count);
+                double requests = run(seconds);
+                System.out.printf("%-12d %-14.0f %-14.1f%n", idle.size(), requests, ACTIVE_CLIENTS * 1_000_000 / requests);
+                if (!opened) {
+                    System.out.printf("stopped: only %d of %d connections could be opened (ulimit -n)%n",
+                            idle.size(), count);
+                    break;
+                }
+            }
+        } finally {
+            for (SocketChannel channel : idle) {
+                closeQuietly(channel);
+            }
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 把空闲连接增加到count个，每个连接先完成一次请求，成为普通的keep-alive连接
+     */
+    private static boolean openIdle(List<SocketChannel> idle, int count) {
+        ByteBuffer buf = ByteBuffer.allocate(8192);
+        while (idle.size() < count) {
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.bind(new InetSocketAddress("127.0.0." + (1 + idle.size() / CONNECTIONS_PER_ADDRESS), 0));
+                channel.connect(new InetSocketAddress("127.0.0.1", PORT));
+                channel.write(ByteBuffer.wrap(REQUEST));
+                buf.clear();
+                if (channel.read(buf) == -1) {
+                    throw new IOException("Connection closed by server");
+                }
+                idle.add(channel);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                // 文件描述符耗尽，为活跃连接留出余量
+                for (int i = 0; i < ACTIVE_CLIENTS * 4 && !idle.isEmpty(); i++) {
+                    closeQuietly(idle.remove(idle.size() - 1));
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 活跃连接逐个发送请求
+     * @return 每秒完成的请求数
+     */
+    private static double run(int seconds) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(ACTIVE_CLIENTS);
+        for (int i = 0; i < ACTIVE_CLIENTS; i++) {
+            new Thread(() -> {
+                byte[] buf = new byte[8192];
+                try (Socket socket = new Socket("localhost", PORT)) {
+                    socket.setTcpNoDelay(true);
+                    socket.setSoTimeout(5000);
+                    OutputStream os = socket.getOutputStream();
+                    while (System.nanoTime() < deadline) {
+                        os.write(REQUEST);
+                        os.flush();
+                        if (!NioPollerBenchmark.readResponse(socket.getInputStream(), buf)) {
+                            break;
+                        }
+                        completed.increment();
+                    }
+                } catch (IOException e) {
+                    System.out.println("active client failed: " + e);
+                } finally {
+                    latch.countDown();
+                }
+            }, "bench-client-" + i).start();
+        }
+        latch.await();
+        return completed.sum() / (double) seconds;
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
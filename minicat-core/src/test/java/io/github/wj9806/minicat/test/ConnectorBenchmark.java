@@ -0,0 +1,109 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接器压测：对比nio（Selector）、aio（AsynchronousSocketChannel）与bio的accepts/sec与requests/sec
+ * 用法：ConnectorBenchmark [clients] [seconds] [modes...]
+ */
+public class ConnectorBenchmark {
+
+    private static final int PORT = 18088;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] modes = {"nio", "aio", "bio"};
+        if (args.length > 2) {
+            modes = new String[args.length - 2];
+            System.arraycopy(args, 2, modes, 0, modes.length);
+        }
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().getNio().setBacklog(clients);
+        config.getServer().getAio().setBacklog(clients);
+        // BIO的每个连接占用一个worker线程
+        config.getServer().getWorker().setMaxSize(Math.max(config.getServer().getWorker().getMaxSize(), clients));
+
+        System.out.printf("clients=%d%n", clients);
+        System.out.printf("%-8s %-14s %-14s%n", "mode", "accepts/sec", "requests/sec");
+        for (String mode : modes) {
+            config.getServer().setMode(mode);
+            MiniCat miniCat = new MiniCat(PORT);
+            miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+            miniCat.init();
+            miniCat.start();
+            try {
+                double accepts = run(clients, seconds, false);
+                double requests = run(clients, seconds, true);
+                System.out.printf("%-8s %-14.0f %-14.0f%n", mode, accepts, requests);
+            } finally {
+                miniCat.stop();
+                miniCat.destroy();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @param keepAlive true: 复用连接统计requests/sec；false: 每次新建连接统计accepts/sec
+     */
+    private static double run(int clients, int seconds, boolean keepAlive) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(clients);
+        byte[] request = ("GET /hello.html HTTP/1.1\r\nHost: localhost\r\nConnection: "
+                + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                byte[] buf = new byte[8192];
+                Socket socket = null;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (socket == null) {
+                            socket = new Socket("localhost", PORT);
+                            socket.setTcpNoDelay(true);
+                            socket.setSoTimeout(5000);
+                        }
+                        OutputStream os = socket.getOutputStream();
+                        os.write(request);
+                        os.flush();
+                        if (!NioPollerBenchmark.readResponse(socket.getInputStream(), buf)) {
+                            break;
+                        }
+                        completed.increment();
+                        if (!keepAlive) {
+                            socket.close();
+                            socket = null;
+                        }
+                    }
+                } catch (IOException e) {
+                    // 压测结束时连接被关闭，忽略
+                } finally {
+                    if (socket != null) {
+                        try {
+                            socket.close();
+                        } catch (IOException ignore) {
+                        }
+                    }
+                    latch.countDown();
+                }
+            }, "bench-client-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        latch.await();
+        return completed.sum() / (double) seconds;
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.http.HeaderEncoder;
+import io.github.wj9806.minicat.http.HttpHeaders;
+import io.github.wj9806.minicat.util.HttpDate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * 响应头序列化的耗时和分配量
+ * legacy：String.format + ByteArrayOutputStream + 每次新建SimpleDateFormat的写法，作为对照
+ * encoder：HeaderEncoder直接写入复用的字节数组，Date使用HttpDate缓存的值
+ * 两种写法先比较输出是否一致（Date除外），再各自预热后计时
+ * 用法：HeaderEncoderBenchmark [iterations]
+ */
+public class HeaderEncoderBenchmark {
+
+    // 典型的响应头：servlet设置的Content-Type和自定义头，以及容器补充的标准头
+    private static final HttpHeaders HEADERS = new HttpHeaders();
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        HeaderEncoder encoder = new HeaderEncoder();
+        String expected = new String(legacy(false), StandardCharsets.ISO_8859_1);
+        encoder.encode(200, headers(HttpDate.format(0)));
+        String actual = new String(encoder.array(), 0, encoder.length(), StandardCharsets.ISO_8859_1);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException("Output differs:\n" + expected + "\n---\n" + actual);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            // 第一轮为预热
+            boolean print = round == 1;
+            run("legacy", iterations, print, () -> legacy(true).length);
+            run("encoder", iterations, print, () -> {
+                encoder.encode(200, headers(HttpDate.now()));
+                return encoder.length();
+            });
+        }
+    }
+
+    private static void run(String name, int iterations, boolean print, Op op) throws IOException {
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long self = Thread.currentThread().getId();
+        long bytes = bean.getThreadAllocatedBytes(self);
+        long start = System.nanoTime();
+        long sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            sink += op.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        bytes = bean.getThreadAllocatedBytes(self) - bytes;
+        if (print) {
+            System.out.printf("%-8s %8.1f ns/op %8.0f bytes/op (%d)%n", name, (double) elapsed / iterations,
+                    (double) bytes / iterations, sink / iterations);
+        }
+    }
+
+    private static HttpHeaders headers(String date) {
+        HttpHeaders headers = HEADERS;
+        headers.clear();
+        headers.set("X-Request-Id", "4f2a9c");
+        headers.add("Cache-Control", "no-cache");
+        headers.add("Cache-Control", "no-store");
+        headers.set("Date", date);
+        headers.set("Connection", "keep-alive");
+        headers.set("Keep-Alive", "timeout=60");
+        headers.set("Content-Length", "1024");
+        headers.set("Content-Type", "text/plain; charset=utf-8");
+        return headers;
+    }
+
+    private static byte[] legacy(boolean now) throws IOException {
+        SimpleDateFormat sdf = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
+        HttpHeaders headers = headers(sdf.format(new Date(now ? System.currentTimeMillis() : 0)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(String.format("HTTP/1.1 %d %s\r\n", 200, "OK").getBytes());
+        for (Map.Entry<String, List<String>> entry : headers.getAll().entrySet()) {
+            String headerName = formatHeaderName(entry.getKey());
+            if (HttpHeaders.isMultiValueHeader(entry.getKey())) {
+                out.write(String.format("%s: %s\r\n", headerName, String.join(", ", entry.getValue())).getBytes());
+            } else {
+                for (String value : entry.getValue()) {
+                    out.write(String.format("%s: %s\r\n", headerName, value).getBytes());
+                }
+            }
+        }
+        out.write("\r\n".getBytes());
+        return out.toByteArray();
+    }
+
+    private static String formatHeaderName(String name) {
+        String[] parts = name.split("-");
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                result.append('-');
+            }
+            String part = parts[i];
+            if (!part.isEmpty()) {
+                result.append(Character.toUpperCase(part.charAt(0)));
+                if (part.length() > 1) {
+                    result.append(part.substring(1).toLowerCase());
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    private interface Op {
+        int run() throws IOException;
+    }
+}
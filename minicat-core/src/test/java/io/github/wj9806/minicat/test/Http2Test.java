@@ -0,0 +1,393 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * HTTP/2测试（nio连接器）
+ * 1. h2c prior knowledge：同一连接上并发多个流，慢请求不阻塞其他流，大响应体依赖WINDOW_UPDATE，POST请求体
+ * 2. h2c升级：HTTP/1.1请求带Upgrade: h2c，返回101后请求作为流1处理
+ * 3. 协议错误：客户端使用偶数流id时返回GOAWAY
+ * 4. 请求体过大：content-length超过maxBodySize时不按声明的长度分配缓冲区，返回413并重置流，连接仍可继续使用
+ * 客户端只实现测试需要的部分：请求头使用不带索引的字面量，响应状态码只识别静态表中的索引
+ */
+public class Http2Test {
+
+    private static final int PORT = 18090;
+    private static final int BIG_SIZE = 512 * 1024;
+    private static final int POST_SIZE = 40000;
+    private static final int MAX_BODY_SIZE = 1024 * 1024;
+    private static final byte[] PREFACE = "PRI * HTTP/2.0\r\n\r\nSM\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    private static final int[] STATIC_STATUS = {0, 0, 0, 0, 0, 0, 0, 0, 200, 204, 206, 304, 400, 404, 500};
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode("nio");
+        config.getHttp().getHttp2().setEnabled(true);
+        config.getHttp().setMaxBodySize(MAX_BODY_SIZE);
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new TextServlet(), "/text");
+        miniCat.getServer().addServlet(new BigServlet(), "/big");
+        miniCat.getServer().addServlet(new EchoServlet(), "/echo");
+        miniCat.getServer().addServlet(new SlowServlet(), "/slow");
+        miniCat.init();
+        miniCat.start();
+        try {
+            priorKnowledge();
+            upgrade();
+            protocolError();
+            bodyTooLarge();
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        System.out.println("HTTP2 OK");
+        System.exit(0);
+    }
+
+    private static void priorKnowledge() throws IOException {
+        try (Client client = new Client()) {
+            client.out.write(PREFACE);
+            client.writeFrame(0x4, 0, 0, new byte[0]);
+            client.request(1, "GET", "/slow", null);
+            client.request(3, "GET", "/text", null);
+            client.request(5, "GET", "/big", null);
+            byte[] body = new byte[POST_SIZE];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = (byte) i;
+            }
+            client.request(7, "POST", "/echo", body);
+            client.await(1, 3, 5, 7);
+
+            check("text status", client.status(3) == 200);
+            check("text body", "hello h2".equals(client.text(3)));
+            check("multiplexing", client.order.indexOf(3) < client.order.indexOf(1));
+            check("big body", client.status(5) == 200 && intact(client.body(5)));
+            check("post body", client.status(7) == 200 && Arrays.equals(body, client.body(7)));
+            check("slow status", client.status(1) == 200);
+
+            // 同一连接上的后续请求
+            client.request(9, "GET", "/text", null);
+            client.request(11, "GET", "/missing", null);
+            client.await(9, 11);
+            check("reused connection", client.status(9) == 200 && "hello h2".equals(client.text(9)));
+            check("not found", client.status(11) == 404);
+        }
+    }
+
+    private static void upgrade() throws IOException {
+        try (Client client = new Client()) {
+            client.out.write(("GET /text HTTP/1.1\r\nHost: localhost:" + PORT + "\r\n"
+                    + "Connection: Upgrade, HTTP2-Settings\r\nUpgrade: h2c\r\n"
+                    + "HTTP2-Settings: AAMAAABkAAQAAP__\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            client.out.flush();
+            String head = client.readHead();
+            check("101 switching", head.startsWith("HTTP/1.1 101"));
+            client.out.write(PREFACE);
+            client.writeFrame(0x4, 0, 0, new byte[0]);
+            client.await(1);
+            check("upgrade stream 1", client.status(1) == 200 && "hello h2".equals(client.text(1)));
+            client.request(3, "GET", "/text", null);
+            client.await(3);
+            check("upgrade stream 3", client.status(3) == 200);
+        }
+    }
+
+    private static void protocolError() throws IOException {
+        try (Client client = new Client()) {
+            client.out.write(PREFACE);
+            client.writeFrame(0x4, 0, 0, new byte[0]);
+            client.request(2, "GET", "/text", null);
+            check("goaway", client.awaitGoAway() == 1);
+        }
+    }
+
+    private static void bodyTooLarge() throws IOException {
+        try (Client client = new Client()) {
+            client.out.write(PREFACE);
+            client.writeFrame(0x4, 0, 0, new byte[0]);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            Client.literal(block, ":method", "POST");
+            Client.literal(block, ":scheme", "http");
+            Client.literal(block, ":path", "/echo");
+            Client.literal(block, ":authority", "localhost:" + PORT);
+            Client.literal(block, "content-length", "2000000000");
+            client.writeFrame(0x1, 0x4, 1, block.toByteArray());
+            client.writeFrame(0x0, 0, 1, new byte[]{1});
+            client.await(1);
+            // 413不在静态表中，只检查收到了不是静态表状态码的完整响应
+            check("body too large", client.status(1) == -1);
+            client.request(3, "GET", "/text", null);
+            client.await(3);
+            check("after too large", client.status(3) == 200);
+        }
+    }
+
+    private static boolean intact(byte[] body) {
+        if (body.length != BIG_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < BIG_SIZE; i++) {
+            if (body[i] != (byte) ('a' + i % 26)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.printf("%-24s %s%n", name, ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 最小的HTTP/2客户端，收到DATA后立即归还窗口
+     */
+    private static class Client implements AutoCloseable {
+        final Socket socket;
+        final OutputStream out;
+        final DataInputStream in;
+        final Map<Integer, Integer> statuses = new HashMap<>();
+        final Map<Integer, ByteArrayOutputStream> bodies = new HashMap<>();
+        // 流结束的顺序
+        final List<Integer> order = new ArrayList<>();
+
+        Client() throws IOException {
+            socket = new Socket("localhost", PORT);
+            socket.setSoTimeout(5000);
+            socket.setTcpNoDelay(true);
+            out = socket.getOutputStream();
+            in = new DataInputStream(socket.getInputStream());
+        }
+
+        void request(int streamId, String method, String path, byte[] body) throws IOException {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            literal(block, ":method", method);
+            literal(block, ":scheme", "http");
+            literal(block, ":path", path);
+            literal(block, ":authority", "localhost:" + PORT);
+            literal(block, "user-agent", "Http2Test");
+            if (body != null) {
+                literal(block, "content-length", String.valueOf(body.length));
+            }
+            writeFrame(0x1, 0x4 | (body == null ? 0x1 : 0), streamId, block.toByteArray());
+            if (body != null) {
+                for (int off = 0; off < body.length; off += 16384) {
+                    int len = Math.min(16384, body.length - off);
+                    byte[] chunk = new byte[len];
+                    System.arraycopy(body, off, chunk, 0, len);
+                    writeFrame(0x0, off + len == body.length ? 0x1 : 0, streamId, chunk);
+                }
+            }
+        }
+
+        /**
+         * 不带索引的字面量，名称和值都不使用Huffman编码
+         */
+        private static void literal(ByteArrayOutputStream block, String name, String value) {
+            block.write(0);
+            string(block, name.getBytes(StandardCharsets.ISO_8859_1));
+            string(block, value.getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        private static void string(ByteArrayOutputStream block, byte[] bytes) {
+            block.write(bytes.length);
+            block.write(bytes, 0, bytes.length);
+        }
+
+        void writeFrame(int type, int flags, int streamId, byte[] payload) throws IOException {
+            byte[] header = {(byte) (payload.length >>> 16), (byte) (payload.length >>> 8), (byte) payload.length,
+                    (byte) type, (byte) flags,
+                    (byte) (streamId >>> 24), (byte) (streamId >>> 16), (byte) (streamId >>> 8), (byte) streamId};
+            out.write(header);
+            out.write(payload);
+            out.flush();
+        }
+
+        private void windowUpdate(int streamId, int increment) throws IOException {
+            writeFrame(0x8, 0, streamId, new byte[]{(byte) (increment >>> 24), (byte) (increment >>> 16),
+                    (byte) (increment >>> 8), (byte) increment});
+        }
+
+        /**
+         * 读取帧直到指定的流全部结束
+         */
+        void await(int... streamIds) throws IOException {
+            while (!finished(streamIds)) {
+                if (readFrame() == 0x7) {
+                    throw new IOException("Unexpected GOAWAY");
+                }
+            }
+        }
+
+        /**
+         * 读取帧直到收到GOAWAY
+         * @return GOAWAY的错误码
+         */
+        int awaitGoAway() throws IOException {
+            while (true) {
+                int length = in.readUnsignedByte() << 16 | in.readUnsignedShort();
+                int type = in.readUnsignedByte();
+                in.readUnsignedByte();
+                in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                if (type == 0x7) {
+                    return (payload[4] & 0xff) << 24 | (payload[5] & 0xff) << 16
+                            | (payload[6] & 0xff) << 8 | (payload[7] & 0xff);
+                }
+            }
+        }
+
+        private boolean finished(int[] streamIds) {
+            for (int id : streamIds) {
+                if (!order.contains(id)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int readFrame() throws IOException {
+            int length = in.readUnsignedByte() << 16 | in.readUnsignedShort();
+            int type = in.readUnsignedByte();
+            int flags = in.readUnsignedByte();
+            int streamId = in.readInt() & 0x7fffffff;
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            switch (type) {
+                case 0x0:
+                    bodies.computeIfAbsent(streamId, k -> new ByteArrayOutputStream()).write(payload);
+                    if (length > 0) {
+                        windowUpdate(0, length);
+                        if ((flags & 0x1) == 0) {
+                            windowUpdate(streamId, length);
+                        }
+                    }
+                    break;
+                case 0x1:
+                    int first = payload[0] & 0xff;
+                    int index = first & 0x7f;
+                    statuses.put(streamId, (first & 0x80) != 0 && index < STATIC_STATUS.length
+                            ? STATIC_STATUS[index] : -1);
+                    break;
+                case 0x3:
+                    statuses.put(streamId, -2);
+                    order.add(streamId);
+                    break;
+                case 0x4:
+                    if ((flags & 0x1) == 0) {
+                        writeFrame(0x4, 0x1, 0, new byte[0]);
+                    }
+                    break;
+                default:
+            }
+            if ((type == 0x0 || type == 0x1) && (flags & 0x1) != 0) {
+                order.add(streamId);
+            }
+            return type;
+        }
+
+        String readHead() throws IOException {
+            StringBuilder head = new StringBuilder();
+            InputStream is = in;
+            while (!head.toString().endsWith("\r\n\r\n")) {
+                int b = is.read();
+                if (b == -1) {
+                    throw new IOException("Connection closed");
+                }
+                head.append((char) b);
+            }
+            return head.toString();
+        }
+
+        int status(int streamId) {
+            Integer status = statuses.get(streamId);
+            return status == null ? 0 : status;
+        }
+
+        byte[] body(int streamId) {
+            ByteArrayOutputStream body = bodies.get(streamId);
+            return body == null ? new byte[0] : body.toByteArray();
+        }
+
+        String text(int streamId) {
+            return new String(body(streamId), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    public static class TextServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            if (!"HTTP/2.0".equals(req.getProtocol()) || !("localhost:" + PORT).equals(req.getHeader("Host"))) {
+                resp.setStatus(500);
+                return;
+            }
+            resp.getWriter().write("hello h2");
+        }
+    }
+
+    public static class BigServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            byte[] body = new byte[BIG_SIZE];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = (byte) ('a' + i % 26);
+            }
+            resp.setContentType("application/octet-stream");
+            resp.getOutputStream().write(body);
+        }
+    }
+
+    public static class EchoServlet extends HttpServlet {
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("application/octet-stream");
+            byte[] buf = new byte[8192];
+            InputStream is = req.getInputStream();
+            OutputStream os = resp.getOutputStream();
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                os.write(buf, 0, n);
+            }
+        }
+    }
+
+    public static class SlowServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            resp.getWriter().write("slow");
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多Reactor压测：对比不同poller数量下的accepts/sec与requests/sec
+ * 用法：NioPollerBenchmark [clients] [seconds] [pollerCounts...]
+ */
+public class NioPollerBenchmark {
+
+    private static final int PORT = 18081;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] pollerCounts = {1, 2, 4, 8};
+        if (args.length > 2) {
+            pollerCounts = new int[args.length - 2];
+            for (int i = 2; i < args.length; i++) {
+                pollerCounts[i - 2] = Integer.parseInt(args[i]);
+            }
+        }
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode("nio");
+
+        System.out.printf("%-8s %-14s %-14s%n", "pollers", "accepts/sec", "requests/sec");
+        for (int pollerCount : pollerCounts) {
+            config.getServer().getNio().setPollerCount(pollerCount);
+            MiniCat miniCat = new MiniCat(PORT);
+            miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+            miniCat.init();
+            miniCat.start();
+            try {
+                double accepts = run(clients, seconds, false);
+                double requests = run(clients, seconds, true);
+                System.out.printf("%-8d %-14.0f %-14.0f%n", pollerCount, accepts, requests);
+            } finally {
+                miniCat.stop();
+                miniCat.destroy();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @param keepAlive true: 复用连接统计requests/sec；false: 每次新建连接统计accepts/sec
+     */
+    private static double run(int clients, int seconds, boolean keepAlive) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(clients);
+        byte[] request = ("GET /hello.html HTTP/1.1\r\nHost: localhost\r\nConnection: "
+                + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < clients; i++) {
+            new Thread(() -> {
+                byte[] buf = new byte[8192];
+                Socket socket = null;
+                try {
+                    while (System.nanoTime() < deadline) {
+                        if (socket == null) {
+                            socket = new Socket("localhost", PORT);
+                            socket.setTcpNoDelay(true);
+                            socket.setSoTimeout(5000);
+                        }
+                        OutputStream os = socket.getOutputStream();
+                        os.write(request);
+                        os.flush();
+                        if (!readResponse(socket.getInputStream(), buf)) {
+                            break;
+                        }
+                        completed.increment();
+                        if (!keepAlive) {
+                            socket.close();
+                            socket = null;
+                        }
+                    }
+                } catch (IOException e) {
+                    // 压测结束时连接被关闭，忽略
+                } finally {
+                    closeQuietly(socket);
+                    latch.countDown();
+                }
+            }, "bench-client-" + i).start();
+        }
+        latch.await();
+        return completed.sum() / (double) seconds;
+    }
+
+    /**
+     * 读取一个带Content-Length的完整响应
+     */
+    static boolean readResponse(InputStream is, byte[] buf) throws IOException {
+        int total = 0;
+        int headerEnd = -1;
+        int contentLength = 0;
+        while (true) {
+            int n = is.read(buf, total, buf.length - total);
+            if (n == -1) {
+                return false;
+            }
+            total += n;
+            if (headerEnd == -1) {
+                String head = new String(buf, 0, total, StandardCharsets.ISO_8859_1);
+                int idx = head.indexOf("\r\n\r\n");
+                if (idx == -1) {
+                    continue;
+                }
+                headerEnd = idx + 4;
+                int cl = head.toLowerCase().indexOf("content-length:");
+                if (cl != -1) {
+                    int end = head.indexOf("\r\n", cl);
+                    contentLength = Integer.parseInt(head.substring(cl + 15, end).trim());
+                }
+            }
+            if (total - headerEnd >= contentLength) {
+                return true;
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
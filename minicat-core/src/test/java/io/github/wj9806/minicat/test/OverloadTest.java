@@ -0,0 +1,224 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过载测试（NIO、AIO与BIO）
+ * 1. 连接数达到maxConnections时新连接得不到处理，已有连接关闭后恢复
+ * 2. reject策略：worker没有空闲线程时立即返回503和Retry-After
+ * 3. queue策略：任务排队超过queueTimeout时返回503
+ * 所有servlet代码都必须在worker线程中执行
+ * 用法：OverloadTest [modes...]
+ */
+public class OverloadTest {
+
+    private static final int PORT = 18087;
+    private static final int SLEEP_MILLIS = 800;
+
+    private static final Set<String> servletThreads = ConcurrentHashMap.newKeySet();
+
+    public static void main(String[] args) throws Exception {
+        String[] modes = args.length > 0 ? args : new String[]{"nio", "aio", "bio"};
+        ServerConfig server = Config.getInstance().getServer();
+        server.setShowBanner(false);
+
+        boolean ok = true;
+        for (String mode : modes) {
+            server.setMode(mode);
+            ok &= maxConnections(mode);
+            ok &= reject(mode);
+            ok &= queueTimeout(mode);
+        }
+        for (String name : servletThreads) {
+            if (name.startsWith("Acceptor") || name.startsWith("Poller")) {
+                System.out.println("servlet executed on I/O thread " + name);
+                ok = false;
+            }
+        }
+        System.out.println(ok ? "OVERLOAD OK" : "OVERLOAD FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    private static boolean maxConnections(String mode) throws Exception {
+        ServerConfig server = Config.getInstance().getServer();
+        server.setMaxConnections(2);
+        // BIO的每个连接占用一个worker线程
+        MiniCat miniCat = start(4);
+        try (Socket first = connect(); Socket second = connect(); Socket third = connect()) {
+            boolean ok = check(mode, "first", send(first, "/fast"), "200");
+            ok &= check(mode, "second", send(second, "/fast"), "200");
+            // 超过上限的连接停留在backlog中，请求得不到处理
+            third.setSoTimeout(500);
+            write(third, "/fast");
+            boolean paused;
+            try {
+                paused = read(third) == null;
+            } catch (SocketTimeoutException e) {
+                paused = true;
+            }
+            ok &= check(mode, "third paused", String.valueOf(paused), "true");
+            first.close();
+            third.setSoTimeout(5000);
+            ok &= check(mode, "third resumed", read(third), "200");
+            return ok;
+        } finally {
+            server.setMaxConnections(10000);
+            stop(miniCat);
+        }
+    }
+
+    private static boolean reject(String mode) throws Exception {
+        ServerConfig server = Config.getInstance().getServer();
+        server.getOverload().setPolicy("reject");
+        server.getOverload().setRetryAfter(7);
+        MiniCat miniCat = start(1);
+        try (Socket busy = connect(); Socket rejected = connect()) {
+            write(busy, "/sleep");
+            Thread.sleep(SLEEP_MILLIS / 4);
+            long begin = System.nanoTime();
+            String response = send(rejected, "/fast");
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+            boolean ok = check(mode, "reject status", response, "503");
+            ok &= check(mode, "reject retry-after", String.valueOf(response != null
+                    && response.contains("Retry-After: 7")), "true");
+            ok &= check(mode, "reject immediately", String.valueOf(elapsed < SLEEP_MILLIS / 2), "true");
+            ok &= check(mode, "busy", read(busy), "200");
+            ok &= check(mode, "rejected count", String.valueOf(miniCat.getServer().getConnector()
+                    .getRejectedCount()), "1");
+            return ok;
+        } finally {
+            server.getOverload().setPolicy("queue");
+            server.getOverload().setRetryAfter(1);
+            stop(miniCat);
+        }
+    }
+
+    private static boolean queueTimeout(String mode) throws Exception {
+        ServerConfig server = Config.getInstance().getServer();
+        server.getOverload().setQueueTimeout(SLEEP_MILLIS / 4);
+        MiniCat miniCat = start(1);
+        try (Socket busy = connect(); Socket queued = connect()) {
+            write(busy, "/sleep");
+            Thread.sleep(SLEEP_MILLIS / 4);
+            write(queued, "/fast");
+            boolean ok = check(mode, "busy", read(busy), "200");
+            // BIO的keep-alive连接在关闭前一直占用worker线程
+            busy.close();
+            ok &= check(mode, "queue timeout", read(queued), "503");
+            return ok;
+        } finally {
+            server.getOverload().setQueueTimeout(30000);
+            stop(miniCat);
+        }
+    }
+
+    private static MiniCat start(int workers) throws Exception {
+        Config.getInstance().getServer().getWorker().setCoreSize(workers);
+        Config.getInstance().getServer().getWorker().setMaxSize(workers);
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new FastServlet(), "/fast");
+        miniCat.getServer().addServlet(new SleepServlet(), "/sleep");
+        miniCat.init();
+        miniCat.start();
+        return miniCat;
+    }
+
+    private static void stop(MiniCat miniCat) throws Exception {
+        miniCat.stop();
+        miniCat.destroy();
+    }
+
+    private static boolean check(String mode, String name, String actual, String expected) {
+        boolean ok = actual != null && actual.startsWith(expected);
+        System.out.printf("%-4s %-20s %s%n", mode, name, ok ? "ok" : "expected " + expected + " but was " + actual);
+        return ok;
+    }
+
+    private static Socket connect() throws IOException {
+        Socket socket = new Socket("localhost", PORT);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static String send(Socket socket, String path) throws IOException {
+        write(socket, path);
+        return read(socket);
+    }
+
+    private static void write(Socket socket, String path) throws IOException {
+        OutputStream os = socket.getOutputStream();
+        os.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        os.flush();
+    }
+
+    /**
+     * @return 状态码加响应头，连接已关闭返回null
+     */
+    private static String read(Socket socket) throws IOException {
+        InputStream is = socket.getInputStream();
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int b;
+        while ((b = is.read()) != -1) {
+            head.write(b);
+            if (head.size() >= 4 && head.toString("ISO-8859-1").endsWith("\r\n\r\n")) {
+                break;
+            }
+        }
+        if (b == -1) {
+            return null;
+        }
+        String header = head.toString("ISO-8859-1");
+        int cl = header.toLowerCase().indexOf("content-length:");
+        if (cl != -1) {
+            int length = Integer.parseInt(header.substring(cl + 15, header.indexOf("\r\n", cl)).trim());
+            for (int i = 0; i < length; i++) {
+                is.read();
+            }
+        }
+        // 返回"状态码 原因短语\r\n响应头"
+        return header.substring(header.indexOf(' ') + 1);
+    }
+
+    private static void record() {
+        servletThreads.add(Thread.currentThread().getName());
+    }
+
+    public static class FastServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            record();
+            resp.setContentType("text/plain");
+            resp.getWriter().write("ok");
+        }
+    }
+
+    public static class SleepServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            record();
+            try {
+                Thread.sleep(SLEEP_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            resp.setContentType("text/plain");
+            resp.getWriter().write("ok");
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HTTP/1.1 pipelining压测：每个连接一次写出16个GET，与逐个请求-响应的方式对比吞吐量
+ * HTTP/1.1默认就是持久连接，另外验证不带Connection头的pipelining请求也能全部按顺序返回
+ * 用法：PipelineBenchmark [nio|bio] [clients] [seconds]
+ */
+public class PipelineBenchmark {
+
+    private static final int PORT = 18082;
+    private static final int DEPTH = 16;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "nio";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode(mode);
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+        miniCat.init();
+        miniCat.start();
+        try {
+            verifyImplicitKeepAlive();
+            double plain = run(clients, seconds, 1, true);
+            double pipelined = run(clients, seconds, DEPTH, true);
+            double implicit = run(clients, seconds, DEPTH, false);
+            System.out.printf("mode=%s clients=%d%n", mode, clients);
+            System.out.printf("%-30s %.0f requests/sec%n", "non-pipelined", plain);
+            System.out.printf("%-30s %.0f requests/sec%n", "pipelined x" + DEPTH, pipelined);
+            System.out.printf("%-30s %.0f requests/sec%n", "pipelined x" + DEPTH + " (no Connection)", implicit);
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 一个连接上一次写出16个只带Host头的GET，所有响应都必须按顺序返回，且之后连接仍可用
+     */
+    private static void verifyImplicitKeepAlive() throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            OutputStream os = socket.getOutputStream();
+            InputStream is = new BufferedInputStream(socket.getInputStream());
+            for (int round = 0; round < 2; round++) {
+                os.write(batch(DEPTH, false));
+                os.flush();
+                for (int seq = 0; seq < DEPTH; seq++) {
+                    String body = readResponse(is);
+                    if (!body.contains("seq=" + seq)) {
+                        throw new IllegalStateException("response " + seq + " out of order: " + body);
+                    }
+                }
+            }
+        }
+        System.out.println("implicit keep-alive: " + DEPTH + " pipelined responses received in order");
+    }
+
+    private static byte[] batch(int depth, boolean keepAliveHeader) {
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            batch.append("GET /hello.html?seq=").append(i).append(" HTTP/1.1\r\n")
+                    .append("Host: localhost\r\n");
+            if (keepAliveHeader) {
+                batch.append("Connection: keep-alive\r\n");
+            }
+            batch.append("\r\n");
+        }
+        return batch.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static double run(int clients, int seconds, int depth, boolean keepAliveHeader)
+            throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(clients);
+
+        byte[] request = batch(depth, keepAliveHeader);
+
+        for (int i = 0; i < clients; i++) {
+            new Thread(() -> {
+                try (Socket socket = new Socket("localhost", PORT)) {
+                    socket.setTcpNoDelay(true);
+                    socket.setSoTimeout(5000);
+                    OutputStream os = socket.getOutputStream();
+                    InputStream is = new BufferedInputStream(socket.getInputStream());
+                    while (System.nanoTime() < deadline) {
+                        os.write(request);
+                        os.flush();
+                        for (int seq = 0; seq < depth; seq++) {
+                            String body = readResponse(is);
+                            // 响应必须按请求顺序返回
+                            if (!body.contains("seq=" + seq)) {
+                                failed.increment();
+                            }
+                            completed.increment();
+                        }
+                    }
+                } catch (IOException e) {
+                    failed.increment();
+                } finally {
+                    latch.countDown();
+                }
+            }, "pipeline-client-" + i).start();
+        }
+        latch.await();
+        if (failed.sum() > 0) {
+            System.out.println("depth " + depth + ": " + failed.sum() + " failed/out-of-order responses");
+        }
+        return completed.sum() / (double) seconds;
+    }
+
+    /**
+     * 从流中读取一个完整的响应，不会多读后续响应的字节
+     */
+    private static String readResponse(InputStream is) throws IOException {
+        int contentLength = 0;
+        String line;
+        while (!(line = readLine(is)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(line.substring(colon + 1).trim());
+            }
+        }
+        byte[] body = new byte[contentLength];
+        int off = 0;
+        while (off < contentLength) {
+            int n = is.read(body, off, contentLength - off);
+            if (n == -1) {
+                throw new EOFException();
+            }
+            off += n;
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    private static String readLine(InputStream is) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = is.read()) != '\n') {
+            if (c == -1) {
+                throw new EOFException();
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.http.ApplicationRequest;
+import io.github.wj9806.minicat.http.ApplicationResponse;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 请求和响应对象回收复用的验证
+ * 1. 同一连接上的请求复用同一个ApplicationRequest/ApplicationResponse，不同连接使用不同的对象
+ * 2. 上一个请求的属性、参数、cookie、响应头不会带到下一个请求
+ * 3. 应用保留的请求、响应、输出流引用在请求结束后访问抛出IllegalStateException
+ * 4. 应用关闭输出流不影响连接上的后续请求
+ * 用法：RecycleTest [nio|bio|aio]
+ */
+public class RecycleTest {
+
+    private static final int PORT = 18094;
+
+    private static volatile Object lastRequest;
+    private static volatile Object lastResponse;
+    private static volatile HttpServletRequest staleRequest;
+    private static volatile HttpServletResponse staleResponse;
+    private static volatile ServletOutputStream staleStream;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "nio";
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode(mode);
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new StateServlet(), "/state");
+        miniCat.getServer().addServlet(new CloseServlet(), "/close");
+        miniCat.init();
+        miniCat.start();
+        try {
+            run();
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        System.out.println("RECYCLE OK");
+        System.exit(0);
+    }
+
+    private static void run() throws Exception {
+        byte[] buf = new byte[8192];
+        Object firstRequest;
+        Object firstResponse;
+        try (Socket socket = open()) {
+            OutputStream os = socket.getOutputStream();
+            InputStream is = socket.getInputStream();
+
+            String body = exchange(os, is, buf, "/state?a=1", "Cookie: c=1\r\n");
+            check("first request", body.equals("attr=null param=1 cookies=1 header=null"));
+            firstRequest = lastRequest;
+            firstResponse = lastResponse;
+            // 客户端收到响应时服务端可能还没有回收，等下一个请求处理时第一个请求一定已经结束
+            HttpServletRequest oldRequest = staleRequest;
+            HttpServletResponse oldResponse = staleResponse;
+            ServletOutputStream oldStream = staleStream;
+
+            body = exchange(os, is, buf, "/state", "");
+            check("no state leaked", body.equals("attr=null param=null cookies=0 header=null"));
+            check("request reused", lastRequest == firstRequest);
+            check("response reused", lastResponse == firstResponse);
+
+            check("stale request", throwsIllegalState(oldRequest::getRequestURI));
+            check("stale response", throwsIllegalState(() -> oldResponse.setStatus(500)));
+            check("stale output stream", throwsIllegalState(() -> oldStream.write('x')));
+
+            body = exchange(os, is, buf, "/close", "");
+            check("close output stream", body.equals("closed"));
+            body = exchange(os, is, buf, "/state?a=2", "");
+            check("keep-alive after close", body.equals("attr=null param=2 cookies=0 header=null"));
+        }
+        try (Socket socket = open()) {
+            exchange(socket.getOutputStream(), socket.getInputStream(), buf, "/state", "");
+            check("per connection", lastRequest != firstRequest && lastResponse != firstResponse);
+        }
+    }
+
+    private static Socket open() throws IOException {
+        Socket socket = new Socket("localhost", PORT);
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    private static String exchange(OutputStream os, InputStream is, byte[] buf, String uri, String headers)
+            throws IOException {
+        os.write(("GET " + uri + " HTTP/1.1\r\nHost: localhost:" + PORT + "\r\nConnection: keep-alive\r\n"
+                + headers + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        os.flush();
+        Arrays.fill(buf, (byte) 0);
+        if (!NioPollerBenchmark.readResponse(is, buf)) {
+            throw new IOException("Incomplete response");
+        }
+        String response = new String(buf, StandardCharsets.ISO_8859_1);
+        return response.substring(response.indexOf("\r\n\r\n") + 4).trim();
+    }
+
+    private static boolean throwsIllegalState(ThrowingRunnable runnable) {
+        try {
+            runnable.run();
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.printf("%-24s %s%n", name, ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+
+    public static class StateServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            Cookie[] cookies = req.getCookies();
+            String body = "attr=" + req.getAttribute("x") + " param=" + req.getParameter("a")
+                    + " cookies=" + (cookies == null ? 0 : cookies.length) + " header=" + resp.getHeader("X-Test");
+            req.setAttribute("x", "1");
+            resp.setHeader("X-Test", "1");
+
+            lastRequest = ApplicationRequest.unwrap(req);
+            lastResponse = ApplicationResponse.unwrap(resp);
+            staleRequest = req;
+            staleResponse = resp;
+            staleStream = resp.getOutputStream();
+
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            resp.setContentType("text/plain");
+            resp.setContentLength(bytes.length);
+            staleStream.write(bytes);
+        }
+    }
+
+    public static class CloseServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            byte[] bytes = "closed".getBytes(StandardCharsets.UTF_8);
+            resp.setContentType("text/plain");
+            resp.setContentLength(bytes.length);
+            ServletOutputStream out = resp.getOutputStream();
+            out.write(bytes);
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.util.ReusePort;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SO_REUSEPORT多acceptor压测：不使用keep-alive，每个请求新建连接，统计不同acceptor数下的connections/sec
+ * 用法：ReusePortBenchmark [clients] [seconds] [acceptorCounts] [modes...]，acceptorCounts形如1,2,4
+ */
+public class ReusePortBenchmark {
+
+    private static final int PORT = 18089;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        String[] counts = (args.length > 2 ? args[2] : "1,2,4").split(",");
+        String[] modes = {"nio", "aio", "bio"};
+        if (args.length > 3) {
+            modes = new String[args.length - 3];
+            System.arraycopy(args, 3, modes, 0, modes.length);
+        }
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().getNio().setBacklog(clients);
+        config.getServer().getAio().setBacklog(clients);
+        // BIO的每个连接占用一个worker线程
+        config.getServer().getWorker().setMaxSize(Math.max(config.getServer().getWorker().getMaxSize(), clients));
+
+        System.out.printf("clients=%d cpus=%d reuseport=%s%n", clients,
+                Runtime.getRuntime().availableProcessors(), ReusePort.isSupported());
+        System.out.printf("%-8s %-10s %-14s%n", "mode", "acceptors", "connections/sec");
+        for (String mode : modes) {
+            for (String count : counts) {
+                int acceptorCount = Integer.parseInt(count.trim());
+                config.getServer().setMode(mode);
+                config.getServer().setAcceptorCount(acceptorCount);
+                MiniCat miniCat = new MiniCat(PORT);
+                miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+                miniCat.init();
+                miniCat.start();
+                try {
+                    System.out.printf("%-8s %-10d %-14.0f%n", mode, acceptorCount, run(clients, seconds));
+                } finally {
+                    miniCat.stop();
+                    miniCat.destroy();
+                }
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 每个客户端线程循环执行：建立连接、发送Connection: close请求、读取响应、关闭连接
+     */
+    private static double run(int clients, int seconds) throws InterruptedException {
+        LongAdder completed = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(clients);
+        byte[] request = "GET /hello.html HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                byte[] buf = new byte[8192];
+                try {
+                    while (System.nanoTime() < deadline) {
+                        try (Socket socket = new Socket("localhost", PORT)) {
+                            socket.setTcpNoDelay(true);
+                            socket.setSoTimeout(5000);
+                            OutputStream os = socket.getOutputStream();
+                            os.write(request);
+                            os.flush();
+                            if (!NioPollerBenchmark.readResponse(socket.getInputStream(), buf)) {
+                                break;
+                            }
+                        }
+                        completed.increment();
+                    }
+                } catch (IOException e) {
+                    // 压测结束时连接被关闭，忽略
+                } finally {
+                    latch.countDown();
+                }
+            }, "bench-client-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        latch.await();
+        return completed.sum() / (double) seconds;
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 慢速客户端测试（NIO）
+ * 1. 排队数据未超过上限时：多个暂停读取的客户端不占用worker，其他请求仍能及时处理
+ * 2. 排队数据超过上限时：worker等待poller写出而不是空转，CPU占用远低于耗时
+ * 两种情况下响应都必须完整无误，worker线程数不增长
+ * 用法：SlowReaderTest [clients]
+ */
+public class SlowReaderTest {
+
+    private static final int PORT = 18084;
+    private static final int WORKERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode("nio");
+        config.getServer().getWorker().setCoreSize(WORKERS);
+        config.getServer().getWorker().setMaxSize(WORKERS);
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+        miniCat.getServer().addServlet(new PatternServlet(), "/pattern");
+        miniCat.init();
+        miniCat.start();
+        boolean ok;
+        try {
+            // 响应小于排队上限：worker写完后立即释放
+            config.getServer().getNio().setMaxPendingWrite(4 * 1024 * 1024);
+            ok = run("queued", clients, 2 * 1024 * 1024, 2000);
+            // 响应大于排队上限：worker在写队列上等待
+            config.getServer().getNio().setMaxPendingWrite(64 * 1024);
+            ok &= run("backpressure", WORKERS, 8 * 1024 * 1024, 1000);
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        System.out.println(ok ? "SLOW READER OK" : "SLOW READER FAILED");
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * @param stallMillis 客户端发送请求后暂停读取的时间
+     */
+    private static boolean run(String name, int clients, int size, long stallMillis) throws Exception {
+        AtomicInteger intact = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        long cpuBefore = serverCpuTime();
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                try (Socket socket = new Socket()) {
+                    // 较小的接收缓冲区，让服务端的socket发送缓冲区尽快写满
+                    socket.setReceiveBufferSize(4096);
+                    socket.connect(new InetSocketAddress("localhost", PORT));
+                    socket.setSoTimeout(30000);
+                    OutputStream os = socket.getOutputStream();
+                    os.write(("GET /pattern?n=" + size + " HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n")
+                            .getBytes(StandardCharsets.ISO_8859_1));
+                    os.flush();
+                    Thread.sleep(stallMillis);
+                    if (readPattern(socket.getInputStream(), size)) {
+                        intact.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    System.out.println(name + " client failed: " + e);
+                }
+            }, "slow-client-" + i);
+            t.start();
+            threads.add(t);
+        }
+
+        // 慢速客户端暂停读取期间发送普通请求
+        Thread.sleep(stallMillis / 4);
+        long fastStart = System.nanoTime();
+        boolean fastOk;
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(30000);
+            OutputStream os = socket.getOutputStream();
+            os.write("GET /hello.html HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n"
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            os.flush();
+            fastOk = NioPollerBenchmark.readResponse(socket.getInputStream(), new byte[8192]);
+        }
+        long fastMillis = (System.nanoTime() - fastStart) / 1_000_000;
+
+        int maxWorkers = 0;
+        for (Thread t : threads) {
+            while (t.isAlive()) {
+                maxWorkers = Math.max(maxWorkers, workerThreads());
+                t.join(50);
+            }
+        }
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        long cpuMillis = (serverCpuTime() - cpuBefore) / 1_000_000;
+
+        System.out.printf("%-13s clients=%d size=%dKB intact=%d/%d fast-request=%dms workers=%d " +
+                        "wall=%dms server-cpu=%dms%n",
+                name, clients, size / 1024, intact.get(), clients, fastMillis, maxWorkers, wallMillis, cpuMillis);
+        return intact.get() == clients && fastOk && maxWorkers <= WORKERS && cpuMillis < wallMillis / 2;
+    }
+
+    /**
+     * 读取响应并校验响应体为完整的PatternServlet输出
+     */
+    private static boolean readPattern(InputStream is, int size) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int c = is.read();
+            if (c == -1) {
+                return false;
+            }
+            head.append((char) c);
+        }
+        byte[] buf = new byte[8192];
+        int total = 0;
+        while (total < size) {
+            int n = is.read(buf, 0, Math.min(buf.length, size - total));
+            if (n == -1) {
+                return false;
+            }
+            for (int i = 0; i < n; i++) {
+                if (buf[i] != PatternServlet.at(total + i)) {
+                    return false;
+                }
+            }
+            total += n;
+        }
+        return true;
+    }
+
+    private static int workerThreads() {
+        int count = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("nio-worker-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * worker和poller线程消耗的CPU时间（纳秒）
+     */
+    private static long serverCpuTime() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("nio-worker-") || t.getName().startsWith("Poller-")) {
+                total += Math.max(0, bean.getThreadCpuTime(t.getId()));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 输出n个字节的固定序列，声明Content-Length
+     */
+    public static class PatternServlet extends HttpServlet {
+
+        static byte at(int index) {
+            return (byte) (index % 251);
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            int n = Integer.parseInt(req.getParameter("n"));
+            resp.setContentType("application/octet-stream");
+            resp.setContentLength(n);
+            OutputStream os = resp.getOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int written = 0; written < n; ) {
+                int len = Math.min(chunk.length, n - written);
+                for (int i = 0; i < len; i++) {
+                    chunk[i] = at(written + i);
+                }
+                os.write(chunk, 0, len);
+                written += len;
+            }
+        }
+    }
+}
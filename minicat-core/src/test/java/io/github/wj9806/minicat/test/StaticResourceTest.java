@@ -0,0 +1,181 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.server.config.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 静态资源的Range、If-Range与条件请求测试，分别覆盖文件系统目录（零拷贝发送）和classpath资源（缓存发送）
+ * 1. 单个区间、后缀区间返回206和对应的Content-Range
+ * 2. 无法满足的区间返回416，Content-Range为bytes *&#47;length
+ * 3. 多个区间返回multipart/byteranges
+ * 4. If-Range的ETag或日期不匹配时忽略Range返回完整内容
+ * 5. If-None-Match命中时返回304，并带有ETag、Cache-Control（文件还有Last-Modified）
+ * 用法：StaticResourceTest [nio|bio|aio]
+ */
+public class StaticResourceTest {
+
+    private static final int PORT = 18091;
+    private static final int FILE_SIZE = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String mode = args.length > 0 ? args[0] : "nio";
+        Path dir = Files.createTempDirectory("minicat-static");
+        byte[] content = new byte[FILE_SIZE];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        Path file = dir.resolve("data.txt");
+        Files.write(file, content);
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode(mode);
+        config.getServer().getStaticResource().setDirectory(dir.toString());
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.init();
+        miniCat.start();
+        try {
+            resource("file", "/data.txt", content, true);
+            byte[] index;
+            try (InputStream is = StaticResourceTest.class.getResourceAsStream("/static/index.html")) {
+                index = readAll(is);
+            }
+            resource("classpath", "/index.html", index, false);
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        }
+        System.out.println("STATIC RESOURCE OK");
+        System.exit(0);
+    }
+
+    private static void resource(String name, String path, byte[] content, boolean file) throws IOException {
+        int length = content.length;
+        Response full = get(path);
+        check(name + " full", full.status == 200 && Arrays.equals(content, full.body));
+        String etag = full.header("etag");
+        String lastModified = full.header("last-modified");
+        check(name + " validators", etag != null && (!file || lastModified != null));
+
+        Response single = get(path, "Range: bytes=10-19");
+        check(name + " single range", single.status == 206
+                && ("bytes 10-19/" + length).equals(single.header("content-range"))
+                && Arrays.equals(Arrays.copyOfRange(content, 10, 20), single.body));
+
+        Response suffix = get(path, "Range: bytes=-10");
+        check(name + " suffix range", suffix.status == 206
+                && ("bytes " + (length - 10) + "-" + (length - 1) + "/" + length).equals(suffix.header("content-range"))
+                && Arrays.equals(Arrays.copyOfRange(content, length - 10, length), suffix.body));
+
+        Response unsatisfiable = get(path, "Range: bytes=" + (length + 100) + "-");
+        check(name + " unsatisfiable", unsatisfiable.status == 416
+                && ("bytes */" + length).equals(unsatisfiable.header("content-range")));
+
+        Response multi = get(path, "Range: bytes=0-4,20-24");
+        String multiBody = new String(multi.body, StandardCharsets.ISO_8859_1);
+        String contentType = multi.header("content-type");
+        check(name + " multi range", multi.status == 206
+                && contentType != null && contentType.startsWith("multipart/byteranges; boundary=")
+                && multiBody.contains("Content-Range: bytes 0-4/" + length)
+                && multiBody.contains("Content-Range: bytes 20-24/" + length)
+                && multiBody.contains(new String(content, 0, 5, StandardCharsets.ISO_8859_1))
+                && multiBody.contains(new String(content, 20, 5, StandardCharsets.ISO_8859_1)));
+
+        Response ifRangeEtag = get(path, "Range: bytes=0-9", "If-Range: " + etag);
+        check(name + " if-range etag", ifRangeEtag.status == 206 && ifRangeEtag.body.length == 10);
+
+        Response staleEtag = get(path, "Range: bytes=0-9", "If-Range: \"stale\"");
+        check(name + " if-range stale etag", staleEtag.status == 200 && Arrays.equals(content, staleEtag.body));
+
+        Response staleDate = get(path, "Range: bytes=0-9", "If-Range: Sun, 06 Nov 1994 08:49:37 GMT");
+        check(name + " if-range stale date", staleDate.status == 200 && Arrays.equals(content, staleDate.body));
+
+        if (file) {
+            Response ifRangeDate = get(path, "Range: bytes=0-9", "If-Range: " + lastModified);
+            check(name + " if-range date", ifRangeDate.status == 206 && ifRangeDate.body.length == 10);
+        }
+
+        Response notModified = get(path, "If-None-Match: " + etag);
+        check(name + " 304", notModified.status == 304 && notModified.body.length == 0);
+        check(name + " 304 validators", etag.equals(notModified.header("etag"))
+                && notModified.header("cache-control") != null
+                && (!file || lastModified.equals(notModified.header("last-modified"))));
+    }
+
+    private static Response get(String path, String... headers) throws IOException {
+        try (Socket socket = new Socket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            StringBuilder request = new StringBuilder("GET ").append(path).append(" HTTP/1.1\r\n")
+                    .append("Host: localhost\r\n")
+                    .append("Connection: close\r\n");
+            for (String header : headers) {
+                request.append(header).append("\r\n");
+            }
+            request.append("\r\n");
+            OutputStream os = socket.getOutputStream();
+            os.write(request.toString().getBytes(StandardCharsets.ISO_8859_1));
+            os.flush();
+            return Response.parse(readAll(socket.getInputStream()));
+        }
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.printf("%-32s %s%n", name, ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static class Response {
+        int status;
+        final Map<String, String> headers = new HashMap<>();
+        byte[] body;
+
+        String header(String name) {
+            return headers.get(name);
+        }
+
+        /**
+         * 解析连接关闭前收到的完整响应，请求使用Connection: close，响应体为头部之后的全部字节
+         */
+        static Response parse(byte[] raw) {
+            String text = new String(raw, StandardCharsets.ISO_8859_1);
+            int headEnd = text.indexOf("\r\n\r\n");
+            String[] lines = text.substring(0, headEnd).split("\r\n");
+            Response response = new Response();
+            response.status = Integer.parseInt(lines[0].split(" ")[1]);
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                response.headers.put(lines[i].substring(0, colon).trim().toLowerCase(),
+                        lines[i].substring(colon + 1).trim());
+            }
+            response.body = Arrays.copyOfRange(raw, headEnd + 4, raw.length);
+            return response;
+        }
+    }
+}
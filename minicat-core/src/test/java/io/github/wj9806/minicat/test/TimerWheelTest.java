@@ -0,0 +1,151 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.util.HashedTimerWheel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 哈希时间轮测试：10ms一个槽，8个槽，转一圈80ms
+ * 1. 普通超时在截止时间之后的一两个tick内触发
+ * 2. 刷新后的截止时间落在当前槽整圈之后（距离是槽数的整数倍）时，仍然按时触发，不会晚一圈
+ * 3. 取消的任务不触发，超时时间设为-1的任务在重新设置前不触发
+ */
+public class TimerWheelTest {
+
+    private static final long TICK = 10;
+    private static final int WHEEL_SIZE = 8;
+    // 允许的延迟：槽的粒度加上线程调度误差，小于一圈
+    private static final long TOLERANCE = 2 * TICK + 30;
+
+    public static void main(String[] args) throws Exception {
+        HashedTimerWheel wheel = new HashedTimerWheel("TimerWheelTest", TICK, WHEEL_SIZE);
+        wheel.init();
+        wheel.start();
+        try {
+            simple(wheel);
+            refresh(wheel);
+            cancel(wheel);
+        } finally {
+            wheel.stop();
+            wheel.destroy();
+        }
+        System.out.println("TIMER WHEEL OK");
+        System.exit(0);
+    }
+
+    private static void simple(HashedTimerWheel wheel) throws InterruptedException {
+        List<Probe> probes = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(30);
+        for (int i = 0; i < 30; i++) {
+            // 覆盖不到一圈、正好整圈和多圈的超时时间
+            Probe probe = new Probe(latch);
+            probe.schedule(wheel, 5 + i * 7L);
+            probes.add(probe);
+        }
+        check("simple fired", latch.await(2, TimeUnit.SECONDS));
+        check("simple on time", maxLateness(probes) <= TOLERANCE);
+    }
+
+    /**
+     * 先以20ms超时放入，在到期前刷新为20 + i毫秒，刷新后的截止时间覆盖原槽之后的十多个tick，
+     * 其中必然有距离原槽正好一圈的任务，它们会在原槽被处理时重新放回同一个槽
+     */
+    private static void refresh(HashedTimerWheel wheel) throws InterruptedException {
+        List<Probe> probes = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(120);
+        for (int i = 0; i < 120; i++) {
+            Probe probe = new Probe(latch);
+            probe.schedule(wheel, 20);
+            probes.add(probe);
+        }
+        Thread.sleep(10);
+        for (int i = 0; i < probes.size(); i++) {
+            probes.get(i).reschedule(20 + i);
+        }
+        check("refresh fired", latch.await(2, TimeUnit.SECONDS));
+        check("refresh on time", maxLateness(probes) <= TOLERANCE);
+
+        // touch()使用上一次的超时时间重新计时
+        CountDownLatch touched = new CountDownLatch(1);
+        Probe probe = new Probe(touched);
+        probe.schedule(wheel, 4 * TICK);
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(2 * TICK);
+            probe.touch();
+        }
+        check("touch fired", touched.await(1, TimeUnit.SECONDS));
+        check("touch on time", probe.lateness() >= 0 && probe.lateness() <= TOLERANCE);
+    }
+
+    private static void cancel(HashedTimerWheel wheel) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Probe cancelled = new Probe(latch);
+        cancelled.schedule(wheel, 2 * TICK);
+        cancelled.timeout.cancel();
+        Probe parked = new Probe(latch);
+        parked.schedule(wheel, 2 * TICK);
+        parked.reschedule(-1);
+        check("cancelled", !latch.await(WHEEL_SIZE * TICK * 2, TimeUnit.MILLISECONDS));
+
+        parked.reschedule(2 * TICK);
+        check("parked rescheduled", latch.await(1, TimeUnit.SECONDS) && parked.lateness() <= TOLERANCE);
+    }
+
+    private static long maxLateness(List<Probe> probes) {
+        long max = Long.MIN_VALUE;
+        for (Probe probe : probes) {
+            max = Math.max(max, probe.lateness());
+        }
+        System.out.printf("  max lateness %d ms%n", max);
+        return max;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.printf("%-24s %s%n", name, ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 记录截止时间和实际触发时间
+     */
+    private static class Probe implements Runnable {
+        final CountDownLatch latch;
+        HashedTimerWheel.Timeout timeout;
+        volatile long deadline;
+        volatile long firedAt;
+
+        Probe(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        void schedule(HashedTimerWheel wheel, long delay) {
+            deadline = System.currentTimeMillis() + delay;
+            timeout = wheel.schedule(this, delay);
+        }
+
+        void reschedule(long delay) {
+            deadline = delay < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + delay;
+            timeout.reschedule(delay);
+        }
+
+        void touch() {
+            deadline = System.currentTimeMillis() + timeout.getDelay();
+            timeout.touch();
+        }
+
+        long lateness() {
+            return firedAt - deadline;
+        }
+
+        @Override
+        public void run() {
+            firedAt = System.currentTimeMillis();
+            latch.countDown();
+        }
+    }
+}
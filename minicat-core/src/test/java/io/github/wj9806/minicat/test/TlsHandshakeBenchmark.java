@@ -0,0 +1,218 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.core.test.servlet.HelloServlet;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.Arrays;
+
+/**
+ * TLS握手压测：对比完整握手与session恢复的耗时
+ * 1. 使用keytool生成自签名证书的keystore，开启server.ssl启动nio连接器
+ * 2. 先验证HTTPS请求、keep-alive、大响应体和ALPN协商
+ * 3. 完整握手：每次握手后使session失效；恢复：复用客户端的session缓存
+ * 用法：TlsHandshakeBenchmark [handshakes] [protocols...]
+ */
+public class TlsHandshakeBenchmark {
+
+    private static final int PORT = 18443;
+    private static final String PASSWORD = "changeit";
+    private static final int BIG_SIZE = 512 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int handshakes = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String[] protocols = {"TLSv1.3", "TLSv1.2"};
+        if (args.length > 1) {
+            protocols = Arrays.copyOfRange(args, 1, args.length);
+        }
+
+        File keyStore = generateKeyStore();
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode("nio");
+        ServerConfig.SslConfig ssl = config.getServer().getSsl();
+        ssl.setEnabled(true);
+        ssl.setKeyStore(keyStore.getAbsolutePath());
+        ssl.setKeyStorePassword(PASSWORD);
+        ssl.setKeyStoreType("PKCS12");
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new HelloServlet(), "/hello.html");
+        miniCat.getServer().addServlet(new BigServlet(), "/big");
+        miniCat.init();
+        miniCat.start();
+        try {
+            SSLContext client = clientContext(keyStore);
+            verify(client);
+            System.out.printf("handshakes=%d%n", handshakes);
+            System.out.printf("%-9s %-10s %-14s %-14s%n", "protocol", "mode", "ms/handshake", "handshakes/sec");
+            for (String protocol : protocols) {
+                // 每种协议使用新的客户端上下文，避免复用其他协议的session
+                client = clientContext(keyStore);
+                run(client, protocol, handshakes, false);
+                run(client, protocol, handshakes, true);
+            }
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+            Files.deleteIfExists(keyStore.toPath());
+        }
+        System.exit(0);
+    }
+
+    /**
+     * 功能验证：同一连接上的多个请求、大响应体和ALPN
+     */
+    private static void verify(SSLContext client) throws IOException {
+        try (SSLSocket socket = (SSLSocket) client.getSocketFactory().createSocket("localhost", PORT)) {
+            socket.setSoTimeout(5000);
+            SSLParameters parameters = socket.getSSLParameters();
+            parameters.setApplicationProtocols(new String[]{"h2", "http/1.1"});
+            socket.setSSLParameters(parameters);
+            socket.startHandshake();
+            check("alpn", "http/1.1".equals(socket.getApplicationProtocol()));
+
+            byte[] buf = new byte[BIG_SIZE + 8192];
+            OutputStream os = socket.getOutputStream();
+            InputStream is = socket.getInputStream();
+            for (int i = 0; i < 3; i++) {
+                os.write(request("/hello.html", true));
+                os.flush();
+                check("keep-alive request " + i, NioPollerBenchmark.readResponse(is, buf)
+                        && new String(buf, 0, 16, StandardCharsets.ISO_8859_1).startsWith("HTTP/1.1 200"));
+            }
+            os.write(request("/big", true));
+            os.flush();
+            check("big response", NioPollerBenchmark.readResponse(is, buf) && intact(buf));
+        }
+    }
+
+    private static void run(SSLContext client, String protocol, int handshakes, boolean resume) throws IOException {
+        SSLSocketFactory factory = client.getSocketFactory();
+        byte[] buf = new byte[8192];
+        // 预热并让客户端缓存session
+        for (int i = 0; i < Math.max(1, handshakes / 4); i++) {
+            handshake(factory, protocol, buf, !resume);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < handshakes; i++) {
+            handshake(factory, protocol, buf, !resume);
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-9s %-10s %-14.3f %-14.0f%n", protocol, resume ? "resumed" : "full",
+                elapsed / 1e6 / handshakes, handshakes / (elapsed / 1e9));
+    }
+
+    /**
+     * 建立连接、握手并完成一个请求
+     * @param invalidate 请求完成后使session失效，下一次连接需要完整握手
+     */
+    private static void handshake(SSLSocketFactory factory, String protocol, byte[] buf, boolean invalidate)
+            throws IOException {
+        try (SSLSocket socket = (SSLSocket) factory.createSocket("localhost", PORT)) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(5000);
+            socket.setEnabledProtocols(new String[]{protocol});
+            socket.startHandshake();
+            OutputStream os = socket.getOutputStream();
+            os.write(request("/hello.html", false));
+            os.flush();
+            if (!NioPollerBenchmark.readResponse(socket.getInputStream(), buf)) {
+                throw new IOException("Incomplete response");
+            }
+            if (invalidate) {
+                socket.getSession().invalidate();
+            }
+        }
+    }
+
+    private static byte[] request(String uri, boolean keepAlive) {
+        return ("GET " + uri + " HTTP/1.1\r\nHost: localhost\r\nConnection: "
+                + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean intact(byte[] buf) {
+        String head = new String(buf, 0, 512, StandardCharsets.ISO_8859_1);
+        int body = head.indexOf("\r\n\r\n") + 4;
+        for (int i = 0; i < BIG_SIZE; i++) {
+            if (buf[body + i] != (byte) ('a' + i % 26)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.printf("%-24s %s%n", name, ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 使用JDK自带的keytool生成自签名证书
+     */
+    private static File generateKeyStore() throws Exception {
+        File file = File.createTempFile("minicat-tls", ".p12");
+        Files.delete(file.toPath());
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "minicat", "-keyalg", "EC",
+                "-groupname", "secp256r1", "-sigalg", "SHA256withECDSA", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost,ip:127.0.0.1",
+                "-storetype", "PKCS12", "-keystore", file.getAbsolutePath(),
+                "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .redirectErrorStream(true).start();
+        if (process.waitFor() != 0) {
+            byte[] out = new byte[4096];
+            int n = process.getInputStream().read(out);
+            throw new IllegalStateException("keytool failed: " + new String(out, 0, Math.max(n, 0)));
+        }
+        return file;
+    }
+
+    private static SSLContext clientContext(File keyStore) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("PKCS12");
+        try (InputStream is = new FileInputStream(keyStore)) {
+            trustStore.load(is, PASSWORD.toCharArray());
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(null, tmf.getTrustManagers(), null);
+        return context;
+    }
+
+    public static class BigServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            byte[] body = new byte[BIG_SIZE];
+            for (int i = 0; i < body.length; i++) {
+                body[i] = (byte) ('a' + i % 26);
+            }
+            resp.setContentType("application/octet-stream");
+            resp.setContentLength(body.length);
+            if (!req.isSecure() || !"https".equals(req.getScheme())) {
+                resp.setStatus(500);
+                return;
+            }
+            resp.getOutputStream().write(body);
+        }
+    }
+}
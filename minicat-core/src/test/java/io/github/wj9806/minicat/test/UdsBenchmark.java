@@ -0,0 +1,191 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.util.UnixDomainSockets;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 本机TCP与Unix domain socket的延迟对比（nio连接器，需要JDK 16+）
+ * 1. 先验证Unix domain socket上的请求，以及客户端地址取自X-Forwarded-For/Forwarded的最后一个地址（TCP连接忽略该请求头）
+ * 2. keep-alive：同一连接上依次发送请求，统计每个请求的往返延迟
+ * 3. 短连接：每个请求新建连接，包含建立连接的开销
+ * 用法：UdsBenchmark [requests]
+ */
+public class UdsBenchmark {
+
+    private static final int PORT = 18092;
+
+    public static void main(String[] args) throws Exception {
+        if (!UnixDomainSockets.isSupported()) {
+            System.out.println("Unix domain sockets require JDK 16+, skipped");
+            return;
+        }
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        File socketFile = new File(System.getProperty("java.io.tmpdir"), "minicat-" + PORT + ".sock");
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().setMode("nio");
+        config.getServer().getUds().setPath(socketFile.getAbsolutePath());
+
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new AddrServlet(), "/addr");
+        miniCat.init();
+        miniCat.start();
+        try {
+            String path = socketFile.getAbsolutePath();
+            verify(path);
+            System.out.printf("requests=%d%n", requests);
+            System.out.printf("%-6s %-11s %-10s %-10s %-10s %-10s%n", "", "mode", "avg(us)", "p50(us)", "p99(us)",
+                    "req/s");
+            for (int round = 0; round < 2; round++) {
+                // 第一轮为预热
+                boolean print = round == 1;
+                keepAlive("tcp", null, requests, print);
+                keepAlive("uds", path, requests, print);
+                connectPerRequest("tcp", null, requests / 10, print);
+                connectPerRequest("uds", path, requests / 10, print);
+            }
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+        check("socket file removed", !socketFile.exists());
+        System.exit(0);
+    }
+
+    private static void verify(String path) throws IOException {
+        byte[] buf = new byte[8192];
+        try (SocketChannel channel = open(path)) {
+            InputStream is = Channels.newInputStream(channel);
+            check("uds request", exchange(channel, is, buf, "") && body(buf).startsWith("127.0.0.1 0"));
+            // 最左侧的地址由客户端伪造，取本机代理追加在最右侧的地址
+            check("x-forwarded-for", exchange(channel, is, buf, "X-Forwarded-For: 1.2.3.4, 203.0.113.7\r\n")
+                    && body(buf).startsWith("203.0.113.7 0"));
+            check("x-forwarded-for lines", exchange(channel, is, buf,
+                    "X-Forwarded-For: 1.2.3.4\r\nX-Forwarded-For: 203.0.113.8\r\n")
+                    && body(buf).startsWith("203.0.113.8 0"));
+        }
+        config().setRemoteAddressHeader("Forwarded");
+        try (SocketChannel channel = open(path)) {
+            InputStream is = Channels.newInputStream(channel);
+            check("forwarded", exchange(channel, is, buf, "Forwarded: for=1.2.3.4, for=\"[2001:db8::1]:4711\";proto=http\r\n")
+                    && body(buf).startsWith("2001:db8::1 0"));
+        } finally {
+            config().setRemoteAddressHeader("X-Forwarded-For");
+        }
+        try (SocketChannel channel = open(null)) {
+            InputStream is = Channels.newInputStream(channel);
+            check("tcp ignores header", exchange(channel, is, buf, "X-Forwarded-For: 203.0.113.7\r\n")
+                    && body(buf).startsWith("127.0.0.1 ") && !body(buf).startsWith("127.0.0.1 0 "));
+        }
+    }
+
+    private static ServerConfig.UdsConfig config() {
+        return Config.getInstance().getServer().getUds();
+    }
+
+    private static void keepAlive(String name, String path, int requests, boolean print) throws IOException {
+        byte[] buf = new byte[8192];
+        long[] latencies = new long[requests];
+        long start = System.nanoTime();
+        try (SocketChannel channel = open(path)) {
+            InputStream is = Channels.newInputStream(channel);
+            for (int i = 0; i < requests; i++) {
+                long t = System.nanoTime();
+                if (!exchange(channel, is, buf, "")) {
+                    throw new IOException("Incomplete response");
+                }
+                latencies[i] = System.nanoTime() - t;
+            }
+        }
+        report(name, "keep-alive", latencies, System.nanoTime() - start, print);
+    }
+
+    private static void connectPerRequest(String name, String path, int requests, boolean print) throws IOException {
+        byte[] buf = new byte[8192];
+        long[] latencies = new long[requests];
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long t = System.nanoTime();
+            try (SocketChannel channel = open(path)) {
+                if (!exchange(channel, Channels.newInputStream(channel), buf, "")) {
+                    throw new IOException("Incomplete response");
+                }
+            }
+            latencies[i] = System.nanoTime() - t;
+        }
+        report(name, "connect", latencies, System.nanoTime() - start, print);
+    }
+
+    private static void report(String name, String mode, long[] latencies, long elapsed, boolean print) {
+        if (!print) {
+            return;
+        }
+        Arrays.sort(latencies);
+        double avg = elapsed / 1e3 / latencies.length;
+        System.out.printf("%-6s %-11s %-10.1f %-10.1f %-10.1f %-10.0f%n", name, mode, avg,
+                latencies[latencies.length / 2] / 1e3, latencies[(int) (latencies.length * 0.99)] / 1e3,
+                latencies.length / (elapsed / 1e9));
+    }
+
+    /**
+     * path为null时连接本机TCP端口
+     */
+    private static SocketChannel open(String path) throws IOException {
+        if (path != null) {
+            return UnixDomainSockets.connect(path);
+        }
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", PORT));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        return channel;
+    }
+
+    private static boolean exchange(SocketChannel channel, InputStream is, byte[] buf, String headers)
+            throws IOException {
+        ByteBuffer request = ByteBuffer.wrap(("GET /addr HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n"
+                + headers + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+        return NioPollerBenchmark.readResponse(is, buf);
+    }
+
+    private static String body(byte[] buf) {
+        String response = new String(buf, StandardCharsets.ISO_8859_1);
+        return response.substring(response.indexOf("\r\n\r\n") + 4);
+    }
+
+    private static void check(String name, boolean ok) {
+        System.out.printf("%-24s %s%n", name, ok ? "ok" : "FAILED");
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    public static class AddrServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            byte[] body = (req.getRemoteAddr() + " " + req.getRemotePort() + " " + req.getLocalName() + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            resp.setContentType("text/plain");
+            resp.setContentLength(body.length);
+            resp.getOutputStream().write(body);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.MiniCat;
+import io.github.wj9806.minicat.server.HttpServlet;
+import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.util.VirtualThreads;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 阻塞servlet压测：大量keep-alive客户端访问一个阻塞sleepMillis的servlet，
+ * 对比平台线程池BIO、NIO与虚拟线程BIO的吞吐量以及得到响应的客户端数
+ * 虚拟线程需要JDK 21+，低版本JDK上跳过virtual模式
+ * 用法：VirtualThreadBenchmark [clients] [seconds] [sleepMillis]
+ */
+public class VirtualThreadBenchmark {
+
+    private static final int PORT = 18086;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int sleepMillis = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        Config config = Config.getInstance();
+        config.getServer().setShowBanner(false);
+        config.getServer().getNio().setBacklog(clients);
+
+        System.out.printf("clients=%d sleep=%dms%n", clients, sleepMillis);
+        System.out.printf("%-14s %-14s %-14s %-14s%n", "mode", "requests/sec", "served", "failed");
+        bench("bio-eager", "bio", "eager", clients, seconds, sleepMillis);
+        bench("nio-eager", "nio", "eager", clients, seconds, sleepMillis);
+        if (VirtualThreads.isSupported()) {
+            bench("bio-virtual", "bio", "virtual", clients, seconds, sleepMillis);
+            bench("nio-virtual", "nio", "virtual", clients, seconds, sleepMillis);
+        } else {
+            System.out.println("virtual threads not supported on JDK " + System.getProperty("java.version"));
+        }
+        System.exit(0);
+    }
+
+    private static void bench(String name, String mode, String workerMode, int clients, int seconds,
+                              int sleepMillis) throws Exception {
+        ServerConfig server = Config.getInstance().getServer();
+        server.setMode(mode);
+        server.getWorker().setMode(workerMode);
+        MiniCat miniCat = new MiniCat(PORT);
+        miniCat.getServer().addServlet(new SleepServlet(sleepMillis), "/sleep");
+        miniCat.init();
+        miniCat.start();
+        try {
+            LongAdder completed = new LongAdder();
+            AtomicInteger served = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            run(clients, seconds, completed, served, failed);
+            System.out.printf("%-14s %-14.0f %-14s %-14d%n", name, completed.sum() / (double) seconds,
+                    served.get() + "/" + clients, failed.get());
+        } finally {
+            miniCat.stop();
+            miniCat.destroy();
+        }
+    }
+
+    /**
+     * 每个客户端复用一个连接逐个发送请求，至少得到一个响应的客户端计入served
+     */
+    private static void run(int clients, int seconds, LongAdder completed, AtomicInteger served,
+                            AtomicInteger failed) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        CountDownLatch latch = new CountDownLatch(clients);
+        byte[] request = "GET /sleep HTTP/1.1\r\nHost: localhost\r\nConnection: keep-alive\r\n\r\n"
+                .getBytes(StandardCharsets.ISO_8859_1);
+        for (int i = 0; i < clients; i++) {
+            Thread t = new Thread(() -> {
+                byte[] buf = new byte[1024];
+                int count = 0;
+                try (Socket socket = new Socket("localhost", PORT)) {
+                    // 超过压测时间仍未得到响应视为失败
+                    socket.setSoTimeout(seconds * 1000);
+                    OutputStream os = socket.getOutputStream();
+                    while (System.nanoTime() < deadline) {
+                        os.write(request);
+                        os.flush();
+                        if (!NioPollerBenchmark.readResponse(socket.getInputStream(), buf)) {
+                            break;
+                        }
+                        completed.increment();
+                        count++;
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    if (count > 0) {
+                        served.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            }, "bench-client-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        latch.await();
+    }
+
+    public static class SleepServlet extends HttpServlet {
+        private final int sleepMillis;
+
+        public SleepServlet(int sleepMillis) {
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                // 模拟阻塞的数据库或远程调用
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            resp.setContentType("text/plain");
+            resp.getWriter().write("ok");
+        }
+    }
+}
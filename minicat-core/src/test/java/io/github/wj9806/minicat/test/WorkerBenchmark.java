@@ -0,0 +1,120 @@
+package io.github.wj9806.minicat.test;
+
+import io.github.wj9806.minicat.server.config.ServerConfig;
+import io.github.wj9806.minicat.server.thread.WorkerExecutor;
+import io.github.wj9806.minicat.server.thread.WorkerFactory;
+import io.github.wj9806.minicat.util.VirtualThreads;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * worker执行器压测：对比各个server.worker.mode的任务分发延迟与多线程提交时的吞吐量
+ * 1. 分发延迟：单线程间隔提交任务，统计从提交到开始执行的耗时（空闲线程被唤醒的代价）
+ * 2. 吞吐量：producers个线程同时提交空任务，统计每秒执行完成的任务数
+ * 用法：WorkerBenchmark [producers] [tasksPerProducer] [modes...]
+ */
+public class WorkerBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int LATENCY_SAMPLES = 20000;
+
+    public static void main(String[] args) throws Exception {
+        int producers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int tasksPerProducer = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+        List<String> modes = new ArrayList<>(Arrays.asList(WorkerFactory.EAGER, WorkerFactory.QUEUE,
+                WorkerFactory.FORK_JOIN));
+        if (VirtualThreads.isSupported()) {
+            modes.add(WorkerFactory.VIRTUAL);
+        }
+        if (args.length > 2) {
+            modes = Arrays.asList(args).subList(2, args.length);
+        }
+
+        System.out.printf("threads=%d producers=%d tasks=%d%n", THREADS, producers, producers * tasksPerProducer);
+        System.out.printf("%-10s %-12s %-12s %-14s%n", "mode", "p50(us)", "p99(us)", "tasks/sec");
+        for (String mode : modes) {
+            ServerConfig.WorkerConfig config = new ServerConfig.WorkerConfig();
+            config.setMode(mode);
+            config.setCoreSize(THREADS);
+            config.setMaxSize(THREADS);
+            // 队列足够大，避免任务由提交线程执行
+            config.setQueueSize(producers * tasksPerProducer);
+            WorkerExecutor worker = WorkerFactory.create(config, "bench-" + mode + "-");
+            worker.init();
+            worker.start();
+            try {
+                // 预热
+                throughput(worker, producers, tasksPerProducer / 10);
+                latency(worker, LATENCY_SAMPLES / 10);
+                long[] samples = latency(worker, LATENCY_SAMPLES);
+                double tasks = throughput(worker, producers, tasksPerProducer);
+                System.out.printf("%-10s %-12.1f %-12.1f %-14.0f%n", mode,
+                        samples[samples.length / 2] / 1000.0, samples[samples.length * 99 / 100] / 1000.0, tasks);
+            } finally {
+                worker.stop();
+                worker.destroy();
+            }
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return 排好序的分发延迟（纳秒）
+     */
+    private static long[] latency(WorkerExecutor worker, int samples) throws InterruptedException {
+        long[] result = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            CountDownLatch done = new CountDownLatch(1);
+            long[] started = new long[1];
+            long submitted = System.nanoTime();
+            worker.execute(() -> {
+                started[0] = System.nanoTime();
+                done.countDown();
+            });
+            done.await();
+            result[i] = started[0] - submitted;
+            // 让worker线程回到空闲状态
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(20));
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return 每秒执行完成的任务数
+     */
+    private static double throughput(WorkerExecutor worker, int producers, int tasksPerProducer)
+            throws InterruptedException {
+        LongAdder executed = new LongAdder();
+        CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+        CountDownLatch start = new CountDownLatch(1);
+        Runnable task = () -> {
+            executed.increment();
+            done.countDown();
+        };
+        for (int p = 0; p < producers; p++) {
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < tasksPerProducer; i++) {
+                    worker.execute(task);
+                }
+            }, "bench-producer-" + p);
+            producer.setDaemon(true);
+            producer.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return executed.sum() / ((System.nanoTime() - begin) / 1_000_000_000.0);
+    }
+}
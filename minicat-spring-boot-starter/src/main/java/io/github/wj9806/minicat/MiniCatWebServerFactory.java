@@ -3,17 +3,21 @@ package io.github.wj9806.minicat;
 import io.github.wj9806.minicat.core.ApplicationContext;
 import io.github.wj9806.minicat.server.HttpServer;
 import io.github.wj9806.minicat.server.config.Config;
+import io.github.wj9806.minicat.server.config.HttpConfig;
 import io.github.wj9806.minicat.server.config.ServerConfig;
 import org.springframework.boot.web.server.*;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
 import org.springframework.boot.web.servlet.server.*;
 
+import java.util.Arrays;
+
 public class MiniCatWebServerFactory extends AbstractServletWebServerFactory {
 
     @Override
     public WebServer getWebServer(ServletContextInitializer... initializers) {
         ServerConfig conf = Config.getInstance().getServer();
         conf.setShowBanner(false);
+        configureCompression(Config.getInstance().getHttp().getCompression());
 
         MiniCat miniCat = new MiniCat(getPort());
         HttpServer server = miniCat.getServer();
@@ -22,6 +26,26 @@ public class MiniCatWebServerFactory extends AbstractServletWebServerFactory {
         return new MiniCatWebServer(miniCat);
     }
 
+    /**
+     * 将server.compression配置映射到MiniCat的动态压缩配置
+     */
+    private void configureCompression(HttpConfig.CompressionConfig compressionConfig) {
+        Compression compression = getCompression();
+        if (compression == null) {
+            return;
+        }
+        compressionConfig.setEnabled(compression.getEnabled());
+        if (compression.getMimeTypes() != null) {
+            compressionConfig.setMimeTypes(Arrays.asList(compression.getMimeTypes()));
+        }
+        if (compression.getExcludedUserAgents() != null) {
+            compressionConfig.setExcludedUserAgents(Arrays.asList(compression.getExcludedUserAgents()));
+        }
+        if (compression.getMinResponseSize() != null) {
+            compressionConfig.setMinResponseSize((int) compression.getMinResponseSize().toBytes());
+        }
+    }
+
     private void configureContext(ServletContextInitializer[] initializers, ApplicationContext applicationContext) {
         ServletContextInitializer[] initializersToUse = mergeInitializers(initializers);
         MiniCatStarter miniCatStarter = new MiniCatStarter(initializersToUse);